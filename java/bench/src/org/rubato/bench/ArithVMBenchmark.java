@@ -0,0 +1,76 @@
+package org.rubato.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.rubato.rubettes.builtin.ArithCompiler;
+import org.rubato.rubettes.builtin.ArithExpression;
+import org.rubato.rubettes.builtin.ArithVM;
+
+/**
+ * Benchmarks for evaluating compiled arithmetic expressions
+ * as used by the RealArith rubette, with the virtual machine,
+ * the expression tree and the expression tree on columns
+ * of {@link #ROWS} rows.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class ArithVMBenchmark {
+
+    @Param({ "#0+#1", "sin(#0)*#1+sqrt(#0*#0+#1*#1)/(1+abs(#1))" })
+    public String expression;
+
+    public static final int ROWS = 4096;
+
+    private ArithVM vm;
+    private ArithExpression compiled;
+    private double x = 0.5;
+    private double[][] columns;
+    private double[] result = new double[ROWS];
+
+    @Setup
+    public void setup() {
+        ArithCompiler compiler = new ArithCompiler(expression);
+        if (!compiler.parse(2)) {
+            throw new IllegalStateException(compiler.getError());
+        }
+        vm = compiler.getVM();
+        compiled = vm.compile();
+        columns = new double[2][ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            columns[0][i] = 0.5+i*1e-3;
+            columns[1][i] = 2.0-i*1e-4;
+        }
+    }
+
+    @Benchmark
+    public double eval() {
+        x += 1e-6;
+        vm.eval(x, 2.0);
+        return vm.getRealResult();
+    }
+
+    @Benchmark
+    public double evalCompiled() {
+        x += 1e-6;
+        return compiled.eval(x, 2.0);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public double[] evalRowsWithVM() {
+        for (int i = 0; i < ROWS; i++) {
+            vm.eval(columns[0][i], columns[1][i]);
+            result[i] = vm.getRealResult();
+        }
+        return result;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public double[] evalColumns() {
+        compiled.eval(columns, result);
+        return result;
+    }
+}
@@ -0,0 +1,67 @@
+package org.rubato.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.rubato.base.Repository;
+import org.rubato.base.RubatoException;
+import org.rubato.logeo.Sets;
+import org.rubato.math.yoneda.Denotator;
+import org.rubato.math.yoneda.PowerDenotator;
+import org.rubato.math.yoneda.PowerForm;
+import org.rubato.rubettes.util.FlatScore;
+
+/**
+ * Benchmarks for building power denotators and for set operations
+ * on power denotators, using scores with a given number of notes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class DenotatorBenchmark {
+
+    @Param({ "100", "10000" })
+    public int noteCount;
+
+    private PowerForm scoreForm;
+    private List<Denotator> notes;
+    private PowerDenotator score1;
+    private PowerDenotator score2;
+
+    @Setup
+    public void setup() throws RubatoException {
+        scoreForm = (PowerForm)Repository.systemRepository().getForm("Score"); //$NON-NLS-1$
+        score1 = makeScore(0);
+        // half of the notes are shared with the first score
+        score2 = makeScore(noteCount/2);
+        notes = new ArrayList<Denotator>(score1.getFactors());
+    }
+
+    @Benchmark
+    public PowerDenotator construct() throws RubatoException {
+        return new PowerDenotator(null, scoreForm, notes);
+    }
+
+    @Benchmark
+    public PowerDenotator union() throws RubatoException {
+        return Sets.union(score1, score2);
+    }
+
+    @Benchmark
+    public PowerDenotator intersection() throws RubatoException {
+        return Sets.intersection(score1, score2);
+    }
+
+    private PowerDenotator makeScore(int offset) {
+        double[][] columns = new double[FlatScore.COORDINATE_COUNT][noteCount];
+        for (int i = 0; i < noteCount; i++) {
+            columns[FlatScore.ONSET][i] = (i+offset)*0.5;
+            columns[FlatScore.PITCH][i] = 40+(i+offset)%48;
+            columns[FlatScore.LOUDNESS][i] = 80;
+            columns[FlatScore.DURATION][i] = 1;
+        }
+        return new FlatScore(columns).toDenotator();
+    }
+}
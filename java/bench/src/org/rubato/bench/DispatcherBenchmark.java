@@ -0,0 +1,112 @@
+package org.rubato.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.openjdk.jmh.annotations.*;
+import org.rubato.math.module.ModuleElement;
+import org.rubato.xml.Dispatcher;
+import org.rubato.xml.XMLConstants;
+import org.rubato.xml.XMLInputOutput;
+import org.rubato.xml.XMLReader;
+import org.rubato.xml.XMLWriter;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+/**
+ * Benchmarks for resolving the module elements of a score with a given
+ * number of notes through the {@link Dispatcher}, compared with the
+ * previous dispatch path, which looked up the registered prototype in
+ * a HashMap and fell back to reflection for every unregistered type.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class DispatcherBenchmark {
+
+    @Param({ "100", "10000" })
+    public int noteCount;
+
+    private XMLReader reader;
+    private List<Element> elements;
+    private HashMap<String,XMLInputOutput<ModuleElement>> prototypes;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XMLWriter writer = new XMLWriter(new PrintStream(out, false, "UTF-8")); //$NON-NLS-1$
+        writer.open();
+        writer.writeDenotator(Scores.makeNamedScore(noteCount));
+        writer.close();
+        NodeList nodes = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                         .parse(new InputSource(new StringReader(out.toString("UTF-8")))) //$NON-NLS-1$
+                         .getElementsByTagName(XMLConstants.MODULEELEMENT);
+        elements = new ArrayList<Element>(nodes.getLength());
+        prototypes = new HashMap<String,XMLInputOutput<ModuleElement>>();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            Element element = (Element)nodes.item(i);
+            if (!element.hasAttribute(XMLConstants.TYPE_ATTR)) {
+                continue;
+            }
+            elements.add(element);
+            String type = element.getAttribute(XMLConstants.TYPE_ATTR);
+            if (!prototypes.containsKey(type)) {
+                Method m = Class.forName("org.rubato.math.module."+type).getMethod("getXMLInputOutput"); //$NON-NLS-1$ //$NON-NLS-2$
+                prototypes.put(type, (XMLInputOutput<ModuleElement>)m.invoke(null));
+            }
+        }
+        reader = new XMLReader(new StringReader("")); //$NON-NLS-1$
+    }
+
+    @Benchmark
+    public ModuleElement resolve() {
+        Dispatcher dispatcher = Dispatcher.getDispatcher();
+        ModuleElement last = null;
+        for (Element element : elements) {
+            last = dispatcher.resolveElement(reader, element);
+        }
+        return last;
+    }
+
+    @Benchmark
+    public ModuleElement resolveBaseline() {
+        ModuleElement last = null;
+        for (Element element : elements) {
+            last = resolveBaseline(element);
+        }
+        return last;
+    }
+
+    /**
+     * The dispatch of module elements before the factory registry.
+     */
+    private ModuleElement resolveBaseline(Element element) {
+        ModuleElement moduleElement = null;
+        String elementName = element.getAttribute(XMLConstants.TYPE_ATTR);
+        XMLInputOutput<ModuleElement> dispatch = prototypes.get(elementName);
+        if (dispatch != null) {
+            moduleElement = dispatch.fromXML(reader, element);
+        }
+        if (moduleElement == null) {
+            try {
+                Class<?> c = Class.forName("org.rubato.math.module."+elementName); //$NON-NLS-1$
+                Method m = c.getMethod("fromXML", XMLReader.class, Element.class); //$NON-NLS-1$
+                moduleElement = (ModuleElement)m.invoke(c, reader, element);
+            }
+            catch (Exception e) {
+                reader.setError("Cannot build module from %%1.", elementName); //$NON-NLS-1$
+            }
+        }
+        return moduleElement;
+    }
+}
@@ -0,0 +1,83 @@
+package org.rubato.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.rubato.math.matrix.RMatrix;
+import org.rubato.math.module.Module;
+import org.rubato.math.module.ModuleElement;
+import org.rubato.math.module.RProperFreeElement;
+import org.rubato.math.module.RProperFreeModule;
+import org.rubato.math.module.morphism.CompositionException;
+import org.rubato.math.module.morphism.MappingException;
+import org.rubato.math.module.morphism.ModuleMorphism;
+import org.rubato.math.module.morphism.RFreeAffineMorphism;
+import org.rubato.math.module.morphism.TranslationMorphism;
+
+/**
+ * Benchmarks for mapping elements with module morphisms and for
+ * composing chains of module morphisms. Composed chains of affine
+ * morphisms are collapsed into a single affine morphism, mapping
+ * through each morphism of the chain in turn shows the cost of
+ * the uncollapsed chain.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class MorphismBenchmark {
+
+    private static final int DIMENSION = 5;
+
+    @Param({ "1", "4", "10", "16" })
+    public int chainLength;
+
+    private ModuleMorphism[] morphisms;
+    private ModuleMorphism chain;
+    private ModuleElement element;
+
+    @Setup
+    public void setup() throws CompositionException {
+        Module module = RProperFreeModule.make(DIMENSION);
+        morphisms = new ModuleMorphism[chainLength];
+        for (int i = 0; i < chainLength; i++) {
+            if (i % 2 == 0) {
+                RMatrix matrix = new RMatrix(DIMENSION, DIMENSION);
+                for (int j = 0; j < DIMENSION; j++) {
+                    matrix.set(j, j, 1.0+0.01*i);
+                    matrix.set(j, (j+1) % DIMENSION, 0.5);
+                }
+                morphisms[i] = RFreeAffineMorphism.make(matrix, new double[DIMENSION]);
+            }
+            else {
+                double[] v = new double[DIMENSION];
+                v[i % DIMENSION] = i;
+                morphisms[i] = TranslationMorphism.make(module, RProperFreeElement.make(v));
+            }
+        }
+        chain = compose();
+        element = RProperFreeElement.make(new double[] { 1, 60, 80, 1, 0 });
+    }
+
+    @Benchmark
+    public ModuleElement map() throws MappingException {
+        return chain.map(element);
+    }
+
+    @Benchmark
+    public ModuleElement mapSequentially() throws MappingException {
+        ModuleElement x = element;
+        for (int i = 0; i < morphisms.length; i++) {
+            x = morphisms[i].map(x);
+        }
+        return x;
+    }
+
+    @Benchmark
+    public ModuleMorphism compose() throws CompositionException {
+        ModuleMorphism m = morphisms[0];
+        for (int i = 1; i < morphisms.length; i++) {
+            m = morphisms[i].compose(m);
+        }
+        return m;
+    }
+}
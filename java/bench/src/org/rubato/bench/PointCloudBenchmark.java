@@ -0,0 +1,77 @@
+package org.rubato.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.rubato.math.matrix.RMatrix;
+import org.rubato.math.module.ModuleElement;
+import org.rubato.math.module.RElement;
+import org.rubato.math.module.RProperFreeElement;
+import org.rubato.math.module.RProperFreeModule;
+import org.rubato.math.module.morphism.CompositionException;
+import org.rubato.math.module.morphism.EmbeddingMorphism;
+import org.rubato.math.module.morphism.MappingException;
+import org.rubato.math.module.morphism.ModuleMorphism;
+import org.rubato.math.module.morphism.RFreeAffineMorphism;
+
+/**
+ * Benchmarks for transforming a cloud of one million points with a
+ * module morphism, once by mapping the coordinate array in a batch
+ * and once by mapping every point as a module element.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+public class PointCloudBenchmark {
+
+    private static final int POINTS = 1000000;
+    private static final int DIMENSION = 3;
+
+    @Param({ "affine", "embedding" })
+    public String morphismType;
+
+    private ModuleMorphism morphism;
+    private double[] points;
+    private double[] result;
+
+    @Setup
+    public void setup() throws CompositionException {
+        RMatrix matrix = new RMatrix(DIMENSION, DIMENSION);
+        for (int i = 0; i < DIMENSION; i++) {
+            matrix.set(i, i, 0.5);
+            matrix.set(i, (i+1) % DIMENSION, 2);
+        }
+        morphism = RFreeAffineMorphism.make(matrix, new double[] { 1, 2, 3 });
+        if (morphismType.equals("embedding")) {
+            ModuleMorphism embedding = EmbeddingMorphism.make(RProperFreeModule.make(DIMENSION), RProperFreeModule.make(DIMENSION+1));
+            morphism = embedding.compose(morphism);
+        }
+        Random random = new Random(1);
+        points = new double[POINTS*DIMENSION];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = random.nextDouble()*100;
+        }
+        result = new double[POINTS*morphism.getCodomain().getDimension()];
+    }
+
+    @Benchmark
+    public double[] mapValues() throws MappingException {
+        morphism.mapValues(points, result, POINTS);
+        return result;
+    }
+
+    @Benchmark
+    public double[] mapElements() throws MappingException {
+        int n = morphism.getCodomain().getDimension();
+        for (int k = 0; k < POINTS; k++) {
+            double[] v = new double[DIMENSION];
+            System.arraycopy(points, k*DIMENSION, v, 0, DIMENSION);
+            ModuleElement y = morphism.map(RProperFreeElement.make(v));
+            for (int i = 0; i < n; i++) {
+                result[k*n+i] = ((RElement)y.getComponent(i)).getValue();
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,60 @@
+package org.rubato.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.rubato.math.arith.Rational;
+import org.rubato.math.matrix.QMatrix;
+
+/**
+ * Benchmarks for Gaussian elimination on rational matrices.
+ * The matrices have small integer entries, so that the
+ * numerators and denominators stay within int range.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class QMatrixBenchmark {
+
+    @Param({ "4", "8", "50", "200" })
+    public int size;
+
+    private QMatrix q;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        q = new QMatrix(size, size);
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                q.set(i, j, new Rational(i == j ? 4 : random.nextInt(3)-1));
+            }
+        }
+    }
+
+    /**
+     * Reduction to reduced row echelon form.
+     */
+    @Benchmark
+    public QMatrix rref() {
+        QMatrix m = new QMatrix(q);
+        m.computeRREF();
+        return m;
+    }
+
+    @Benchmark
+    public Rational determinant() {
+        return q.determinant();
+    }
+
+    @Benchmark
+    public int rank() {
+        return q.rank();
+    }
+
+    @Benchmark
+    public QMatrix inverse() {
+        return q.inverse();
+    }
+}
@@ -0,0 +1,60 @@
+package org.rubato.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.rubato.math.matrix.RMatrix;
+
+/**
+ * Benchmarks for real matrices.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class RMatrixBenchmark {
+
+    @Param({ "8", "64", "256" })
+    public int size;
+
+    private RMatrix a;
+    private RMatrix b;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        a = randomRMatrix(random);
+        b = randomRMatrix(random);
+    }
+
+    @Benchmark
+    public RMatrix rmatrixProduct() {
+        return a.product(b);
+    }
+
+    @Benchmark
+    public RMatrix rmatrixInverse() {
+        return new RMatrix(a).inverse();
+    }
+
+    @Benchmark
+    public double rmatrixDeterminant() {
+        // a fresh copy, so that no decomposition is reused
+        return new RMatrix(a).determinant();
+    }
+
+    @Benchmark
+    public RMatrix rmatrixPower() {
+        return a.power(16);
+    }
+
+    private RMatrix randomRMatrix(Random random) {
+        RMatrix m = new RMatrix(size, size);
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                m.set(i, j, random.nextDouble()-0.5);
+            }
+        }
+        return m;
+    }
+}
@@ -0,0 +1,64 @@
+package org.rubato.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.rubato.math.arith.Rational;
+
+/**
+ * Benchmarks for rational arithmetic. The first three use small values,
+ * which are kept in longs, the harmonic sums soon need BigIntegers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class RationalBenchmark {
+
+    private static final int COUNT = 1024;
+
+    private Rational[] values = new Rational[COUNT];
+
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        for (int i = 0; i < COUNT; i++) {
+            int sign = random.nextBoolean() ? 1 : -1;
+            values[i] = new Rational(sign*(1+random.nextInt(1000)), 1+random.nextInt(120));
+        }
+    }
+
+    @Benchmark
+    public void sum(Blackhole blackhole) {
+        for (int i = 0; i+1 < COUNT; i++) {
+            blackhole.consume(values[i].sum(values[i+1]));
+        }
+    }
+
+    @Benchmark
+    public void productQuotient(Blackhole blackhole) {
+        for (int i = 0; i+2 < COUNT; i++) {
+            blackhole.consume(values[i].product(values[i+1]).quotient(values[i+2]));
+        }
+    }
+
+    @Benchmark
+    public void inPlaceAddMultiply(Blackhole blackhole) {
+        for (int i = 0; i+2 < COUNT; i++) {
+            Rational r = new Rational(values[i]);
+            r.add(values[i+1]);
+            r.multiply(values[i+2]);
+            blackhole.consume(r);
+        }
+    }
+
+    @Benchmark
+    public Rational harmonicSum() {
+        Rational sum = Rational.getZero();
+        for (int i = 1; i <= 64; i++) {
+            sum.add(new Rational(1, i));
+        }
+        return sum;
+    }
+}
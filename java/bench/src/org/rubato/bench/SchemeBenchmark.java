@@ -0,0 +1,51 @@
+package org.rubato.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.rubato.scheme.Env;
+import org.rubato.scheme.Evaluator;
+import org.rubato.scheme.Parser;
+import org.rubato.scheme.SExpr;
+
+/**
+ * Benchmarks for the Scheme evaluator.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class SchemeBenchmark {
+
+    private static final String DEFINITIONS =
+        "(define (fib n) (if (< n 2) n (+ (fib (- n 1)) (fib (- n 2)))))" + //$NON-NLS-1$
+        "(define (sum-list l) (if (null? l) 0 (+ (car l) (sum-list (cdr l)))))" + //$NON-NLS-1$
+        "(define (range a b) (if (>= a b) '() (cons a (range (+ a 1) b))))"; //$NON-NLS-1$
+
+    private Evaluator evaluator;
+    private List<SExpr> fib;
+    private List<SExpr> lists;
+
+    @Setup
+    public void setup() {
+        Env env = Env.makeStandardEnvironment();
+        evaluator = new Evaluator(env);
+        Parser parser = new Parser();
+        evaluator.eval(parser.parse(DEFINITIONS));
+        fib = parser.parse("(fib 15)"); //$NON-NLS-1$
+        lists = parser.parse("(sum-list (map (lambda (x) (* x x)) (range 0 200)))"); //$NON-NLS-1$
+        if (evaluator.hasErrors()) {
+            throw new IllegalStateException(evaluator.getErrors().get(0));
+        }
+    }
+
+    @Benchmark
+    public SExpr fib() {
+        return evaluator.eval(fib);
+    }
+
+    @Benchmark
+    public SExpr lists() {
+        return evaluator.eval(lists);
+    }
+}
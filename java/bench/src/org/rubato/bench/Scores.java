@@ -0,0 +1,39 @@
+package org.rubato.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.rubato.base.Repository;
+import org.rubato.base.RubatoException;
+import org.rubato.math.yoneda.Denotator;
+import org.rubato.math.yoneda.NameDenotator;
+import org.rubato.math.yoneda.PowerDenotator;
+import org.rubato.math.yoneda.PowerForm;
+import org.rubato.rubettes.util.FlatScore;
+
+/**
+ * The score named "score" with a given number of notes named "note0",
+ * "note1", etc., as read and written by the XML benchmarks.
+ */
+final class Scores {
+
+    static PowerDenotator makeNamedScore(int noteCount) throws RubatoException {
+        double[][] columns = new double[FlatScore.COORDINATE_COUNT][noteCount];
+        for (int i = 0; i < noteCount; i++) {
+            columns[FlatScore.ONSET][i] = i*0.25;
+            columns[FlatScore.PITCH][i] = 40+i%48;
+            columns[FlatScore.LOUDNESS][i] = 60+i%40;
+            columns[FlatScore.DURATION][i] = 0.5;
+            columns[FlatScore.VOICE][i] = i%4;
+        }
+        PowerDenotator unnamed = new FlatScore(columns).toDenotator();
+        List<Denotator> notes = new ArrayList<Denotator>(noteCount);
+        for (int i = 0; i < noteCount; i++) {
+            notes.add(unnamed.getFactor(i).namedCopy(NameDenotator.make("note"+i))); //$NON-NLS-1$
+        }
+        PowerForm scoreForm = (PowerForm)Repository.systemRepository().getForm("Score"); //$NON-NLS-1$
+        return new PowerDenotator(NameDenotator.make("score"), scoreForm, notes); //$NON-NLS-1$
+    }
+
+    private Scores() {}
+}
@@ -0,0 +1,76 @@
+package org.rubato.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MidiEvent;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Track;
+
+import org.openjdk.jmh.annotations.*;
+import org.rubato.audio.midi.MidiReader;
+import org.rubato.math.yoneda.PowerDenotator;
+import org.rubato.rubettes.util.VoiceSplitter;
+
+/**
+ * Benchmark for splitting an imported MIDI file into contrapuntal voices,
+ * as done by the LilyPondOut rubette. If no file is given, a dense
+ * polyphonic MIDI file with the given number of notes is written and
+ * imported.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+public class VoiceSplitterBenchmark {
+
+    @Param({ "" })
+    public String midiFile;
+
+    @Param({ "5000", "50000" })
+    public int noteCount;
+
+    private PowerDenotator score;
+
+    @Setup
+    public void setup() throws InvalidMidiDataException, IOException {
+        MidiReader reader;
+        if (midiFile.length() > 0) {
+            reader = new MidiReader(midiFile);
+        }
+        else {
+            reader = new MidiReader(new ByteArrayInputStream(makeMidiFile()));
+        }
+        score = (PowerDenotator)reader.getDenotator();
+    }
+
+    @Benchmark
+    public VoiceSplitter split() {
+        return new VoiceSplitter(score);
+    }
+
+    private byte[] makeMidiFile() throws InvalidMidiDataException, IOException {
+        Sequence sequence = new Sequence(Sequence.PPQ, 480);
+        Random random = new Random(5);
+        // several tracks of overlapping notes with irregular durations
+        for (int t = 0; t < 8; t++) {
+            Track track = sequence.createTrack();
+            long tick = 0;
+            for (int i = 0; i < noteCount/8; i++) {
+                int key = 30+random.nextInt(60);
+                long duration = 120*(1+random.nextInt(16));
+                track.add(new MidiEvent(new ShortMessage(ShortMessage.NOTE_ON, t, key, 80), tick));
+                track.add(new MidiEvent(new ShortMessage(ShortMessage.NOTE_OFF, t, key, 0), tick+duration));
+                tick += 60*random.nextInt(4);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MidiSystem.write(sequence, 1, out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,78 @@
+package org.rubato.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.rubato.base.RubatoException;
+import org.rubato.math.yoneda.Denotator;
+import org.rubato.math.yoneda.PowerDenotator;
+import org.rubato.xml.BinaryWriter;
+import org.rubato.xml.XMLReader;
+import org.rubato.xml.XMLWriter;
+
+/**
+ * Benchmarks for reading a score with a given number of notes,
+ * from XML by streaming and by building the whole DOM tree,
+ * and from the binary format.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+public class XMLReaderBenchmark {
+
+    @Param({ "1000", "20000" })
+    public int noteCount;
+
+    private String xml;
+    private File binaryFile;
+
+    @Setup
+    public void setup() throws RubatoException, IOException {
+        PowerDenotator score = Scores.makeNamedScore(noteCount);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XMLWriter writer = new XMLWriter(new PrintStream(out, false, "UTF-8")); //$NON-NLS-1$
+        writer.open();
+        writer.writeDenotator(score);
+        writer.close();
+        xml = out.toString("UTF-8"); //$NON-NLS-1$
+
+        binaryFile = File.createTempFile("score", ".rbb"); //$NON-NLS-1$ //$NON-NLS-2$
+        binaryFile.deleteOnExit();
+        BinaryWriter binaryWriter = new BinaryWriter(binaryFile);
+        binaryWriter.open();
+        binaryWriter.writeDenotator(score);
+        binaryWriter.close();
+    }
+
+    @TearDown
+    public void tearDown() {
+        binaryFile.delete();
+    }
+
+    @Benchmark
+    public Denotator parseStreaming() {
+        XMLReader reader = new XMLReader(new StringReader(xml));
+        reader.parse();
+        return reader.getDenotator("score"); //$NON-NLS-1$
+    }
+
+    @Benchmark
+    public Denotator parseDocument() {
+        XMLReader reader = new XMLReader(new StringReader(xml));
+        reader.setStreaming(false);
+        reader.parse();
+        return reader.getDenotator("score"); //$NON-NLS-1$
+    }
+
+    @Benchmark
+    public Denotator parseBinary() throws IOException {
+        XMLReader reader = new XMLReader(binaryFile);
+        reader.parse();
+        return reader.getDenotator("score"); //$NON-NLS-1$
+    }
+}
@@ -0,0 +1,51 @@
+package org.rubato.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.rubato.math.matrix.ZnMatrix;
+
+/**
+ * Benchmarks for Gaussian elimination on modular integer matrices.
+ * The composite modulus requires pivoting on non-units.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class ZnMatrixBenchmark {
+
+    @Param({ "50", "200" })
+    public int size;
+
+    private ZnMatrix prime;
+    private ZnMatrix composite;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        prime = new ZnMatrix(size, size, 101);
+        composite = new ZnMatrix(size, size, 120);
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                prime.set(i, j, random.nextInt(101));
+                composite.set(i, j, random.nextInt(60)*2);
+            }
+        }
+    }
+
+    @Benchmark
+    public int determinant() {
+        return prime.determinant();
+    }
+
+    @Benchmark
+    public int compositeDeterminant() {
+        return composite.determinant();
+    }
+
+    @Benchmark
+    public ZnMatrix inverse() {
+        return prime.inverse();
+    }
+}
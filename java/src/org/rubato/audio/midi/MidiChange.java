@@ -41,8 +41,22 @@ public class MidiChange implements Comparable<MidiChange> {
         double   d = ((SimpleDenotator)note.getFactor(3)).getReal();
         int      v = ((SimpleDenotator)note.getFactor(4)).getInteger();
 
+        init(o, p.intValue(), l, d, v, resolution);
+    }
+
+
+    /**
+     * Creates a note-on change from the coordinate values of a note,
+     * with the pitch already rounded to an integer.
+     */
+    public MidiChange(double o, int p, int l, double d, int v, int resolution) {
+        init(o, p, l, d, v, resolution);
+    }
+
+
+    private void init(double o, int p, int l, double d, int v, int resolution) {
         onset    = (int)Math.round(o*resolution);
-        pitch    = Math.max(Math.min(p.intValue(), 127), 0);
+        pitch    = Math.max(Math.min(p, 127), 0);
         loudness = Math.max(Math.min(l, 127), 0);
         duration = (int)Math.round(d*resolution);
         track    = 0;
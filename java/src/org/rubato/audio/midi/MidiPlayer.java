@@ -31,6 +31,8 @@ import org.rubato.base.Repository;
 import org.rubato.math.yoneda.Denotator;
 import org.rubato.math.yoneda.FactorDenotator;
 import org.rubato.math.yoneda.Form;
+import org.rubato.math.yoneda.PowerDenotator;
+import org.rubato.rubettes.util.FlatScore;
 
 
 /**
@@ -386,16 +388,37 @@ public class MidiPlayer implements MetaEventListener {
      * sorted by onsets.
      */
     private ArrayList<MidiChange> scoreToMidiNotes() {
-        List<Denotator> noteList = ((FactorDenotator)score).getFactors();
-        ArrayList<MidiChange> midiChanges = new ArrayList<MidiChange>(noteList.size()*3);
+        ArrayList<MidiChange> midiChanges;
         
         int begin = Integer.MAX_VALUE;
         // process note on/off events
-        for (Denotator d : noteList) {
-            MidiChange midiChange = new MidiChange((FactorDenotator)d, resolution);
-            begin = Math.min(midiChange.getOnset(), begin);
-            midiChanges.add(midiChange);
-            midiChanges.add(midiChange.getNoteOff());
+        if (FlatScore.isFlattenable(score)) {
+            // read the coordinates column by column instead of note by note
+            FlatScore flatScore = new FlatScore((PowerDenotator)score);
+            double[] onsets = flatScore.getColumn(FlatScore.ONSET);
+            double[] pitches = flatScore.getColumn(FlatScore.PITCH);
+            double[] loudnesses = flatScore.getColumn(FlatScore.LOUDNESS);
+            double[] durations = flatScore.getColumn(FlatScore.DURATION);
+            double[] voices = flatScore.getColumn(FlatScore.VOICE);
+            midiChanges = new ArrayList<MidiChange>(flatScore.size()*3);
+            for (int i = 0; i < flatScore.size(); i++) {
+                MidiChange midiChange = new MidiChange(onsets[i], (int)Math.round(pitches[i]),
+                                                       (int)loudnesses[i], durations[i],
+                                                       (int)voices[i], resolution);
+                begin = Math.min(midiChange.getOnset(), begin);
+                midiChanges.add(midiChange);
+                midiChanges.add(midiChange.getNoteOff());
+            }
+        }
+        else {
+            List<Denotator> noteList = ((FactorDenotator)score).getFactors();
+            midiChanges = new ArrayList<MidiChange>(noteList.size()*3);
+            for (Denotator d : noteList) {
+                MidiChange midiChange = new MidiChange((FactorDenotator)d, resolution);
+                begin = Math.min(midiChange.getOnset(), begin);
+                midiChanges.add(midiChange);
+                midiChanges.add(midiChange.getNoteOff());
+            }
         }
         
         /*
@@ -239,6 +239,44 @@ public abstract class AbstractRubette implements Rubette {
     }
 
     
+    /**
+     * Returns true iff this Rubette may be run concurrently with
+     * other Rubettes of the network. The default returns false,
+     * and the Runner never runs such a Rubette alongside any other.
+     * A Rubette that only reads its inputs and properties and sets
+     * its outputs may override this method and return true.
+     */
+    public boolean isThreadSafe() {
+        return false;
+    }
+
+    
+    /**
+     * Returns true iff the outputs of the last run may be reused,
+     * if neither the inputs nor the properties have changed since.
+     * The default returns false, so that an incremental run always
+     * runs the Rubette again. Only a Rubette that computes its outputs
+     * from its inputs, its properties and the state described by
+     * {@link #getReuseKey()}, without any other effect, may override
+     * this method and return true.
+     */
+    public boolean canReuseOutputs() {
+        return false;
+    }
+
+    
+    /**
+     * Returns an object describing any further state the outputs depend on,
+     * for example the path and modification time of a file that is read.
+     * The outputs of the last run are only reused if the object returned
+     * now is equal to the one returned after that run.
+     * The default returns null, i.e., there is no such state.
+     */
+    public Object getReuseKey() {
+        return null;
+    }
+
+    
     /**
      * The default constructor must/should perform initializations specfic to
      * each rubette instance, for example set the number of inputs and outputs, or
@@ -253,6 +253,7 @@ public class Repository
                 }
             }
             forms.put(name, new FormItem(form, builtin));
+            clearReachableForms();
             tmpForms.add(form);
             if (builtin) {
                 builtinForms.put(form, form);
@@ -312,6 +313,46 @@ public class Repository
     }
 
 
+    /**
+     * Returns the forms of all denotators that may occur below a denotator
+     * of form <code>form</code>, i.e., the forms reachable from the coordinate
+     * forms of its form diagram. The form itself is only contained if it
+     * is recursive. The sets are computed once per form and cached
+     * until a form is registered or removed.
+     * 
+     * @return an unmodifiable set of forms, or null if the form
+     *         contains unresolved references
+     */
+    public synchronized Set<Form> getReachableForms(Form form) {
+        Set<Form> reachable = reachableForms.get(form);
+        if (reachable == null) {
+            reachable = new HashSet<Form>();
+            LinkedList<Form> queue = new LinkedList<Form>();
+            queue.add(form);
+            while (!queue.isEmpty()) {
+                Form currentForm = queue.removeFirst();
+                if (currentForm instanceof FormReference) {
+                    return null;
+                }
+                for (int i = 0; i < currentForm.getFormCount(); i++) {
+                    Form coordinateForm = currentForm.getForm(i);
+                    if (reachable.add(coordinateForm)) {
+                        queue.add(coordinateForm);
+                    }
+                }
+            }
+            reachable = Collections.unmodifiableSet(reachable);
+            reachableForms.put(form, reachable);
+        }
+        return reachable;
+    }
+    
+    
+    private synchronized void clearReachableForms() {
+        reachableForms.clear();
+    }
+
+
     /**
      * Returns a power form with the given base form.
      * The new form is given the name "_Power(baseFormName)".
@@ -411,6 +452,7 @@ public class Repository
      */
     public synchronized void removeForm(NameDenotator name) {
         forms.remove(name.getNameEntry());
+        clearReachableForms();
         setChanged();
         notifyObservers();
     }
@@ -545,6 +587,8 @@ public class Repository
         autogenColimitForms = new HashMap<ArrayList<Form>,ColimitForm>(256);
         autogenSimpleForms  = new HashMap<Module,SimpleForm>(256);
         
+        reachableForms = new IdentityHashMap<Form,Set<Form>>(256);
+        
         env = Env.makeGlobalEnvironment();
         code = "";
         
@@ -1121,6 +1165,10 @@ public class Repository
     private HashMap<ArrayList<Form>,ColimitForm> autogenColimitForms;
     private HashMap<Module,SimpleForm>           autogenSimpleForms;
     
+    // caching table for the forms reachable from a form, by identity,
+    // since registered forms are equal if they have the same name
+    private IdentityHashMap<Form,Set<Form>> reachableForms;
+    
     // Containers for temporary forms and denotators
     private LinkedList<Form> tmpForms = new LinkedList<Form>();
     private LinkedList<Denotator> tmpDenos = new LinkedList<Denotator>();
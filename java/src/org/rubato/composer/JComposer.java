@@ -53,6 +53,7 @@ import org.rubato.composer.rubette.JRubette;
 import org.rubato.composer.rubette.RubetteModel;
 import org.rubato.rubettes.builtin.MacroRubette;
 import org.rubato.util.TextUtils;
+import org.rubato.xml.BinaryWriter;
 import org.rubato.xml.XMLReader;
 import org.rubato.xml.XMLWriter;
 
@@ -794,7 +795,13 @@ public class JComposer extends JFrame implements Observer {
         else {
             // write all networks to the current file
             try {
-                XMLWriter writer = new XMLWriter(currentFile, true);
+                XMLWriter writer;
+                if (currentFile.getName().endsWith(DOT_BINARY_EXTENSION)) {
+                    writer = new BinaryWriter(currentFile);
+                }
+                else {
+                    writer = new XMLWriter(currentFile, true);
+                }
                 writer.open();
                 
                 // write user defined objects in global repository
@@ -834,7 +841,8 @@ public class JComposer extends JFrame implements Observer {
         // get a new file name
         if (res == JFileChooser.APPROVE_OPTION) {
             File selectedFile = fileChooser.getSelectedFile();
-            if (!selectedFile.getName().endsWith(DOT_EXTENSION)) {
+            if (!selectedFile.getName().endsWith(DOT_EXTENSION) &&
+                !selectedFile.getName().endsWith(DOT_BINARY_EXTENSION)) {
                 try {
                     selectedFile = new File(selectedFile.getCanonicalPath()+DOT_EXTENSION);
                 }
@@ -1097,6 +1105,8 @@ public class JComposer extends JFrame implements Observer {
             }
             problemList.clearProblems();
             runner.setNetwork(network.getModel());
+            runner.setParallel(userPrefs.getParallelRun());
+            runner.setIncremental(userPrefs.getIncrementalRun());
             setEnabledAll(false);
             running = true;
             resetProgressWindow(0);
@@ -1126,6 +1136,8 @@ public class JComposer extends JFrame implements Observer {
                 }
                 problemList.clearProblems();
                 runner.setList(network.getModel(), runList);
+                runner.setParallel(userPrefs.getParallelRun());
+                runner.setIncremental(userPrefs.getIncrementalRun());
                 setEnabledAll(false);
                 running = true;
                 resetProgressWindow(0);
@@ -1340,7 +1352,7 @@ public class JComposer extends JFrame implements Observer {
         fileChooser = new JFileChooser();
         fileChooser.setFileFilter(new FileFilter() {
             public boolean accept(File f) {
-                return f.isDirectory() || f.getName().endsWith(".rbo"); //$NON-NLS-1$
+                return f.isDirectory() || f.getName().endsWith(DOT_EXTENSION) || f.getName().endsWith(DOT_BINARY_EXTENSION);
             }
             public String getDescription() {
                 return Messages.getString("JComposer.rubatofiles"); //$NON-NLS-1$
@@ -1714,9 +1726,11 @@ public class JComposer extends JFrame implements Observer {
     private JFileChooser fileChooser      = null;
 
     private static final Dimension PREFERRED_SIZE = new Dimension(900, 800);
-    private static final String    TITLE_STRING   = "Rubato Composer"; //$NON-NLS-1$
-    private static final String    EXTENSION      = "rbo"; //$NON-NLS-1$
-    private static final String    DOT_EXTENSION  = "."+EXTENSION; //$NON-NLS-1$
+    private static final String    TITLE_STRING          = "Rubato Composer"; //$NON-NLS-1$
+    private static final String    EXTENSION             = "rbo"; //$NON-NLS-1$
+    private static final String    DOT_EXTENSION         = "."+EXTENSION; //$NON-NLS-1$
+    private static final String    BINARY_EXTENSION      = "rbb"; //$NON-NLS-1$
+    private static final String    DOT_BINARY_EXTENSION  = "."+BINARY_EXTENSION; //$NON-NLS-1$
 
     private static final Repository rep = Repository.systemRepository();
     
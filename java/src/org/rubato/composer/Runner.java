@@ -20,12 +20,25 @@
 package org.rubato.composer;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Logger;
 
+import org.rubato.base.AbstractRubette;
 import org.rubato.base.Rubette;
 import org.rubato.composer.network.NetworkModel;
+import org.rubato.composer.rubette.Link;
 import org.rubato.composer.rubette.RubetteModel;
 import org.rubato.util.TextUtils;
 
@@ -64,39 +77,151 @@ public class Runner implements Runnable {
     }
     
     
+    /**
+     * Sets whether rubettes that do not depend on each other
+     * are run concurrently.
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+    
+    
+    /**
+     * Sets whether rubettes whose inputs and properties have not
+     * changed since their last successful run are skipped.
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+    
+    
     /**
      * Runs the current network.
      */
     public void run() {
         composer.resetProgressWindow(dependents.size());
+        if (parallel) {
+            runParallel();
+        }
+        else {
+            runSequential();
+        }
+        composer.finishRun();
+    }
+    
+    
+    private void runSequential() {
         for (int i = 0; i < dependents.size(); i++) {
             if (runInfo.stopped()) { break; }
-            RubetteModel model = dependents.get(i);
-            Rubette rubette = model.getRubette();
-            rubette.clearErrors();
-            try {
-                logger.info(TextUtils.replaceStrings("Running rubette %%1", model.getName())); //$NON-NLS-1$
-                composer.addProgressMessage(TextUtils.replaceStrings("Running rubette %%1", model.getName()));
-                if (model.isPassThrough()) {
-                    rubette.setOutput(0, rubette.getInput(0));
+            runRubette(dependents.get(i));
+            composer.makeProgress(i+1);
+        }
+    }
+    
+    
+    /**
+     * Runs the rubettes of the list on a bounded pool of threads.
+     * A rubette is started as soon as all the rubettes of the list
+     * linked to its inputs have finished. Rubettes that are not
+     * thread-safe are run while no other rubette is running.
+     */
+    private void runParallel() {
+        // number of input links from rubettes still to be run
+        HashMap<RubetteModel,Integer> waiting = new HashMap<RubetteModel,Integer>();
+        for (RubetteModel model : dependents) {
+            waiting.put(model, 0);
+        }
+        for (RubetteModel model : dependents) {
+            for (Link link : model.getInLinks()) {
+                if (waiting.containsKey(link.getSrcModel())) {
+                    waiting.put(model, waiting.get(model)+1);
                 }
-                else {
-                    rubette.run(runInfo);
-                    if (rubette.hasErrors()) {
-                        addProblems(rubette.getErrors(), model);
-                    }
-                    else {
-                        rubette.updateView();
+            }
+        }
+        
+        ReadWriteLock lock = new ReentrantReadWriteLock();
+        executor = Executors.newFixedThreadPool(getThreadCount());
+        CompletionService<RubetteModel> completion = new ExecutorCompletionService<RubetteModel>(executor);
+        // the rubette run by each task, for reporting a task that failed
+        HashMap<Future<RubetteModel>,RubetteModel> tasks = new HashMap<Future<RubetteModel>,RubetteModel>();
+        int finished = 0;
+        try {
+            for (RubetteModel model : dependents) {
+                if (waiting.get(model) == 0) {
+                    tasks.put(completion.submit(new RubetteTask(model, lock)), model);
+                }
+            }
+            while (finished < tasks.size()) {
+                Future<RubetteModel> future = completion.take();
+                RubetteModel model = tasks.get(future);
+                try {
+                    future.get();
+                }
+                catch (ExecutionException e) {
+                    e.getCause().printStackTrace();
+                    addProblem(Messages.getString("Runner.exceptionproblem"), model); //$NON-NLS-1$
+                }
+                finished++;
+                composer.makeProgress(finished);
+                if (runInfo.stopped()) { continue; }
+                for (Link link : model.getOutLinks()) {
+                    RubetteModel dest = link.getDestModel();
+                    Integer count = waiting.get(dest);
+                    if (count != null) {
+                        waiting.put(dest, count-1);
+                        if (count == 1) {
+                            tasks.put(completion.submit(new RubetteTask(dest, lock)), dest);
+                        }
                     }
                 }
             }
-            catch (Exception e) {
-                e.printStackTrace();
-                addProblem(Messages.getString("Runner.exceptionproblem"), model); //$NON-NLS-1$
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    
+    private void runRubette(RubetteModel model) {
+        Rubette rubette = model.getRubette();
+        if (incremental && model.isUpToDate()) {
+            logger.info(TextUtils.replaceStrings("Skipping unchanged rubette %%1", model.getName())); //$NON-NLS-1$
+            return;
+        }
+        rubette.clearErrors();
+        try {
+            logger.info(TextUtils.replaceStrings("Running rubette %%1", model.getName())); //$NON-NLS-1$
+            composer.addProgressMessage(TextUtils.replaceStrings("Running rubette %%1", model.getName()));
+            if (model.isPassThrough()) {
+                rubette.setOutput(0, rubette.getInput(0));
+            }
+            else {
+                model.invalidate();
+                rubette.run(runInfo);
+                if (rubette.hasErrors()) {
+                    addProblems(rubette.getErrors(), model);
+                }
+                else {
+                    rubette.updateView();
+                    if (!runInfo.stopped()) {
+                        // a stopped rubette may have left incomplete outputs
+                        model.validate();
+                    }
+                }
             }
-            composer.makeProgress(i+1);
         }
-        composer.finishRun();
+        catch (Exception e) {
+            e.printStackTrace();
+            addProblem(Messages.getString("Runner.exceptionproblem"), model); //$NON-NLS-1$
+        }
+    }
+    
+    
+    private static int getThreadCount() {
+        return Math.max(1, Runtime.getRuntime().availableProcessors());
     }
     
 
@@ -105,7 +230,7 @@ public class Runner implements Runnable {
      * @param msg the string describing the problem
      * @param model the RubetteModel where the problem occurred
      */
-    public void addProblem(String msg, RubetteModel model) {
+    public synchronized void addProblem(String msg, RubetteModel model) {
         problems.add(new Problem(msg, network.getJNetwork(), model.getJRubette()));
     }
 
@@ -153,6 +278,9 @@ public class Runner implements Runnable {
         }
         else {
             // at the third click on stop button, force the thread to stop
+            if (executor != null) {
+                executor.shutdownNow();
+            }
             thread.stop();
             //composer.showProgessWindow(false);
             composer.finishRun();            
@@ -168,6 +296,9 @@ public class Runner implements Runnable {
     private LinkedList<Problem> problems;    
     private RunnerRunInfo runInfo;
     private int           nrClicked = 0;     
+    private boolean       parallel = false;
+    private boolean       incremental = false;
+    private ExecutorService executor;
     
     private final Logger logger = Logger.getLogger("org.rubato.composer.runner"); //$NON-NLS-1$
     
@@ -193,7 +324,42 @@ public class Runner implements Runnable {
             jcomposer.addProgressMessage(rubette.getName()+": "+msg);
         }
         
-        private boolean stop;
+        private volatile boolean stop;
         private JComposer jcomposer;
     }
+    
+    
+    /**
+     * Runs a single rubette of the network. Rubettes that are thread-safe
+     * share the lock, the others hold it exclusively.
+     */
+    private class RubetteTask implements Callable<RubetteModel> {
+        
+        public RubetteTask(RubetteModel model, ReadWriteLock lock) {
+            this.model = model;
+            Rubette rubette = model.getRubette();
+            if (rubette instanceof AbstractRubette && ((AbstractRubette)rubette).isThreadSafe()) {
+                this.lock = lock.readLock();
+            }
+            else {
+                this.lock = lock.writeLock();
+            }
+        }
+        
+        public RubetteModel call() {
+            lock.lock();
+            try {
+                if (!runInfo.stopped()) {
+                    runRubette(model);
+                }
+            }
+            finally {
+                lock.unlock();
+            }
+            return model;
+        }
+        
+        private RubetteModel model;
+        private Lock         lock;
+    }
 }
@@ -39,7 +39,7 @@ public class JProgress extends JDialog {
     }
     
     
-    public void addMessage(String msg) {
+    public synchronized void addMessage(String msg) {
         messageListModel.add(msg);
         messageList.ensureIndexIsVisible(messageListModel.getSize()-1);
     }
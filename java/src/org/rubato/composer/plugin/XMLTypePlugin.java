@@ -0,0 +1,56 @@
+package org.rubato.composer.plugin;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.rubato.math.module.Module;
+import org.rubato.math.module.ModuleElement;
+import org.rubato.math.module.morphism.ModuleMorphism;
+import org.rubato.math.yoneda.MorphismMap;
+import org.rubato.xml.Dispatcher;
+import org.rubato.xml.XMLInputOutput;
+
+/**
+ * A plug-in that provides new types of modules, module elements,
+ * module morphisms or morphism maps. On initialization, the factories
+ * returned by the methods of this class are registered with the
+ * {@link Dispatcher}, so that their XML representations can be read.
+ */
+public abstract class XMLTypePlugin implements Plugin {
+
+    public final void init() {
+        Dispatcher dispatcher = Dispatcher.getDispatcher();
+        for (XMLInputOutput<Module> factory : getModules()) {
+            dispatcher.addModule(factory);
+        }
+        for (XMLInputOutput<ModuleElement> factory : getModuleElements()) {
+            dispatcher.addModuleElement(factory);
+        }
+        for (XMLInputOutput<ModuleMorphism> factory : getModuleMorphisms()) {
+            dispatcher.addModuleMorphism(factory);
+        }
+        for (XMLInputOutput<MorphismMap> factory : getMorphismMaps()) {
+            dispatcher.addMorphismMap(factory);
+        }
+    }
+
+
+    public List<XMLInputOutput<Module>> getModules() {
+        return Collections.emptyList();
+    }
+
+
+    public List<XMLInputOutput<ModuleElement>> getModuleElements() {
+        return Collections.emptyList();
+    }
+
+
+    public List<XMLInputOutput<ModuleMorphism>> getModuleMorphisms() {
+        return Collections.emptyList();
+    }
+
+
+    public List<XMLInputOutput<MorphismMap>> getMorphismMaps() {
+        return Collections.emptyList();
+    }
+}
@@ -66,6 +66,14 @@ public class MainPreferences extends JPreferencesPanel {
         showProgressButton= new JCheckBox();
         showProgressButton.setSelected(userPrefs.getShowProgress());
         addPreference("Show progress dialog:", showProgressButton);
+        
+        parallelRunButton = new JCheckBox();
+        parallelRunButton.setSelected(userPrefs.getParallelRun());
+        addPreference("Run independent rubettes in parallel:", parallelRunButton);
+        
+        incrementalRunButton = new JCheckBox();
+        incrementalRunButton.setSelected(userPrefs.getIncrementalRun());
+        addPreference("Only run changed rubettes:", incrementalRunButton);
     }
     
     
@@ -75,6 +83,8 @@ public class MainPreferences extends JPreferencesPanel {
         userPrefs.setAskBeforeLeaving(askBeforeLeavingButton.isSelected());
         userPrefs.setDefaultQuantization(Integer.parseInt(defaultQuantField.getText()));
         userPrefs.setShowProgress(showProgressButton.isSelected());
+        userPrefs.setParallelRun(parallelRunButton.isSelected());
+        userPrefs.setIncrementalRun(incrementalRunButton.isSelected());
         Rational.setDefaultQuantization(userPrefs.getDefaultQuantization());
     }
     
@@ -94,5 +104,7 @@ public class MainPreferences extends JPreferencesPanel {
     private   JCheckBox  saveGeometryButton;
     private   JCheckBox  askBeforeLeavingButton;
     private   JCheckBox  showProgressButton;
+    private   JCheckBox  parallelRunButton;
+    private   JCheckBox  incrementalRunButton;
     protected JTextField defaultQuantField;
 }
@@ -178,6 +178,26 @@ public final class UserPreferences {
     }
     
     
+    public void setParallelRun(boolean b) {
+        preferences.putBoolean(PREF_PARALLEL_RUN, b);
+    }
+    
+    
+    public boolean getParallelRun() {
+        return preferences.getBoolean(PREF_PARALLEL_RUN, false);
+    }
+    
+    
+    public void setIncrementalRun(boolean b) {
+        preferences.putBoolean(PREF_INCREMENTAL_RUN, b);
+    }
+    
+    
+    public boolean getIncrementalRun() {
+        return preferences.getBoolean(PREF_INCREMENTAL_RUN, false);
+    }
+    
+    
     // private
     
     private Preferences preferences;
@@ -199,4 +219,6 @@ public final class UserPreferences {
     private static final String PREF_DIR_CURRENT      = "dir.current"; //$NON-NLS-1$
     private static final String PREF_DEFAULT_QUANT    = "rational.quant"; //$NON-NLS-1$
     private static final String PREF_SHOW_PROGRESS    = "run.showprogress"; //$NON-NLS-1$
+    private static final String PREF_PARALLEL_RUN     = "run.parallel"; //$NON-NLS-1$
+    private static final String PREF_INCREMENTAL_RUN  = "run.incremental"; //$NON-NLS-1$
 }
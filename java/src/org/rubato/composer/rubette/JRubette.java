@@ -967,6 +967,7 @@ public final class JRubette extends JPanel
     protected void applyProperties(boolean hide) {
         if (!isRunning()) {
             if (model.getRubette().applyProperties()) {
+                model.invalidate();
                 if (hide) {
                     propertiesDialog.setVisible(false);
                 }
@@ -26,7 +26,9 @@ import java.util.List;
 
 import javax.swing.ImageIcon;
 
+import org.rubato.base.AbstractRubette;
 import org.rubato.base.Rubette;
+import org.rubato.math.yoneda.Denotator;
 import org.rubato.rubettes.builtin.MacroRubette;
 import org.rubato.xml.XMLWriter;
 
@@ -274,11 +276,13 @@ public class RubetteModel {
     
     public void togglePassThrough() {
         passthrough = !passthrough;
+        invalidate();
     }
     
     
     public void setPassThrough(boolean p) {
         passthrough = p;
+        invalidate();
     }
     
     
@@ -292,6 +296,84 @@ public class RubetteModel {
     }
     
     
+    //
+    // Incremental runs
+    //
+    
+    /**
+     * Marks the rubette as changed, for example after its properties
+     * have been applied. It will be run again even if its inputs are
+     * the same as in the last run.
+     */
+    public void invalidate() {
+        lastInputs = null;
+        lastReuseKey = null;
+    }
+    
+    
+    /**
+     * Records the current inputs after a successful run of the rubette.
+     */
+    public void validate() {
+        lastInputs = getCurrentInputs();
+        lastReuseKey = getReuseKey();
+    }
+    
+    
+    /**
+     * Returns true iff the rubette has run successfully, has not been
+     * changed since, and its current inputs are equal to the inputs
+     * of that run. In this case the outputs of the last run are still valid
+     * and the rubette need not be run again. Inputs are first compared
+     * by identity and then by their structural hash codes and equality.
+     * The reuse key of the rubette must be equal to the one of that run.
+     */
+    public boolean isUpToDate() {
+        if (lastInputs == null || !(rubette instanceof AbstractRubette)
+            || !((AbstractRubette)rubette).canReuseOutputs()) {
+            return false;
+        }
+        Object reuseKey = getReuseKey();
+        if (reuseKey == null ? lastReuseKey != null : !reuseKey.equals(lastReuseKey)) {
+            return false;
+        }
+        Denotator[] currentInputs = getCurrentInputs();
+        if (currentInputs.length != lastInputs.length) {
+            return false;
+        }
+        for (int i = 0; i < currentInputs.length; i++) {
+            Denotator last = lastInputs[i];
+            Denotator current = currentInputs[i];
+            if (last != current) {
+                if (last == null || current == null) {
+                    return false;
+                }
+                if (last.hashCode() != current.hashCode() || !last.equals(current)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    
+    private Object getReuseKey() {
+        if (rubette instanceof AbstractRubette) {
+            return ((AbstractRubette)rubette).getReuseKey();
+        }
+        return null;
+    }
+    
+    
+    private Denotator[] getCurrentInputs() {
+        Denotator[] currentInputs = new Denotator[rubette.getInCount()];
+        for (int i = 0; i < currentInputs.length; i++) {
+            currentInputs[i] = rubette.getInput(i);
+        }
+        return currentInputs;
+    }
+    
+    
     public RubetteModel newInstance() {
         RubetteModel newModel = new RubetteModel(rubette.duplicate(), name);
         newModel.setLocation(getLocation());
@@ -313,6 +395,8 @@ public class RubetteModel {
     private int        serial;
     private Point      location;
     private boolean    passthrough = false;
+    private Denotator[] lastInputs = null;
+    private Object     lastReuseKey = null;
     
     private LinkedList<RubetteModel> dependencies = new LinkedList<RubetteModel>();
     private LinkedList<RubetteModel> dependents = new LinkedList<RubetteModel>();
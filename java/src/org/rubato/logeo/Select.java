@@ -19,18 +19,31 @@
 
 package org.rubato.logeo;
 
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
+import org.rubato.base.Repository;
 import org.rubato.base.RubatoException;
 import org.rubato.logeo.predicates.FormPredicate;
 import org.rubato.logeo.predicates.Predicate;
 import org.rubato.math.yoneda.Denotator;
 import org.rubato.math.yoneda.Form;
+import org.rubato.math.yoneda.ListDenotator;
+import org.rubato.math.yoneda.PowerDenotator;
 
 /**
  * The select methods traverse a denotator and collect all parts of the
- * denotator that satisfy a predicate.
+ * denotator that satisfy a predicate. If the parts must be of a given form,
+ * subdenotators whose forms cannot contain that form are skipped.
  * 
  * @author Gérard Milmeister
  */
@@ -61,7 +74,9 @@ public final class Select {
     public static List<Denotator> select(Form f, Predicate p, Denotator d)
             throws RubatoException {
         Predicate predicate = new FormPredicate(f).and(p);
-        return select(predicate, d);
+        LinkedList<Denotator> results = new LinkedList<Denotator>();
+        select(predicate, d, results, new FormFilter(f));
+        return results;
     }
 
 
@@ -72,24 +87,171 @@ public final class Select {
     public static List<Denotator> select(Form f, Denotator d)
             throws RubatoException {
         Predicate predicate = new FormPredicate(f);
-        return select(predicate, d);
+        LinkedList<Denotator> results = new LinkedList<Denotator>();
+        select(predicate, d, results, new FormFilter(f));
+        return results;
+    }
+    
+    
+    /**
+     * Returns the nodes of form f from d, in the same order as
+     * {@link #select(Form, Denotator)}. The factors of the first large
+     * power or list denotator encountered are traversed in parallel.
+     * @param threadCount the maximum number of threads to be used
+     * @throws RubatoException
+     */
+    public static List<Denotator> parallelSelect(Form f, Denotator d, int threadCount)
+            throws RubatoException {
+        Predicate predicate = new FormPredicate(f);
+        if (threadCount <= 1) {
+            return select(f, d);
+        }
+        return parallelSelect(predicate, d, new FormFilter(f), getExecutor(), threadCount);
+    }
+    
+    
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        // idle threads must not keep the application alive
+                        Thread thread = new Thread(r, "Select");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        }
+        return executor;
     }
         
 
     private static void select(Predicate p, Denotator d, List<Denotator> denoList)
             throws RubatoException {        
+        select(p, d, denoList, null);
+    }
+    
+
+    private static void select(Predicate p, Denotator d, List<Denotator> denoList, FormFilter filter)
+            throws RubatoException {        
         if (p.call(d)) {
             denoList.add(d);
         }
-        else {
+        else if (filter == null || filter.mayContain(d.getForm())) {
             for (Denotator deno : d) {
                 if (deno != null) {
-                    select(p, deno, denoList);
+                    select(p, deno, denoList, filter);
                 }
             }
         }   
     }
     
     
+    private static List<Denotator> parallelSelect(final Predicate p, Denotator d, final FormFilter filter,
+                                                  ExecutorService executor, int threadCount)
+            throws RubatoException {
+        List<Denotator> results = new LinkedList<Denotator>();
+        if (p.call(d)) {
+            results.add(d);
+        }
+        else if (filter.mayContain(d.getForm())) {
+            final List<Denotator> factors = getFactors(d);
+            if (factors != null && factors.size() >= 2*MIN_FACTORS_PER_TASK) {
+                int taskCount = Math.min(threadCount, factors.size()/MIN_FACTORS_PER_TASK);
+                int chunkSize = (factors.size()+taskCount-1)/taskCount;
+                List<Future<List<Denotator>>> chunkResults = new ArrayList<Future<List<Denotator>>>();
+                for (int i = 0; i < factors.size(); i += chunkSize) {
+                    final int from = i;
+                    final int to = Math.min(factors.size(), i+chunkSize);
+                    chunkResults.add(executor.submit(new Callable<List<Denotator>>() {
+                        public List<Denotator> call() throws RubatoException {
+                            List<Denotator> chunkResult = new LinkedList<Denotator>();
+                            FormFilter chunkFilter = filter.copy();
+                            for (Denotator deno : factors.subList(from, to)) {
+                                select(p, deno, chunkResult, chunkFilter);
+                            }
+                            return chunkResult;
+                        }
+                    }));
+                }
+                try {
+                    for (Future<List<Denotator>> chunkResult : chunkResults) {
+                        results.addAll(chunkResult.get());
+                    }
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RubatoException("Select.parallelSelect: Interrupted");
+                }
+                catch (ExecutionException e) {
+                    if (e.getCause() instanceof RubatoException) {
+                        throw (RubatoException)e.getCause();
+                    }
+                    throw new RuntimeException(e.getCause());
+                }
+            }
+            else {
+                for (Denotator deno : d) {
+                    if (deno != null) {
+                        results.addAll(parallelSelect(p, deno, filter, executor, threadCount));
+                    }
+                }
+            }
+        }
+        return results;
+    }
+    
+    
+    private static List<Denotator> getFactors(Denotator d) {
+        if (d instanceof PowerDenotator) {
+            return ((PowerDenotator)d).getFactors();
+        }
+        else if (d instanceof ListDenotator) {
+            return ((ListDenotator)d).getFactors();
+        }
+        return null;
+    }
+    
+    
+    /**
+     * Decides whether denotators of a given form may contain denotators
+     * of the form to be selected, using the reachable forms cached in
+     * the system repository. Not thread-safe, use a copy for each thread.
+     */
+    private static class FormFilter {
+        
+        public FormFilter(Form form) {
+            this.form = form;
+            this.mayContain = new IdentityHashMap<Form,Boolean>();
+        }
+        
+        public boolean mayContain(Form parentForm) {
+            Boolean result = mayContain.get(parentForm);
+            if (result == null) {
+                Set<Form> reachableForms = Repository.systemRepository().getReachableForms(parentForm);
+                result = reachableForms == null || reachableForms.contains(form);
+                mayContain.put(parentForm, result);
+            }
+            return result;
+        }
+        
+        public FormFilter copy() {
+            FormFilter filter = new FormFilter(form);
+            filter.mayContain.putAll(mayContain);
+            return filter;
+        }
+        
+        private Form form;
+        private IdentityHashMap<Form,Boolean> mayContain;
+    }
+    
+    
+    private static final int MIN_FACTORS_PER_TASK = 256;
+    
+    // threads for parallel selection, created when first needed
+    private static ExecutorService executor = null;
+    
+    
+    
     private Select() { /* not allowed */ }
 }
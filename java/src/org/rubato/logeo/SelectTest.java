@@ -0,0 +1,149 @@
+package org.rubato.logeo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.rubato.base.Repository;
+import org.rubato.base.RubatoException;
+import org.rubato.logeo.predicates.FormPredicate;
+import org.rubato.math.module.RElement;
+import org.rubato.math.yoneda.Denotator;
+import org.rubato.math.yoneda.Form;
+import org.rubato.math.yoneda.FormReference;
+import org.rubato.math.yoneda.LimitDenotator;
+import org.rubato.math.yoneda.LimitForm;
+import org.rubato.math.yoneda.PowerDenotator;
+import org.rubato.math.yoneda.PowerForm;
+import org.rubato.math.yoneda.SimpleDenotator;
+import org.rubato.math.yoneda.SimpleForm;
+import org.rubato.rubettes.util.MacroNoteGenerator;
+
+public class SelectTest extends TestCase {
+
+    private Repository repository = Repository.systemRepository();
+    private Form scoreForm = repository.getForm("Score");
+    private Form macroScoreForm = repository.getForm("MacroScore");
+    private Form noteForm = repository.getForm("Note");
+    private Form pitchForm = repository.getForm("Pitch");
+    private PowerDenotator macroScore;
+
+    protected void setUp() {
+        MacroNoteGenerator generator = new MacroNoteGenerator();
+        double[][] values = new double[40][];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = new double[]{i, 60+i%12, 120, 1, 0};
+        }
+        //a macro score with notes on several levels
+        PowerDenotator satellites = generator.createMultiLevelMacroScore(values);
+        List<Denotator> nodes = new ArrayList<Denotator>(generator.createFlatMacroScore(values).getFactors());
+        nodes.addAll(satellites.getFactors());
+        try {
+            macroScore = new PowerDenotator(null, (PowerForm)macroScoreForm, nodes);
+        }
+        catch (RubatoException e) {
+            fail(e.getMessage());
+        }
+    }
+
+
+    public void testReachableForms() {
+        Set<Form> reachableForms = repository.getReachableForms(scoreForm);
+        assertTrue(reachableForms.contains(noteForm));
+        assertTrue(reachableForms.contains(pitchForm));
+        assertFalse(reachableForms.contains(scoreForm));
+        assertFalse(reachableForms.contains(macroScoreForm));
+        //macro scores are recursive
+        assertTrue(repository.getReachableForms(macroScoreForm).contains(macroScoreForm));
+        assertSame(reachableForms, repository.getReachableForms(scoreForm));
+    }
+
+
+    public void testSelect() throws RubatoException {
+        checkSelect(noteForm, macroScore, 80);
+        checkSelect(pitchForm, macroScore, 80);
+        checkSelect(macroScoreForm, macroScore, 1);
+        checkSelect(scoreForm, macroScore, 0);
+        PowerDenotator score = new MacroNoteGenerator().createSimpleMelody(1, 60, 62, 64);
+        checkSelect(pitchForm, score, 3);
+        checkSelect(macroScoreForm, score, 0);
+    }
+
+
+    public void testParallelSelect() throws RubatoException {
+        double[] pitches = new double[2000];
+        for (int i = 0; i < pitches.length; i++) {
+            pitches[i] = 40+i%50;
+        }
+        PowerDenotator score = new MacroNoteGenerator().createSimpleMelody(0.5, pitches);
+        List<Denotator> expected = Select.select(new FormPredicate(pitchForm), score);
+        assertEquals(pitches.length, expected.size());
+        assertEquals(expected, Select.parallelSelect(pitchForm, score, 4));
+        assertEquals(Select.select(new FormPredicate(noteForm), macroScore), Select.parallelSelect(noteForm, macroScore, 4));
+    }
+
+
+    public void testRedefinedForm() throws RubatoException {
+        //a set of real numbers is defined, then redefined as a set of pitch tuples,
+        //as when reloading a file whose forms refer to each other by name
+        SimpleForm realForm = FormFactory.makeRModuleForm("SelectTestElement");
+        register(realForm);
+        PowerForm realSetForm = registerSetForm();
+        List<Denotator> reals = new ArrayList<Denotator>();
+        for (int i = 0; i < 3; i++) {
+            reals.add(new SimpleDenotator(null, realForm, new RElement(i)));
+        }
+        checkSelect(realForm, new PowerDenotator(null, realSetForm, reals), 3);
+        repository.removeForm(realSetForm);
+        repository.removeForm(realForm);
+
+        LimitForm tupleForm = FormFactory.makeLimitForm("SelectTestElement", pitchForm);
+        register(tupleForm);
+        PowerForm tupleSetForm = registerSetForm();
+        try {
+            PowerDenotator score = new MacroNoteGenerator().createSimpleMelody(1, 60, 62, 64);
+            List<Denotator> tuples = new ArrayList<Denotator>();
+            for (Denotator pitch : Select.select(pitchForm, score)) {
+                tuples.add(new LimitDenotator(null, tupleForm, Collections.singletonList(pitch)));
+            }
+            checkSelect(pitchForm, new PowerDenotator(null, tupleSetForm, tuples), 3);
+        }
+        finally {
+            repository.removeForm(tupleSetForm);
+            repository.removeForm(tupleForm);
+        }
+    }
+
+
+    //registers a set form whose coordinate form is resolved by name
+    private PowerForm registerSetForm() {
+        PowerForm setForm = FormFactory.makePowerForm("SelectTestSet", new FormReference("SelectTestElement"));
+        //the hash code is cached while the coordinate is a reference,
+        //so that both set forms are equal and have the same hash code
+        setForm.hashCode();
+        assertTrue(setForm.resolveReferences(repository));
+        register(setForm);
+        return setForm;
+    }
+
+
+    //registers a form the way the forms of a file are registered
+    private void register(Form form) {
+        assertTrue(repository.register(Collections.singletonList(form), Collections.<Denotator>emptyList()));
+    }
+
+
+    //compares the pruned selection with the one of all nodes satisfying the form predicate
+    private void checkSelect(Form form, Denotator denotator, int expectedCount) throws RubatoException {
+        List<Denotator> expected = Select.select(new FormPredicate(form), denotator);
+        List<Denotator> selected = Select.select(form, denotator);
+        assertEquals(expectedCount, selected.size());
+        assertEquals(expected.size(), selected.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame(expected.get(i), selected.get(i));
+        }
+    }
+}
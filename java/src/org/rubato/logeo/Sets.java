@@ -20,6 +20,7 @@
 package org.rubato.logeo;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -54,8 +55,8 @@ public final class Sets {
             throw new RubatoException("Sets.union: "+d1+" and "+d2+" do not have the same base form");
         }
         
-        List<Denotator> factors1 = d1.getFactors();
-        List<Denotator> factors2 = d2.getFactors();
+        List<Denotator> factors1 = d1.getListMorphismMap().getFactors();
+        List<Denotator> factors2 = d2.getListMorphismMap().getFactors();
         if (!d1.getAddress().equals(d2.getAddress())) {
             Module newAddress = Address.getCommonModule(d1.getAddress(), d2.getAddress());
             if (newAddress == null) {
@@ -108,8 +109,8 @@ public final class Sets {
             throw new RubatoException("Sets.intersection: "+d1+" and "+d2+" have not the same factor form");
         }
         
-        List<Denotator> factors1 = d1.getFactors();
-        List<Denotator> factors2 = d2.getFactors();
+        List<Denotator> factors1 = d1.getListMorphismMap().getFactors();
+        List<Denotator> factors2 = d2.getListMorphismMap().getFactors();
         if (!d1.getAddress().equals(d2.getAddress())) {
             Module newAddress = Address.getCommonModule(d1.getAddress(), d2.getAddress());
             if (newAddress == null) {
@@ -161,8 +162,8 @@ public final class Sets {
             throw new RubatoException("Sets.difference: "+d1+" and "+d2+" have not the same factor form");
         }
         
-        List<Denotator> factors1 = d1.getFactors();
-        List<Denotator> factors2 = d2.getFactors();
+        List<Denotator> factors1 = d1.getListMorphismMap().getFactors();
+        List<Denotator> factors2 = d2.getListMorphismMap().getFactors();
         if (!d1.getAddress().equals(d2.getAddress())) {
             Module newAddress = Address.getCommonModule(d1.getAddress(), d2.getAddress());
             if (newAddress == null) {
@@ -212,8 +213,8 @@ public final class Sets {
             throw new RubatoException("Sets.symmetric: "+d1+" and "+d2+" have not the same factor form");
         }
 
-        List<Denotator> factors1 = d1.getFactors();
-        List<Denotator> factors2 = d2.getFactors();
+        List<Denotator> factors1 = d1.getListMorphismMap().getFactors();
+        List<Denotator> factors2 = d2.getListMorphismMap().getFactors();
         if (!d1.getAddress().equals(d2.getAddress())) {
             Module newAddress = Address.getCommonModule(d1.getAddress(), d2.getAddress());
             if (newAddress == null) {
@@ -440,8 +441,9 @@ public final class Sets {
         if (form == null) {
             return false;
         }
+        HashSet<Denotator> elements2 = new HashSet<Denotator>(d2.getListMorphismMap().getFactors());
         for (Denotator d : d1) {
-            if (_contains(d2, d)) {
+            if (!elements2.contains(d)) {
                 return false;
             }
         }
@@ -463,84 +465,36 @@ public final class Sets {
     
     
     private static boolean _contains(PowerDenotator p, Denotator d) {
-        ArrayList<Denotator> factors = p.getListMorphismMap().getFactors();
-        int i = 0;
-        int j = factors.size()-1;
-        while (i <= j) {
-            int t = (i+j)/2;
-            Denotator s = factors.get(t);
-            int c = d.compareTo(s);
-            if (c == 0) {
-                return true;
-            }
-            else if (c < 0) {
-                j = t-1;
-            }
-            else {
-                i = t+1;
-            }
-        }   
-        return false;
+        return p.getListMorphismMap().contains(d);
     }
 
     
     //
     // Private methods
     //
+    // The factor lists are compared for equality through hash sets,
+    // which use the cached structural hash codes of the denotators.
+    // Only the remaining distinct elements are merged by comparison.
+    //
 
     static private List<Denotator> mergeLists(List<Denotator> list1, List<Denotator> list2) {
-        LinkedList<Denotator> newList = new LinkedList<Denotator>();
-        int count1 = list1.size();
-        int count2 = list2.size();
-        int i1 = 0;
-        int i2 = 0;
-        while (i1 < count1 && i2 < count2) {
-            Denotator d1 = list1.get(i1);
-            Denotator d2 = list2.get(i2);
-            int comp = d1.compareTo(d2);
-            if (comp < 0) {
-                newList.add(d1);
-                i1++;
-            }
-            else if (comp > 0) {
-                newList.add(d2);
-                i2++;
+        HashSet<Denotator> set1 = new HashSet<Denotator>(list1);
+        ArrayList<Denotator> rest2 = new ArrayList<Denotator>(list2.size());
+        for (Denotator d : list2) {
+            if (!set1.contains(d)) {
+                rest2.add(d);
             }
-            else {
-                newList.add(d1);
-                i1++;
-                i2++;
-            }            
-        }
-        while (i1 < count1) {
-            newList.add(list1.get(i1));
-            i1++;
         }
-        while (i2 < count2) {
-            newList.add(list2.get(i2));
-            i2++;
-        }
-        return newList;
+        return mergeDisjointLists(list1, rest2);
     }
 
     
     static private List<Denotator> intersectLists(List<Denotator> list1, List<Denotator> list2) {
-        LinkedList<Denotator> newList = new LinkedList<Denotator>();
-        int count1 = list1.size();
-        int count2 = list2.size();
-        int i1 = 0;
-        int i2 = 0;
-        while (i1 < count1 && i2 < count2) {
-            while (i1 < count1 && i2 < count2 && list1.get(i1).compareTo(list2.get(i2)) < 0) {
-                i1++;
-            }
-            while (i1 < count1 && i2 < count2 && list1.get(i1).compareTo(list2.get(i2)) > 0) {
-                i2++;
-            }
-            if (i1 < count1 && i2 < count2 && list1.get(i1).equals(list2.get(i2))) {
-                newList.add(list1.get(i1));
-                i1++;
-                i2++;
+        HashSet<Denotator> set2 = new HashSet<Denotator>(list2);
+        ArrayList<Denotator> newList = new ArrayList<Denotator>();
+        for (Denotator d : list1) {
+            if (set2.contains(d)) {
+                newList.add(d);
             }
         }
         return newList;
@@ -548,55 +502,45 @@ public final class Sets {
 
 
     static private List<Denotator> differenceLists(List<Denotator> list1, List<Denotator> list2) {
-        LinkedList<Denotator> newList = new LinkedList<Denotator>();
-        int count1 = list1.size();
-        int count2 = list2.size();
-        int i1 = 0;
-        int i2 = 0;
-        while (i1 < count1 && i2 < count2) {
-            Denotator d1 = list1.get(i1);
-            Denotator d2 = list2.get(i2);
-            int comp = d1.compareTo(d2);
-            if (comp < 0) {
-                newList.add(d1);
-                i1++;
+        HashSet<Denotator> set2 = new HashSet<Denotator>(list2);
+        ArrayList<Denotator> newList = new ArrayList<Denotator>();
+        for (Denotator d : list1) {
+            if (!set2.contains(d)) {
+                newList.add(d);
             }
-            else if (comp > 0) {
-                i2++;
-            }
-            else {
-                i1++;
-                i2++;
-            }            
-        }
-        while (i1 < count1) {
-            newList.add(list1.get(i1));
-            i1++;
         }
         return newList;
     }
 
 
     static private List<Denotator> symmetricdiffLists(List<Denotator> list1, List<Denotator> list2) {
-        LinkedList<Denotator> newList = new LinkedList<Denotator>();
+        return mergeDisjointLists(differenceLists(list1, list2), differenceLists(list2, list1));
+    }
+
+
+    /**
+     * Merges two sorted lists that have no elements in common.
+     */
+    static private List<Denotator> mergeDisjointLists(List<Denotator> list1, List<Denotator> list2) {
+        ArrayList<Denotator> newList = new ArrayList<Denotator>(list1.size()+list2.size());
         int count1 = list1.size();
         int count2 = list2.size();
         int i1 = 0;
         int i2 = 0;
         while (i1 < count1 && i2 < count2) {
-            while (i1 < count1 && i2 < count2 && list1.get(i1).compareTo(list2.get(i2)) < 0) {
-                newList.add(list1.get(i1));
+            Denotator d1 = list1.get(i1);
+            Denotator d2 = list2.get(i2);
+            if (d1.compareTo(d2) <= 0) {
+                newList.add(d1);
                 i1++;
             }
-            while (i1 < count1 && i2 < count2 && list1.get(i1).compareTo(list2.get(i2)) > 0) {
-                newList.add(list2.get(i2));
-                i2++;
-            }
-            if (i1 < count1 && i2 < count2 && list1.get(i1).equals(list2.get(i2))) {
-                i1++;
+            else {
+                newList.add(d2);
                 i2++;
             }
         }
+        newList.addAll(list1.subList(i1, count1));
+        newList.addAll(list2.subList(i2, count2));
         return newList;
     }
 
@@ -610,7 +554,7 @@ public final class Sets {
 
     
     static private List<Denotator> readdress(List<Denotator> denotators, Module address) {
-        List<Denotator> res = new LinkedList<Denotator>();
+        List<Denotator> res = new ArrayList<Denotator>(denotators.size());
         for (Denotator d : denotators) {
             res.add(d.changeAddress(address));
         }
@@ -49,6 +49,36 @@ public final class NumberTheory {
     }
 
     
+    /**
+     * The greatest common divisor of two long integers, computed
+     * with the binary algorithm, which needs no divisions.
+     * 
+     * @return the gcd of x and y, always non negative
+     */
+    public static long gcd(long x, long y) {
+        long u = Math.abs(x);
+        long v = Math.abs(y);
+        if (u == 0) {
+            return v;
+        }
+        if (v == 0) {
+            return u;
+        }
+        int shift = Long.numberOfTrailingZeros(u | v);
+        u >>>= Long.numberOfTrailingZeros(u);
+        do {
+            v >>>= Long.numberOfTrailingZeros(v);
+            if (u > v) {
+                long t = v;
+                v = u;
+                u = t;
+            }
+            v -= u;
+        } while (v != 0);
+        return u << shift;
+    }
+
+    
     /**
      * The extended Euclidean algorithm.
      * 
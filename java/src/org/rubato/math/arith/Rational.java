@@ -19,10 +19,17 @@
 
 package org.rubato.math.arith;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+
 import org.rubato.util.TextUtils;
 
 /**
  * Rational number arithmetic.
+ * Numerator and denominator are kept in longs as long as their absolute
+ * values are less than 2^62, which leaves room for sums without overflow.
+ * Results that do not fit are transparently kept as BigIntegers.
  * 
  * @author Gérard Milmeister
  */
@@ -47,9 +54,17 @@ public final class Rational extends Number implements Comparable<Rational>, Clon
      * @param d is the denominator
      */
     public Rational(int n, int d) {
-        num = n;
-        denom = d;
-        reduce();
+        setValue(n, d);
+    }
+
+
+    /**
+     * Creates a new rational <code>n</code>/<code>d</code>.
+     * @param n is the numerator
+     * @param d is the denominator
+     */
+    public Rational(BigInteger n, BigInteger d) {
+        setValue(n, d);
     }
 
 
@@ -60,6 +75,8 @@ public final class Rational extends Number implements Comparable<Rational>, Clon
     public Rational(Rational r) {
         num = r.num;
         denom = r.denom;
+        bigNum = r.bigNum;
+        bigDenom = r.bigDenom;
     }
 
 
@@ -68,9 +85,7 @@ public final class Rational extends Number implements Comparable<Rational>, Clon
      * Converts <code>d</code> with quantization <code>quant</code>.
      */
     public Rational(double d, int quant) {
-        num = (int)Math.round(d*quant);
-        denom = quant;
-        reduce();
+        setValue(Math.round(d*quant), quant);
     }
 
 
@@ -79,9 +94,7 @@ public final class Rational extends Number implements Comparable<Rational>, Clon
      * Converts <code>d</code> with default quantization.
      */
     public Rational(double d) {
-        num = (int)Math.round(d*DEFAULT_QUANT);
-        denom = DEFAULT_QUANT;
-        reduce();
+        this(d, DEFAULT_QUANT);
     }
 
 
@@ -91,21 +104,21 @@ public final class Rational extends Number implements Comparable<Rational>, Clon
      * such that <code>x</code>/<code>quant</code> <= <code>r</code> < (<code>x</code>+1)/<code>quant</code>.
      */
     public Rational(Rational r, int quant) {
-        int qu = quant;
-        if (qu < 0) qu = -qu;
-        int numerator = r.getNumerator();
-        int denominator = r.getDenominator();
-        int sign = 1; 
-        if (numerator < 0) {
-            sign = -1;
-            numerator = -numerator;
+        long qu = Math.abs((long)quant);
+        if (r.bigNum == null && !overflows(Math.abs(r.num), qu)) {
+            long numerator = Math.abs(r.num)*qu;
+            long q = numerator/r.denom;
+            long s = numerator%r.denom;
+            if (s*2 > r.denom) q++;
+            setValue(Long.signum(r.num)*q, quant);
+        }
+        else {
+            BigInteger[] qs = r.getBigNumerator().abs().multiply(BigInteger.valueOf(qu)).divideAndRemainder(r.getBigDenominator());
+            BigInteger q = qs[0];
+            if (qs[1].shiftLeft(1).compareTo(r.getBigDenominator()) > 0) q = q.add(BigInteger.ONE);
+            if (r.signum() < 0) q = q.negate();
+            setValue(q, BigInteger.valueOf(quant));
         }
-        long q = (numerator*qu)/denominator;
-        long s = (numerator*qu)%denominator;
-        if (s*2 > denominator) q++;
-        num = sign*(int)q;
-        denom = quant;
-        reduce();
     }
 
 
@@ -117,9 +130,7 @@ public final class Rational extends Number implements Comparable<Rational>, Clon
         int divpos = s.indexOf("/");
         if (divpos > -1) {
             try {
-                num = Integer.parseInt(s.substring(0, divpos));
-                denom = Integer.parseInt(s.substring(divpos + 1));
-                reduce();
+                setValue(new BigInteger(s.substring(0, divpos)), new BigInteger(s.substring(divpos + 1)));
             }
             catch (Exception e) {
                 throw new NumberFormatException();
@@ -127,8 +138,7 @@ public final class Rational extends Number implements Comparable<Rational>, Clon
         }
         else {
             try {
-                num = Integer.parseInt(s);
-                denom = 1;
+                setValue(new BigInteger(s), BigInteger.ONE);
             }
             catch (Exception e) {
                 throw new NumberFormatException();
@@ -162,10 +172,10 @@ public final class Rational extends Number implements Comparable<Rational>, Clon
 
 
     public boolean equals(Rational r) {
-        if (r.num == num && r.denom == denom) {
-            return true;
+        if (bigNum == null) {
+            return r.bigNum == null && r.num == num && r.denom == denom;
         }
-        return false;
+        return bigNum.equals(r.bigNum) && bigDenom.equals(r.bigDenom);
     }
 
 
@@ -173,7 +183,7 @@ public final class Rational extends Number implements Comparable<Rational>, Clon
      * Returns true iff this number is 0/1.
      */
     public boolean isZero() {
-        return num == 0;
+        return bigNum == null && num == 0;
     }
 
 
@@ -181,15 +191,22 @@ public final class Rational extends Number implements Comparable<Rational>, Clon
      * Returns true iff this number is 1/1.
      */
     public boolean isOne() {
-        return num == 1 && denom == 1;
+        return bigNum == null && num == 1 && denom == 1;
     }
 
 
     public int compareTo(Rational r) {
-        int a, b;
-        a = num * r.getDenominator();
-        b = r.getNumerator() * denom;
-        return a-b;
+        if (bigNum == null && r.bigNum == null) {
+            if (denom == r.denom) {
+                return num < r.num ? -1 : (num == r.num ? 0 : 1);
+            }
+            if (!overflows(num, r.denom) && !overflows(r.num, denom)) {
+                long a = num * r.denom;
+                long b = r.num * denom;
+                return a < b ? -1 : (a == b ? 0 : 1);
+            }
+        }
+        return getBigNumerator().multiply(r.getBigDenominator()).compareTo(r.getBigNumerator().multiply(getBigDenominator()));
     }
 
 
@@ -197,7 +214,9 @@ public final class Rational extends Number implements Comparable<Rational>, Clon
      * Returns the sum of this number and <code>r</code>.
      */
     public Rational sum(Rational r) {
-        return new Rational(num * r.denom + denom * r.num, denom * r.denom);
+        Rational res = new Rational();
+        res.setSum(this, r, false);
+        return res;
     }
 
 
@@ -205,7 +224,9 @@ public final class Rational extends Number implements Comparable<Rational>, Clon
      * Returns the sum of this number and the integer <code>n</code>.
      */
     public Rational sum(int n) {
-        return new Rational(num + n * denom, denom);
+        Rational res = new Rational();
+        res.setSum(this, n);
+        return res;
     }
 
 
@@ -213,9 +234,7 @@ public final class Rational extends Number implements Comparable<Rational>, Clon
      * Adds <code>r</code> to this number.
      */
     public void add(Rational r) {
-        num = num * r.denom + denom * r.num;
-        denom = denom * r.denom;
-        reduce();
+        setSum(this, r, false);
     }
 
 
@@ -223,7 +242,7 @@ public final class Rational extends Number implements Comparable<Rational>, Clon
      * Adds the integer <code>n</code> to this number.
      */
     public void add(int n) {
-        num = num + n * denom;
+        setSum(this, n);
     }
 
 
@@ -231,7 +250,9 @@ public final class Rational extends Number implements Comparable<Rational>, Clon
      * Returns the difference of this number and <code>r</code>.
      */
     public Rational difference(Rational r) {
-        return new Rational(num * r.denom - denom * r.num, denom * r.denom);
+        Rational res = new Rational();
+        res.setSum(this, r, true);
+        return res;
     }
 
 
@@ -239,7 +260,9 @@ public final class Rational extends Number implements Comparable<Rational>, Clon
      * Returns the difference of this number and the integer <code>n</code>.
      */
     public Rational difference(int n) {
-        return new Rational(num - n * denom, denom);
+        Rational res = new Rational();
+        res.setSum(this, -(long)n);
+        return res;
     }
 
 
@@ -247,9 +270,7 @@ public final class Rational extends Number implements Comparable<Rational>, Clon
      * Subtracts <code>r</code> from this number.
      */
     public void subtract(Rational r) {
-        num = num * r.denom - denom * r.num;
-        denom = denom * r.denom;
-        reduce();
+        setSum(this, r, true);
     }
 
 
@@ -257,7 +278,7 @@ public final class Rational extends Number implements Comparable<Rational>, Clon
      * Subtracts the integer <code>n</code> from this number.
      */
     public void subtract(int n) {
-        num = num - n * denom;
+        setSum(this, -(long)n);
     }
 
 
@@ -265,11 +286,9 @@ public final class Rational extends Number implements Comparable<Rational>, Clon
      * Returns the product of this number and <code>r</code>.
      */
     public Rational product(Rational r) {
-        int g = NumberTheory.gcd(r.denom, num) * NumberTheory.gcd(r.num, denom);
-        Rational newr = new Rational();
-        newr.num = num * r.num / g;
-        newr.denom = denom * r.denom / g;
-        return newr;
+        Rational res = new Rational();
+        res.setProduct(this, r, false);
+        return res;
     }
 
 
@@ -277,11 +296,9 @@ public final class Rational extends Number implements Comparable<Rational>, Clon
      * Returns the product of this number and the integer <code>n</code>.
      */
     public Rational product(int n) {
-        int g = NumberTheory.gcd(n, denom);
-        Rational r = new Rational();
-        r.num = num * n / g;
-        r.denom = denom / g;
-        return r;
+        Rational res = new Rational();
+        res.setProduct(this, n, 1);
+        return res;
     }
 
 
@@ -289,9 +306,7 @@ public final class Rational extends Number implements Comparable<Rational>, Clon
      * Multiplies this number with <code>r</code>.
      */
     public void multiply(Rational r) {
-        int g = NumberTheory.gcd(r.denom, num) * NumberTheory.gcd(r.num, denom);
-        num = num * r.num / g;
-        denom = denom * r.denom / g;
+        setProduct(this, r, false);
     }
 
 
@@ -299,9 +314,7 @@ public final class Rational extends Number implements Comparable<Rational>, Clon
      * Multiplies this number with the integer <code>n</code>.
      */
     public void multiply(int n) {
-        int g = NumberTheory.gcd(n, denom);
-        num = num * n / g;
-        denom = denom / g;
+        setProduct(this, n, 1);
     }
 
 
@@ -309,20 +322,9 @@ public final class Rational extends Number implements Comparable<Rational>, Clon
      * Returns the quotient of this number and <code>r</code>.
      */
     public Rational quotient(Rational r) {
-        int g = NumberTheory.gcd(r.denom, denom) * NumberTheory.gcd(r.num, num);
-        int n = num * r.denom / g;
-        int d = denom * r.num / g;
-        if (d == 0) {
-            throw new ArithmeticException();
-        }
-        if (d < 0) {
-            n = -n;
-            d = -d;
-        }
-        Rational newr = new Rational();
-        newr.num = n;
-        newr.denom = d;
-        return newr;
+        Rational res = new Rational();
+        res.setProduct(this, r, true);
+        return res;
     }
 
 
@@ -330,20 +332,9 @@ public final class Rational extends Number implements Comparable<Rational>, Clon
      * Returns the quotient of this number and the integer <code>n</code>.
      */
     public Rational quotient(int n) {
-        int g = NumberTheory.gcd(n, num);
-        int m = num / g;
-        int d = denom * (n / g);
-        if (d == 0) {
-            throw new ArithmeticException();
-        }
-        if (d < 0) {
-            m = -m;
-            d = -d;
-        }
-        Rational r = new Rational();
-        r.num = m;
-        r.denom = d;
-        return r;
+        Rational res = new Rational();
+        res.setProduct(this, 1, n);
+        return res;
     }
 
 
@@ -351,17 +342,7 @@ public final class Rational extends Number implements Comparable<Rational>, Clon
      * Divides this number by <code>r</code>.
      */
     public void divide(Rational r) {
-        int g = NumberTheory.gcd(r.denom, denom) * NumberTheory.gcd(r.num, num);
-        num = num * r.denom / g;
-        System.out.println(denom);
-        denom = denom * r.num / g;
-        if (denom == 0) {
-            throw new ArithmeticException();
-        }
-        if (denom < 0) {
-            num = -num;
-            denom = -denom;
-        }
+        setProduct(this, r, true);
     }
 
 
@@ -369,16 +350,7 @@ public final class Rational extends Number implements Comparable<Rational>, Clon
      * Divides this number by the integer <code>n</code>.
      */
     public void divide(int x) {
-        int g = NumberTheory.gcd(x, num);
-        num = num / g;
-        denom = denom * x / g;
-        if (denom == 0) {
-            throw new ArithmeticException();
-        }
-        if (denom < 0) {
-            num = -num;
-            denom = -denom;
-        }
+        setProduct(this, 1, x);
     }
 
 
@@ -386,18 +358,8 @@ public final class Rational extends Number implements Comparable<Rational>, Clon
      * Returns the inverse of this rational.
      */
     public Rational inverse() {
-        Rational r = new Rational();
-        if (num == 0) {
-            throw new ArithmeticException();
-        }
-        if (num < 0) {
-            r.num = -denom;
-            r.denom = -num;
-        }
-        else {
-            r.num = denom;
-            r.denom = num;
-        }
+        Rational r = new Rational(this);
+        r.invert();
         return r;
     }
 
@@ -406,19 +368,26 @@ public final class Rational extends Number implements Comparable<Rational>, Clon
      * Inverts this rational.
      */
     public void invert() {
-        int t;
-        if (num == 0) {
+        if (isZero()) {
             throw new ArithmeticException();
         }
-        if (num < 0) {
-            t = num;
-            num = -denom;
-            denom = -t;
-        }
-        else {
-            t = num;
+        if (bigNum == null) {
+            long t = num;
             num = denom;
             denom = t;
+            if (denom < 0) {
+                num = -num;
+                denom = -denom;
+            }
+        }
+        else {
+            BigInteger t = bigNum;
+            bigNum = bigDenom;
+            bigDenom = t;
+            if (bigDenom.signum() < 0) {
+                bigNum = bigNum.negate();
+                bigDenom = bigDenom.negate();
+            }
         }
     }
 
@@ -427,9 +396,8 @@ public final class Rational extends Number implements Comparable<Rational>, Clon
      * Returns -this number.
      */
     public Rational negated() {
-        Rational r = new Rational();
-        r.num = -num;
-        r.denom = denom;
+        Rational r = new Rational(this);
+        r.negate();
         return r;
     }
 
@@ -438,39 +406,83 @@ public final class Rational extends Number implements Comparable<Rational>, Clon
      * Negates this rational.
      */
     public void negate() {
-        num = -num;
+        if (bigNum == null) {
+            num = -num;
+        }
+        else {
+            bigNum = bigNum.negate();
+        }
     }
 
 
     /**
      * Returns the numerator of this rational.
+     * 
+     * @throws ArithmeticException if the numerator does not fit into an int
      */
     public int getNumerator() {
-        return num;
+        if (bigNum != null || num != (int)num) {
+            throw new ArithmeticException("Numerator of "+this+" does not fit into an int");
+        }
+        return (int)num;
     }
 
     
     /**
      * Returns the denominator of this rational.
+     * 
+     * @throws ArithmeticException if the denominator does not fit into an int
      */
     public int getDenominator() {
-        return denom;
+        if (bigNum != null || denom != (int)denom) {
+            throw new ArithmeticException("Denominator of "+this+" does not fit into an int");
+        }
+        return (int)denom;
+    }
+
+    
+    /**
+     * Returns the numerator of this rational.
+     */
+    public BigInteger getBigNumerator() {
+        return bigNum == null ? BigInteger.valueOf(num) : bigNum;
     }
 
     
+    /**
+     * Returns the denominator of this rational.
+     */
+    public BigInteger getBigDenominator() {
+        return bigNum == null ? BigInteger.valueOf(denom) : bigDenom;
+    }
+
+    
+    /**
+     * Returns true iff both numerator and denominator of this rational
+     * fit into an int, i.e., they can be obtained using {@link #getNumerator()}
+     * and {@link #getDenominator()}.
+     */
+    public boolean fitsInt() {
+        return bigNum == null && num == (int)num && denom == (int)denom;
+    }
+
+    
+    /**
+     * Returns -1, 0 or 1 as this rational is negative, zero or positive.
+     */
+    public int signum() {
+        return bigNum == null ? Long.signum(num) : bigNum.signum();
+    }
+    
     
     /**
      * Returns the absolute value of this rational.
      */
     public Rational abs() {
-        Rational res = new Rational();
-        if (num < 0) {
-            res.num = -num;
-        }
-        else {
-            res.num = num;
+        Rational res = new Rational(this);
+        if (signum() < 0) {
+            res.negate();
         }
-        res.denom = denom;
         return res;
     }
     
@@ -479,7 +491,10 @@ public final class Rational extends Number implements Comparable<Rational>, Clon
      * Converts this rational to a double.
      */
     public double doubleValue() {
-        return (double)num/(double)denom;
+        if (bigNum == null) {
+            return (double)num/(double)denom;
+        }
+        return new BigDecimal(bigNum).divide(new BigDecimal(bigDenom), MathContext.DECIMAL64).doubleValue();
     }
 
 
@@ -510,27 +525,27 @@ public final class Rational extends Number implements Comparable<Rational>, Clon
 
     
     public boolean isIntegral() {
-        return denom == 1;
+        return bigNum == null ? denom == 1 : bigDenom.equals(BigInteger.ONE);
     }
     
     /**
      * Returns the string representation of this rational.
      */
     public String toString() {
-        if (denom == 1) {
-            return ""+num;
+        if (isIntegral()) {
+            return bigNum == null ? Long.toString(num) : bigNum.toString();
         }
-        else {            
+        else if (bigNum == null) {
             return num+"/"+denom;
         }
+        else {            
+            return bigNum+"/"+bigDenom;
+        }
     }
 
 
     public Object clone() {
-        Rational res = new Rational();
-        res.num = num;
-        res.denom = denom;
-        return res;
+        return new Rational(this);
     }
 
 
@@ -538,7 +553,10 @@ public final class Rational extends Number implements Comparable<Rational>, Clon
      * Returns the hashcode for this rational.
      */
     public int hashCode() {
-        return num ^ denom;
+        if (bigNum == null) {
+            return (int)(num ^ (num >>> 32)) ^ (int)(denom ^ (denom >>> 32));
+        }
+        return bigNum.hashCode() ^ bigDenom.hashCode();
     }
 
 
@@ -576,17 +594,218 @@ public final class Rational extends Number implements Comparable<Rational>, Clon
     
     
     /**
-     * Reduces numerator and denominator to least values
-     * and ensure that denominator is always positive.
+     * Sets this number to <code>a</code>+<code>b</code>,
+     * or <code>a</code>-<code>b</code> if <code>negate</code> is true.
+     * Either may be this number.
+     */
+    private void setSum(Rational a, Rational b, boolean negate) {
+        if (a.bigNum == null && b.bigNum == null) {
+            long an = a.num;
+            long ad = a.denom;
+            long bn = negate ? -b.num : b.num;
+            long bd = b.denom;
+            if (ad == bd) {
+                // cannot overflow, since both numerators are less than 2^62
+                setValue(an + bn, ad);
+                return;
+            }
+            if (((Math.abs(an) | ad | Math.abs(bn) | bd) >>> 31) == 0) {
+                // products of values less than 2^31 cannot overflow
+                setValue(an * bd + bn * ad, ad * bd);
+                return;
+            }
+            if (!overflows(an, bd) && !overflows(bn, ad) && !overflows(ad, bd)) {
+                long x = an * bd;
+                long y = bn * ad;
+                long n = x + y;
+                if (((x ^ n) & (y ^ n)) >= 0) {
+                    setValue(n, ad * bd);
+                    return;
+                }
+            }
+        }
+        BigInteger bn = negate ? b.getBigNumerator().negate() : b.getBigNumerator();
+        setValue(a.getBigNumerator().multiply(b.getBigDenominator()).add(bn.multiply(a.getBigDenominator())),
+                 a.getBigDenominator().multiply(b.getBigDenominator()));
+    }
+    
+    
+    /**
+     * Sets this number to <code>a</code>+<code>n</code>.
+     */
+    private void setSum(Rational a, long n) {
+        if (a.bigNum == null && !overflows(n, a.denom)) {
+            long x = a.num;
+            long y = n * a.denom;
+            long sum = x + y;
+            if (((x ^ sum) & (y ^ sum)) >= 0) {
+                // still reduced, since n*denom+num has no common divisor with denom
+                setReduced(sum, a.denom);
+                return;
+            }
+        }
+        setValue(a.getBigNumerator().add(BigInteger.valueOf(n).multiply(a.getBigDenominator())), a.getBigDenominator());
+    }
+
+    
+    /**
+     * Sets this number to <code>a</code>*<code>b</code>,
+     * or <code>a</code>/<code>b</code> if <code>invert</code> is true.
+     * Either may be this number.
      */
-    private void reduce() {
-        int g = NumberTheory.gcd(num, denom);
-        num = num / g;
-        denom = denom / g;
-        if (denom < 0) {
-            denom = -denom;
-            num = -num;
+    private void setProduct(Rational a, Rational b, boolean invert) {
+        if (invert && b.isZero()) {
+            throw new ArithmeticException();
+        }
+        if (a.bigNum == null && b.bigNum == null) {
+            long bn = invert ? b.denom : b.num;
+            long bd = invert ? b.num : b.denom;
+            if (bd < 0) {
+                bn = -bn;
+                bd = -bd;
+            }
+            if (setProduct(a.num, a.denom, bn, bd)) {
+                return;
+            }
         }
+        BigInteger bn = invert ? b.getBigDenominator() : b.getBigNumerator();
+        BigInteger bd = invert ? b.getBigNumerator() : b.getBigDenominator();
+        setValue(a.getBigNumerator().multiply(bn), a.getBigDenominator().multiply(bd));
+    }
+
+    
+    /**
+     * Sets this number to <code>a</code>*<code>n</code>/<code>d</code>.
+     */
+    private void setProduct(Rational a, long n, long d) {
+        if (d == 0) {
+            throw new ArithmeticException();
+        }
+        if (d < 0) {
+            n = -n;
+            d = -d;
+        }
+        if (a.bigNum == null && setProduct(a.num, a.denom, n, d)) {
+            return;
+        }
+        setValue(a.getBigNumerator().multiply(BigInteger.valueOf(n)), a.getBigDenominator().multiply(BigInteger.valueOf(d)));
+    }
+
+    
+    /**
+     * Sets this number to the product of the reduced fractions
+     * <code>an</code>/<code>ad</code> and <code>bn</code>/<code>bd</code>
+     * with positive denominators, if the product fits into longs.
+     * 
+     * @return false if the product overflows, this number is then unchanged
+     */
+    private boolean setProduct(long an, long ad, long bn, long bd) {
+        long g1 = NumberTheory.gcd(an, bd);
+        long g2 = NumberTheory.gcd(bn, ad);
+        if (g1 > 1) {
+            an /= g1;
+            bd /= g1;
+        }
+        if (g2 > 1) {
+            bn /= g2;
+            ad /= g2;
+        }
+        if (((Math.abs(an) | ad | Math.abs(bn) | bd) >>> 31) == 0 ||
+            !overflows(an, bn) && !overflows(ad, bd)) {
+            // the cross reduced fractions give a reduced product
+            setReduced(an * bn, ad * bd);
+            return true;
+        }
+        return false;
+    }
+
+    
+    /**
+     * Sets this number to the reduced fraction <code>n</code>/<code>d</code>
+     * with <code>d</code> positive.
+     */
+    private void setReduced(long n, long d) {
+        if (n > -LIMIT && n < LIMIT && d < LIMIT) {
+            num = n;
+            denom = d;
+            bigNum = null;
+            bigDenom = null;
+        }
+        else {
+            bigNum = BigInteger.valueOf(n);
+            bigDenom = BigInteger.valueOf(d);
+        }
+    }
+
+    
+    /**
+     * Sets this number to <code>n</code>/<code>d</code> and reduces
+     * it to least values with a positive denominator.
+     */
+    private void setValue(long n, long d) {
+        if (n == Long.MIN_VALUE || d == Long.MIN_VALUE) {
+            setValue(BigInteger.valueOf(n), BigInteger.valueOf(d));
+            return;
+        }
+        if (d == 0) {
+            throw new ArithmeticException();
+        }
+        long g = d == 1 ? 1 : NumberTheory.gcd(n, d);
+        if (g > 1) {
+            n /= g;
+            d /= g;
+        }
+        if (d < 0) {
+            n = -n;
+            d = -d;
+        }
+        setReduced(n, d);
+    }
+
+    
+    /**
+     * Sets this number to <code>n</code>/<code>d</code> and reduces
+     * it to least values with a positive denominator. The longs are used
+     * if both values fit.
+     */
+    private void setValue(BigInteger n, BigInteger d) {
+        if (d.signum() == 0) {
+            throw new ArithmeticException();
+        }
+        BigInteger g = n.gcd(d);
+        if (!g.equals(BigInteger.ONE)) {
+            n = n.divide(g);
+            d = d.divide(g);
+        }
+        if (d.signum() < 0) {
+            n = n.negate();
+            d = d.negate();
+        }
+        if (n.abs().bitLength() <= 62 && d.bitLength() <= 62) {
+            num = n.longValue();
+            denom = d.longValue();
+            bigNum = null;
+            bigDenom = null;
+        }
+        else {
+            bigNum = n;
+            bigDenom = d;
+        }
+    }
+
+    
+    /**
+     * Returns true iff <code>x</code>*<code>y</code> overflows a long,
+     * in the same way as Math.multiplyExact checks it.
+     */
+    private static boolean overflows(long x, long y) {
+        long ax = Math.abs(x);
+        long ay = Math.abs(y);
+        if (((ax | ay) >>> 31) != 0) {
+            long r = x * y;
+            return (y != 0 && r / y != x) || (x == Long.MIN_VALUE && y == -1);
+        }
+        return false;
     }
 
     
@@ -596,6 +815,12 @@ public final class Rational extends Number implements Comparable<Rational>, Clon
     private Rational() { /* do nothing */ }
 
     
-    private int num;
-    private int denom;
+    // absolute values of numerator and denominator in longs are less than LIMIT
+    private static final long LIMIT = 1L << 62;
+    
+    private long       num;
+    private long       denom;
+    // numerator and denominator if they do not fit into longs, null otherwise
+    private BigInteger bigNum;
+    private BigInteger bigDenom;
 }
@@ -0,0 +1,220 @@
+package org.rubato.math.matrix;
+
+import java.math.BigInteger;
+
+/**
+ * Fraction-free Gaussian elimination (Bareiss) of an integer matrix.
+ * Every intermediate value is a minor of the original matrix, so all
+ * divisions are exact. The entries are kept in longs as long as a step
+ * cannot overflow and in BigIntegers afterwards.
+ * This operation is destructive, i.e., the contents are replaced.
+ */
+final class FractionFreeElimination {
+
+    /**
+     * Creates an elimination of the matrix <code>m</code>, whose
+     * entries must be less than 2^62 in absolute value.
+     */
+    public FractionFreeElimination(long[][] m) {
+        rows = m.length;
+        columns = rows == 0 ? 0 : m[0].length;
+        values = m;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                maxAbs = Math.max(maxAbs, Math.abs(m[r][c]));
+            }
+        }
+    }
+
+
+    /**
+     * Creates an elimination of the matrix <code>m</code>.
+     */
+    public FractionFreeElimination(BigInteger[][] m) {
+        rows = m.length;
+        columns = rows == 0 ? 0 : m[0].length;
+        bigValues = m;
+        bigPrevious = BigInteger.ONE;
+    }
+
+
+    /**
+     * Eliminates the entries below the pivots, choosing pivots
+     * in the first <code>pivotColumns</code> columns. If <code>reduced</code>
+     * is true, the entries above the pivots are eliminated as well,
+     * and all pivots end up with the same value.
+     *
+     * @return the number of pivots, i.e., the rank of the first
+     *         <code>pivotColumns</code> columns
+     */
+    public int eliminate(int pivotColumns, boolean reduced) {
+        pivots = new int[Math.min(rows, pivotColumns)];
+        swaps = 0;
+        int r = 0;
+        for (int k = 0; k < pivotColumns && r < rows; k++) {
+            int p = r;
+            while (p < rows && isZero(p, k)) {
+                p++;
+            }
+            if (p == rows) {
+                continue;
+            }
+            if (p != r) {
+                swapRows(p, r);
+                swaps++;
+            }
+            if (bigValues == null && maxAbs >= SAFE) {
+                promote();
+            }
+            if (bigValues == null) {
+                step(r, k, reduced);
+            }
+            else {
+                bigStep(r, k, reduced);
+            }
+            pivots[r] = k;
+            r++;
+        }
+        rank = r;
+        return rank;
+    }
+
+
+    /**
+     * Returns the column of the pivot in row <code>r</code>.
+     */
+    public int getPivotColumn(int r) {
+        return pivots[r];
+    }
+
+
+    /**
+     * Returns the last pivot, which is the determinant of a square
+     * matrix of full rank up to the sign given by {@link #getSwapCount()}.
+     */
+    public BigInteger getLastPivot() {
+        return rank == 0 ? BigInteger.ONE : get(rank-1, pivots[rank-1]);
+    }
+
+
+    /**
+     * Returns the number of row swaps made during elimination.
+     */
+    public int getSwapCount() {
+        return swaps;
+    }
+
+
+    public BigInteger get(int r, int c) {
+        return bigValues == null ? BigInteger.valueOf(values[r][c]) : bigValues[r][c];
+    }
+
+
+    private boolean isZero(int r, int c) {
+        return bigValues == null ? values[r][c] == 0 : bigValues[r][c].signum() == 0;
+    }
+
+
+    private void swapRows(int r1, int r2) {
+        if (bigValues == null) {
+            long[] t = values[r1];
+            values[r1] = values[r2];
+            values[r2] = t;
+        }
+        else {
+            BigInteger[] t = bigValues[r1];
+            bigValues[r1] = bigValues[r2];
+            bigValues[r2] = t;
+        }
+    }
+
+
+    /*
+     * one elimination step with pivot at r,k in longs, all entries are
+     * less than 2^31 in absolute value, so the products cannot overflow
+     */
+    private void step(int r, int k, boolean reduced) {
+        long[] pivotRow = values[r];
+        long pivot = pivotRow[k];
+        long max = 0;
+        for (int i = reduced ? 0 : r+1; i < rows; i++) {
+            if (i == r) {
+                continue;
+            }
+            long[] row = values[i];
+            long f = row[k];
+            for (int j = reduced ? 0 : k+1; j < columns; j++) {
+                if (j != k) {
+                    row[j] = (pivot*row[j]-f*pivotRow[j])/previous;
+                    max = Math.max(max, Math.abs(row[j]));
+                }
+            }
+            row[k] = 0;
+        }
+        if (reduced) {
+            // the pivot row is eliminated by the following pivots
+            for (int j = 0; j < columns; j++) {
+                max = Math.max(max, Math.abs(pivotRow[j]));
+            }
+        }
+        maxAbs = max;
+        previous = pivot;
+    }
+
+
+    /*
+     * one elimination step with pivot at r,k in BigIntegers
+     */
+    private void bigStep(int r, int k, boolean reduced) {
+        BigInteger[] pivotRow = bigValues[r];
+        BigInteger pivot = pivotRow[k];
+        BigInteger prev = bigPrevious;
+        boolean unitPrevious = prev.equals(BigInteger.ONE);
+        for (int i = reduced ? 0 : r+1; i < rows; i++) {
+            if (i == r) {
+                continue;
+            }
+            BigInteger[] row = bigValues[i];
+            BigInteger f = row[k];
+            boolean zeroFactor = f.signum() == 0;
+            for (int j = reduced ? 0 : k+1; j < columns; j++) {
+                if (j != k) {
+                    BigInteger v = row[j].multiply(pivot);
+                    if (!zeroFactor && pivotRow[j].signum() != 0) {
+                        v = v.subtract(f.multiply(pivotRow[j]));
+                    }
+                    row[j] = unitPrevious ? v : v.divide(prev);
+                }
+            }
+            row[k] = BigInteger.ZERO;
+        }
+        bigPrevious = pivot;
+    }
+
+
+    private void promote() {
+        bigValues = new BigInteger[rows][columns];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                bigValues[r][c] = BigInteger.valueOf(values[r][c]);
+            }
+        }
+        bigPrevious = BigInteger.valueOf(previous);
+        values = null;
+    }
+
+
+    // entries less than SAFE in absolute value can be eliminated in longs
+    private static final long SAFE = 1L << 31;
+
+    private int          rows;
+    private int          columns;
+    private long[][]     values;
+    private BigInteger[][] bigValues;
+    private long         maxAbs;
+    private long         previous = 1;
+    private BigInteger   bigPrevious;
+    private int[]        pivots;
+    private int          rank;
+    private int          swaps;
+}
@@ -0,0 +1,146 @@
+package org.rubato.math.matrix;
+
+/**
+ * LU decomposition with partial pivoting of a square real matrix
+ * stored row-major in a flat array. The factors overwrite a copy
+ * of the matrix, with the unit diagonal of <i>L</i> left implicit,
+ * so that <i>PA = LU</i>.
+ */
+final class LUDecomposition {
+
+    /**
+     * Decomposes the <code>n</code>x<code>n</code> matrix
+     * stored row-major in <code>a</code>, which is not changed.
+     */
+    public LUDecomposition(double[] a, int n) {
+        this.n = n;
+        lu = a.clone();
+        permutation = new int[n];
+        for (int i = 0; i < n; i++) {
+            permutation[i] = i;
+        }
+        int s = 1;
+        boolean zeroPivot = false;
+        for (int k = 0; k < n; k++) {
+            int p = k;
+            double max = Math.abs(lu[k*n+k]);
+            for (int i = k+1; i < n; i++) {
+                double v = Math.abs(lu[i*n+k]);
+                if (v > max) {
+                    max = v;
+                    p = i;
+                }
+            }
+            if (max == 0.0) {
+                zeroPivot = true;
+                continue;
+            }
+            if (p != k) {
+                swapRows(p, k);
+                int t = permutation[p]; permutation[p] = permutation[k]; permutation[k] = t;
+                s = -s;
+            }
+            int kn = k*n;
+            double pivot = lu[kn+k];
+            for (int i = k+1; i < n; i++) {
+                int in = i*n;
+                double f = lu[in+k]/pivot;
+                lu[in+k] = f;
+                if (f != 0.0) {
+                    for (int j = k+1; j < n; j++) {
+                        lu[in+j] -= f*lu[kn+j];
+                    }
+                }
+            }
+        }
+        sign = s;
+        singular = zeroPivot;
+    }
+
+
+    /**
+     * Returns true iff the matrix has a zero pivot.
+     */
+    public boolean isSingular() {
+        return singular;
+    }
+
+
+    public double determinant() {
+        if (singular) {
+            return 0.0;
+        }
+        double det = sign;
+        for (int i = 0; i < n; i++) {
+            det *= lu[i*n+i];
+        }
+        return det;
+    }
+
+
+    /**
+     * Solves <i>AX = B</i> for the columns <code>from</code> to
+     * <code>to</code> (exclusive) of the row-major <code>n</code>x<code>m</code>
+     * matrix <code>b</code>, whose rows are permuted already.
+     * The solution replaces <code>b</code>.
+     */
+    public void solve(double[] b, int m, int from, int to) {
+        // forward substitution with L
+        for (int i = 1; i < n; i++) {
+            int im = i*m;
+            for (int k = 0; k < i; k++) {
+                double f = lu[i*n+k];
+                if (f != 0.0) {
+                    int km = k*m;
+                    for (int j = from; j < to; j++) {
+                        b[im+j] -= f*b[km+j];
+                    }
+                }
+            }
+        }
+        // back substitution with U
+        for (int i = n-1; i >= 0; i--) {
+            int im = i*m;
+            for (int k = i+1; k < n; k++) {
+                double f = lu[i*n+k];
+                if (f != 0.0) {
+                    int km = k*m;
+                    for (int j = from; j < to; j++) {
+                        b[im+j] -= f*b[km+j];
+                    }
+                }
+            }
+            double pivot = lu[i*n+i];
+            for (int j = from; j < to; j++) {
+                b[im+j] /= pivot;
+            }
+        }
+    }
+
+
+    /**
+     * Returns the row of <i>A</i> that has been moved to row <code>i</code>.
+     */
+    public int getPermutation(int i) {
+        return permutation[i];
+    }
+
+
+    private void swapRows(int r1, int r2) {
+        int o1 = r1*n;
+        int o2 = r2*n;
+        for (int j = 0; j < n; j++) {
+            double t = lu[o1+j];
+            lu[o1+j] = lu[o2+j];
+            lu[o2+j] = t;
+        }
+    }
+
+
+    // all fields are final, so that a decomposition can be shared between threads
+    private final int      n;
+    private final double[] lu;
+    private final int[]    permutation;
+    private final int      sign;
+    private final boolean  singular;
+}
@@ -19,8 +19,10 @@
 
 package org.rubato.math.matrix;
 
+import java.math.BigInteger;
 import java.util.Arrays;
 
+import org.rubato.math.arith.NumberTheory;
 import org.rubato.math.arith.Rational;
 
 /**
@@ -266,71 +268,61 @@ public class QMatrix extends Matrix {
         if (!isSquare()) {
             throw new ArithmeticException("Matrix is not square.");
         }
-
         int n = rows;
-        int i, j, k, t;
-        Rational maxval;
-        int maxpos;
-        int[] p = new int[n];
-        for (i = 0; i < n; i++) { 
-            p[i] = i;
-        }
-        
-        Rational[][] m = makeArray(n, 2*n);
-        for (i = 0; i < n; i++) {
+        Rational[][] m = new Rational[n][2*n];
+        for (int i = 0; i < n; i++) {
             System.arraycopy(coefficients[i], 0, m[i], 0, n);
-            for (j = n; j < 2*n; j++) m[i][j] = Rational.getZero();
-            m[i][n+i] = Rational.getOne();
-        }
-
-        for (i = 0; i < n; i++) {
-            maxpos = i;
-            maxval = m[p[i]][i].abs();
-            for (j = i+1; j < n; j++) {
-                if (m[p[j]][i].abs().compareTo(maxval) > 0) {
-                    maxval = m[p[j]][i].abs();
-                    maxpos = j;
-                }
-            }
-            if (maxval.isZero()) { 
-                throw new ArithmeticException("Matrix is not invertible.");
-            }
-            if (maxpos != i) {
-                t = p[maxpos]; p[maxpos] = p[i]; p[i] = t;
-            }
-            
-            for (j = i+1; j < n; j++) {
-                Rational f = m[p[j]][i].quotient(m[p[i]][i]);
-                for (k = i; k < 2*n; k++) {
-                    m[p[j]][k].subtract(f.product(m[p[i]][k]));
-                }
+            for (int j = n; j < 2*n; j++) {
+                m[i][j] = ZERO;
             }
+            m[i][n+i] = ONE;
         }
-        
-        if (m[p[n-1]][n-1].isZero()) {
+        // the row scaling puts the diagonal matrix of the scales
+        // to the right, the inverse is still the quotient by the pivots
+        FractionFreeElimination e = makeElimination(m, null);
+        if (e.eliminate(n, true) < n) {
             throw new ArithmeticException("Matrix is not invertible.");
         }
-            
-        for (i = n-1; i >= 0; i--) {
-            Rational f = m[p[i]][i];
-            for (k = i; k < 2*n; k++) {
-                m[p[i]][k].divide(f);
-            }
-            for (j = i-1; j >= 0; j--) {
-                f = m[p[j]][i];
-                for (k = i; k < 2*n; k++) {
-                    m[p[j]][k].subtract(f.product(m[p[i]][k]));
-                }
+        QMatrix rm = new QMatrix(n, n);
+        for (int i = 0; i < n; i++) {
+            BigInteger pivot = e.get(i, i);
+            for (int j = 0; j < n; j++) {
+                rm.coefficients[i][j] = new Rational(e.get(i, n+j), pivot);
             }
         }
-
-        QMatrix rm = new QMatrix(n, n);
-        for (i = 0; i < n; i++)
-            for (j = 0; j < n; j++)
-                rm.coefficients[i][j] = m[p[i]][j+n];
-        
         return rm;
     }
+    
+    
+    /**
+     * Returns the solution <i>x</i> of the system <i>Ax = b</i>,
+     * where <i>A</i> is this matrix.
+     * 
+     * @throws ArithmeticException if this matrix is not invertible
+     */
+    public Rational[] solve(Rational[] b) {
+        if (!isSquare()) {
+            throw new ArithmeticException("Matrix is not square.");
+        }
+        if (b.length != rows) {
+            throw new ArithmeticException("Unmatched matrix dimensions.");
+        }
+        int n = rows;
+        Rational[][] m = new Rational[n][n+1];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(coefficients[i], 0, m[i], 0, n);
+            m[i][n] = b[i];
+        }
+        FractionFreeElimination e = makeElimination(m, null);
+        if (e.eliminate(n, true) < n) {
+            throw new ArithmeticException("Matrix is not invertible.");
+        }
+        Rational[] x = new Rational[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = new Rational(e.get(i, n), e.get(i, i));
+        }
+        return x;
+    }
 
     
     /**
@@ -461,23 +453,7 @@ public class QMatrix extends Matrix {
     
 
     public int rank() {
-        QMatrix m;        
-        if (getRowCount() < getColumnCount()) {
-            m = transposed();
-        }
-        else {
-            m = new QMatrix(this);
-        }
-        
-        m.computeRREF();
-        
-        int rank = m.getRowCount();
-        int i = m.getRowCount()-1;
-        while (i >= 0 && m.isZeroRow(i)) {
-            rank--;
-            i--;
-        }
-        return rank;
+        return makeElimination(coefficients, null).eliminate(columns, false);
     }
 
     
@@ -622,41 +598,20 @@ public class QMatrix extends Matrix {
      * This operation is destructive, i.e., the contents are replaced.
      */
     public void computeRREF() {
-        int i = 0;
-        int j = 0;
-        int m = getRowCount();
-        int n = getColumnCount();
-        while (i < m && j < n) {
-            // Find pivot in column j, starting in row i:
-            Rational max_val = coefficients[i][j];
-            int max_ind = i;
-            for (int k = i+1; k < m; k++) {
-                Rational val = coefficients[k][j];
-                if (val.compareTo(max_val) == 1) {
-                    max_val = val;
-                    max_ind = k;
+        FractionFreeElimination e = makeElimination(coefficients, null);
+        int rank = e.eliminate(columns, true);
+        for (int r = 0; r < rows; r++) {
+            if (r < rank) {
+                BigInteger pivot = e.get(r, e.getPivotColumn(r));
+                for (int c = 0; c < columns; c++) {
+                    coefficients[r][c] = new Rational(e.get(r, c), pivot);
                 }
             }
-            if (!max_val.isZero()) {
-                // switch rows i and max_ind
-                Rational[] tmp = coefficients[i];
-                coefficients[i] = coefficients[max_ind];
-                coefficients[max_ind] = tmp;
-                // divide row i by max_val
-                for (int k = 0; k < n; k++) {
-                    coefficients[i][k].divide(max_val);
-                }
-                for (int u = 0; u < m; u++) {
-                    if (u != i) {
-                        Rational v = new Rational(coefficients[u][j]);
-                        for (int k = 0; k < n; k++) {
-                            coefficients[u][k].subtract(v.product(coefficients[i][k]));
-                        }
-                    }
+            else {
+                for (int c = 0; c < columns; c++) {
+                    coefficients[r][c] = Rational.getZero();
                 }
-                i++;
             }
-            j++;
         }
     }
     
@@ -736,6 +691,25 @@ public class QMatrix extends Matrix {
         return res;
     }
 
+
+    /**
+     * Multiplies this matrix with the vector of length <code>columns</code>
+     * starting at <code>xOffset</code> in <code>x</code> and stores the result
+     * starting at <code>yOffset</code> in <code>y</code>, without creating
+     * any arrays. The two ranges must not overlap.
+     */
+    public void product(Rational[] x, int xOffset, Rational[] y, int yOffset) {
+        Rational sum;
+        for (int r = 0; r < rows; r++) {
+            Rational[] row = coefficients[r];
+            sum = Rational.getZero();
+            for (int c = 0; c < columns; c++) {
+                sum.add(row[c].product(x[xOffset+c]));
+            }
+            y[yOffset+r] = sum;
+        }
+    }
+
     
     /**
      * Returns the determinant of this matrix.
@@ -750,47 +724,21 @@ public class QMatrix extends Matrix {
         if (rows == 1) {
             return coefficients[0][0];
         }
-                
-        int i, j, t;
-        Rational maxval;
-        int maxpos;
-        Rational factor = Rational.getOne();
-        int[] p = new int[rows];
-        for (i = 0; i < rows; i++) p[i] = i;
-        
-        Rational[][] m = makeArray(rows, columns);
-        for (i = 0; i < rows; i++)
-            System.arraycopy(coefficients[i], 0, m[i], 0, columns);
-
-        for (i = 0; i < rows; i++) {
-            maxpos = i;
-            maxval = m[p[i]][i].abs();
-            for (j = i+1; j < rows; j++) {
-                if (m[p[j]][i].abs().compareTo(maxval) > 0) {
-                    maxval = m[p[j]][i].abs();
-                    maxpos = j;
-                }
-            }
-            if (maxval.isZero()) return Rational.getZero();
-            if (maxpos != i) {
-                t = p[maxpos]; p[maxpos] = p[i]; p[i] = t;
-                factor.multiply(new Rational(-1));
-            }
-            
-            for (j = i+1; j < rows; j++) {
-                Rational f = m[p[j]][i].quotient(m[p[i]][i]);
-                for (int k = i; k < columns; k++) {
-                    m[p[j]][k].subtract(f.product(m[p[i]][k]));
-                }
-            }
+
+        BigInteger[] scales = new BigInteger[rows];
+        FractionFreeElimination e = makeElimination(coefficients, scales);
+        if (e.eliminate(columns, false) < rows) {
+            return Rational.getZero();
         }
-        
-        Rational det = Rational.getOne();
-        for (i = 0; i < rows; i++) {
-            det.multiply(m[p[i]][i]);
+        BigInteger det = e.getLastPivot();
+        if (e.getSwapCount() % 2 != 0) {
+            det = det.negate();
         }
-        
-        return factor.product(det);
+        BigInteger scale = BigInteger.ONE;
+        for (int i = 0; i < rows; i++) {
+            scale = scale.multiply(scales[i]);
+        }
+        return new Rational(det, scale);
     }
     
     
@@ -856,6 +804,64 @@ public class QMatrix extends Matrix {
     }
     
     
+    /*
+     * Returns the elimination of the integer matrix whose rows are the rows
+     * of m multiplied by the least common multiple of their denominators.
+     * If scales is not null, the multipliers are stored there.
+     */
+    private static FractionFreeElimination makeElimination(Rational[][] m, BigInteger[] scales) {
+        int rows = m.length;
+        int columns = rows == 0 ? 0 : m[0].length;
+        long[][] values = new long[rows][columns];
+        for (int r = 0; r < rows && values != null; r++) {
+            long scale = 1;
+            for (int c = 0; c < columns; c++) {
+                Rational q = m[r][c];
+                if (!q.fitsInt()) {
+                    values = null;
+                    break;
+                }
+                long d = q.getDenominator();
+                scale = scale/NumberTheory.gcd(scale, d)*d;
+                if (scale >= LONG_LIMIT) {
+                    values = null;
+                    break;
+                }
+            }
+            if (values != null) {
+                // numerators and factors are at most 2^31
+                for (int c = 0; c < columns; c++) {
+                    Rational q = m[r][c];
+                    values[r][c] = q.getNumerator()*(scale/q.getDenominator());
+                }
+                if (scales != null) {
+                    scales[r] = BigInteger.valueOf(scale);
+                }
+            }
+        }
+        if (values != null) {
+            return new FractionFreeElimination(values);
+        }
+
+        BigInteger[][] bigValues = new BigInteger[rows][columns];
+        for (int r = 0; r < rows; r++) {
+            BigInteger scale = BigInteger.ONE;
+            for (int c = 0; c < columns; c++) {
+                BigInteger d = m[r][c].getBigDenominator();
+                scale = scale.divide(scale.gcd(d)).multiply(d);
+            }
+            for (int c = 0; c < columns; c++) {
+                Rational q = m[r][c];
+                bigValues[r][c] = q.getBigNumerator().multiply(scale.divide(q.getBigDenominator()));
+            }
+            if (scales != null) {
+                scales[r] = scale;
+            }
+        }
+        return new FractionFreeElimination(bigValues);
+    }
+
+
     private static Rational[][] makeArray(int rows, int columns) {
         Rational[][] res = new Rational[rows][columns];
         for (int r = 0; r < rows; r++) {
@@ -868,4 +874,10 @@ public class QMatrix extends Matrix {
     
 
     private Rational[][] coefficients;
+
+    // products of numbers at most 2^31 in absolute value fit into a long
+    private static final long LONG_LIMIT = 1L << 31;
+
+    private static final Rational ZERO = new Rational(0);
+    private static final Rational ONE  = new Rational(1);
 }
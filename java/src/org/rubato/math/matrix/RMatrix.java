@@ -20,10 +20,21 @@
 package org.rubato.math.matrix;
 
 import java.text.DecimalFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * Matrixes over real numbers.
+ * The coefficients are stored row by row in a single array.
+ * Products and inverses of large matrixes are computed by
+ * several threads.
  */
 public class RMatrix extends Matrix {
 
@@ -33,7 +44,7 @@ public class RMatrix extends Matrix {
      */
     public RMatrix(int rows, int cols) {
         super(rows, cols);
-        coefficients = new double[rows][cols];
+        coefficients = new double[rows*cols];
     }
     
     
@@ -43,9 +54,7 @@ public class RMatrix extends Matrix {
      */
     public RMatrix(int rows, int cols, double value) {
         this(rows, cols);
-        for (int r = 0; r < rows; r++) {
-            Arrays.fill(coefficients[r], value);
-        }
+        Arrays.fill(coefficients, value);
     }
     
     
@@ -54,11 +63,7 @@ public class RMatrix extends Matrix {
      */
     public RMatrix(RMatrix m) {
         this(m.getRowCount(), m.getColumnCount());
-        for (int r = 0; r < rows; r++) {
-            for (int c = 0; c < columns; c++) {
-                coefficients[r][c] = m.coefficients[r][c];
-            }
-        }
+        System.arraycopy(m.coefficients, 0, coefficients, 0, coefficients.length);
     }
     
     
@@ -69,7 +74,7 @@ public class RMatrix extends Matrix {
         this(m.getRowCount(), m.getColumnCount());
         for (int r = 0; r < rows; r++) {
             for (int c = 0; c < columns; c++) {
-                coefficients[r][c] = m.get(r, c);
+                coefficients[r*columns+c] = m.get(r, c);
             }
         }
     }
@@ -82,7 +87,7 @@ public class RMatrix extends Matrix {
         this(m.getRowCount(), m.getColumnCount());
         for (int r = 0; r < rows; r++) {
             for (int c = 0; c < columns; c++) {
-                coefficients[r][c] = m.get(r, c);
+                coefficients[r*columns+c] = m.get(r, c);
             }
         }
     }
@@ -95,14 +100,14 @@ public class RMatrix extends Matrix {
     public RMatrix(double[] v) {
         this(v.length, 1);
         for (int r = 0; r < v.length; r++) {
-            coefficients[r][0] = v[r];
+            coefficients[r] = v[r];
         }
     }
 
     
     /**
      * Creates a <i>m</i>⨉<i>n</i> real matrix from the 2-dimensional
-     * array <code>c</code> of doubles.
+     * array <code>c</code> of doubles. The array is copied.
      */
     public RMatrix(double[][] c) {
         this(c.length, c[0].length);
@@ -111,7 +116,9 @@ public class RMatrix extends Matrix {
                 throw new IllegalArgumentException("Rows are not all of the same length");
             }
         }
-        this.coefficients = c;
+        for (int r = 0; r < rows; r++) {
+            System.arraycopy(c[r], 0, coefficients, r*columns, columns);
+        }
     }
     
 
@@ -131,7 +138,7 @@ public class RMatrix extends Matrix {
      * Returns the value at index <code>row</code>,<code>col</code>.
      */
     public double get(int row, int col) {
-        return coefficients[row][col];
+        return coefficients[row*columns+col];
     }
     
     
@@ -139,7 +146,8 @@ public class RMatrix extends Matrix {
      * Sets index <code>row</code>,<code>col</code> to <code>value</code>.
      */
     public void set(int row, int col, double value) {
-        coefficients[row][col] = value;
+        coefficients[row*columns+col] = value;
+        lu = null;
     }
 
     
@@ -147,13 +155,12 @@ public class RMatrix extends Matrix {
         if (this.rows == rows) {
             return;
         }
-        double[][] coeffs = new double[rows][columns];
+        double[] coeffs = new double[rows*columns];
         int min_rows = rows < this.rows ? rows : this.rows;
-        for (int r = 0; r < min_rows; r++) {
-            System.arraycopy(this.coefficients[r], 0, coeffs[r], 0, columns);
-        }
+        System.arraycopy(this.coefficients, 0, coeffs, 0, min_rows*columns);
         this.rows = rows;
         this.coefficients = coeffs;
+        this.lu = null;
     }
          
     
@@ -161,13 +168,14 @@ public class RMatrix extends Matrix {
         if (this.columns == cols) {
             return;
         }
-        double[][] coeffs = new double[rows][cols];
+        double[] coeffs = new double[rows*cols];
         int min_cols = cols < this.columns ? cols : this.columns;
         for (int r = 0; r < rows; r++) {
-            System.arraycopy(this.coefficients[r], 0, coeffs[r], 0, min_cols);
+            System.arraycopy(this.coefficients, r*columns, coeffs, r*cols, min_cols);
         }
         this.columns = cols;
         this.coefficients = coeffs;
+        this.lu = null;
     }
     
 
@@ -183,20 +191,21 @@ public class RMatrix extends Matrix {
         else if (rows < columns) {
             rows = columns;
         }
-        coefficients = new double[rows][rows];
+        coefficients = new double[rows*rows];
         for (int rc = 0; rc < rows; rc++) {
-            coefficients[rc][rc] = 1.0;
+            coefficients[rc*rows+rc] = 1.0;
         }
+        lu = null;
     }
     
     
     public void setToZero(int row, int col) {
-        coefficients[row][col] = 0;
+        set(row, col, 0);
     }
 
 
     public void setToOne(int row, int col) {
-        coefficients[row][col] = 1;
+        set(row, col, 1);
     }
 
     
@@ -204,9 +213,8 @@ public class RMatrix extends Matrix {
      * Sets all values of this matrix to <code>value</code>.
      */
     public void setToElementaryMatrix(double value) {
-        for (int r = 0; r < rows; r++) {
-            Arrays.fill(coefficients[r], value);
-        }
+        Arrays.fill(coefficients, value);
+        lu = null;
     }
 
 
@@ -220,7 +228,7 @@ public class RMatrix extends Matrix {
         int ncols = toCol-fromCol+1;
         RMatrix m = new RMatrix(nrows, ncols);
         for (int r = 0; r < nrows; r++) {
-            System.arraycopy(coefficients[r+fromRow], fromCol, m.coefficients[r], 0, ncols);
+            System.arraycopy(coefficients, (r+fromRow)*columns+fromCol, m.coefficients, r*ncols, ncols);
         }
         return m;
     }
@@ -236,7 +244,7 @@ public class RMatrix extends Matrix {
             if (r == row) rOffset = 1;
             for (int c = 0, cOffset = 0; c < columns-1; c++) {
                 if (c == col) cOffset = 1;
-                m.coefficients[r][c] = coefficients[r+rOffset][c+cOffset];
+                m.coefficients[r*m.columns+c] = coefficients[(r+rOffset)*columns+c+cOffset];
             }
         }
         return m;
@@ -250,7 +258,7 @@ public class RMatrix extends Matrix {
         RMatrix m = new RMatrix(columns, rows);
         for (int r = 0; r < rows; r++) {
             for (int c = 0; c < columns; c++) {
-                m.coefficients[c][r] = coefficients[r][c];
+                m.coefficients[c*rows+r] = coefficients[r*columns+c];
             }
         }
         return m;
@@ -267,62 +275,52 @@ public class RMatrix extends Matrix {
             throw new ArithmeticException("Matrix is not square.");
         }
 
-        int n = rows;
-        int i, j, k, t;
-        double maxval;
-        int maxpos;
-        int[] p = new int[n];
-        for (i = 0; i < n; i++) p[i] = i;
-        
-        double[][] m = new double[n][2*n];
-        for (i = 0; i < n; i++) {
-            System.arraycopy(coefficients[i], 0, m[i], 0, n);
-            for (j = n; j < 2*n; j++) m[i][j] = 0.0;
-            m[i][n+i] = 1;
-        }
-
-        for (i = 0; i < n; i++) {
-            maxpos = i;
-            maxval = Math.abs(m[p[i]][i]);
-            for (j = i+1; j < n; j++) {
-                if (Math.abs(m[p[j]][i]) > maxval) {
-                    maxval = Math.abs(m[p[j]][i]);
-                    maxpos = j;
-                }
-            }
-            if (maxval == 0.0) { 
-                throw new ArithmeticException("Matrix is not invertible.");
-            }
-            if (maxpos != i) {
-                t = p[maxpos]; p[maxpos] = p[i]; p[i] = t;
-            }
-            
-            for (j = i+1; j < n; j++) {
-                double f = m[p[j]][i]/m[p[i]][i];
-                for (k = i; k < 2*n; k++) m[p[j]][k] -= f*m[p[i]][k];
-            }
-        }
-        
-        if (m[p[n-1]][n-1] == 0.0) {
+        final LUDecomposition decomposition = getLU();
+        if (decomposition.isSingular()) {
             throw new ArithmeticException("Matrix is not invertible.");
         }
-            
-        for (i = n-1; i >= 0; i--) {
-            double f = m[p[i]][i];
-            for (k = i; k < 2*n; k++) m[p[i]][k] /= f;
-            for (j = i-1; j >= 0; j--) {
-                f = m[p[j]][i];
-                for (k = i; k < 2*n; k++) m[p[j]][k] -= f*m[p[i]][k];
-            }
-        }
 
+        // solve for the columns of the permuted unit matrix,
+        // which are independent of each other
+        final int n = rows;
         RMatrix rm = new RMatrix(n, n);
-        for (i = 0; i < n; i++)
-            for (j = 0; j < n; j++)
-                rm.coefficients[i][j] = m[p[i]][j+n];
-        
+        final double[] x = rm.coefficients;
+        for (int i = 0; i < n; i++) {
+            x[i*n+decomposition.getPermutation(i)] = 1.0;
+        }
+        forRange(n, (long)n*n*n, new RangeTask() {
+            public void run(int from, int to) {
+                decomposition.solve(x, n, from, to);
+            }
+        });
         return rm;
     }
+    
+    
+    /**
+     * Returns the solution <i>x</i> of the system <i>Ax = b</i>,
+     * where <i>A</i> is this matrix.
+     * 
+     * @throws ArithmeticException if this matrix is not invertible
+     */
+    public double[] solve(double[] b) {
+        if (rows != columns) {
+            throw new ArithmeticException("Matrix is not square.");
+        }
+        if (b.length != rows) {
+            throw new ArithmeticException("Unmatched matrix dimensions");
+        }
+        LUDecomposition decomposition = getLU();
+        if (decomposition.isSingular()) {
+            throw new ArithmeticException("Matrix is not invertible.");
+        }
+        double[] x = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            x[i] = b[decomposition.getPermutation(i)];
+        }
+        decomposition.solve(x, 1, 0, 1);
+        return x;
+    }
 
     
     /**
@@ -335,14 +333,14 @@ public class RMatrix extends Matrix {
         
         RMatrix m = new RMatrix(rows, columns);
         if (rows == 1) {
-            m.coefficients[0][0] = 1.0;
+            m.coefficients[0] = 1.0;
             return m;
         }
         
         // take care of the transposition (swap r and c)!
         for (int r = 0; r < rows; r++) {
             for (int c = 0; c < columns; c++) {
-                m.coefficients[c][r] = minor(r + 1, c + 1);
+                m.coefficients[c*rows+r] = minor(r + 1, c + 1);
             }
         }
         return m;
@@ -356,8 +354,9 @@ public class RMatrix extends Matrix {
         
         RMatrix m = new RMatrix(rows, columns);
         for (int r = 0; r < rows; r++) {
+            int offset = r*columns;
             for (int c = 0; c < columns; c++) {
-                m.coefficients[r][c] = coefficients[r][c] - coefficients[r][0];
+                m.coefficients[offset+c] = coefficients[offset+c] - coefficients[offset];
             }
         }
         return m;
@@ -378,10 +377,8 @@ public class RMatrix extends Matrix {
      */
     public RMatrix scaled(double scalar) {
         RMatrix m = new RMatrix(rows, columns);
-        for (int r = 0; r < rows; r++) {
-            for (int c = 0; c < columns; c++) {
-                m.coefficients[r][c] = scalar*coefficients[r][c];
-            }
+        for (int i = 0; i < coefficients.length; i++) {
+            m.coefficients[i] = scalar*coefficients[i];
         }
         return m;
     }
@@ -410,20 +407,24 @@ public class RMatrix extends Matrix {
         }
         
         if (exponent < 0) {
-            exponent *= -1;
             m = inverse();
         }
         else {
             m = this;
         }
         
-        int k;
-        for (k = 2; (k <= exponent) && (exponent % k != 0); k++) {}
-        if (k == exponent) {
-            return product(power(k-1));
-        }
-        else {
-            return power(exponent/k).power(k);
+        // square and multiply
+        long e = Math.abs((long)exponent);
+        RMatrix power = null;
+        while (true) {
+            if ((e & 1) != 0) {
+                power = (power == null) ? m : power.product(m);
+            }
+            e >>= 1;
+            if (e == 0) {
+                return power;
+            }
+            m = m.product(m);
         }
     }
     
@@ -474,13 +475,11 @@ public class RMatrix extends Matrix {
 
     
     public boolean isConstant() {
-        double coeff = coefficients[0][0];
+        double coeff = coefficients[0];
         
-        for (int r = 0; r < rows; r++) {
-            for (int c = 0; c < columns; c++) {
-                if (coefficients[r][c] != coeff) {
-                    return false;
-                }
+        for (int i = 0; i < coefficients.length; i++) {
+            if (coefficients[i] != coeff) {
+                return false;
             }
         }
         return true;
@@ -488,11 +487,9 @@ public class RMatrix extends Matrix {
     
     
     public boolean isZero() {
-        for (int r = 0; r < rows; r++) {
-            for (int c = 0; c < columns; c++) {
-                if (java.lang.Math.abs(coefficients[r][c]) > EPSILON) { 
-                    return false;
-                }
+        for (int i = 0; i < coefficients.length; i++) {
+            if (java.lang.Math.abs(coefficients[i]) > EPSILON) { 
+                return false;
             }
         }
         return true;
@@ -506,12 +503,12 @@ public class RMatrix extends Matrix {
         for (int r = 0; r < rows; r++) {
             for (int c = 0; c < columns; c++) {
                 if (r == c) {
-                    if (coefficients[r][c] != 1) {
+                    if (coefficients[r*columns+c] != 1) {
                         return false;
                     }
                 }
                 else {
-                    if (coefficients[r][c] != 0) {
+                    if (coefficients[r*columns+c] != 0) {
                         return false;
                     }
                 }
@@ -527,12 +524,12 @@ public class RMatrix extends Matrix {
     
     
     public boolean isZero(int row, int col) {
-        return coefficients[row][col] == 0;
+        return coefficients[row*columns+col] == 0;
     }
 
     
     public boolean isOne(int row, int col) {
-        return coefficients[row][col] == 1;
+        return coefficients[row*columns+col] == 1;
     }
     
 
@@ -548,7 +545,7 @@ public class RMatrix extends Matrix {
         double length = java.lang.StrictMath.sqrt(dotProduct(this));
         RMatrix m =  new RMatrix(rows, 1);
         for (int r = 0; r < rows; r++) {
-            m.coefficients[r][0] = coefficients[r][0] / length;
+            m.coefficients[r] = coefficients[r] / length;
         }
         return m;
     }
@@ -568,7 +565,7 @@ public class RMatrix extends Matrix {
         
         double dot = 0.0;
         for (int r = 0; r < rows; r++) {
-            dot += coefficients[r][0] * m.coefficients[r][0];
+            dot += coefficients[r] * m.coefficients[r];
         }
         return dot;
     }
@@ -578,11 +575,9 @@ public class RMatrix extends Matrix {
         if (object instanceof RMatrix) {
             RMatrix m = (RMatrix)object;
             if (sameSize(m)) {
-                for (int i = 0; i < rows; i++) {
-                    for (int j = 0; j < columns; j++) {
-                        if (coefficients[i][j] != m.coefficients[i][j]) {
-                            return false;
-                        }
+                for (int i = 0; i < coefficients.length; i++) {
+                    if (coefficients[i] != m.coefficients[i]) {
+                        return false;
                     }
                 }
                 return true;
@@ -607,15 +602,13 @@ public class RMatrix extends Matrix {
             else if (columns > m.columns) {
                 return 1;
             }
-            for (int r = 0; r < rows; r++) {
-                for (int c = 0; c < columns; c++) {
-                    double cmp = coefficients[r][c]-m.coefficients[r][c];
-                    if (cmp < 0.0) {
-                        return -1;
-                    }
-                    else if (cmp > 0.0) {
-                        return 1;
-                    }
+            for (int i = 0; i < coefficients.length; i++) {
+                double cmp = coefficients[i]-m.coefficients[i];
+                if (cmp < 0.0) {
+                    return -1;
+                }
+                else if (cmp > 0.0) {
+                    return 1;
                 }
             }
             return 0;
@@ -632,8 +625,9 @@ public class RMatrix extends Matrix {
      */
     public void setSubMatrix(int row, int col, RMatrix m) {
         for (int r = 0; r < m.rows; r++) {
-            System.arraycopy(m.coefficients[r], 0, coefficients[row+r], col, m.columns);
+            System.arraycopy(m.coefficients, r*m.columns, coefficients, (row+r)*columns+col, m.columns);
         }
+        lu = null;
     }
     
 
@@ -646,12 +640,13 @@ public class RMatrix extends Matrix {
         int j = 0;
         int m = getRowCount();
         int n = getColumnCount();
+        double[] a = coefficients;
         while (i < m && j < n) {
             // Find pivot in column j, starting in row i:
-            double max_val = coefficients[i][j];
+            double max_val = a[i*n+j];
             int max_ind = i;
             for (int k = i+1; k < m; k++) {
-                double val = coefficients[k][j];
+                double val = a[k*n+j];
                 if (Math.abs(val) > Math.abs(max_val)) {
                     max_val = val;
                     max_ind = k;
@@ -659,18 +654,25 @@ public class RMatrix extends Matrix {
             }
             if (Math.abs(max_val) > EPSILON) {
                 // switch rows i and max_ind
-                double[] tmp = coefficients[i];
-                coefficients[i] = coefficients[max_ind];
-                coefficients[max_ind] = tmp;
+                int in = i*n;
+                if (max_ind != i) {
+                    int mn = max_ind*n;
+                    for (int k = 0; k < n; k++) {
+                        double tmp = a[in+k];
+                        a[in+k] = a[mn+k];
+                        a[mn+k] = tmp;
+                    }
+                }
                 // divide row i by max_val
                 for (int k = 0; k < n; k++) {
-                    coefficients[i][k] /= max_val;
+                    a[in+k] /= max_val;
                 }
                 for (int u = 0; u < m; u++) {
                     if (u != i) {
-                        double v = coefficients[u][j];
+                        int un = u*n;
+                        double v = a[un+j];
                         for (int k = 0; k < n; k++) {
-                            coefficients[u][k] -= v*coefficients[i][k];
+                            a[un+k] -= v*a[in+k];
                         }
                     }
                 }
@@ -678,6 +680,7 @@ public class RMatrix extends Matrix {
             }
             j++;
         }
+        lu = null;
     }
     
     
@@ -689,10 +692,8 @@ public class RMatrix extends Matrix {
             throw new ArithmeticException("Unmatched matrix dimensions.");
         }
         RMatrix sum = new RMatrix(rows, columns);
-        for (int r = 0; r < rows; r++) {
-            for (int c = 0; c < columns; c++) {
-                sum.coefficients[r][c] = coefficients[r][c] + m.coefficients[r][c];
-            }
+        for (int i = 0; i < coefficients.length; i++) {
+            sum.coefficients[i] = coefficients[i] + m.coefficients[i];
         }
         return sum;
     }
@@ -706,10 +707,8 @@ public class RMatrix extends Matrix {
             throw new ArithmeticException("Unmatched matrix dimensions.");
         }
         RMatrix sum = new RMatrix(rows, columns);
-        for (int r = 0; r < rows; r++) {
-            for (int c = 0; c < columns; c++) {
-                sum.coefficients[r][c] = coefficients[r][c] - m.coefficients[r][c];
-            }
+        for (int i = 0; i < coefficients.length; i++) {
+            sum.coefficients[i] = coefficients[i] - m.coefficients[i];
         }
         return sum;
     }
@@ -724,15 +723,16 @@ public class RMatrix extends Matrix {
         }
         
         RMatrix product = new RMatrix(rows, m.columns);
-        for (int r = 0; r < rows; r++) {
-            for (int c = 0; c < m.columns; c++) {
-                double sum = 0.0;
-                for (int i = 0; i < columns; i++) {
-                    sum += coefficients[r][i]*m.coefficients[i][c];
-                }
-                product.coefficients[r][c] = sum;
-            }
-        }
+        final double[] a = coefficients;
+        final double[] b = m.coefficients;
+        final double[] c = product.coefficients;
+        final int n = columns;
+        final int p = m.columns;
+        forRange(rows, (long)rows*n*p, new RangeTask() {
+            public void run(int from, int to) {
+                multiply(a, b, c, n, p, from, to);
+            }
+        });
         return product;
     }
     
@@ -748,14 +748,34 @@ public class RMatrix extends Matrix {
         double sum;
         for (int r = 0; r < rows; r++) {
 	        sum = 0;
+	        int offset = r*columns;
 	        for (int c = 0; c < columns; c++) {
-		        sum = sum + coefficients[r][c] * vector[c];
+		        sum = sum + coefficients[offset+c] * vector[c];
             }
 	        res[r] = sum;
         }
         return res;
     }
 
+
+    /**
+     * Multiplies this matrix with the vector of length <code>columns</code>
+     * starting at <code>xOffset</code> in <code>x</code> and stores the result
+     * starting at <code>yOffset</code> in <code>y</code>, without creating
+     * any arrays. The two ranges must not overlap.
+     */
+    public void product(double[] x, int xOffset, double[] y, int yOffset) {
+        double sum;
+        for (int r = 0; r < rows; r++) {
+            int offset = r*columns;
+            sum = 0;
+            for (int c = 0; c < columns; c++) {
+                sum = sum + coefficients[offset+c] * x[xOffset+c];
+            }
+            y[yOffset+r] = sum;
+        }
+    }
+
     
     /**
      * Returns the determinant of this matrix.
@@ -768,46 +788,10 @@ public class RMatrix extends Matrix {
         }
         
         if (rows == 1) {
-            return coefficients[0][0];
-        }
-                
-        int i, j, t;
-        double maxval;
-        int maxpos;
-        double det = 0.0;
-        double factor = 1.0;
-        int[] p = new int[rows];
-        for (i = 0; i < rows; i++) p[i] = i;
-        
-        double[][] m = new double[rows][columns];
-        for (i = 0; i < rows; i++)
-            System.arraycopy(coefficients[i], 0, m[i], 0, columns);
-
-        for (i = 0; i < rows; i++) {
-            maxpos = i;
-            maxval = Math.abs(m[p[i]][i]);
-            for (j = i+1; j < rows; j++) {
-                if (Math.abs(m[p[j]][i]) > maxval) {
-                    maxval = Math.abs(m[p[j]][i]);
-                    maxpos = j;
-                }
-            }
-            if (maxval == 0.0) return 0.0;
-            if (maxpos != i) {
-                t = p[maxpos]; p[maxpos] = p[i]; p[i] = t;
-                factor *= -1.0;
-            }
-            
-            for (j = i+1; j < rows; j++) {
-                double f = m[p[j]][i]/m[p[i]][i];
-                for (int k = i; k < columns; k++) m[p[j]][k] -= f*m[p[i]][k];
-            }
+            return coefficients[0];
         }
-        
-        det = 1.0;
-        for (i = 0; i < rows; i++) det *= m[p[i]][i];
-        
-        return factor*det;
+
+        return getLU().determinant();
     }
     
     
@@ -830,11 +814,9 @@ public class RMatrix extends Matrix {
      */
     public double euclidean() {
         double euclidean = 0.0;
-        for (int r = 0; r < rows; r++) {
-            for (int c = 0; c < columns; c++) {
-                double s = coefficients[r][c];
-                euclidean += s*s;
-            }
+        for (int i = 0; i < coefficients.length; i++) {
+            double s = coefficients[i];
+            euclidean += s*s;
         }        
         return euclidean;
     }
@@ -845,10 +827,8 @@ public class RMatrix extends Matrix {
      */
     public double sum() {
         double sum = 0.0;
-        for (int r = 0; r < rows; r++) {
-            for (int c = 0; c < columns; c++) {
-                sum += coefficients[r][c];
-            }
+        for (int i = 0; i < coefficients.length; i++) {
+            sum += coefficients[i];
         }
         return sum;
     }
@@ -864,7 +844,7 @@ public class RMatrix extends Matrix {
         buf.append("][");
         for (int i = 0; i < rows; i++) {
             for (int j = 0; j < columns; j++) {
-                buf.append(format.format(coefficients[i][j]));
+                buf.append(format.format(coefficients[i*columns+j]));
                 if (j < columns-1) { buf.append(" "); }
             }
             if (i < rows-1) { buf.append("; "); }
@@ -874,7 +854,124 @@ public class RMatrix extends Matrix {
     }
     
 
-    private double[][] coefficients;
+    /*
+     * Returns the LU decomposition of this matrix, which is kept
+     * until the matrix is changed.
+     */
+    private LUDecomposition getLU() {
+        LUDecomposition decomposition = lu;
+        if (decomposition == null) {
+            decomposition = new LUDecomposition(coefficients, rows);
+            lu = decomposition;
+        }
+        return decomposition;
+    }
+
+
+    /*
+     * Adds the product of the rows from to to (exclusive) of the matrix a
+     * with n columns and the matrix b with p columns to the same rows of c.
+     * The loops are blocked, so that the parts of b in use stay in the
+     * cache, and each coefficient of c is summed up in the order of k.
+     */
+    private static void multiply(double[] a, double[] b, double[] c, int n, int p, int from, int to) {
+        for (int i0 = from; i0 < to; i0 += BLOCK_SIZE) {
+            int i1 = Math.min(to, i0+BLOCK_SIZE);
+            for (int k0 = 0; k0 < n; k0 += BLOCK_SIZE) {
+                int k1 = Math.min(n, k0+BLOCK_SIZE);
+                for (int j0 = 0; j0 < p; j0 += BLOCK_SIZE) {
+                    int j1 = Math.min(p, j0+BLOCK_SIZE);
+                    for (int i = i0; i < i1; i++) {
+                        int in = i*n;
+                        int ip = i*p;
+                        for (int k = k0; k < k1; k++) {
+                            double aik = a[in+k];
+                            int kp = k*p;
+                            for (int j = j0; j < j1; j++) {
+                                c[ip+j] += aik*b[kp+j];
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+
+    private interface RangeTask {
+        void run(int from, int to);
+    }
+
+
+    /*
+     * Runs the task on the range from 0 to n, split into
+     * one chunk per processor if the work is large enough.
+     */
+    private static void forRange(int n, long work, final RangeTask task) {
+        int threadCount = Math.min(PROCESSORS, n/BLOCK_SIZE);
+        if (work < PARALLEL_THRESHOLD || threadCount <= 1) {
+            task.run(0, n);
+            return;
+        }
+
+        ExecutorService executor = getExecutor();
+        try {
+            List<Future<Object>> results = new ArrayList<Future<Object>>();
+            int chunkSize = (n+threadCount-1)/threadCount;
+            for (int i = 0; i < n; i += chunkSize) {
+                final int from = i;
+                final int to = Math.min(n, i+chunkSize);
+                results.add(executor.submit(new Callable<Object>() {
+                    public Object call() {
+                        task.run(from, to);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Object> result : results) {
+                result.get();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+    
+    
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(PROCESSORS, new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    // idle threads must not keep the application alive
+                    Thread thread = new Thread(r, "RMatrix");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return executor;
+    }
+    
+
+    private double[] coefficients;
+    // volatile, since the decomposition may be computed by several threads
+    // sharing this matrix
+    private volatile LUDecomposition lu;
     
     static final double EPSILON = 1.0e-6;
+
+    // side length of the blocks in the matrix product
+    private static final int BLOCK_SIZE = 64;
+    // number of multiplications from which work is split between threads
+    private static final long PARALLEL_THRESHOLD = 1L << 21;
+    private static final int PROCESSORS = Runtime.getRuntime().availableProcessors();
+    // threads for the parallel products and inverses, created when first needed
+    private static ExecutorService executor = null;
 }
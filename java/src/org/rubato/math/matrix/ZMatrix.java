@@ -19,6 +19,7 @@
 
 package org.rubato.math.matrix;
 
+import java.math.BigInteger;
 import java.util.Arrays;
 
 /**
@@ -320,8 +321,12 @@ public final class ZMatrix extends Matrix {
     }
     
     
+    /**
+     * Returns the rank of this matrix, i.e., the rank
+     * of the submodule generated by its columns.
+     */
     public int rank() {
-        throw new ArithmeticException("Cannot compute the rank of an integer matrix.");
+        return makeElimination().eliminate(columns, false);
     }
 
     
@@ -523,6 +528,25 @@ public final class ZMatrix extends Matrix {
         return res;
     }
 
+
+    /**
+     * Multiplies this matrix with the vector of length <code>columns</code>
+     * starting at <code>xOffset</code> in <code>x</code> and stores the result
+     * starting at <code>yOffset</code> in <code>y</code>, without creating
+     * any arrays. The two ranges must not overlap.
+     */
+    public void product(int[] x, int xOffset, int[] y, int yOffset) {
+        int sum;
+        for (int r = 0; r < rows; r++) {
+            int[] row = coefficients[r];
+            sum = 0;
+            for (int c = 0; c < columns; c++) {
+                sum = sum + row[c] * x[xOffset+c];
+            }
+            y[yOffset+r] = sum;
+        }
+    }
+
     
     public int determinant() {
         if (!isSquare()) {
@@ -533,9 +557,15 @@ public final class ZMatrix extends Matrix {
             return coefficients[0][0];
         }
         
-        RMatrix m = new RMatrix(this);
-        
-        return (int)m.determinant();
+        FractionFreeElimination e = makeElimination();
+        if (e.eliminate(columns, false) < rows) {
+            return 0;
+        }
+        BigInteger det = e.getLastPivot();
+        if (det.bitLength() > 31) {
+            throw new ArithmeticException("Determinant does not fit into an int.");
+        }
+        return e.getSwapCount() % 2 == 0 ? det.intValue() : -det.intValue();
     }
     
     
@@ -601,5 +631,16 @@ public final class ZMatrix extends Matrix {
     }
     
 
+    private FractionFreeElimination makeElimination() {
+        long[][] values = new long[rows][columns];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                values[r][c] = coefficients[r][c];
+            }
+        }
+        return new FractionFreeElimination(values);
+    }
+    
+
     private int[][] coefficients;
 }
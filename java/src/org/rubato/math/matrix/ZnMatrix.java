@@ -23,6 +23,7 @@ import java.text.DecimalFormat;
 import java.util.Arrays;
 
 import org.rubato.math.arith.NumberTheory;
+import org.rubato.math.arith.ZeroDivisorException;
 
 /**
  * Matrixes over modular integers.
@@ -270,67 +271,61 @@ public final class ZnMatrix extends Matrix {
         }
 
         int n = rows;
-        int i, j, k, t;
-        int maxval;
-        int maxpos;
-        int[] p = new int[n];
-        for (i = 0; i < n; i++) p[i] = i;
-        
-        int[][] m = new int[n][2*n];
-        for (i = 0; i < n; i++) {
-            System.arraycopy(coefficients[i], 0, m[i], 0, n);
-            for (j = n; j < 2*n; j++) {
-                m[i][j] = 0;
-            }
+        int[][] m = copyCoefficients(n);
+        for (int i = 0; i < n; i++) {
             m[i][n+i] = 1;
         }
-
-        for (i = 0; i < n; i++) {
-            maxpos = i;
-            maxval = Math.abs(m[p[i]][i]);
-            for (j = i+1; j < n; j++) {
-                if (Math.abs(m[p[j]][i]) > maxval) {
-                    maxval = Math.abs(m[p[j]][i]);
-                    maxpos = j;
-                }
-            }
-            if (maxval == 0) { 
+        try {
+            if (reduce(m, n) < n) {
                 throw new ArithmeticException("Matrix is not invertible.");
             }
-            if (maxpos != i) {
-                t = p[maxpos]; p[maxpos] = p[i]; p[i] = t;
-            }
-            
-            for (j = i+1; j < n; j++) {
-                int f = NumberTheory.divideMod(m[p[j]][i], m[p[i]][i], modulus);
-                for (k = i; k < 2*n; k++) m[p[j]][k] -= f*m[p[i]][k];
-            }
         }
-        
-        if (m[p[n-1]][n-1] == 0) {
+        catch (ZeroDivisorException e) {
             throw new ArithmeticException("Matrix is not invertible.");
         }
-            
-        for (i = n-1; i >= 0; i--) {
-            int f = m[p[i]][i];
-            for (k = i; k < 2*n; k++) {
-                m[p[i]][k] = NumberTheory.divideMod(m[p[i]][k], f, modulus);
-            }
-            for (j = i-1; j >= 0; j--) {
-                f = m[p[j]][i];
-                for (k = i; k < 2*n; k++) m[p[j]][k] -= f*m[p[i]][k];
-            }
-        }
 
         ZnMatrix rm = new ZnMatrix(n, n, modulus);
-        for (i = 0; i < n; i++) {
-            for (j = 0; j < n; j++) {
-                rm.coefficients[i][j] = m[p[i]][j+n];
-            }
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(m[i], n, rm.coefficients[i], 0, n);
         }
-        
         return rm;
     }
+    
+    
+    /**
+     * Returns the solution <i>x</i> of the system <i>Ax = b</i>,
+     * where <i>A</i> is this matrix.
+     * 
+     * @throws ArithmeticException if this matrix is not invertible
+     */
+    public int[] solve(int[] b) {
+        if (!isSquare()) {
+            throw new ArithmeticException("Matrix is not square.");
+        }
+        if (b.length != rows) {
+            throw new ArithmeticException("Unmatched matrix dimensions.");
+        }
+
+        int n = rows;
+        int[][] m = copyCoefficients(1);
+        for (int i = 0; i < n; i++) {
+            m[i][n] = NumberTheory.mod(b[i], modulus);
+        }
+        try {
+            if (reduce(m, n) < n) {
+                throw new ArithmeticException("Matrix is not invertible.");
+            }
+        }
+        catch (ZeroDivisorException e) {
+            throw new ArithmeticException("Matrix is not invertible.");
+        }
+
+        int[] x = new int[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = m[i][n];
+        }
+        return x;
+    }
 
     
     public ZnMatrix adjoint() {
@@ -450,23 +445,7 @@ public final class ZnMatrix extends Matrix {
         if (!NumberTheory.isPrime(getModulus())) {
             throw new ArithmeticException("Z_"+getModulus()+" is not a field.");
         }
-        ZnMatrix m;        
-        if (getRowCount() < getColumnCount()) {
-            m = transposed();
-        }
-        else {
-            m = new ZnMatrix(this);
-        }
-        
-        m.computeRREF();
-        
-        int rank = m.getRowCount();
-        int i = m.getRowCount()-1;
-        while (i >= 0 && m.isZeroRow(i)) {
-            rank--;
-            i--;
-        }
-        return rank;
+        return reduce(copyCoefficients(0), columns);
     }
 
     
@@ -610,42 +589,8 @@ public final class ZnMatrix extends Matrix {
      * This operation is destructive, i.e., the contents are replaced.
      */
     public void computeRREF() {
-        int i = 0;
-        int j = 0;
-        int m = getRowCount();
-        int n = getColumnCount();
-        while (i < m && j < n) {
-            // Find pivot in column j, starting in row i:
-            int max_val = coefficients[i][j];
-            int max_ind = i;
-            for (int k = i+1; k < m; k++) {
-                int val = coefficients[k][j];
-                if (Math.abs(val) > Math.abs(max_val)) {
-                    max_val = val;
-                    max_ind = k;
-                }
-            }
-            if (Math.abs(max_val) != 0) {
-                // switch rows i and max_ind
-                int[] tmp = coefficients[i];
-                coefficients[i] = coefficients[max_ind];
-                coefficients[max_ind] = tmp;
-                // divide row i by max_val
-                for (int k = 0; k < n; k++) {
-                    coefficients[i][k] = NumberTheory.divideMod(coefficients[i][k], max_val, getModulus());
-                }
-                for (int u = 0; u < m; u++) {
-                    if (u != i) {
-                        int v = coefficients[u][j];
-                        for (int k = 0; k < n; k++) {
-                            coefficients[u][k] = NumberTheory.mod(coefficients[u][k]-v*coefficients[i][k], getModulus());                            
-                        }
-                    }
-                }
-                i++;
-            }
-            j++;
-        }
+        coefficients = copyCoefficients(0);
+        reduce(coefficients, columns);
     }
     
     
@@ -720,6 +665,25 @@ public final class ZnMatrix extends Matrix {
         return res;
     }
 
+
+    /**
+     * Multiplies this matrix with the vector of length <code>columns</code>
+     * starting at <code>xOffset</code> in <code>x</code> and stores the result
+     * starting at <code>yOffset</code> in <code>y</code>, without creating
+     * any arrays. The two ranges must not overlap.
+     */
+    public void product(int[] x, int xOffset, int[] y, int yOffset) {
+        int sum;
+        for (int r = 0; r < rows; r++) {
+            int[] row = coefficients[r];
+            sum = 0;
+            for (int c = 0; c < columns; c++) {
+                sum = NumberTheory.mod(sum + row[c] * x[xOffset+c], modulus);
+            }
+            y[yOffset+r] = sum;
+        }
+    }
+
     public int determinant() {
         if (!isSquare()) {
             throw new ArithmeticException("Matrix is not square.");
@@ -728,47 +692,34 @@ public final class ZnMatrix extends Matrix {
         if (rows == 1) {
             return coefficients[0][0];
         }
-                
-        int i, j, t;
-        int maxval;
-        int maxpos;
-        int factor = 1;
-        int[] p = new int[rows];
-        for (i = 0; i < rows; i++) p[i] = i;
-        
-        int[][] m = new int[rows][columns];
-        for (i = 0; i < rows; i++)
-            System.arraycopy(coefficients[i], 0, m[i], 0, columns);
-
-        for (i = 0; i < rows; i++) {
-            maxpos = i;
-            maxval = m[p[i]][i];
-            for (j = i+1; j < rows; j++) {
-                if (m[p[j]][i] > maxval) {
-                    maxval = m[p[j]][i];
-                    maxpos = j;
-                }
-            }
-            if (maxval == 0) return 0;
-            if (maxpos != i) {
-                t = p[maxpos]; p[maxpos] = p[i]; p[i] = t;
-                factor = NumberTheory.mod(factor * -1, modulus);
-            }
-            
-            for (j = i+1; j < rows; j++) {
-                int f = NumberTheory.divideMod(m[p[j]][i], m[p[i]][i], modulus);
-                for (int k = i; k < columns; k++) {
-                    m[p[j]][k] = NumberTheory.mod(m[p[j]][k] - f*m[p[i]][k], modulus);
+
+        int[][] m = copyCoefficients(0);
+        int swaps = 0;
+        long det = 1;
+        for (int k = 0; k < rows; k++) {
+            int s = pivot(m, k, k);
+            if (s < 0) {
+                return 0;
+            }
+            swaps += s;
+            int[] pivotRow = m[k];
+            if (NumberTheory.gcd(pivotRow[k], modulus) == 1) {
+                int inv = NumberTheory.inverseMod(pivotRow[k], modulus);
+                for (int i = k+1; i < rows; i++) {
+                    int[] row = m[i];
+                    if (row[k] != 0) {
+                        int f = (int)((long)row[k]*inv % modulus);
+                        subtractRow(row, f, pivotRow, k);
+                    }
                 }
             }
+            // otherwise the column below the pivot has been cleared by pivot
+            det = det*pivotRow[k] % modulus;
         }
-        
-        int det = 1;
-        for (i = 0; i < rows; i++) {
-            det = NumberTheory.mod(det * m[p[i]][i], modulus);
+        if (swaps % 2 != 0) {
+            det = -det;
         }
-        
-        return NumberTheory.mod(factor*det, modulus);
+        return NumberTheory.mod((int)det, modulus);
     }
     
     
@@ -835,6 +786,110 @@ public final class ZnMatrix extends Matrix {
     }
     
 
+    /*
+     * Returns a copy of the coefficients reduced modulo the modulus
+     * with extraColumns zero columns appended.
+     */
+    private int[][] copyCoefficients(int extraColumns) {
+        int[][] m = new int[rows][columns+extraColumns];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                m[r][c] = NumberTheory.mod(coefficients[r][c], modulus);
+            }
+        }
+        return m;
+    }
+
+
+    /*
+     * Reduces m in place to reduced row echelon form with pivots
+     * in the first pivotColumns columns and returns the number of pivots.
+     * Throws a ZeroDivisorException if a pivot is not a unit.
+     */
+    private int reduce(int[][] m, int pivotColumns) {
+        int r = 0;
+        for (int k = 0; k < pivotColumns && r < m.length; k++) {
+            if (pivot(m, r, k) < 0) {
+                continue;
+            }
+            int[] pivotRow = m[r];
+            int inv = NumberTheory.inverseMod(pivotRow[k], modulus);
+            if (inv != 1) {
+                for (int j = k; j < pivotRow.length; j++) {
+                    pivotRow[j] = (int)((long)pivotRow[j]*inv % modulus);
+                }
+            }
+            for (int i = 0; i < m.length; i++) {
+                int[] row = m[i];
+                if (i != r && row[k] != 0) {
+                    subtractRow(row, row[k], pivotRow, k);
+                }
+            }
+            r++;
+        }
+        return r;
+    }
+
+
+    /*
+     * Moves a pivot for column k into row r, preferably a unit.
+     * If there is no unit at or below row r, the rows are combined
+     * by the Euclidean algorithm until the column below row r is zero.
+     * Returns the number of row swaps, or -1 if the column is zero
+     * at and below row r.
+     */
+    private int pivot(int[][] m, int r, int k) {
+        int p = r;
+        while (p < m.length && (m[p][k] == 0 || NumberTheory.gcd(m[p][k], modulus) != 1)) {
+            p++;
+        }
+        if (p < m.length) {
+            return swapRows(m, p, r) ? 1 : 0;
+        }
+        p = r;
+        while (p < m.length && m[p][k] == 0) {
+            p++;
+        }
+        if (p == m.length) {
+            return -1;
+        }
+        int swaps = swapRows(m, p, r) ? 1 : 0;
+        for (int i = r+1; i < m.length; i++) {
+            while (m[i][k] != 0) {
+                // representatives are not reduced by the subtraction
+                subtractRow(m[r], m[r][k]/m[i][k], m[i], k);
+                swapRows(m, i, r);
+                swaps++;
+            }
+        }
+        return swaps;
+    }
+
+
+    /*
+     * Subtracts f times the row b from the row a, starting at column k.
+     */
+    private void subtractRow(int[] a, int f, int[] b, int k) {
+        for (int j = k; j < a.length; j++) {
+            if (b[j] != 0) {
+                int v = (int)((a[j]-(long)f*b[j]) % modulus);
+                a[j] = v < 0 ? v+modulus : v;
+            }
+        }
+    }
+
+
+    private static boolean swapRows(int[][] m, int r1, int r2) {
+        if (r1 == r2) {
+            return false;
+        }
+        int[] t = m[r1];
+        m[r1] = m[r2];
+        m[r2] = t;
+        return true;
+    }
+    
+
     private int[][] coefficients;
     private int modulus;
 }
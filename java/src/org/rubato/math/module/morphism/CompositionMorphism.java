@@ -22,8 +22,8 @@ package org.rubato.math.module.morphism;
 import static org.rubato.xml.XMLConstants.MODULEMORPHISM;
 import static org.rubato.xml.XMLConstants.TYPE_ATTR;
 
-import org.rubato.math.module.ModuleElement;
-import org.rubato.math.module.ZRing;
+import org.rubato.math.arith.Rational;
+import org.rubato.math.module.*;
 import org.rubato.xml.XMLInputOutput;
 import org.rubato.xml.XMLReader;
 import org.rubato.xml.XMLWriter;
@@ -44,7 +44,8 @@ public final class CompositionMorphism extends ModuleMorphism {
      * Constructs a morphism from <code>f</code> and <code>g</code>.
      * The resulting morphism <code>h</code> is such that <i>h(x) = f(g(x))</i>.
      * This is used instead of a constructor, so that simplifications
-     * can be made.
+     * can be made. Compositions of affine morphisms over the same number
+     * ring are collapsed by {@link MorphismNormalizer}.
      * 
      * @throws CompositionException if composition is not valid
      */
@@ -74,7 +75,7 @@ public final class CompositionMorphism extends ModuleMorphism {
             }
         }
         else {
-            return new CompositionMorphism(f, g);
+            return MorphismNormalizer.normalize(new CompositionMorphism(f, g));
         }
     }
 
@@ -85,6 +86,64 @@ public final class CompositionMorphism extends ModuleMorphism {
     }
     
     
+    /**
+     * Maps the elements through <i>g</i> and <i>f</i> in chunks, so that
+     * the intermediate coordinates need only a small buffer.
+     */
+    public void mapValues(double[] x, int xOffset, double[] y, int yOffset, int count)
+            throws MappingException {
+        if (!(g.getCodomain() instanceof RFreeModule)) {
+            super.mapValues(x, xOffset, y, yOffset, count);
+            return;
+        }
+        int m = getDomain().getDimension();
+        int l = g.getCodomain().getDimension();
+        int n = getCodomain().getDimension();
+        double[] z = new double[Math.min(count, CHUNK_SIZE)*l];
+        for (int k = 0; k < count; k += CHUNK_SIZE) {
+            int chunk = Math.min(count-k, CHUNK_SIZE);
+            g.mapValues(x, xOffset+k*m, z, 0, chunk);
+            f.mapValues(z, 0, y, yOffset+k*n, chunk);
+        }
+    }
+    
+    
+    public void mapValues(int[] x, int xOffset, int[] y, int yOffset, int count)
+            throws MappingException {
+        if (!(g.getCodomain() instanceof ZFreeModule || g.getCodomain() instanceof ZnFreeModule)) {
+            super.mapValues(x, xOffset, y, yOffset, count);
+            return;
+        }
+        int m = getDomain().getDimension();
+        int l = g.getCodomain().getDimension();
+        int n = getCodomain().getDimension();
+        int[] z = new int[Math.min(count, CHUNK_SIZE)*l];
+        for (int k = 0; k < count; k += CHUNK_SIZE) {
+            int chunk = Math.min(count-k, CHUNK_SIZE);
+            g.mapValues(x, xOffset+k*m, z, 0, chunk);
+            f.mapValues(z, 0, y, yOffset+k*n, chunk);
+        }
+    }
+    
+    
+    public void mapValues(Rational[] x, int xOffset, Rational[] y, int yOffset, int count)
+            throws MappingException {
+        if (!(g.getCodomain() instanceof QFreeModule)) {
+            super.mapValues(x, xOffset, y, yOffset, count);
+            return;
+        }
+        int m = getDomain().getDimension();
+        int l = g.getCodomain().getDimension();
+        int n = getCodomain().getDimension();
+        Rational[] z = new Rational[Math.min(count, CHUNK_SIZE)*l];
+        for (int k = 0; k < count; k += CHUNK_SIZE) {
+            int chunk = Math.min(count-k, CHUNK_SIZE);
+            g.mapValues(x, xOffset+k*m, z, 0, chunk);
+            f.mapValues(z, 0, y, yOffset+k*n, chunk);
+        }
+    }
+    
+    
     public boolean isModuleHomomorphism() {
         return f.isModuleHomomorphism() && g.isModuleHomomorphism();
     }
@@ -233,6 +292,8 @@ public final class CompositionMorphism extends ModuleMorphism {
     }
     
     
+    private static final int CHUNK_SIZE = 256;
+
     private ModuleMorphism f;
     private ModuleMorphism g;
 }
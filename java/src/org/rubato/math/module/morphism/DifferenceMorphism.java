@@ -64,7 +64,7 @@ public final class DifferenceMorphism extends ModuleMorphism {
             }
         }
         else {
-            return new DifferenceMorphism(f, g);
+            return MorphismNormalizer.normalize(new DifferenceMorphism(f, g));
         }
     }
     
@@ -27,6 +27,7 @@ import java.util.HashMap;
 import java.util.LinkedList;
 
 import org.rubato.math.arith.Complex;
+import org.rubato.math.arith.NumberTheory;
 import org.rubato.math.arith.Rational;
 import org.rubato.math.module.*;
 import org.rubato.util.Pair;
@@ -163,6 +164,76 @@ public abstract class EmbeddingMorphism extends ModuleMorphism {
      */
     public abstract ModuleElement mapValue(ModuleElement element);    
     
+    /**
+     * Embeddings of free modules over the same ring pad the coordinates
+     * with zeros. Other embeddings map every element.
+     */
+    public void mapValues(double[] x, int xOffset, double[] y, int yOffset, int count)
+            throws MappingException {
+        if (!(getDomain() instanceof RFreeModule && getCodomain() instanceof RFreeModule)) {
+            super.mapValues(x, xOffset, y, yOffset, count);
+            return;
+        }
+        int m = getDomain().getDimension();
+        int n = getCodomain().getDimension();
+        for (int k = 0; k < count; k++) {
+            System.arraycopy(x, xOffset+k*m, y, yOffset+k*n, m);
+            for (int i = m; i < n; i++) {
+                y[yOffset+k*n+i] = 0;
+            }
+        }
+    }
+    
+    
+    public void mapValues(int[] x, int xOffset, int[] y, int yOffset, int count)
+            throws MappingException {
+        int m = getDomain().getDimension();
+        int n = getCodomain().getDimension();
+        if (getDomain() instanceof ZFreeModule && getCodomain() instanceof ZFreeModule) {
+            for (int k = 0; k < count; k++) {
+                System.arraycopy(x, xOffset+k*m, y, yOffset+k*n, m);
+                for (int i = m; i < n; i++) {
+                    y[yOffset+k*n+i] = 0;
+                }
+            }
+        }
+        else if (getDomain() instanceof ZnFreeModule && getCodomain() instanceof ZnFreeModule &&
+                 ((ZnFreeModule)getDomain()).getModulus() == ((ZnFreeModule)getCodomain()).getModulus()) {
+            int modulus = ((ZnFreeModule)getDomain()).getModulus();
+            for (int k = 0; k < count; k++) {
+                for (int i = 0; i < m; i++) {
+                    y[yOffset+k*n+i] = NumberTheory.mod(x[xOffset+k*m+i], modulus);
+                }
+                for (int i = m; i < n; i++) {
+                    y[yOffset+k*n+i] = 0;
+                }
+            }
+        }
+        else {
+            super.mapValues(x, xOffset, y, yOffset, count);
+        }
+    }
+    
+    
+    public void mapValues(Rational[] x, int xOffset, Rational[] y, int yOffset, int count)
+            throws MappingException {
+        if (!(getDomain() instanceof QFreeModule && getCodomain() instanceof QFreeModule)) {
+            super.mapValues(x, xOffset, y, yOffset, count);
+            return;
+        }
+        int m = getDomain().getDimension();
+        int n = getCodomain().getDimension();
+        for (int k = 0; k < count; k++) {
+            for (int i = 0; i < m; i++) {
+                y[yOffset+k*n+i] = new Rational(x[xOffset+k*m+i]);
+            }
+            for (int i = m; i < n; i++) {
+                y[yOffset+k*n+i] = Rational.getZero();
+            }
+        }
+    }
+    
+    
     /**
      * Embeddings are always module homomorphisms, except for
      * embeddings of a Z_n ring into another ring.
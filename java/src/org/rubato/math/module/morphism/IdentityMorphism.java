@@ -23,9 +23,9 @@ import static org.rubato.xml.XMLConstants.MODULE;
 import static org.rubato.xml.XMLConstants.MODULEMORPHISM;
 import static org.rubato.xml.XMLConstants.TYPE_ATTR;
 
-import org.rubato.math.module.Module;
-import org.rubato.math.module.ModuleElement;
-import org.rubato.math.module.ZRing;
+import org.rubato.math.arith.NumberTheory;
+import org.rubato.math.arith.Rational;
+import org.rubato.math.module.*;
 import org.rubato.xml.XMLInputOutput;
 import org.rubato.xml.XMLReader;
 import org.rubato.xml.XMLWriter;
@@ -57,6 +57,47 @@ public final class IdentityMorphism extends ModuleMorphism {
     }
     
 
+    public void mapValues(double[] x, int xOffset, double[] y, int yOffset, int count)
+            throws MappingException {
+        if (getDomain() instanceof RFreeModule) {
+            System.arraycopy(x, xOffset, y, yOffset, count*getDomain().getDimension());
+        }
+        else {
+            super.mapValues(x, xOffset, y, yOffset, count);
+        }
+    }
+    
+
+    public void mapValues(int[] x, int xOffset, int[] y, int yOffset, int count)
+            throws MappingException {
+        if (getDomain() instanceof ZFreeModule) {
+            System.arraycopy(x, xOffset, y, yOffset, count*getDomain().getDimension());
+        }
+        else if (getDomain() instanceof ZnFreeModule) {
+            int modulus = ((ZnFreeModule)getDomain()).getModulus();
+            for (int i = 0; i < count*getDomain().getDimension(); i++) {
+                y[yOffset+i] = NumberTheory.mod(x[xOffset+i], modulus);
+            }
+        }
+        else {
+            super.mapValues(x, xOffset, y, yOffset, count);
+        }
+    }
+    
+
+    public void mapValues(Rational[] x, int xOffset, Rational[] y, int yOffset, int count)
+            throws MappingException {
+        if (getDomain() instanceof QFreeModule) {
+            for (int i = 0; i < count*getDomain().getDimension(); i++) {
+                y[yOffset+i] = new Rational(x[xOffset+i]);
+            }
+        }
+        else {
+            super.mapValues(x, xOffset, y, yOffset, count);
+        }
+    }
+    
+
     public boolean isModuleHomomorphism() {
         return true;
     }
@@ -21,9 +21,8 @@ package org.rubato.math.module.morphism;
 
 import java.io.Serializable;
 
-import org.rubato.math.module.Module;
-import org.rubato.math.module.ModuleElement;
-import org.rubato.math.module.RingElement;
+import org.rubato.math.arith.Rational;
+import org.rubato.math.module.*;
 import org.rubato.xml.XMLInputOutput;
 
 /**
@@ -58,6 +57,141 @@ public abstract class ModuleMorphism
         throws MappingException;
 
     
+    /**
+     * Maps <code>count</code> elements of a free module over <i>R</i>,
+     * whose coordinates are stored one after the other in <code>x</code>,
+     * and stores the coordinates of the results one after the other
+     * in <code>y</code>. The arrays may be the same if the domain and
+     * the codomain have the same dimension.
+     * 
+     * @throws MappingException if domain or codomain is not a free module
+     *                          over <i>R</i> or mapping fails
+     */
+    public final void mapValues(double[] x, double[] y, int count)
+            throws MappingException {
+        mapValues(x, 0, y, 0, count);
+    }
+    
+    
+    /**
+     * Maps <code>count</code> elements of a free module over <i>R</i>
+     * whose coordinates start at <code>xOffset</code> in <code>x</code>
+     * and stores the results starting at <code>yOffset</code> in <code>y</code>.
+     * The affine, translation, embedding and composition morphisms
+     * implement this without creating any module elements, the default
+     * implementation maps every element using {@link #map(ModuleElement)}.
+     * 
+     * @throws MappingException if domain or codomain is not a free module
+     *                          over <i>R</i> or mapping fails
+     */
+    public void mapValues(double[] x, int xOffset, double[] y, int yOffset, int count)
+            throws MappingException {
+        if (!(getDomain() instanceof RFreeModule) || !(getCodomain() instanceof RFreeModule)) {
+            throw new MappingException("ModuleMorphism.mapValues: No real free modules. ", null, this);
+        }
+        int m = getDomain().getDimension();
+        int n = getCodomain().getDimension();
+        for (int k = 0; k < count; k++) {
+            double[] v = new double[m];
+            System.arraycopy(x, xOffset+k*m, v, 0, m);
+            ModuleElement res = map(RProperFreeElement.make(v));
+            for (int i = 0; i < n; i++) {
+                y[yOffset+k*n+i] = ((RElement)res.getComponent(i)).getValue();
+            }
+        }
+    }
+
+
+    /**
+     * Maps <code>count</code> elements of a free module over <i>Z</i>
+     * or <i>Z_n</i> like {@link #mapValues(double[], double[], int)}.
+     * 
+     * @throws MappingException if domain or codomain is not a free module
+     *                          over <i>Z</i> or <i>Z_n</i> or mapping fails
+     */
+    public final void mapValues(int[] x, int[] y, int count)
+            throws MappingException {
+        mapValues(x, 0, y, 0, count);
+    }
+    
+    
+    /**
+     * Maps <code>count</code> elements of a free module over <i>Z</i>
+     * or <i>Z_n</i> like {@link #mapValues(double[], int, double[], int, int)}.
+     * 
+     * @throws MappingException if domain or codomain is not a free module
+     *                          over <i>Z</i> or <i>Z_n</i> or mapping fails
+     */
+    public void mapValues(int[] x, int xOffset, int[] y, int yOffset, int count)
+            throws MappingException {
+        if (!(getDomain() instanceof ZFreeModule || getDomain() instanceof ZnFreeModule) ||
+            !(getCodomain() instanceof ZFreeModule || getCodomain() instanceof ZnFreeModule)) {
+            throw new MappingException("ModuleMorphism.mapValues: No integer free modules. ", null, this);
+        }
+        int m = getDomain().getDimension();
+        int n = getCodomain().getDimension();
+        for (int k = 0; k < count; k++) {
+            int[] v = new int[m];
+            System.arraycopy(x, xOffset+k*m, v, 0, m);
+            ModuleElement res;
+            if (getDomain() instanceof ZnFreeModule) {
+                res = map(ZnProperFreeElement.make(v, ((ZnFreeModule)getDomain()).getModulus()));
+            }
+            else {
+                res = map(ZProperFreeElement.make(v));
+            }
+            for (int i = 0; i < n; i++) {
+                ModuleElement component = res.getComponent(i);
+                if (component instanceof ZnElement) {
+                    y[yOffset+k*n+i] = ((ZnElement)component).getValue();
+                }
+                else {
+                    y[yOffset+k*n+i] = ((ZElement)component).getValue();
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Maps <code>count</code> elements of a free module over <i>Q</i>
+     * like {@link #mapValues(double[], double[], int)}.
+     * 
+     * @throws MappingException if domain or codomain is not a free module
+     *                          over <i>Q</i> or mapping fails
+     */
+    public final void mapValues(Rational[] x, Rational[] y, int count)
+            throws MappingException {
+        mapValues(x, 0, y, 0, count);
+    }
+    
+    
+    /**
+     * Maps <code>count</code> elements of a free module over <i>Q</i>
+     * like {@link #mapValues(double[], int, double[], int, int)}.
+     * The results are stored as new rationals.
+     * 
+     * @throws MappingException if domain or codomain is not a free module
+     *                          over <i>Q</i> or mapping fails
+     */
+    public void mapValues(Rational[] x, int xOffset, Rational[] y, int yOffset, int count)
+            throws MappingException {
+        if (!(getDomain() instanceof QFreeModule) || !(getCodomain() instanceof QFreeModule)) {
+            throw new MappingException("ModuleMorphism.mapValues: No rational free modules. ", null, this);
+        }
+        int m = getDomain().getDimension();
+        int n = getCodomain().getDimension();
+        for (int k = 0; k < count; k++) {
+            Rational[] v = new Rational[m];
+            System.arraycopy(x, xOffset+k*m, v, 0, m);
+            ModuleElement res = map(QProperFreeElement.make(v));
+            for (int i = 0; i < n; i++) {
+                y[yOffset+k*n+i] = new Rational(((QElement)res.getComponent(i)).getValue());
+            }
+        }
+    }
+
+    
     /**
      * Returns the composition this*<code>morphism</code>.
      * 
@@ -0,0 +1,401 @@
+package org.rubato.math.module.morphism;
+
+import org.rubato.math.arith.Rational;
+import org.rubato.math.matrix.QMatrix;
+import org.rubato.math.matrix.RMatrix;
+import org.rubato.math.matrix.ZMatrix;
+import org.rubato.math.module.DomainException;
+import org.rubato.math.module.FreeElement;
+import org.rubato.math.module.FreeModule;
+import org.rubato.math.module.Module;
+import org.rubato.math.module.ModuleElement;
+import org.rubato.math.module.QElement;
+import org.rubato.math.module.QRing;
+import org.rubato.math.module.RElement;
+import org.rubato.math.module.RRing;
+import org.rubato.math.module.Ring;
+import org.rubato.math.module.RingElement;
+import org.rubato.math.module.ZElement;
+import org.rubato.math.module.ZRing;
+
+/**
+ * Collapses trees of compositions, sums, differences, scalings, products
+ * and powers of affine morphisms between free modules over <i>R</i>,
+ * <i>Q</i> or <i>Z</i> into a single affine morphism, so that mapping
+ * an element does not go through every node of the tree.
+ * The virtual constructors of the corresponding morphism classes use this
+ * on every morphism they create.
+ */
+public final class MorphismNormalizer {
+
+    /**
+     * Returns an <code>RFreeAffineMorphism</code>, <code>QFreeAffineMorphism</code>
+     * or <code>ZFreeAffineMorphism</code> (or their one-dimensional versions)
+     * equal to <code>m</code> if all parts of <code>m</code> are affine
+     * morphisms over the same number ring, otherwise <code>m</code> itself.
+     */
+    public static ModuleMorphism normalize(ModuleMorphism m) {
+        if (isAffine(m)) {
+            return m;
+        }
+        Ring ring = getNumberRing(m.getDomain());
+        if (ring == null || !ring.equals(getNumberRing(m.getCodomain()))) {
+            return m;
+        }
+        Affine affine = toAffine(m, ring);
+        if (affine == null || affine.getRowCount() == 0 || affine.getColumnCount() == 0) {
+            return m;
+        }
+        ModuleMorphism result = affine.toMorphism();
+        if (result.getDomain().equals(m.getDomain()) && result.getCodomain().equals(m.getCodomain())) {
+            return result;
+        }
+        return m;
+    }
+
+
+    private static boolean isAffine(ModuleMorphism m) {
+        return m instanceof RFreeAffineMorphism || m instanceof RAffineMorphism
+            || m instanceof QFreeAffineMorphism || m instanceof QAffineMorphism
+            || m instanceof ZFreeAffineMorphism || m instanceof ZAffineMorphism;
+    }
+
+
+    /**
+     * Returns the ring of <code>module</code> if it is a free module
+     * over <i>R</i>, <i>Q</i> or <i>Z</i>, null otherwise.
+     */
+    private static Ring getNumberRing(Module module) {
+        if (module instanceof FreeModule) {
+            Ring ring = module.getRing();
+            if (ring.equals(RRing.ring) || ring.equals(QRing.ring) || ring.equals(ZRing.ring)) {
+                return ring;
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * Returns the matrix and vector of <code>m</code> over <code>ring</code>,
+     * or null if <code>m</code> is not known to be affine over <code>ring</code>.
+     */
+    private static Affine toAffine(ModuleMorphism m, Ring ring) {
+        if (!ring.equals(getNumberRing(m.getDomain())) || !ring.equals(getNumberRing(m.getCodomain()))) {
+            return null;
+        }
+        try {
+            if (m instanceof CompositionMorphism) {
+                CompositionMorphism c = (CompositionMorphism)m;
+                Affine f = toAffine(c.getFirstMorphism(), ring);
+                Affine g = f != null ? toAffine(c.getSecondMorphism(), ring) : null;
+                return g != null ? f.compose(g) : null;
+            }
+            else if (m instanceof SumMorphism) {
+                SumMorphism s = (SumMorphism)m;
+                Affine f = toAffine(s.getFirstMorphism(), ring);
+                Affine g = f != null ? toAffine(s.getSecondMorphism(), ring) : null;
+                return g != null ? f.sum(g, false) : null;
+            }
+            else if (m instanceof DifferenceMorphism) {
+                DifferenceMorphism d = (DifferenceMorphism)m;
+                Affine f = toAffine(d.getFirstMorphism(), ring);
+                Affine g = f != null ? toAffine(d.getSecondMorphism(), ring) : null;
+                return g != null ? f.sum(g, true) : null;
+            }
+            else if (m instanceof ScaledMorphism) {
+                ScaledMorphism s = (ScaledMorphism)m;
+                if (!s.getScalar().getRing().equals(ring)) {
+                    return null;
+                }
+                Affine f = toAffine(s.getMorphism(), ring);
+                return f != null ? f.scaled(s.getScalar()) : null;
+            }
+            else if (m instanceof ProductMorphism) {
+                // affine only if one of the factors is constant
+                ProductMorphism p = (ProductMorphism)m;
+                Affine f = toAffine(p.getFirstMorphism(), ring);
+                Affine g = f != null ? toAffine(p.getSecondMorphism(), ring) : null;
+                if (g == null) {
+                    return null;
+                }
+                else if (f.isConstant()) {
+                    return g.scaled(f.b[0]);
+                }
+                else if (g.isConstant()) {
+                    return f.scaled(g.b[0]);
+                }
+                return null;
+            }
+            else if (m instanceof PowerMorphism) {
+                PowerMorphism p = (PowerMorphism)m;
+                Affine f = toAffine(p.getBaseMorphism(), ring);
+                if (f == null) {
+                    return null;
+                }
+                Affine power = f;
+                for (int i = 1; i < p.getExponent(); i++) {
+                    power = f.compose(power);
+                }
+                return power;
+            }
+            else {
+                return toLeafAffine(m, ring);
+            }
+        }
+        catch (DomainException e) {
+            return null;
+        }
+    }
+
+
+    private static Affine toLeafAffine(ModuleMorphism m, Ring ring)
+            throws DomainException {
+        int rows = m.getCodomain().getDimension();
+        int cols = m.getDomain().getDimension();
+        if (m instanceof IdentityMorphism) {
+            return Affine.getUnit(ring, rows);
+        }
+        else if (m instanceof ConstantMorphism) {
+            return new Affine(ring, rows, cols, getComponents(((ConstantMorphism)m).getValue(), rows));
+        }
+        else if (m instanceof TranslationMorphism) {
+            Affine res = Affine.getUnit(ring, rows);
+            res.b = getComponents(((TranslationMorphism)m).getTranslate(), rows);
+            return res;
+        }
+        else if (m instanceof EmbeddingMorphism) {
+            // embeddings are linear, so the columns are the images of the unit vectors
+            Affine res = new Affine(ring, rows, cols, null);
+            for (int j = 0; j < cols; j++) {
+                RingElement[] column;
+                try {
+                    column = getComponents(m.map(((FreeModule)m.getDomain()).getUnitElement(j)), rows);
+                }
+                catch (MappingException e) {
+                    return null;
+                }
+                for (int i = 0; i < rows; i++) {
+                    res.A[i][j] = column[i];
+                }
+            }
+            return res;
+        }
+        else if (m instanceof RFreeAffineMorphism) {
+            RMatrix A = ((RFreeAffineMorphism)m).getMatrix();
+            double[] b = ((RFreeAffineMorphism)m).getVector();
+            Affine res = new Affine(ring, rows, cols, null);
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    res.A[i][j] = new RElement(A.get(i, j));
+                }
+                res.b[i] = new RElement(b[i]);
+            }
+            return res;
+        }
+        else if (m instanceof QFreeAffineMorphism) {
+            QMatrix A = ((QFreeAffineMorphism)m).getMatrix();
+            Rational[] b = ((QFreeAffineMorphism)m).getVector();
+            Affine res = new Affine(ring, rows, cols, null);
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    res.A[i][j] = new QElement(A.get(i, j));
+                }
+                res.b[i] = new QElement(b[i]);
+            }
+            return res;
+        }
+        else if (m instanceof ZFreeAffineMorphism) {
+            ZMatrix A = ((ZFreeAffineMorphism)m).getMatrix();
+            int[] b = ((ZFreeAffineMorphism)m).getVector();
+            Affine res = new Affine(ring, rows, cols, null);
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    res.A[i][j] = new ZElement(A.get(i, j));
+                }
+                res.b[i] = new ZElement(b[i]);
+            }
+            return res;
+        }
+        else if (m instanceof RAffineMorphism) {
+            RAffineMorphism r = (RAffineMorphism)m;
+            return new Affine(new RElement(r.getA()), new RElement(r.getB()));
+        }
+        else if (m instanceof QAffineMorphism) {
+            QAffineMorphism q = (QAffineMorphism)m;
+            return new Affine(new QElement(q.getA()), new QElement(q.getB()));
+        }
+        else if (m instanceof ZAffineMorphism) {
+            ZAffineMorphism z = (ZAffineMorphism)m;
+            return new Affine(new ZElement(z.getA()), new ZElement(z.getB()));
+        }
+        return null;
+    }
+
+
+    private static RingElement[] getComponents(ModuleElement element, int length) {
+        RingElement[] res = new RingElement[length];
+        for (int i = 0; i < length; i++) {
+            res[i] = ((FreeElement)element).getRingElement(i);
+        }
+        return res;
+    }
+
+
+    /**
+     * The affine map <i>x -> A*x+b</i> with entries in one of the number rings.
+     */
+    private static final class Affine {
+
+        public Affine(Ring ring, int rows, int cols, RingElement[] b) {
+            this.ring = ring;
+            A = new RingElement[rows][cols];
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    A[i][j] = ring.getZero();
+                }
+            }
+            if (b == null) {
+                b = new RingElement[rows];
+                for (int i = 0; i < rows; i++) {
+                    b[i] = ring.getZero();
+                }
+            }
+            this.b = b;
+        }
+
+
+        public Affine(RingElement a, RingElement b) {
+            this(a.getRing(), 1, 1, new RingElement[] { b });
+            A[0][0] = a;
+        }
+
+
+        public static Affine getUnit(Ring ring, int size) {
+            Affine res = new Affine(ring, size, size, null);
+            for (int i = 0; i < size; i++) {
+                res.A[i][i] = ring.getOne();
+            }
+            return res;
+        }
+
+
+        public int getRowCount() {
+            return A.length;
+        }
+
+
+        public int getColumnCount() {
+            return A.length > 0 ? A[0].length : 0;
+        }
+
+
+        public boolean isConstant() {
+            for (int i = 0; i < A.length; i++) {
+                for (int j = 0; j < A[i].length; j++) {
+                    if (!A[i][j].isZero()) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+
+        /**
+         * Returns this*<code>g</code>, i.e., <i>x -> A*(Ag*x+bg)+b</i>.
+         */
+        public Affine compose(Affine g)
+                throws DomainException {
+            Affine res = new Affine(ring, getRowCount(), g.getColumnCount(), null);
+            for (int i = 0; i < getRowCount(); i++) {
+                for (int j = 0; j < g.getColumnCount(); j++) {
+                    RingElement sum = ring.getZero();
+                    for (int k = 0; k < getColumnCount(); k++) {
+                        sum = sum.sum(A[i][k].product(g.A[k][j]));
+                    }
+                    res.A[i][j] = sum;
+                }
+                RingElement sum = ring.getZero();
+                for (int k = 0; k < getColumnCount(); k++) {
+                    sum = sum.sum(A[i][k].product(g.b[k]));
+                }
+                res.b[i] = sum.sum(b[i]);
+            }
+            return res;
+        }
+
+
+        public Affine sum(Affine g, boolean difference)
+                throws DomainException {
+            Affine res = new Affine(ring, getRowCount(), getColumnCount(), null);
+            for (int i = 0; i < getRowCount(); i++) {
+                for (int j = 0; j < getColumnCount(); j++) {
+                    res.A[i][j] = difference ? A[i][j].difference(g.A[i][j]) : A[i][j].sum(g.A[i][j]);
+                }
+                res.b[i] = difference ? b[i].difference(g.b[i]) : b[i].sum(g.b[i]);
+            }
+            return res;
+        }
+
+
+        public Affine scaled(RingElement scalar)
+                throws DomainException {
+            Affine res = new Affine(ring, getRowCount(), getColumnCount(), null);
+            for (int i = 0; i < getRowCount(); i++) {
+                for (int j = 0; j < getColumnCount(); j++) {
+                    res.A[i][j] = scalar.product(A[i][j]);
+                }
+                res.b[i] = scalar.product(b[i]);
+            }
+            return res;
+        }
+
+
+        public ModuleMorphism toMorphism() {
+            int rows = getRowCount();
+            int cols = getColumnCount();
+            if (ring.equals(RRing.ring)) {
+                RMatrix rA = new RMatrix(rows, cols);
+                double[] rb = new double[rows];
+                for (int i = 0; i < rows; i++) {
+                    for (int j = 0; j < cols; j++) {
+                        rA.set(i, j, ((RElement)A[i][j]).getValue());
+                    }
+                    rb[i] = ((RElement)b[i]).getValue();
+                }
+                return RFreeAffineMorphism.make(rA, rb);
+            }
+            else if (ring.equals(QRing.ring)) {
+                QMatrix qA = new QMatrix(rows, cols);
+                Rational[] qb = new Rational[rows];
+                for (int i = 0; i < rows; i++) {
+                    for (int j = 0; j < cols; j++) {
+                        qA.set(i, j, new Rational(((QElement)A[i][j]).getValue()));
+                    }
+                    qb[i] = new Rational(((QElement)b[i]).getValue());
+                }
+                return QFreeAffineMorphism.make(qA, qb);
+            }
+            else {
+                ZMatrix zA = new ZMatrix(rows, cols);
+                int[] zb = new int[rows];
+                for (int i = 0; i < rows; i++) {
+                    for (int j = 0; j < cols; j++) {
+                        zA.set(i, j, ((ZElement)A[i][j]).getValue());
+                    }
+                    zb[i] = ((ZElement)b[i]).getValue();
+                }
+                return ZFreeAffineMorphism.make(zA, zb);
+            }
+        }
+
+
+        private Ring           ring;
+        private RingElement[][] A;
+        private RingElement[]  b;
+    }
+
+
+    private MorphismNormalizer() { /* not allowed */ }
+}
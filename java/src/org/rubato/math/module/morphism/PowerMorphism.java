@@ -63,7 +63,7 @@ public final class PowerMorphism extends ModuleMorphism {
             return f;
         }
         else {
-            return new PowerMorphism(f, exp);
+            return MorphismNormalizer.normalize(new PowerMorphism(f, exp));
         }
     }
 
@@ -71,7 +71,7 @@ public final class PowerMorphism extends ModuleMorphism {
     public ModuleElement map(ModuleElement x)
             throws MappingException {
         ModuleElement res = x;
-        for (int i = 1; i < exponent; i++) {
+        for (int i = 0; i < exponent; i++) {
             res = f.map(res);
         }
         return res;
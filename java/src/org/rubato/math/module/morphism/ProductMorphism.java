@@ -68,7 +68,7 @@ public final class ProductMorphism extends ModuleMorphism {
             }
         }
         else {
-            return new ProductMorphism(f, g);
+            return MorphismNormalizer.normalize(new ProductMorphism(f, g));
         }
     }
     
@@ -53,6 +53,13 @@ public class QAffineMorphism extends QAbstractMorphism {
     }
 
     
+    public void mapValues(Rational[] x, int xOffset, Rational[] y, int yOffset, int count) {
+        for (int k = 0; k < count; k++) {
+            y[yOffset+k] = mapValue(x[xOffset+k]);
+        }
+    }
+
+    
     public boolean isModuleHomomorphism() {
         return true;
     }
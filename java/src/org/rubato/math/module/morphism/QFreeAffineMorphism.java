@@ -69,6 +69,20 @@ public final class QFreeAffineMorphism extends QFreeAbstractMorphism {
     }
 
     
+    public void mapValues(Rational[] x, int xOffset, Rational[] y, int yOffset, int count) {
+        int m = getDomain().getDimension();
+        int n = getCodomain().getDimension();
+        Rational[] res = new Rational[n];
+        for (int k = 0; k < count; k++) {
+            A.product(x, xOffset+k*m, res, 0);
+            for (int i = 0; i < n; i++) {
+                res[i].add(b[i]);
+                y[yOffset+k*n+i] = res[i];
+            }
+        }
+    }
+
+    
     public boolean isModuleHomomorphism() {
         return true;
     }
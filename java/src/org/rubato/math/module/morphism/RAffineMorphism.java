@@ -51,6 +51,13 @@ public final class RAffineMorphism extends RAbstractMorphism {
     }
 
     
+    public void mapValues(double[] x, int xOffset, double[] y, int yOffset, int count) {
+        for (int k = 0; k < count; k++) {
+            y[yOffset+k] = mapValue(x[xOffset+k]);
+        }
+    }
+
+    
     public boolean isModuleHomomorphism() {
         return true;
     }
@@ -70,6 +70,19 @@ public final class RFreeAffineMorphism extends RFreeAbstractMorphism {
     }
 
     
+    public void mapValues(double[] x, int xOffset, double[] y, int yOffset, int count) {
+        int m = getDomain().getDimension();
+        int n = getCodomain().getDimension();
+        double[] res = new double[n];
+        for (int k = 0; k < count; k++) {
+            A.product(x, xOffset+k*m, res, 0);
+            for (int i = 0; i < n; i++) {
+                y[yOffset+k*n+i] = res[i] + b[i];
+            }
+        }
+    }
+
+    
     public boolean isModuleHomomorphism() {
         return true;
     }
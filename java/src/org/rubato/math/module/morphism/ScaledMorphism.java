@@ -65,7 +65,7 @@ public final class ScaledMorphism extends ModuleMorphism {
             }
         }
         else {
-            return new ScaledMorphism(f, scalar);
+            return MorphismNormalizer.normalize(new ScaledMorphism(f, scalar));
         }
     }
     
@@ -64,7 +64,7 @@ public final class SumMorphism extends ModuleMorphism {
             }
         }
         else {
-            return new SumMorphism(f, g);
+            return MorphismNormalizer.normalize(new SumMorphism(f, g));
         }
     }
     
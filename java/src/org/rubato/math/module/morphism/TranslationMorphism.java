@@ -21,6 +21,8 @@ package org.rubato.math.module.morphism;
 
 import static org.rubato.xml.XMLConstants.*;
 
+import org.rubato.math.arith.NumberTheory;
+import org.rubato.math.arith.Rational;
 import org.rubato.math.module.*;
 import org.rubato.xml.XMLInputOutput;
 import org.rubato.xml.XMLReader;
@@ -66,6 +68,75 @@ public final class TranslationMorphism extends ModuleMorphism {
     }
 
     
+    public void mapValues(double[] x, int xOffset, double[] y, int yOffset, int count)
+            throws MappingException {
+        if (!(getDomain() instanceof RFreeModule)) {
+            super.mapValues(x, xOffset, y, yOffset, count);
+            return;
+        }
+        int n = getDomain().getDimension();
+        double[] t = new double[n];
+        for (int i = 0; i < n; i++) {
+            t[i] = ((RElement)translate.getComponent(i)).getValue();
+        }
+        for (int k = 0; k < count; k++) {
+            for (int i = 0; i < n; i++) {
+                y[yOffset+k*n+i] = x[xOffset+k*n+i] + t[i];
+            }
+        }
+    }
+
+    
+    public void mapValues(int[] x, int xOffset, int[] y, int yOffset, int count)
+            throws MappingException {
+        int n = getDomain().getDimension();
+        int[] t = new int[n];
+        if (getDomain() instanceof ZFreeModule) {
+            for (int i = 0; i < n; i++) {
+                t[i] = ((ZElement)translate.getComponent(i)).getValue();
+            }
+            for (int k = 0; k < count; k++) {
+                for (int i = 0; i < n; i++) {
+                    y[yOffset+k*n+i] = x[xOffset+k*n+i] + t[i];
+                }
+            }
+        }
+        else if (getDomain() instanceof ZnFreeModule) {
+            int modulus = ((ZnFreeModule)getDomain()).getModulus();
+            for (int i = 0; i < n; i++) {
+                t[i] = ((ZnElement)translate.getComponent(i)).getValue();
+            }
+            for (int k = 0; k < count; k++) {
+                for (int i = 0; i < n; i++) {
+                    y[yOffset+k*n+i] = NumberTheory.mod(x[xOffset+k*n+i] + t[i], modulus);
+                }
+            }
+        }
+        else {
+            super.mapValues(x, xOffset, y, yOffset, count);
+        }
+    }
+
+    
+    public void mapValues(Rational[] x, int xOffset, Rational[] y, int yOffset, int count)
+            throws MappingException {
+        if (!(getDomain() instanceof QFreeModule)) {
+            super.mapValues(x, xOffset, y, yOffset, count);
+            return;
+        }
+        int n = getDomain().getDimension();
+        Rational[] t = new Rational[n];
+        for (int i = 0; i < n; i++) {
+            t[i] = ((QElement)translate.getComponent(i)).getValue();
+        }
+        for (int k = 0; k < count; k++) {
+            for (int i = 0; i < n; i++) {
+                y[yOffset+k*n+i] = x[xOffset+k*n+i].sum(t[i]);
+            }
+        }
+    }
+
+    
     public boolean isModuleHomomorphism() {
         return true;
     }
@@ -51,6 +51,13 @@ public final class ZnAffineMorphism extends ZnAbstractMorphism {
     }
 
     
+    public void mapValues(int[] x, int xOffset, int[] y, int yOffset, int count) {
+        for (int k = 0; k < count; k++) {
+            y[yOffset+k] = mapValue(x[xOffset+k]);
+        }
+    }
+
+    
     public boolean isModuleHomomorphism() {
         return true;
     }
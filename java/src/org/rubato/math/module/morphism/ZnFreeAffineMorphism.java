@@ -72,6 +72,19 @@ public final class ZnFreeAffineMorphism extends ZnFreeAbstractMorphism {
     }
 
     
+    public void mapValues(int[] x, int xOffset, int[] y, int yOffset, int count) {
+        int m = getDomain().getDimension();
+        int n = getCodomain().getDimension();
+        int[] res = new int[n];
+        for (int k = 0; k < count; k++) {
+            A.product(x, xOffset+k*m, res, 0);
+            for (int i = 0; i < n; i++) {
+                y[yOffset+k*n+i] = NumberTheory.mod(res[i] + b[i], getModulus());
+            }
+        }
+    }
+
+    
     public boolean isModuleHomomorphism() {
         return true;
     }
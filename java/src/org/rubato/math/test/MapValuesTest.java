@@ -0,0 +1,180 @@
+package org.rubato.math.test;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.rubato.math.arith.Rational;
+import org.rubato.math.matrix.*;
+import org.rubato.math.module.*;
+import org.rubato.math.module.morphism.*;
+
+public class MapValuesTest extends TestCase {
+
+    private Random random;
+
+    public MapValuesTest(String name) {
+        super(name);
+    }
+
+    protected void setUp() {
+        random = new Random(11);
+    }
+
+    public void testReal()
+            throws CompositionException, MappingException {
+        Module module = RProperFreeModule.make(3);
+        RMatrix A = new RMatrix(2, 3);
+        for (int i = 0; i < 2; i++) {
+            for (int j = 0; j < 3; j++) {
+                A.set(i, j, random.nextDouble()-0.5);
+            }
+        }
+        ModuleMorphism f = RFreeAffineMorphism.make(A, new double[] { 1, -2 });
+        ModuleMorphism t = TranslationMorphism.make(module, RProperFreeElement.make(new double[] { 0.5, 1, -1 }));
+        List<ModuleMorphism> components = new LinkedList<ModuleMorphism>();
+        components.add(new PolynomialMorphism(new PolynomialElement("X", new RElement(1), new RElement(0), new RElement(2))));
+        components.add(new RAffineMorphism(3, 1));
+        components.add(ModuleMorphism.getIdentityMorphism(RRing.ring));
+        ModuleMorphism g = SplitMorphism.make((FreeModule)module, components);
+        ModuleMorphism h = f.compose(t.compose(g));
+        ModuleMorphism e = EmbeddingMorphism.make(RProperFreeModule.make(2), module);
+        int count = 1000;
+        double[] x = new double[3*count];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = random.nextDouble()*10-5;
+        }
+        assertMapsReal(f, x, count);
+        assertMapsReal(t, x, count);
+        assertMapsReal(g, x, count);
+        assertMapsReal(h, x, count);
+        assertMapsReal(e, x, count);
+        assertMapsReal(t.compose(e), x, count);
+        //in place
+        double[] y = new double[3*count];
+        t.compose(g).mapValues(x, y, count);
+        t.compose(g).mapValues(x, x, count);
+        for (int i = 0; i < x.length; i++) {
+            assertEquals(y[i], x[i]);
+        }
+    }
+
+    public void testInteger()
+            throws CompositionException, MappingException {
+        Module module = ZProperFreeModule.make(2);
+        ModuleMorphism f = ZFreeAffineMorphism.make(new ZMatrix(new int[][] { { 1, 2 }, { 3, 4 }, { -1, 0 } }), new int[] { 5, 6, 7 });
+        ModuleMorphism t = TranslationMorphism.make(module, ZProperFreeElement.make(new int[] { -1, 1 }));
+        ModuleMorphism e = EmbeddingMorphism.make(module, ZProperFreeModule.make(3));
+        ModuleMorphism fn = ZnFreeAffineMorphism.make(new ZnMatrix(new int[][] { { 1, 2 }, { 3, 4 } }, 7), new int[] { 5, 6 });
+        ModuleMorphism tn = TranslationMorphism.make(ZnProperFreeModule.make(2, 7), ZnProperFreeElement.make(new int[] { 3, 4 }, 7));
+        int count = 600;
+        int[] x = new int[2*count];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = random.nextInt(100)-50;
+        }
+        assertMapsInteger(f, x, count);
+        assertMapsInteger(t, x, count);
+        assertMapsInteger(e, x, count);
+        assertMapsInteger(f.compose(t), x, count);
+        assertMapsInteger(new ZAffineMorphism(3, -2), x, 2*count);
+        for (int i = 0; i < x.length; i++) {
+            x[i] = random.nextInt(7);
+        }
+        assertMapsInteger(fn, x, count);
+        assertMapsInteger(tn.compose(fn), x, count);
+        assertMapsInteger(new ZnAffineMorphism(3, 5, 7), x, 2*count);
+    }
+
+    public void testRational()
+            throws CompositionException, MappingException {
+        Rational[][] a = new Rational[2][2];
+        for (int i = 0; i < 2; i++) {
+            for (int j = 0; j < 2; j++) {
+                a[i][j] = new Rational(random.nextInt(10)-5, random.nextInt(5)+1);
+            }
+        }
+        ModuleMorphism f = QFreeAffineMorphism.make(new QMatrix(a), new Rational[] { new Rational(1, 2), new Rational(-1, 3) });
+        ModuleMorphism e = EmbeddingMorphism.make(QRing.ring, QProperFreeModule.make(2));
+        int count = 300;
+        Rational[] x = new Rational[2*count];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = new Rational(random.nextInt(100)-50, random.nextInt(10)+1);
+        }
+        assertMapsRational(f, x, count);
+        assertMapsRational(f.compose(e), x, count);
+        assertMapsRational(new QAffineMorphism(new Rational(2, 3), new Rational(1, 2)), x, 2*count);
+    }
+
+    public void testWrongRing() {
+        ModuleMorphism f = new ZAffineMorphism(2, 1);
+        try {
+            f.mapValues(new double[] { 1 }, new double[1], 1);
+            fail();
+        }
+        catch (MappingException e) {}
+    }
+
+    private void assertMapsReal(ModuleMorphism f, double[] x, int count)
+            throws MappingException {
+        int m = f.getDomain().getDimension();
+        int n = f.getCodomain().getDimension();
+        double[] y = new double[n*count];
+        f.mapValues(x, y, count);
+        for (int k = 0; k < count; k++) {
+            double[] v = new double[m];
+            System.arraycopy(x, k*m, v, 0, m);
+            ModuleElement res = f.map(RProperFreeElement.make(v));
+            for (int i = 0; i < n; i++) {
+                assertEquals(((RElement)res.getComponent(i)).getValue(), y[k*n+i], 1e-9);
+            }
+        }
+    }
+
+    private void assertMapsInteger(ModuleMorphism f, int[] x, int count)
+            throws MappingException {
+        int m = f.getDomain().getDimension();
+        int n = f.getCodomain().getDimension();
+        int[] y = new int[n*count];
+        f.mapValues(x, y, count);
+        for (int k = 0; k < count; k++) {
+            int[] v = new int[m];
+            System.arraycopy(x, k*m, v, 0, m);
+            ModuleElement res;
+            if (f.getDomain() instanceof ZnFreeModule) {
+                res = f.map(ZnProperFreeElement.make(v, ((ZnFreeModule)f.getDomain()).getModulus()));
+            }
+            else {
+                res = f.map(ZProperFreeElement.make(v));
+            }
+            for (int i = 0; i < n; i++) {
+                if (res.getComponent(i) instanceof ZnElement) {
+                    assertEquals(((ZnElement)res.getComponent(i)).getValue(), y[k*n+i]);
+                }
+                else {
+                    assertEquals(((ZElement)res.getComponent(i)).getValue(), y[k*n+i]);
+                }
+            }
+        }
+    }
+
+    private void assertMapsRational(ModuleMorphism f, Rational[] x, int count)
+            throws MappingException {
+        int m = f.getDomain().getDimension();
+        int n = f.getCodomain().getDimension();
+        Rational[] y = new Rational[n*count];
+        f.mapValues(x, y, count);
+        for (int k = 0; k < count; k++) {
+            Rational[] v = new Rational[m];
+            for (int i = 0; i < m; i++) {
+                v[i] = new Rational(x[k*m+i]);
+            }
+            ModuleElement res = f.map(QProperFreeElement.make(v));
+            for (int i = 0; i < n; i++) {
+                assertEquals(((QElement)res.getComponent(i)).getValue(), y[k*n+i]);
+            }
+        }
+    }
+
+}
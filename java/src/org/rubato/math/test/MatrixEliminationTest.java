@@ -0,0 +1,172 @@
+package org.rubato.math.test;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.rubato.math.arith.Rational;
+import org.rubato.math.matrix.QMatrix;
+import org.rubato.math.matrix.ZMatrix;
+import org.rubato.math.matrix.ZnMatrix;
+
+public class MatrixEliminationTest extends TestCase {
+
+    private Random random;
+
+    public MatrixEliminationTest(String name) {
+        super(name);
+    }
+
+    protected void setUp() {
+        random = new Random(17);
+    }
+
+    public void testRationalInverse() {
+        for (int n = 1; n <= 30; n += 7) {
+            QMatrix A = randomRational(n, n);
+            QMatrix inverse = A.inverse();
+            assertEquals(QMatrix.getUnitMatrix(n), A.product(inverse));
+            assertEquals(QMatrix.getUnitMatrix(n), inverse.product(A));
+            assertEquals(Rational.getOne(), A.determinant().product(inverse.determinant()));
+            Rational[] b = new Rational[n];
+            for (int i = 0; i < n; i++) {
+                b[i] = new Rational(random.nextInt(21)-10, random.nextInt(4)+1);
+            }
+            Rational[] x = A.solve(b);
+            Rational[] Ax = A.product(x);
+            for (int i = 0; i < n; i++) {
+                assertEquals(b[i], Ax[i]);
+            }
+        }
+    }
+
+    public void testRationalDeterminant() {
+        // determinant by cofactor expansion of the first row
+        QMatrix A = randomRational(5, 5);
+        Rational det = Rational.getZero();
+        for (int c = 0; c < 5; c++) {
+            det.add(A.get(0, c).product(A.minor(0, c)));
+        }
+        assertEquals(det, A.determinant());
+        // large entries force BigInteger arithmetic
+        QMatrix H = new QMatrix(12, 12);
+        for (int i = 0; i < 12; i++) {
+            for (int j = 0; j < 12; j++) {
+                H.set(i, j, new Rational(1, i+j+1));
+            }
+        }
+        assertEquals(QMatrix.getUnitMatrix(12), H.product(H.inverse()));
+        assertEquals(H.determinant().inverse(), H.inverse().determinant());
+    }
+
+    public void testRationalRank() {
+        QMatrix A = new QMatrix(new Rational[][] {
+            { new Rational(1, 2), new Rational(1), new Rational(0), new Rational(3) },
+            { new Rational(1), new Rational(2), new Rational(1), new Rational(1, 3) },
+            { new Rational(3, 2), new Rational(3), new Rational(1), new Rational(10, 3) }
+        });
+        assertEquals(2, A.rank());
+        assertEquals(2, A.transposed().rank());
+        QMatrix R = new QMatrix(A);
+        R.computeRREF();
+        QMatrix expected = new QMatrix(new Rational[][] {
+            { new Rational(1), new Rational(2), new Rational(0), new Rational(6) },
+            { new Rational(0), new Rational(0), new Rational(1), new Rational(-17, 3) },
+            { new Rational(0), new Rational(0), new Rational(0), new Rational(0) }
+        });
+        assertEquals(expected, R);
+        assertEquals(new Rational(1, 2), A.get(0, 0));
+        try {
+            new QMatrix(new Rational[][] {
+                { new Rational(1), new Rational(2) },
+                { new Rational(2), new Rational(4) }
+            }).inverse();
+            fail();
+        }
+        catch (ArithmeticException e) {}
+    }
+
+    public void testIntegerDeterminant() {
+        ZMatrix A = new ZMatrix(new int[][] { { 2, -1, 0 }, { -1, 2, -1 }, { 0, -1, 2 } });
+        assertEquals(4, A.determinant());
+        assertEquals(3, A.rank());
+        ZMatrix B = new ZMatrix(new int[][] { { 0, 1, 2 }, { 1, 0, 3 }, { 1, 1, 5 } });
+        assertEquals(0, B.determinant());
+        assertEquals(2, B.rank());
+        ZMatrix C = new ZMatrix(new int[][] { { 0, 1 }, { 1, 0 } });
+        assertEquals(-1, C.determinant());
+        // the Vandermonde determinant of 1..7 needs BigInteger intermediates
+        ZMatrix V = new ZMatrix(7, 7);
+        int det = 1;
+        for (int i = 0; i < 7; i++) {
+            int p = 1;
+            for (int j = 0; j < 7; j++) {
+                V.set(i, j, p);
+                p *= i+1;
+            }
+            for (int j = 0; j < i; j++) {
+                det *= i-j;
+            }
+        }
+        assertEquals(det, V.determinant());
+    }
+
+    public void testModularPrime() {
+        int p = 101;
+        ZnMatrix A = randomModular(20, p);
+        while (A.determinant() == 0) {
+            A = randomModular(20, p);
+        }
+        ZnMatrix inverse = A.inverse();
+        assertEquals(ZnMatrix.getUnitMatrix(20, p), A.product(inverse));
+        assertEquals(1, A.determinant()*inverse.determinant() % p);
+        int[] b = new int[20];
+        for (int i = 0; i < 20; i++) {
+            b[i] = random.nextInt(p);
+        }
+        int[] Ax = A.product(A.solve(b));
+        for (int i = 0; i < 20; i++) {
+            assertEquals(b[i], Ax[i]);
+        }
+        ZnMatrix B = new ZnMatrix(new int[][] { { 1, 2, 3 }, { 2, 4, 6 }, { 0, 1, 1 } }, 7);
+        assertEquals(2, B.rank());
+        B.computeRREF();
+        assertEquals(new ZnMatrix(new int[][] { { 1, 0, 1 }, { 0, 1, 1 }, { 0, 0, 0 } }, 7), B);
+    }
+
+    public void testModularComposite() {
+        // no entry is a unit, but the determinant is
+        ZnMatrix A = new ZnMatrix(new int[][] { { 2, 3 }, { 3, 2 } }, 6);
+        assertEquals(1, A.determinant());
+        assertEquals(ZnMatrix.getUnitMatrix(2, 6), A.product(A.inverse()));
+        ZnMatrix B = new ZnMatrix(new int[][] { { 2, 0, 1 }, { 4, 3, 0 }, { 0, 3, 5 } }, 12);
+        // 2*(15-0)-0+1*12 = 42
+        assertEquals(6, B.determinant());
+        try {
+            B.inverse();
+            fail();
+        }
+        catch (ArithmeticException e) {}
+    }
+
+    private QMatrix randomRational(int rows, int columns) {
+        QMatrix A = new QMatrix(rows, columns);
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                A.set(i, j, new Rational(random.nextInt(21)-10, random.nextInt(6)+1));
+            }
+        }
+        return A;
+    }
+
+    private ZnMatrix randomModular(int n, int modulus) {
+        ZnMatrix A = new ZnMatrix(n, n, modulus);
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                A.set(i, j, random.nextInt(modulus));
+            }
+        }
+        return A;
+    }
+
+}
@@ -0,0 +1,95 @@
+package org.rubato.math.test;
+
+import junit.framework.TestCase;
+
+import org.rubato.math.arith.Rational;
+import org.rubato.math.matrix.RMatrix;
+import org.rubato.math.matrix.ZMatrix;
+import org.rubato.math.module.*;
+import org.rubato.math.module.morphism.*;
+
+public class MorphismNormalizerTest extends TestCase {
+
+    public MorphismNormalizerTest(String name) {
+        super(name);
+    }
+
+    public void testRealChain()
+            throws CompositionException, MappingException, DomainException {
+        Module module = RProperFreeModule.make(3);
+        ModuleMorphism[] morphisms = new ModuleMorphism[10];
+        for (int i = 0; i < morphisms.length; i++) {
+            if (i % 2 == 0) {
+                RMatrix A = new RMatrix(3, 3);
+                for (int j = 0; j < 3; j++) {
+                    A.set(j, j, 1.0+0.1*i);
+                    A.set(j, (j+1) % 3, -0.5);
+                }
+                morphisms[i] = RFreeAffineMorphism.make(A, new double[] { i, 0, 1 });
+            }
+            else {
+                morphisms[i] = TranslationMorphism.make(module, RProperFreeElement.make(new double[] { 1, -i, 0.25 }));
+            }
+        }
+        ModuleMorphism chain = morphisms[0];
+        for (int i = 1; i < morphisms.length; i++) {
+            chain = morphisms[i].compose(chain);
+        }
+        chain = chain.sum(ModuleMorphism.getIdentityMorphism(module)).scaled(new RElement(0.5));
+        assertTrue(chain instanceof RFreeAffineMorphism);
+        ModuleElement x = RProperFreeElement.make(new double[] { 2, -3, 5 });
+        ModuleElement y = x;
+        for (int i = 0; i < morphisms.length; i++) {
+            y = morphisms[i].map(y);
+        }
+        double[] expected = ((RProperFreeElement)y.sum(x).scaled(new RElement(0.5))).getValue();
+        double[] result = ((RProperFreeElement)chain.map(x)).getValue();
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], result[i], 1e-9*Math.abs(expected[i]));
+        }
+    }
+
+    public void testIntegerSumAndDifference()
+            throws CompositionException, MappingException, DomainException {
+        Module module = ZProperFreeModule.make(2);
+        ModuleMorphism f = ZFreeAffineMorphism.make(new ZMatrix(new int[][] { { 1, 2 }, { 3, 4 } }), new int[] { 5, 6 });
+        ModuleMorphism t = TranslationMorphism.make(module, ZProperFreeElement.make(new int[] { -1, 1 }));
+        ModuleMorphism h = f.compose(t).difference(ModuleMorphism.getIdentityMorphism(module)).power(2);
+        assertTrue(h instanceof ZFreeAffineMorphism);
+        ModuleElement x = ZProperFreeElement.make(new int[] { 7, -2 });
+        ModuleElement y = x;
+        for (int i = 0; i < 2; i++) {
+            y = f.map(t.map(y)).difference(y);
+        }
+        assertEquals(y, h.map(x));
+    }
+
+    public void testNonAffinePower()
+            throws CompositionException, MappingException {
+        //the polynomial 1+X^2 is kept as a power morphism
+        ModuleMorphism f = new PolynomialMorphism(new PolynomialElement("X", new ZElement(1), new ZElement(0), new ZElement(1)));
+        ModuleMorphism h = f.power(3);
+        assertTrue(h instanceof PowerMorphism);
+        ModuleElement x = new ZElement(2);
+        assertEquals(new ZElement(5), f.map(x));
+        assertEquals(new ZElement(677), h.map(x));
+        assertEquals(f.map(f.map(f.map(x))), h.map(x));
+    }
+
+    public void testRationalLine()
+            throws CompositionException, MappingException, DomainException {
+        ModuleMorphism f = new QAffineMorphism(new Rational(2, 3), new Rational(1, 2));
+        ModuleMorphism h = f.compose(TranslationMorphism.make(QRing.ring, new QElement(new Rational(3))));
+        assertTrue(h instanceof QAffineMorphism);
+        assertEquals(new QElement(new Rational(5, 2)), h.map(new QElement(new Rational(0))));
+    }
+
+    public void testOtherMorphismsAreKept()
+            throws CompositionException {
+        //embeddings between different rings are not fused
+        ModuleMorphism embedding = EmbeddingMorphism.make(ZProperFreeModule.make(2), RProperFreeModule.make(2));
+        ModuleMorphism f = RFreeAffineMorphism.make(RMatrix.getUnitMatrix(2), new double[] { 1, 1 });
+        assertTrue(f.compose(embedding) instanceof CompositionMorphism);
+    }
+
+}
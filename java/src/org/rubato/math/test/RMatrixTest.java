@@ -0,0 +1,111 @@
+package org.rubato.math.test;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.rubato.math.matrix.RMatrix;
+
+public class RMatrixTest extends TestCase {
+
+    private Random random;
+
+    public RMatrixTest(String name) {
+        super(name);
+    }
+
+    protected void setUp() {
+        random = new Random(5);
+    }
+
+    public void testProduct() {
+        // larger than a block in every dimension
+        RMatrix A = randomMatrix(150, 70);
+        RMatrix B = randomMatrix(70, 130);
+        RMatrix C = A.product(B);
+        assertEquals(150, C.getRowCount());
+        assertEquals(130, C.getColumnCount());
+        for (int i = 0; i < 150; i++) {
+            for (int j = 0; j < 130; j++) {
+                double sum = 0.0;
+                for (int k = 0; k < 70; k++) {
+                    sum += A.get(i, k)*B.get(k, j);
+                }
+                assertEquals(sum, C.get(i, j));
+            }
+        }
+        double[] x = new double[70];
+        for (int k = 0; k < 70; k++) {
+            x[k] = B.get(k, 3);
+        }
+        double[] y = A.product(x);
+        for (int i = 0; i < 150; i++) {
+            assertEquals(C.get(i, 3), y[i]);
+        }
+    }
+
+    public void testInverseAndDeterminant() {
+        RMatrix A = randomMatrix(100, 100);
+        RMatrix inverse = A.inverse();
+        assertClose(RMatrix.getUnitMatrix(100), A.product(inverse));
+        assertEquals(1.0, A.determinant()*inverse.determinant(), 1e-9);
+        RMatrix B = randomMatrix(100, 100);
+        double det = A.product(B).determinant();
+        assertEquals(1.0, A.determinant()*B.determinant()/det, 1e-9);
+        double[] b = new double[100];
+        for (int i = 0; i < 100; i++) {
+            b[i] = random.nextDouble();
+        }
+        double[] Ax = A.product(A.solve(b));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(b[i], Ax[i], 1e-9);
+        }
+        RMatrix T = new RMatrix(new double[][] { { 0, 2, 1 }, { 3, 0, 0 }, { 0, 0, 4 } });
+        assertEquals(-24.0, T.determinant());
+        // a change is seen by the following determinant
+        T.set(1, 0, 0);
+        assertEquals(0.0, T.determinant());
+        try {
+            T.inverse();
+            fail();
+        }
+        catch (ArithmeticException e) {}
+    }
+
+    public void testPower() {
+        RMatrix A = randomMatrix(5, 5);
+        RMatrix P = RMatrix.getUnitMatrix(5);
+        for (int e = 1; e <= 13; e++) {
+            P = P.product(A);
+            assertClose(P, A.power(e));
+        }
+        assertClose(P.inverse(), A.power(-13));
+        assertEquals(RMatrix.getUnitMatrix(5), A.power(0));
+    }
+
+    public void testLayout() {
+        RMatrix A = new RMatrix(new double[][] { { 1, 2, 3 }, { 4, 5, 6 } });
+        A.setColumnCount(2);
+        assertEquals(new RMatrix(new double[][] { { 1, 2 }, { 4, 5 } }), A);
+        A.setRowCount(3);
+        assertEquals(new RMatrix(new double[][] { { 1, 2 }, { 4, 5 }, { 0, 0 } }), A);
+        assertEquals(new RMatrix(new double[][] { { 1, 4, 0 }, { 2, 5, 0 } }), A.transposed());
+        assertEquals(new RMatrix(new double[][] { { 5 }, { 0 } }), A.getSubMatrix(1, 2, 1, 1));
+        assertEquals(2, A.rank());
+    }
+
+    private RMatrix randomMatrix(int rows, int columns) {
+        RMatrix A = new RMatrix(rows, columns);
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                A.set(i, j, random.nextDouble()-0.5);
+            }
+        }
+        return A;
+    }
+
+    private void assertClose(RMatrix expected, RMatrix result) {
+        assertTrue(expected.difference(result).euclidean() < 1e-18*Math.max(1, expected.euclidean()));
+    }
+
+}
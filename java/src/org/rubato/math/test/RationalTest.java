@@ -19,6 +19,8 @@
 
 package org.rubato.math.test;
 
+import java.math.BigInteger;
+
 import junit.framework.TestCase;
 
 import org.rubato.math.arith.Rational;
@@ -183,6 +185,62 @@ public class RationalTest extends TestCase {
         assertEquals("-30/77", s);
     }
 
+    public void testRationalOverflow() {
+        // 1/(2^31-1) + 1/(2^31-19) overflows int arithmetic
+        r = new Rational(1, Integer.MAX_VALUE);
+        r.add(new Rational(1, Integer.MAX_VALUE-18));
+        assertEquals(rational(2L*Integer.MAX_VALUE-18, (long)Integer.MAX_VALUE*(Integer.MAX_VALUE-18)), r);
+        assertFalse(r.fitsInt());
+        r = new Rational(Integer.MAX_VALUE, 3).product(new Rational(Integer.MAX_VALUE, 7));
+        assertEquals(rational((long)Integer.MAX_VALUE*Integer.MAX_VALUE, 21), r);
+        r = new Rational(new Rational(Integer.MAX_VALUE, 5), 4096);
+        assertEquals(rational(Math.round(Integer.MAX_VALUE*4096.0/5), 4096), r);
+        assertTrue(new Rational(Integer.MAX_VALUE, 2).compareTo(new Rational(Integer.MAX_VALUE-1, 2)) > 0);
+        try {
+            r.getNumerator();
+            fail("Should raise an ArithmeticException");
+        } catch (ArithmeticException e) { /* continue */ }
+    }
+
+    public void testRationalPromotion() {
+        // the partial sums of 1/k! exceed longs and converge to e
+        Rational sum = new Rational(1);
+        Rational term = new Rational(1);
+        for (int k = 1; k <= 40; k++) {
+            term.divide(k);
+            sum.add(term);
+        }
+        assertTrue(sum.getBigDenominator().bitLength() > 63);
+        assertEquals(Math.E, sum.doubleValue(), 1e-15);
+        // the difference is small again and uses longs
+        Rational difference = sum.difference(new Rational(sum));
+        assertEquals(Rational.getZero(), difference);
+        Rational x = new Rational(BigInteger.ONE.shiftLeft(100), BigInteger.valueOf(3));
+        r = x.quotient(new Rational(BigInteger.ONE.shiftLeft(99), BigInteger.ONE));
+        assertEquals(new Rational(2, 3), r);
+        assertEquals(r.hashCode(), new Rational(2, 3).hashCode());
+        assertEquals("1267650600228229401496703205376/3", x.toString());
+        assertEquals(x, new Rational(x.toString()));
+        assertTrue(x.compareTo(r) > 0);
+        assertTrue(x.negated().compareTo(r) < 0);
+    }
+
+    public void testRationalAliasing() {
+        r = new Rational(r1);
+        r.divide(r);
+        assertEquals(Rational.getOne(), r);
+        r = new Rational(r2);
+        r.multiply(r);
+        assertEquals(r2.product(r2), r);
+        r = new Rational(r2);
+        r.subtract(r);
+        assertEquals(Rational.getZero(), r);
+    }
+
+    private static Rational rational(long n, long d) {
+        return new Rational(BigInteger.valueOf(n), BigInteger.valueOf(d));
+    }
+
     public static void main(String[] args) {
         junit.textui.TestRunner.run(RationalTest.class);
     }
@@ -28,6 +28,7 @@ import org.rubato.math.module.Module;
 import org.rubato.math.module.ModuleElement;
 import org.rubato.math.module.morphism.MappingException;
 import org.rubato.math.module.morphism.ModuleMorphism;
+import org.rubato.util.IndexedSortedSet;
 import org.rubato.xml.XMLReader;
 import org.rubato.xml.XMLWriter;
 import org.w3c.dom.Element;
@@ -38,44 +39,32 @@ import org.w3c.dom.Element;
  *
  * @author Florian Thalmann
  */
-public final class AutoListMorphismMap implements MorphismMap {
+public final class AutoListMorphismMap implements MorphismMap, Iterable<Denotator> {
     
-	private TreeMap<Denotator,Integer> indexMap;
-	private ArrayList<Denotator> currentFactors;
-    private boolean indexUpdateNecessary;
-    private boolean listUpdateNecessary;
+	private IndexedSortedSet<Denotator> factors;
+	// true if the hash code has been computed since the last change
+	private transient boolean hashed = false;
 	
     /**
      * Creates an empty FastListMorphismMap.
      */
     public AutoListMorphismMap() {
-        this.indexMap = new TreeMap<Denotator,Integer>();
-        this.currentFactors = new ArrayList<Denotator>();
+        this.factors = new IndexedSortedSet<Denotator>();
     }
     
 
     /**
-     * Creates a FastListMorphismMap.
+     * Creates a FastListMorphismMap. The denotators are sorted only once.
      */
     public AutoListMorphismMap(Collection<Denotator> denotators) {
-    	this.initMap(denotators);
-    	this.currentFactors = new ArrayList<Denotator>(this.indexMap.keySet());
-    }
-    
-    private void initMap(Collection<Denotator> denotators) {
-    	this.indexMap = new TreeMap<Denotator,Integer>();
-    	int currentIndex = 0;
-    	for (Denotator currentDenotator: denotators) {
-    		this.indexMap.put(currentDenotator, currentIndex);
-    		currentIndex++;
-    	}
+    	this.factors = new IndexedSortedSet<Denotator>(denotators);
     }
 
     /**
      * Returns the factor at position <code>index</code>.
      */
     public Denotator getFactor(int index) {
-    	return this.getFactors().get(index);
+    	return this.factors.get(index);
     }
     
 
@@ -83,9 +72,9 @@ public final class AutoListMorphismMap implements MorphismMap {
      * Appends the factor <code>d</code>.
      */
     public void appendFactor(Denotator d) {
-    	this.indexMap.put(d, null);
-    	this.indexUpdateNecessary = true;
-    	this.listUpdateNecessary = true;
+    	if (this.factors.add(d)) {
+    		structureChanged();
+    	}
     }
     
     
@@ -96,7 +85,9 @@ public final class AutoListMorphismMap implements MorphismMap {
     
     
     public void replaceFactor(Denotator oldD, Denotator newD) {
-    	this.indexMap.remove(oldD);
+    	if (this.factors.remove(oldD)) {
+    		structureChanged();
+    	}
     	this.appendFactor(newD);
     }
     
@@ -105,12 +96,11 @@ public final class AutoListMorphismMap implements MorphismMap {
      * Removes the factor at <code>index</code>.
      */
     public Denotator removeFactor(int index) {
-    	if (index < this.indexMap.size()) {
-    		Denotator removed = this.getFactors().remove(index);
-    		this.indexMap.remove(removed);
-    		this.indexUpdateNecessary = true;
+    	if (index < this.factors.size()) {
+    		Denotator removed = this.factors.removeAt(index);
+    		structureChanged();
     		return removed;
-    	} else throw new IndexOutOfBoundsException(index+" > "+(this.indexMap.size()-1));
+    	} else throw new IndexOutOfBoundsException(index+" > "+(this.factors.size()-1));
     }
     
 
@@ -118,37 +108,29 @@ public final class AutoListMorphismMap implements MorphismMap {
      * Returns the number of factors.
      */
     public int getFactorCount() {
-        return this.indexMap.size();
+        return this.factors.size();
     }
 
     
     /**
-     * Returns the list of factors.
+     * Returns a new list of the factors.
      */
     public ArrayList<Denotator> getFactors() {
-    	if (this.listUpdateNecessary) {
-    		this.currentFactors = new ArrayList<Denotator>(this.indexMap.keySet());
-    		this.listUpdateNecessary = false;
-    	}
-    	return this.currentFactors;
+    	return this.factors.toList();
     }
     
     /**
      * Returns the position index of factor <code>d</code>
      */
     public int indexOf(Denotator d) {
-    	this.updateIndices();
-    	Integer index = this.indexMap.get(d);
-    	if (index != null) {
-    		return index;
-    	} else return -1;
+    	return this.factors.indexOf(d);
     }
     
-    private void updateIndices() {
-    	if (this.indexUpdateNecessary) {
-    		this.initMap(this.indexMap.keySet());
-    		this.indexUpdateNecessary = false;
-    	}
+    /**
+     * Returns true iff this map contains a factor equal to <code>d</code>.
+     */
+    public boolean contains(Denotator d) {
+    	return this.factors.contains(d);
     }
 
 
@@ -156,7 +138,7 @@ public final class AutoListMorphismMap implements MorphismMap {
      * Returns an iterator over the factors.
      */
     public Iterator<Denotator> iterator() {
-        return this.getFactors().listIterator();    
+        return this.factors.iterator();    
     }
 
 
@@ -176,11 +158,11 @@ public final class AutoListMorphismMap implements MorphismMap {
     public int compareTo(AutoListMorphismMap other) {
         int aCount = getFactorCount();
         int bCount = other.getFactorCount();   
-        ArrayList<Denotator> aList = this.getFactors();
-        ArrayList<Denotator> bList = other.getFactors();
+        Iterator<Denotator> aIterator = this.iterator();
+        Iterator<Denotator> bIterator = other.iterator();
         int c = 0;
-        for (int i = 0; i < Math.min(aCount, bCount); i++) {
-            if ((c = aList.get(i).compareTo(bList.get(i))) != 0) {
+        while (aIterator.hasNext() && bIterator.hasNext()) {
+            if ((c = aIterator.next().compareTo(bIterator.next())) != 0) {
                 return c;
             }
         }
@@ -216,7 +198,7 @@ public final class AutoListMorphismMap implements MorphismMap {
     
     public MorphismMap changeAddress(Module address) {
         ArrayList<Denotator> newList = new ArrayList<Denotator>();
-        for (Denotator d : this.getFactors()) {
+        for (Denotator d : this) {
             Denotator newD = d.changeAddress(address);
             if (newD == null) {
                 return null;
@@ -229,7 +211,7 @@ public final class AutoListMorphismMap implements MorphismMap {
     
     public MorphismMap changeAddress(ModuleMorphism morphism) {
         ArrayList<Denotator> newList = new ArrayList<Denotator>();
-        for (Denotator d : this.getFactors()) {
+        for (Denotator d : this) {
             Denotator newD = d.changeAddress(morphism);
             if (newD == null) {
                 return null;
@@ -241,7 +223,7 @@ public final class AutoListMorphismMap implements MorphismMap {
     
     
     public boolean isConstant() {
-        for (Denotator d : this.getFactors()) {
+        for (Denotator d : this) {
             if (!d.isConstant()) {
                 return false;
             }
@@ -252,7 +234,7 @@ public final class AutoListMorphismMap implements MorphismMap {
     
     public void toXML(XMLWriter writer) {        
         writer.openBlockWithType(MORPHISMMAP, getElementTypeName());
-        for (Denotator d : this.getFactors()) {
+        for (Denotator d : this) {
             d.toXML(writer);
         }
         writer.closeBlock();
@@ -278,6 +260,18 @@ public final class AutoListMorphismMap implements MorphismMap {
     }
     
     
+    /**
+     * Returns a copy of this list morphism map that shares the factors
+     * and the structure they are kept in with this map. Modifying
+     * either map does not affect the other.
+     */
+    public AutoListMorphismMap shallowCopy() {
+        AutoListMorphismMap copy = new AutoListMorphismMap();
+        copy.factors = this.factors.copy();
+        return copy;
+    }
+
+
     /**
      * Returns a copy of this list morphism map.
      */
@@ -291,7 +285,7 @@ public final class AutoListMorphismMap implements MorphismMap {
      */
     public AutoListMorphismMap copy() {
     	ArrayList<Denotator> copiedFactors = new ArrayList<Denotator>();
-        for (Denotator d : this.getFactors()) {
+        for (Denotator d : this) {
         	copiedFactors.add(d.copy());
         }
         return new AutoListMorphismMap(copiedFactors);
@@ -308,8 +302,9 @@ public final class AutoListMorphismMap implements MorphismMap {
                 return false;
             }
             else {
-                for (int i = 0; i < getFactorCount(); i++) {
-                    if (!getFactor(i).equals(m.getFactor(i))) {
+                Iterator<Denotator> mIterator = m.iterator();
+                for (Denotator d : this) {
+                    if (!d.equals(mIterator.next())) {
                         return false;
                     }
                 }
@@ -331,8 +326,9 @@ public final class AutoListMorphismMap implements MorphismMap {
             if (getFactorCount() != lm.getFactorCount()) {
                 return false;
             }
-            for (int i = 0; i < getFactorCount(); i++) {
-                if (!(getFactor(i).equals(lm.getFactor(i)))) {
+            Iterator<Denotator> lmIterator = lm.iterator();
+            for (Denotator d : this) {
+                if (!(d.equals(lmIterator.next()))) {
                    return false;
                 }
             }
@@ -350,7 +346,7 @@ public final class AutoListMorphismMap implements MorphismMap {
 
     
     public LinkedList<Denotator> getDenotatorDependencies(LinkedList<Denotator> depList) {
-        for (Denotator d : this.getFactors()) {
+        for (Denotator d : this) {
             depList = d.getDependencies(depList);
         }
         return depList;
@@ -399,11 +395,24 @@ public final class AutoListMorphismMap implements MorphismMap {
      * Returns a hash code of this list morphism map.
      */
     public int hashCode() {
+        hashed = true;
         int hash = 7;
-        for (Denotator d : this.getFactors()) {
+        for (Denotator d : this) {
             hash = 37*hash + d.hashCode();
         }
         return hash;
     }
     
+    
+    /*
+     * Invalidates the cached hash codes of the denotators
+     * if the hash code of this map has been used for them.
+     */
+    private void structureChanged() {
+        if (hashed) {
+            hashed = false;
+            Denotator._structureChanged();
+        }
+    }
+    
 }
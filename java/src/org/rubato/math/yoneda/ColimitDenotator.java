@@ -403,6 +403,24 @@ public final class ColimitDenotator
         setIndex(i);
     }
 
+
+    /**
+     * Returns a new colimit denotator with the factor <code>d</code> in
+     * position <code>i</code>. This denotator is not changed.
+     * 
+     * @throws RubatoException if <code>d</code> is not of the required form
+     *         or <code>i</code> is not in range
+     */
+    public ColimitDenotator withFactor(int i, Denotator d)
+            throws RubatoException {
+        if (i < 0 || i >= getForm().getFormCount()) {
+            throw new RubatoException("ColimitDenotator.withFactor: Expected index "+
+                                      "< %1, but got %2", getForm().getFormCount(), i);
+        }
+        checkDenotator(d, getForm().getForm(i), getAddress());
+        return _make_unsafe(getName(), getAddress(), getColimitForm(), i, d);
+    }
+
     
     /**
      * Sets the factor <code>d</code> at the given label.
@@ -519,6 +537,9 @@ public final class ColimitDenotator
      * Checks denotators of the same type for equality.
      */
     public boolean equals(ColimitDenotator other) {
+        if (hashCodesDiffer(other)) {
+            return false;
+        }
         if (formEquals(other) && nameEquals(other)) {
             return getIndexMorphismMap().equals(other.getIndexMorphismMap());
         }
@@ -134,6 +134,7 @@ public final class CompoundMorphism
     
     public void setMap(MorphismMap map) {
         this.map = map;
+        Denotator._structureChanged();
     }
     
     
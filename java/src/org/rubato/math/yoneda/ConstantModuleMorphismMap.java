@@ -98,6 +98,7 @@ public final class ConstantModuleMorphismMap extends ModuleMorphismMap {
     public void setElement(ModuleElement element) {
         assert(element.getModule().equals(getCodomain()));
         this.moduleElement = element;
+        structureChanged();
     }
 
     
@@ -291,11 +292,26 @@ public final class ConstantModuleMorphismMap extends ModuleMorphismMap {
     
     
     public int hashCode() {
+        hashed = true;
         return moduleElement.hashCode();
     }
+    
+    
+    /*
+     * Invalidates the cached hash codes of the denotators
+     * if the hash code of this map has been used for them.
+     */
+    private void structureChanged() {
+        if (hashed) {
+            hashed = false;
+            Denotator._structureChanged();
+        }
+    }
 
 
     private ModuleElement  moduleElement;
     private Module         domain   = null;
     private Module         codomain = null;
+    // true if the hash code has been computed since the last change
+    private transient boolean hashed = false;
 }
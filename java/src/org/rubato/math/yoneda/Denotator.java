@@ -25,7 +25,9 @@ import java.io.PrintStream;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.rubato.base.Internal;
 import org.rubato.base.RubatoDictionary;
 import org.rubato.base.RubatoException;
 import org.rubato.math.module.Module;
@@ -77,6 +79,7 @@ public abstract class Denotator
      */
     public final void setName(NameDenotator name) {
         this.name = name;
+        structureChanged();
     }
 
 
@@ -91,6 +94,7 @@ public abstract class Denotator
         else {
             name = NameDenotator.make(nameString);
         }
+        structureChanged();
     }
 
         
@@ -121,6 +125,9 @@ public abstract class Denotator
      * Sets the coordinate of the denotator.
      */
     protected final void setCoordinate(Morphism morphism) {
+        if (coordinate != null) {
+            structureChanged();
+        }
         coordinate = morphism;
     } 
 
@@ -137,6 +144,9 @@ public abstract class Denotator
      * Sets the frame coordinate of the denotator.
      */
     protected final void setFrameCoordinate(Morphism morphism) {
+        if (frameCoordinate != null) {
+            structureChanged();
+        }
         frameCoordinate = morphism;
     }
     
@@ -145,6 +155,9 @@ public abstract class Denotator
      * Sets both coordinates of the denotator.
      */
     protected final void setCoordinates(Morphism morphism) {
+        if (coordinate != null) {
+            structureChanged();
+        }
         coordinate = frameCoordinate = morphism;
     }
 
@@ -450,16 +463,78 @@ public abstract class Denotator
     
     /**
      * Returns a hash code for this denotator.
+     * The hash code depends only on the form, the name and the
+     * coordinates of the denotator, so that equal denotators have equal
+     * hash codes. It is cached until the next destructive operation on
+     * a denotator or coordinate whose hash code has been computed.
      */
     @Override
     public int hashCode() {
-        int hash = 7;
-        hash = 37*hash+getNameString().hashCode();
-        hash = 37*hash+getCoordinate().hashCode();
+        long version = structureVersion.get();
+        CachedHash cached = cachedHash;
+        if (cached == null || cached.version != version) {
+            // the version is read before computing, so that a concurrent
+            // change leaves the cached value stale
+            cached = new CachedHash(computeHashCode(), version);
+            cachedHash = cached;
+        }
+        return cached.hash;
+    }
+    
+    
+    /**
+     * Computes the structural hash code of this denotator.
+     */
+    protected int computeHashCode() {
+        int h = 7;
+        h = 37*h+getForm().getNameString().hashCode();
+        h = 37*h+getNameString().hashCode();
+        h = 37*h+getCoordinate().getMap().hashCode();
         if (getCoordinate() != getFrameCoordinate()) {
-            hash = 37*hash+getFrameCoordinate().hashCode();
+            h = 37*h+getFrameCoordinate().getMap().hashCode();
+        }
+        return h;
+    }
+    
+    
+    /**
+     * Returns true iff the cached hash codes of this denotator and
+     * <code>other</code> are both valid and differ, in which case
+     * the denotators cannot be equal. No hash code is computed.
+     */
+    protected final boolean hashCodesDiffer(Denotator other) {
+        long version = structureVersion.get();
+        CachedHash cached = cachedHash;
+        CachedHash otherCached = other.cachedHash;
+        return cached != null && otherCached != null
+               && cached.version == version && otherCached.version == version
+               && cached.hash != otherCached.hash;
+    }
+    
+    
+    /**
+     * Invalidates the cached hash codes of all denotators.
+     * This must be called by every destructive operation on
+     * denotators and their coordinates, unless the changed object
+     * has not been hashed since the last call. Then no cached
+     * hash code depends on it, as it is the case for fresh copies.
+     */
+    @Internal
+    public static void _structureChanged() {
+        structureVersion.incrementAndGet();
+    }
+    
+    
+    /*
+     * Invalidates the cached hash codes after a destructive operation
+     * on this denotator. Since a denotator caches its hash code whenever
+     * it is computed, there is nothing to invalidate if it has none.
+     */
+    private void structureChanged() {
+        if (cachedHash != null) {
+            cachedHash = null;
+            _structureChanged();
         }
-        return hash;
     }
 
 
@@ -626,4 +701,21 @@ public abstract class Denotator
     private Form          form;
     private Morphism      coordinate;
     private Morphism      frameCoordinate;
+    
+    private transient volatile CachedHash cachedHash;
+    
+    private static final AtomicLong structureVersion = new AtomicLong(1);
+    
+    /*
+     * A hash code together with the structure version it is valid for,
+     * so that both are read and written at once.
+     */
+    private static final class CachedHash {
+        CachedHash(int hash, long version) {
+            this.hash = hash;
+            this.version = version;
+        }
+        final int  hash;
+        final long version;
+    }
 }
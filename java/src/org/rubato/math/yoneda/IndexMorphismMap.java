@@ -82,6 +82,7 @@ public final class IndexMorphismMap implements MorphismMap {
     public void setFactor(int index, Denotator factor) {
         this.index = index;
         this.factor = factor;
+        structureChanged();
     }   
     
 
@@ -249,13 +250,28 @@ public final class IndexMorphismMap implements MorphismMap {
 
     
     public int hashCode() {
+        hashed = true;
         int hash = 7;
         hash = 37*hash+index;
         hash = 37*hash+factor.hashCode();
         return hash;
     }
+    
+    
+    /*
+     * Invalidates the cached hash codes of the denotators
+     * if the hash code of this map has been used for them.
+     */
+    private void structureChanged() {
+        if (hashed) {
+            hashed = false;
+            Denotator._structureChanged();
+        }
+    }
 
 
     private int       index;
     private Denotator factor;
+    // true if the hash code has been computed since the last change
+    private transient boolean hashed = false;
 }
@@ -64,7 +64,7 @@ public final class LimitDenotator
         super(name, form);
         
         FormDiagram diagram = form.getFormDiagram();        
-        ListMorphismMap map = new ListMorphismMap(coordinates.size());
+        ArrayList<Denotator> factors = new ArrayList<Denotator>(coordinates.size());
         int s = Math.min(coordinates.size(), form.getFormCount());
         try {
             for (int i = 0; i < s; i++) {
@@ -73,16 +73,16 @@ public final class LimitDenotator
                     d = d.changeAddress(address);                        
                 }
                 checkDenotator(d, diagram.getForm(i));
-                map.appendFactor(d);
+                factors.add(d);
             }
             for (int i = s; i < form.getFormCount(); i++) {
-                map.appendFactor(form.getForm(i).createDefaultDenotator(address));
+                factors.add(form.getForm(i).createDefaultDenotator(address));
             }
         }
         catch (RubatoException e) {
             throw e;
         }
-        setCoordinates(new CompoundMorphism(address, new ProperIdentityMorphism(diagram, LIMIT), map));
+        setCoordinates(new CompoundMorphism(address, new ProperIdentityMorphism(diagram, LIMIT), new ListMorphismMap(factors)));
     }
     
 
@@ -98,7 +98,7 @@ public final class LimitDenotator
             throws RubatoException {
         super(name, form);
         FormDiagram diagram = form.getFormDiagram();        
-        ListMorphismMap map = new ListMorphismMap(coordinates.size());
+        ArrayList<Denotator> factors = new ArrayList<Denotator>(coordinates.size());
         Module address;        
         int s = Math.min(coordinates.size(), form.getFormCount());
         address = Address.getCommonDenotatorModule(coordinates);
@@ -112,16 +112,16 @@ public final class LimitDenotator
                 if (!address.equals(d.getAddress())) {
                     d = d.changeAddress(address);
                 }
-                map.appendFactor(d);
+                factors.add(d);
             }
             for (int i = s; i < form.getFormCount(); i++) {
-                map.appendFactor(form.getForm(i).createDefaultDenotator(address));
+                factors.add(form.getForm(i).createDefaultDenotator(address));
             }
         }
         catch (RubatoException e) {
             throw e;
         }
-        setCoordinates(new CompoundMorphism(address, new ProperIdentityMorphism(diagram, LIMIT), map));
+        setCoordinates(new CompoundMorphism(address, new ProperIdentityMorphism(diagram, LIMIT), new ListMorphismMap(factors)));
     }
 
     
@@ -434,6 +434,27 @@ public final class LimitDenotator
         checkDenotator(d, getForm().getForm(i), getAddress());
         listmap.setFactor(i, d);
     }
+
+
+    /**
+     * Returns a new limit denotator with the factor in position <code>i</code>
+     * replaced by <code>d</code>. This denotator is not changed, and the
+     * new one shares all other factors with it.
+     * 
+     * @throws RubatoException if <code>d</code> is not of the required form,
+     *                         or <code>i</code> is not in range
+     */
+    public LimitDenotator withFactor(int i, Denotator d)
+            throws RubatoException {
+        if (i < 0 || i >= getFactorCount()) {
+            throw new RubatoException("LimitDenotator.withFactor: Expected "+
+                                      "0 <= index < %1, but got %2", getFactorCount(), i);
+        }
+        checkDenotator(d, getForm().getForm(i), getAddress());
+        ArrayList<Denotator> denoList = new ArrayList<Denotator>(getListMorphismMap().getFactors());
+        denoList.set(i, d);
+        return _make_unsafe(getName(), getAddress(), getLimitForm(), denoList);
+    }
     
 
     /**
@@ -529,6 +550,9 @@ public final class LimitDenotator
      * Checks denotators of the same type for equality.
      */
     public boolean equals(LimitDenotator other) {
+        if (hashCodesDiffer(other)) {
+            return false;
+        }
         if (formEquals(other) && nameEquals(other) &&
             getFactorCount() == other.getFactorCount()) {
             return getListMorphismMap().equals(other.getListMorphismMap());
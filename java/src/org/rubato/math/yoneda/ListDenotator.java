@@ -25,6 +25,7 @@ import static org.rubato.xml.XMLConstants.DENOTATOR;
 import static org.rubato.xml.XMLConstants.TYPE_ATTR;
 
 import java.io.PrintStream;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -69,12 +70,12 @@ public class ListDenotator
         
         FormDiagram diagram = form.getFormDiagram();
         Form baseForm = form.getForm();
-        ListMorphismMap map = new ListMorphismMap(cds.size());
+        ArrayList<Denotator> factors = new ArrayList<Denotator>(cds.size());
         for (Denotator d : cds) {
             checkDenotator(d, baseForm, address);
-            map.appendFactor(d);
+            factors.add(d);
         }
-        setCoordinates(new CompoundMorphism(address, new ProperIdentityMorphism(diagram, LIST), map));
+        setCoordinates(new CompoundMorphism(address, new ProperIdentityMorphism(diagram, LIST), new ListMorphismMap(factors)));
     }
 
 
@@ -92,20 +93,20 @@ public class ListDenotator
         
         FormDiagram diagram = form.getFormDiagram();
         Form baseForm = form.getForm();
-        ListMorphismMap map = new ListMorphismMap(cds.size());
+        ArrayList<Denotator> factors = new ArrayList<Denotator>(cds.size());
         Module address;
         
         if (cds.size() > 0) {
             address = cds.get(0).getAddress();
             for (Denotator d : cds) {
 	            checkDenotator(d, baseForm, address);
-	            map.appendFactor(d);
+	            factors.add(d);
 	        }
         }
         else {
             address = ZProperFreeModule.nullModule;
         }
-        setCoordinates(new CompoundMorphism(address, new ProperIdentityMorphism(diagram, LIST), map));
+        setCoordinates(new CompoundMorphism(address, new ProperIdentityMorphism(diagram, LIST), new ListMorphismMap(factors)));
     }
     
 
@@ -438,6 +439,52 @@ public class ListDenotator
         return d;
     }
 
+    /**
+     * Returns a new list denotator with the factor <code>d</code> appended.
+     * This denotator is not changed, and the new one shares its factors
+     * with it.
+     * 
+     * @throws RubatoFormException if <code>d</code> is not of the required form
+     */
+    public ListDenotator withFactor(Denotator d)
+            throws RubatoException {
+        checkDenotator(d, getListForm().getForm(), getAddress());
+        List<Denotator> denoList = new ArrayList<Denotator>(getListMorphismMap().getFactors());
+        denoList.add(d);
+        return _make_unsafe(getName(), getAddress(), getListForm(), denoList);
+    }
+
+
+    /**
+     * Returns a new list denotator with the factor in position <code>i</code>
+     * replaced by <code>d</code>. This denotator is not changed.
+     * 
+     * @throws RubatoException if <code>d</code> is not of the required form
+     *         or <code>i</code> is out of range
+     */
+    public ListDenotator withFactor(int i, Denotator d)
+            throws RubatoException {
+        if (i < 0 || i >= getFactorCount()) {
+            throw new RubatoException("ListDenotator.withFactor: Expected index "+
+                                      "0 <= index < %1, but got %2", getFactorCount(), i);
+        }
+        checkDenotator(d, getListForm().getForm(), getAddress());
+        List<Denotator> denoList = new ArrayList<Denotator>(getListMorphismMap().getFactors());
+        denoList.set(i, d);
+        return _make_unsafe(getName(), getAddress(), getListForm(), denoList);
+    }
+
+
+    /**
+     * Returns a new list denotator without the factor in position <code>index</code>.
+     * This denotator is not changed.
+     */
+    public ListDenotator withoutFactor(int index) {
+        List<Denotator> denoList = new ArrayList<Denotator>(getListMorphismMap().getFactors());
+        denoList.remove(index);
+        return _make_unsafe(getName(), getAddress(), getListForm(), denoList);
+    }
+
     /**
      * Prepends a factor.
      * This is a destructive operation; beware of aliasing.
@@ -461,13 +508,11 @@ public class ListDenotator
     public void replaceFactors(List<Denotator> denoList)
             throws RubatoException {
         Form baseForm = getListForm().getForm();
-        ListMorphismMap newMap = new ListMorphismMap(denoList.size());
 
         for (Denotator d : denoList) {
             checkDenotator(d, baseForm, getAddress());
-            newMap.appendFactor(d);
         }
-        getCoordinate().setMap(newMap);
+        getCoordinate().setMap(new ListMorphismMap(denoList));
     }
     
     
@@ -604,6 +649,9 @@ public class ListDenotator
      * Checks denotators of the same form for equality.
      */
     public boolean equals(ListDenotator other) {
+        if (hashCodesDiffer(other)) {
+            return false;
+        }
         if (formEquals(other) && nameEquals(other)) {
             return getListMorphismMap().equals(other.getListMorphismMap());
         }
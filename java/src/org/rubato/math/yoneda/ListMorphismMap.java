@@ -81,6 +81,7 @@ public final class ListMorphismMap implements MorphismMap {
      */
     public void setFactor(int index, Denotator d) {
         list.set(index, d); 
+        structureChanged();
     }
     
 
@@ -89,6 +90,7 @@ public final class ListMorphismMap implements MorphismMap {
      */
     public void insertFactor(int index, Denotator d) {
         list.add(index, d); 
+        structureChanged();
     }
     
 
@@ -97,6 +99,7 @@ public final class ListMorphismMap implements MorphismMap {
      */
     public void appendFactor(Denotator d) {
         list.add(d);
+        structureChanged();
     }
     
     /**
@@ -105,6 +108,7 @@ public final class ListMorphismMap implements MorphismMap {
     public Denotator removeFactor(int index) {
     	if (index < list.size()) {
     		Denotator removed = list.remove(index);
+    		structureChanged();
     		return removed;
     	}
     	throw new IndexOutOfBoundsException(index+" > "+(list.size()-1));
@@ -116,6 +120,7 @@ public final class ListMorphismMap implements MorphismMap {
      */
     public void prependFactor(Denotator d) {
         list.add(0, d);
+        structureChanged();
     }
     
 
@@ -147,6 +152,7 @@ public final class ListMorphismMap implements MorphismMap {
      */
     public void sort() {
         Collections.sort(list);
+        structureChanged();
     }
     
     
@@ -194,6 +200,7 @@ public final class ListMorphismMap implements MorphismMap {
             }
         }
         list = newlist;
+        structureChanged();
     }
 
 
@@ -443,12 +450,25 @@ public final class ListMorphismMap implements MorphismMap {
      * Returns a hash code of this list morphism map.
      */
     public int hashCode() {
+        hashed = true;
         int hash = 7;
         for (Denotator d : list) {
             hash = 37*hash + d.hashCode();
         }
         return hash;
     }
+    
+    
+    /*
+     * Invalidates the cached hash codes of the denotators
+     * if the hash code of this map has been used for them.
+     */
+    private void structureChanged() {
+        if (hashed) {
+            hashed = false;
+            Denotator._structureChanged();
+        }
+    }
 
 
     protected ListMorphismMap(ArrayList<Denotator> list) {
@@ -457,4 +477,6 @@ public final class ListMorphismMap implements MorphismMap {
     
     
     private ArrayList<Denotator> list;
+    // true if the hash code has been computed since the last change
+    private transient boolean    hashed = false;
 }
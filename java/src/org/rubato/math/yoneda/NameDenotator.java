@@ -21,6 +21,7 @@ package org.rubato.math.yoneda;
 
 import static org.rubato.logeo.DenoFactory.makeDenotator;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 
@@ -339,12 +340,12 @@ public final class NameDenotator extends ListDenotator {
             diagram = (FormDiagram)NameForm.getNameForm().getIdentifier().getCodomainDiagram();
         }
 
-        ListMorphismMap map = new ListMorphismMap(nameEntry.getLength());
+        ArrayList<Denotator> factors = new ArrayList<Denotator>(nameEntry.getLength());
         for (int i = 0; i < nameEntry.getLength(); i++) {
             Denotator deno = makeDenotator(stringForm, nameEntry.getString(i)); 
-            map.appendFactor(deno);
+            factors.add(deno);
         }
-        return new CompoundMorphism(ZProperFreeModule.nullModule, new ProperIdentityMorphism(diagram, LIST), map);
+        return new CompoundMorphism(ZProperFreeModule.nullModule, new ProperIdentityMorphism(diagram, LIST), new ListMorphismMap(factors));
     }
     
     private        NameEntry   nameEntry  = null;
@@ -69,11 +69,10 @@ public final class PowerDenotator
         
         FormDiagram diagram = form.getFormDiagram();
         Form baseForm = form.getForm();
-        AutoListMorphismMap map = new AutoListMorphismMap();
         for (Denotator d : cds) {
             checkDenotator(d, baseForm, address);
-            map.appendFactor(d);
         }
+        AutoListMorphismMap map = new AutoListMorphismMap(cds);
         setCoordinates(new CompoundMorphism(address, new ProperIdentityMorphism(diagram, POWER), map));
         _normalize();
     }
@@ -93,19 +92,18 @@ public final class PowerDenotator
         
         FormDiagram diagram = form.getFormDiagram();
         Form baseForm = form.getForm();
-        AutoListMorphismMap map = new AutoListMorphismMap();
         Module address;
         
         if (cds.size() > 0) {
             address = cds.get(0).getAddress();
             for (Denotator d : cds) {
                 checkDenotator(d, baseForm, address);
-                map.appendFactor(d);
             }
         }
         else {
             address = ZProperFreeModule.nullModule;
         }
+        AutoListMorphismMap map = new AutoListMorphismMap(cds);
         setCoordinates(new CompoundMorphism(address, new ProperIdentityMorphism(diagram, POWER), map));
         _normalize();
     }
@@ -296,9 +294,10 @@ public final class PowerDenotator
         else if (getFactorCount() > path[curpos]) {
         	Denotator oldDenotator = getFactor(path[curpos]);
         	Denotator newDenotator = oldDenotator.replace(path, curpos+1, d);
-        	AutoListMorphismMap listmap = getListMorphismMap();
-        	listmap.replaceFactor(oldDenotator, newDenotator);
-        	return _make_unsafe(null, getAddress(), getPowerForm(), getFactors());
+        	//this denotator is left unchanged
+        	AutoListMorphismMap listmap = getListMorphismMap().shallowCopy();
+        	listmap.replaceFactor(path[curpos], newDenotator);
+        	return withListMorphismMap(null, listmap);
         }
         else {
             LinkedList<Denotator> denoList = new LinkedList<Denotator>();
@@ -446,6 +445,60 @@ public final class PowerDenotator
         return d;
     }
     
+    
+    /**
+     * Returns a new power denotator with the factor <code>d</code> added.
+     * This denotator is not changed, and the new one shares its factors
+     * with it. Takes logarithmic time.
+     * 
+     * @throws RubatoException if d is not of the required form
+     */
+    public PowerDenotator withFactor(Denotator d)
+            throws RubatoException {
+        checkDenotator(d, getPowerForm().getForm(), getAddress());
+        AutoListMorphismMap listmap = getListMorphismMap().shallowCopy();
+        listmap.appendFactor(d);
+        return withListMorphismMap(getName(), listmap);
+    }
+    
+    
+    /**
+     * Returns a new power denotator with the factor at position <code>i</code>
+     * replaced by <code>d</code>, which may be at another position in the
+     * new denotator. This denotator is not changed.
+     * 
+     * @throws RubatoException if <code>d</code> is not of the required form
+     *         or <code>i</code> is out of range
+     */
+    public PowerDenotator withFactor(int i, Denotator d)
+            throws RubatoException {
+        AutoListMorphismMap listmap = getListMorphismMap().shallowCopy();
+        if (i < 0 || i >= listmap.getFactorCount()) {
+            throw new RubatoException("PowerDenotator.withFactor: Expected index "+
+                                      "0 <= index < %1, but got %2", listmap.getFactorCount(), i);
+        }
+        checkDenotator(d, getPowerForm().getForm(), getAddress());
+        listmap.replaceFactor(i, d);
+        return withListMorphismMap(getName(), listmap);
+    }
+    
+    
+    /**
+     * Returns a new power denotator without the factor at position <code>index</code>.
+     * This denotator is not changed.
+     */
+    public PowerDenotator withoutFactor(int index) {
+        AutoListMorphismMap listmap = getListMorphismMap().shallowCopy();
+        listmap.removeFactor(index);
+        return withListMorphismMap(getName(), listmap);
+    }
+    
+    
+    private PowerDenotator withListMorphismMap(NameDenotator name, AutoListMorphismMap listmap) {
+        CompoundMorphism coordinate = new CompoundMorphism(getAddress(), new ProperIdentityMorphism(getPowerForm().getFormDiagram(), POWER), listmap);
+        return new PowerDenotator(name, getPowerForm(), coordinate, coordinate);
+    }
+    
     /*public boolean insertFactor(int index, Denotator d) {
     	getListMorphismMap().insertFactor(index, d);
         _normalize();
@@ -463,13 +516,11 @@ public final class PowerDenotator
     public void replaceFactors(List<Denotator> denoList)
             throws RubatoException {
         Form baseForm = getPowerForm().getForm();
-        AutoListMorphismMap newMap = new AutoListMorphismMap();
 
         for (Denotator d : denoList) {
             checkDenotator(d, baseForm, getAddress());
-            newMap.appendFactor(d);
         }
-        getCoordinate().setMap(newMap);
+        getCoordinate().setMap(new AutoListMorphismMap(denoList));
         _normalize();
     }
     
@@ -478,7 +529,11 @@ public final class PowerDenotator
      * Returns a (new) list of the coordinates of the denotator.
      */
     public List<Denotator> getFactors() {
-        return new LinkedList<Denotator>(getListMorphismMap().getFactors());
+        LinkedList<Denotator> factors = new LinkedList<Denotator>();
+        for (Denotator d : getListMorphismMap()) {
+            factors.add(d);
+        }
+        return factors;
     }
 
     
@@ -613,6 +668,9 @@ public final class PowerDenotator
      * Checks denotators of the same form for equality.
      */
     public boolean equals(PowerDenotator other) {
+        if (hashCodesDiffer(other)) {
+            return false;
+        }
         if (formEquals(other) && nameEquals(other)) {
             return getListMorphismMap().equals(other.getListMorphismMap());
         }
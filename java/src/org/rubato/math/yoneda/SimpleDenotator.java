@@ -601,6 +601,9 @@ public final class SimpleDenotator extends Denotator {
      * Checks denotators of the same type for equality.
      */
     public boolean equals(SimpleDenotator other) {
+        if (hashCodesDiffer(other)) {
+            return false;
+        }
         if (formEquals(other) && nameEquals(other)) {
             return getModuleMorphismMap().equals(other.getModuleMorphismMap());
         }
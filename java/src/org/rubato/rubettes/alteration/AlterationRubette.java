@@ -95,6 +95,11 @@ public class AlterationRubette extends AbstractRubette implements ActionListener
 		return "Alteration";
 	}
 
+	@Override
+	public boolean canReuseOutputs() {
+		return true;
+	}
+
 	@Override
 	public Rubette newInstance() {
 		return new AlterationRubette();
@@ -95,9 +95,10 @@ public class Alterator {
 		double[] endDegrees = new double[]{endDegree,endDegree,endDegree,endDegree,endDegree};
 		try {
 			double[][] minAndMax = this.getMinAndMaxDouble(input0.iterator(), differentPaths);
+			Iterator<Denotator> nearestNeighbours = this.neighborFinder.findNearestNeighbors(input0).iterator();
 			while (input0Coordinates.hasNext()) {
 				Denotator currentDenotator = input0Coordinates.next();
-				Denotator nearestNeighbour = this.neighborFinder.findNearestNeighbor(currentDenotator);
+				Denotator nearestNeighbour = nearestNeighbours.next();
 				Denotator morphedDenotator;
 				//need to copy both denotators, since copy makes an address change so sum fails
 				morphedDenotator = this.morphSoundDenotator(currentDenotator.copy(), nearestNeighbour.copy(), pathIndices, paths, differentPaths, minAndMax, startDegrees, endDegrees, onlyModulators);
@@ -133,9 +134,10 @@ public class Alterator {
 		try {
 			if (input0.size() > 0) {
 				double[][] minAndMax = this.getMinAndMaxDouble(input0.iterator(), differentPaths);
+				Iterator<Denotator> nearestNeighbours = this.neighborFinder.findNearestNeighbors(input0).iterator();
 				while (input0Coordinates.hasNext()) {
 					Denotator currentDenotator = input0Coordinates.next();
-					Denotator nearestNeighbour = this.neighborFinder.findNearestNeighbor(currentDenotator);
+					Denotator nearestNeighbour = nearestNeighbours.next();
 					Denotator morphedDenotator;
 					//need to copy both denotators, since copy makes an address change so sum fails
 					morphedDenotator = this.morphDenotator(currentDenotator.copy(), nearestNeighbour.copy(), pathIndices, paths, differentPaths, minAndMax, startDegrees, endDegrees);
@@ -157,9 +159,10 @@ public class Alterator {
 		double[] endDegrees = this.dimensionsTable.getEndDegrees();
 		double[][] minAndMax = this.getMinAndMaxDouble(input0.iterator(), differentPaths);
 		this.neighborFinder = new NearestNeighborFinder(input1, this.dimensionsTable.getElementPaths());
+		Iterator<Denotator> nearestNeighbours = this.neighborFinder.findNearestNeighbors(input0.getFactors()).iterator();
 		while (input0Coordinates.hasNext()) {
 			Denotator currentDenotator = input0Coordinates.next();
-			Denotator nearestNeighbour = this.neighborFinder.findNearestNeighbor(currentDenotator);
+			Denotator nearestNeighbour = nearestNeighbours.next();
 			Denotator morphedDenotator;
 			//need to copy both denotators, since copy makes an address change so sum fails
 			morphedDenotator = this.morphDenotator(currentDenotator.copy(), nearestNeighbour.copy(), pathIndices, paths, differentPaths, minAndMax, startDegrees, endDegrees);
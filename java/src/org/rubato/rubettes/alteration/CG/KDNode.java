@@ -44,6 +44,73 @@ class KDNode {
     }
 
 
+    // Builds a balanced tree of the given keys, which have to be distinct.
+    // The node of each subtree has the median key in the splitting dimension
+    // and all equal keys are moved to its left, as insert would put them
+    protected static KDNode build(HPoint [] keys, Object [] vals, int from,
+				  int to, int lev, int K) {
+
+	if (from >= to) {
+	    return null;
+	}
+
+	int s = lev % K;
+	int mid = (from + to) >>> 1;
+	select(keys, vals, from, to-1, mid, s);
+	double median = keys[mid].coord[s];
+
+	// move keys equal to the median in front of the greater ones
+	int last = mid;
+	for (int i=mid+1; i<to; ++i) {
+	    if (keys[i].coord[s] == median) {
+		swap(keys, vals, ++last, i);
+	    }
+	}
+
+	KDNode t = new KDNode(keys[last], vals[last]);
+	t.left = build(keys, vals, from, last, lev+1, K);
+	t.right = build(keys, vals, last+1, to, lev+1, K);
+	return t;
+    }
+
+    // Moves the key that belongs at index k in the order of dimension s
+    // there, with smaller or equal keys before and greater or equal ones
+    // after it (quickselect)
+    private static void select(HPoint [] keys, Object [] vals, int left,
+			       int right, int k, int s) {
+
+	while (right > left) {
+	    double pivot = keys[(left + right) >>> 1].coord[s];
+	    int i = left, j = right;
+	    while (i <= j) {
+		while (keys[i].coord[s] < pivot) i++;
+		while (keys[j].coord[s] > pivot) j--;
+		if (i <= j) {
+		    swap(keys, vals, i++, j--);
+		}
+	    }
+	    if (k <= j) {
+		right = j;
+	    }
+	    else if (k >= i) {
+		left = i;
+	    }
+	    else {
+		return;
+	    }
+	}
+    }
+
+    private static void swap(HPoint [] keys, Object [] vals, int i, int j) {
+
+	HPoint key = keys[i];
+	keys[i] = keys[j];
+	keys[j] = key;
+	Object val = vals[i];
+	vals[i] = vals[j];
+	vals[j] = val;
+    }
+
     // Method srch translated from 352.srch.c of Gonnet & Baeza-Yates
     protected static KDNode srch(HPoint key, KDNode t, int K) {
 
@@ -211,6 +278,44 @@ class KDNode {
    }
 
 
+    // Single nearest neighbor search, pruning subtrees by the distance of
+    // the target to their splitting plane instead of a hyper-rectangle
+    protected static void nearest(KDNode kd, double [] target, int lev,
+				  int K, Nearest nearest) {
+
+	if (kd == null) {
+	    return;
+	}
+
+	int s = lev % K;
+	double [] pivot = kd.k.coord;
+	if (!kd.deleted) {
+	    double dist_sqd = 0;
+	    for (int i=0; i<K; ++i) {
+		double diff = pivot[i] - target[i];
+		dist_sqd += diff*diff;
+	    }
+	    if (dist_sqd < nearest.dist_sqd || nearest.node == null) {
+		nearest.node = kd;
+		nearest.dist_sqd = dist_sqd;
+	    }
+	}
+
+	double diff = target[s] - pivot[s];
+	KDNode nearer_kd = diff > 0 ? kd.right : kd.left;
+	KDNode further_kd = diff > 0 ? kd.left : kd.right;
+	nearest(nearer_kd, target, lev + 1, K, nearest);
+	if (diff*diff < nearest.dist_sqd) {
+	    nearest(further_kd, target, lev + 1, K, nearest);
+	}
+    }
+
+    // result of a nearest neighbor search
+    protected static class Nearest {
+	KDNode node;
+	double dist_sqd = Double.MAX_VALUE;
+    }
+
     // constructor is used only by class; other methods are static
     private KDNode(HPoint key, Object val) {
 	
@@ -1,6 +1,16 @@
 package org.rubato.rubettes.alteration.CG;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.Future;
 
  /**
   * KDTree is a class supporting KD-tree insertion, deletion, equality
@@ -24,6 +34,12 @@ import java.util.Vector;
   */
 public class KDTree {
 
+    // minimum number of keys per thread in batched nearest neighbor queries
+    private static final int MIN_KEYS_PER_THREAD = 1024;
+
+    // threads for batched nearest neighbor queries, created when first needed
+    private static ExecutorService s_executor;
+
     // K = number of dimensions
     private int m_K;
 
@@ -44,6 +60,72 @@ public class KDTree {
 	m_root = null;
     }
 
+    /**
+     * Creates a balanced KD-tree with specified number of dimensions
+     * containing the given keys and values.  Each node splits its subtree
+     * at the median of the splitting dimension, so that the tree does not
+     * degenerate if the keys are sorted, as they are when inserted one by
+     * one in the order of a score.  As with insert, keys in the left subtree
+     * are smaller than or equal to the one of their node and keys in the
+     * right subtree are greater.  Of several identical keys only the first
+     * one is kept, as if the others had been rejected by insert.
+     *
+     * @param k number of dimensions
+     * @param keys keys for KD-tree nodes, one per row
+     * @param values values at the respective keys
+     *
+     * @throws KeySizeException if the length of a key mismatches k
+     */
+    public KDTree(int k, double [][] keys, Object [] values)
+	throws KeySizeException {
+
+	m_K = k;
+	for (int i=0; i<keys.length; ++i) {
+	    if (keys[i].length != m_K) {
+		throw new KeySizeException();
+	    }
+	}
+	Integer [] distinct = distinctKeyIndices(keys);
+	HPoint [] points = new HPoint [distinct.length];
+	Object [] vals = new Object [distinct.length];
+	for (int i=0; i<distinct.length; ++i) {
+	    points[i] = new HPoint(keys[distinct[i]]);
+	    vals[i] = values[distinct[i]];
+	}
+	m_root = KDNode.build(points, vals, 0, points.length, 0, m_K);
+	m_count = points.length;
+    }
+
+    // returns the indices of the first occurrences of all keys, in order
+    private static Integer [] distinctKeyIndices(final double [][] keys) {
+
+	Integer [] indices = new Integer [keys.length];
+	for (int i=0; i<indices.length; ++i) {
+	    indices[i] = i;
+	}
+	// lexicographically, identical keys sorted by index
+	Arrays.sort(indices, new Comparator<Integer>() {
+	    public int compare(Integer i, Integer j) {
+		for (int d=0; d<keys[i].length; ++d) {
+		    int c = Double.compare(keys[i][d], keys[j][d]);
+		    if (c != 0) {
+			return c;
+		    }
+		}
+		return i.compareTo(j);
+	    }
+	});
+	List<Integer> distinct = new ArrayList<Integer>();
+	for (int i=0; i<indices.length; ++i) {
+	    if (i == 0 || !new HPoint(keys[indices[i]]).equals(new HPoint(keys[indices[i-1]]))) {
+		distinct.add(indices[i]);
+	    }
+	}
+	Integer [] sorted = distinct.toArray(new Integer [distinct.size()]);
+	Arrays.sort(sorted);
+	return sorted;
+    }
+
 
    /** 
     * Insert a node in a KD-tree.  Uses algorithm translated from 352.ins.c of
@@ -152,15 +234,102 @@ public class KDTree {
     *
     * @param key key for KD-tree node
     *
-    * @return object at node nearest to key, or null on failure
+    * @return object at node nearest to key, or null if the tree is empty
     *
     * @throws KeySizeException if key.length mismatches K
 
     */
     public Object nearest(double [] key) throws KeySizeException {
-	
-	Object [] nbrs = nearest(key, 1);
-	return nbrs[0];
+
+	if (m_count < 1) {
+	    return null;
+	}
+
+	if (key.length != m_K) {
+	    throw new KeySizeException();
+	}
+
+	KDNode.Nearest nearest = new KDNode.Nearest();
+	KDNode.nearest(m_root, key, 0, m_K, nearest);
+	return nearest.node.v;
+    }
+
+    /**
+    * Find the nearest neighbors of several keys at once.  The keys are
+    * distributed among the given number of threads, which is only done if
+    * there are enough keys for every thread. The threads are taken from
+    * a pool shared by all trees.
+    *
+    * @param keys keys for KD-tree nodes, one per row
+    * @param threadCount the maximum number of threads to be used
+    *
+    * @return objects at nodes nearest to the respective keys
+    *
+    * @throws KeySizeException if the length of a key mismatches K
+    */
+    public Object [] nearest(final double [][] keys, int threadCount)
+	throws KeySizeException {
+
+	final Object [] nbrs = new Object [keys.length];
+	threadCount = Math.min(threadCount, keys.length/MIN_KEYS_PER_THREAD);
+	if (threadCount <= 1) {
+	    nearest(keys, nbrs, 0, keys.length);
+	    return nbrs;
+	}
+
+	ExecutorService executor = getExecutor();
+	try {
+	    List<Future<Object>> results = new ArrayList<Future<Object>>();
+	    int chunkSize = (keys.length+threadCount-1)/threadCount;
+	    for (int i=0; i<keys.length; i+=chunkSize) {
+		final int from = i;
+		final int to = Math.min(keys.length, i+chunkSize);
+		results.add(executor.submit(new Callable<Object>() {
+		    public Object call() throws KeySizeException {
+			nearest(keys, nbrs, from, to);
+			return null;
+		    }
+		}));
+	    }
+	    for (Future<Object> result : results) {
+		result.get();
+	    }
+	}
+	catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    throw new RuntimeException(e);
+	}
+	catch (ExecutionException e) {
+	    if (e.getCause() instanceof KeySizeException) {
+		throw (KeySizeException)e.getCause();
+	    }
+	    throw new RuntimeException(e.getCause());
+	}
+	return nbrs;
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+
+	if (s_executor == null) {
+	    s_executor = Executors.newFixedThreadPool(
+		Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+		    public Thread newThread(Runnable r) {
+			// idle threads must not keep the application alive
+			Thread thread = new Thread(r, "KDTree");
+			thread.setDaemon(true);
+			return thread;
+		    }
+		});
+	}
+	return s_executor;
+    }
+
+    private void nearest(double [][] keys, Object [] nbrs, int from, int to)
+	throws KeySizeException {
+
+	for (int i=from; i<to; ++i) {
+	    nbrs[i] = nearest(keys[i]);
+	}
     }
 
     /**
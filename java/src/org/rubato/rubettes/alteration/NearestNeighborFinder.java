@@ -19,17 +19,20 @@
 
 package org.rubato.rubettes.alteration;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
 
 import org.rubato.base.RubatoException;
+import org.rubato.math.module.ModuleElement;
 import org.rubato.math.module.RElement;
 import org.rubato.math.module.RRing;
 import org.rubato.math.yoneda.Denotator;
 import org.rubato.math.yoneda.PowerDenotator;
 import org.rubato.rubettes.alteration.CG.KDTree;
-import org.rubato.rubettes.alteration.CG.KeyDuplicateException;
 import org.rubato.rubettes.alteration.CG.KeySizeException;
 
 public class NearestNeighborFinder {
@@ -61,32 +64,66 @@ public class NearestNeighborFinder {
 		}
 	}
 	
+	/**
+	 * Finds the nearest neighbors of all given denotators at once, using as many threads as there are
+	 * processors if there are enough denotators.
+	 * @return the nearest neighbors in the order of the given denotators
+	 */
+	public List<Denotator> findNearestNeighbors(List<Denotator> denotators) {
+		double[][] keys = this.generateKeys(denotators);
+		try {
+			Object[] nearestNeighbors = this.kdTree.nearest(keys, Runtime.getRuntime().availableProcessors());
+			List<Denotator> neighbors = new ArrayList<Denotator>(nearestNeighbors.length);
+			for (Object currentNeighbor : nearestNeighbors) {
+				neighbors.add((Denotator)currentNeighbor);
+			}
+			return neighbors;
+		} catch (KeySizeException e) {
+			return Arrays.asList(new Denotator[denotators.size()]);
+		}
+	}
+	
 	public void fillKDTree() {
 		this.fillKDTree(this.neighbors.iterator());
 	}
 	
+	/*
+	 * builds a balanced tree at once. neighbors usually arrive sorted, which would degrade a tree built by
+	 * inserting them one by one
+	 */
 	protected void fillKDTree(Iterator<Denotator> neighbors) {
-		this.kdTree = new KDTree(this.elementPaths.length);
+		List<Denotator> neighborList = new ArrayList<Denotator>();
 		while (neighbors.hasNext()) {
-			Denotator currentNeighbor = neighbors.next();
-			try {
-				double[] key = this.generateKey(currentNeighbor);
-				this.kdTree.insert(key, currentNeighbor);
-			} catch (KeyDuplicateException e) {
-				//e.printStackTrace();
-			} catch (KeySizeException e) {
-				e.printStackTrace();
-			}
+			neighborList.add(neighbors.next());
+		}
+		try {
+			this.kdTree = new KDTree(this.elementPaths.length, this.generateKeys(neighborList), neighborList.toArray());
+		} catch (KeySizeException e) {
+			e.printStackTrace();
+			this.kdTree = new KDTree(this.elementPaths.length);
+		}
+	}
+	
+	private double[][] generateKeys(List<Denotator> denotators) {
+		double[][] keys = new double[denotators.size()][];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = this.generateKey(denotators.get(i));
 		}
+		return keys;
 	}
 	
 	private double[] generateKey(Denotator denotator) {
 		double[] key = new double[this.elementPaths.length];
 		for (int i = 0; i < key.length; i++) {
-			//getElementPath verschnellern!!
 			int[] currentPath = this.elementPaths[i];
 			try {
-				key[i] = ((RElement) denotator.getElement(currentPath).cast(RRing.ring)).getValue();
+				ModuleElement currentElement = denotator.getElement(currentPath);
+				//only cast if necessary, casting creates a new element
+				if (currentElement instanceof RElement) {
+					key[i] = ((RElement)currentElement).getValue();
+				} else {
+					key[i] = ((RElement)currentElement.cast(RRing.ring)).getValue();
+				}
 			} catch (RubatoException e) { e.printStackTrace(); }
 		}
 		return key;
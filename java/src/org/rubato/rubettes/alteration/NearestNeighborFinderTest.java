@@ -0,0 +1,102 @@
+package org.rubato.rubettes.alteration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.rubato.base.RubatoException;
+import org.rubato.math.module.QElement;
+import org.rubato.math.yoneda.Denotator;
+import org.rubato.math.yoneda.PowerDenotator;
+import org.rubato.rubettes.alteration.CG.KDTree;
+import org.rubato.rubettes.alteration.CG.KeySizeException;
+import org.rubato.rubettes.util.MacroNoteGenerator;
+
+/**
+ * Defines tests for the NearestNeighborFinder class and the balanced KDTree it uses.
+ */
+public class NearestNeighborFinderTest extends TestCase {
+
+	private Random random;
+
+	protected void setUp() {
+		this.random = new Random(3);
+	}
+
+	public void testBalancedTree() throws KeySizeException {
+		//sorted by the first dimension, as scores are by onset
+		double[][] keys = new double[5000][];
+		Integer[] values = new Integer[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = new double[]{i/4, this.random.nextInt(50), this.random.nextInt(10)};
+			values[i] = i;
+		}
+		KDTree tree = new KDTree(3, keys, values);
+		double[][] queries = new double[3000][];
+		for (int i = 0; i < queries.length; i++) {
+			queries[i] = new double[]{this.random.nextDouble()*1300-20, this.random.nextDouble()*60-5, this.random.nextInt(12)};
+		}
+		Object[] sequentialNeighbors = tree.nearest(queries, 1);
+		Object[] parallelNeighbors = tree.nearest(queries, 3);
+		for (int i = 0; i < queries.length; i++) {
+			double shortestDistance = Double.MAX_VALUE;
+			for (double[] currentKey : keys) {
+				shortestDistance = Math.min(shortestDistance, this.squaredDistance(currentKey, queries[i]));
+			}
+			Integer neighbor = (Integer)sequentialNeighbors[i];
+			TestCase.assertEquals(shortestDistance, this.squaredDistance(keys[neighbor], queries[i]));
+			TestCase.assertEquals(neighbor, parallelNeighbors[i]);
+			TestCase.assertEquals(neighbor, tree.nearest(queries[i]));
+		}
+	}
+
+	public void testDuplicateKeys() throws KeySizeException {
+		double[][] keys = new double[][]{{1,2},{0,0},{1,2},{3,1},{0,0}};
+		KDTree tree = new KDTree(2, keys, new Object[]{"a","b","c","d","e"});
+		//as with insert, only the first of several identical keys is kept
+		TestCase.assertEquals("a", tree.nearest(new double[]{1,2}));
+		TestCase.assertEquals("b", tree.nearest(new double[]{0,0}));
+		TestCase.assertEquals("b", tree.search(new double[]{0,0}));
+		TestCase.assertEquals("d", tree.search(new double[]{3,1}));
+		TestCase.assertEquals(3, tree.nearest(new double[]{0,0}, 3).length);
+	}
+
+	public void testEmptyTree() throws KeySizeException {
+		KDTree tree = new KDTree(2);
+		TestCase.assertNull(tree.nearest(new double[]{1,2}));
+		Object[] neighbors = tree.nearest(new double[3000][2], 3);
+		for (Object neighbor : neighbors) {
+			TestCase.assertNull(neighbor);
+		}
+	}
+
+	public void testFindNearestNeighbors() throws RubatoException {
+		MacroNoteGenerator generator = new MacroNoteGenerator();
+		PowerDenotator neighbors = generator.createSimpleMelody(1, 60, 64, 67, 72);
+		int[][] elementPaths = new int[][]{{0,0},{1,0}};
+		NearestNeighborFinder finder = new NearestNeighborFinder(neighbors, elementPaths);
+		List<Denotator> notes = new ArrayList<Denotator>();
+		notes.add(generator.createNoteDenotator(new double[]{0.2,61,120,1,0}));
+		notes.add(generator.createNoteDenotator(new double[]{2.9,70,120,1,0}));
+		notes.add(generator.createNoteDenotator(new double[]{1.6,65,120,1,0}));
+		List<Denotator> nearestNeighbors = finder.findNearestNeighbors(notes);
+		TestCase.assertEquals(3, nearestNeighbors.size());
+		TestCase.assertEquals(new QElement(60), nearestNeighbors.get(0).getElement(elementPaths[1]));
+		TestCase.assertEquals(new QElement(72), nearestNeighbors.get(1).getElement(elementPaths[1]));
+		TestCase.assertEquals(new QElement(64), nearestNeighbors.get(2).getElement(elementPaths[1]));
+		for (int i = 0; i < notes.size(); i++) {
+			TestCase.assertSame(nearestNeighbors.get(i), finder.findNearestNeighbor(notes.get(i)));
+		}
+	}
+
+	private double squaredDistance(double[] key1, double[] key2) {
+		double distance = 0;
+		for (int i = 0; i < key1.length; i++) {
+			distance += (key1[i]-key2[i])*(key1[i]-key2[i]);
+		}
+		return distance;
+	}
+
+}
@@ -68,6 +68,7 @@ public class BigBangRubette extends AbstractRubette {
         return RubatoConstants.CORE_GROUP;
     }
 
+
 	@Override
 	public void run(RunInfo runInfo) {
 		//TODO: SHOULD REALLY NOT HAVE TO BE HERE. PUT BACK TO REPOSITORY
@@ -3,6 +3,8 @@ package org.rubato.rubettes.bigbang.model;
 import static org.rubato.xml.XMLConstants.FORM;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -23,6 +25,7 @@ import org.rubato.rubettes.bigbang.model.denotators.TransformationProperties;
 import org.rubato.rubettes.bigbang.model.graph.BigBangGraphAnimator;
 import org.rubato.rubettes.bigbang.model.graph.BigBangOperationGraph;
 import org.rubato.rubettes.bigbang.model.graph.CompositionState;
+import org.rubato.rubettes.bigbang.model.graph.CompositionStateCache;
 import org.rubato.rubettes.bigbang.model.operations.AbstractOperation;
 import org.rubato.rubettes.bigbang.model.operations.AbstractTransformation;
 import org.rubato.rubettes.bigbang.model.operations.AddObjectsOperation;
@@ -57,13 +60,18 @@ public class BigBangModel extends Model {
 	private BigBangObjects objects; //object-oriented representation of the denotator composition
 	private UndoManager undoManager;
 	private BigBangOperationGraph operationGraph;
+	//states reached during the last executions of the operations in operationGraph
+	private CompositionStateCache stateCache;
 	private BigBangGraphAnimator animator;
 	
+	private static final List<AbstractOperation> NO_OPERATIONS = Collections.emptyList();
+	
 	public BigBangModel() {
 		this.denotators = new BigBangDenotatorManager();
 		this.setInputActive(true);
 		this.objects = new BigBangObjects(this.denotators.getForm());
 		this.undoManager = new UndoManager();
+		this.stateCache = new CompositionStateCache();
 		this.reset();
 	}
 	
@@ -73,17 +81,19 @@ public class BigBangModel extends Model {
 		this.objects.setController(controller);
 		this.firePropertyChange(BigBangController.UNDO, null, this.undoManager);
 		this.firePropertyChange(BigBangController.GRAPH, null, this.operationGraph);
-		this.fireCompositionChange();
+		this.fireCompositionChange(CompositionChange.createCompleteChange(this.objects));
 	}
 	
 	public void reset() {
 		this.undoManager.discardAllEdits();
 		this.operationGraph = new BigBangOperationGraph();
+		this.stateCache.clear();
 		this.firePropertyChange(BigBangController.GRAPH, null, this.operationGraph);
 	}
 	
 	private void setGraph(BigBangOperationGraph graph) {
 		this.operationGraph = graph;
+		this.stateCache.clear();
 	}
 	
 	public void setInputActive(Boolean inputActive) {
@@ -109,7 +119,7 @@ public class BigBangModel extends Model {
 			if (this.controller != null) {
 				this.objects.setController(this.controller);
 			}
-			this.fireCompositionChange();
+			this.fireCompositionChange(CompositionChange.createCompleteChange(this.objects));
 		}
 	}
 	
@@ -187,7 +197,7 @@ public class BigBangModel extends Model {
 		if (properties.startNewTransformation()) {
 			this.addOperation(new TranslationTransformation(this, properties));
 		} else if (this.updateTransformation(properties, TranslationTransformation.class)) {
-			this.updateComposition();
+			this.updateComposition(this.operationGraph.getLastAddedOperation());
 		}
 	}
 	
@@ -197,7 +207,7 @@ public class BigBangModel extends Model {
 		} else if (this.updateTransformation(properties, RotationTransformation.class)) {
 			RotationTransformation lastRotation = (RotationTransformation)this.operationGraph.getLastAddedOperation();
 			lastRotation.setParameters(startingPoint, angle);
-			this.updateComposition();
+			this.updateComposition(lastRotation);
 		}
 	}
 	
@@ -231,7 +241,7 @@ public class BigBangModel extends Model {
 		} else if (this.updateTransformation(properties, ShearingTransformation.class)) {
 			AffineTransformation lastTransformation = (AffineTransformation)this.operationGraph.getLastAddedOperation();
 			lastTransformation.setParameters(shift, transform);
-			this.updateComposition();
+			this.updateComposition(lastTransformation);
 		}
 	}
 	
@@ -247,7 +257,7 @@ public class BigBangModel extends Model {
 	private void modifyLastTransformation(double[] newValues) {
 		AbstractTransformation lastTransformation = (AbstractTransformation)this.operationGraph.getLastAddedOperation();
 		lastTransformation.modify(newValues);
-		this.updateComposition();
+		this.updateComposition(lastTransformation);
 	}
 	
 	public void shapeObjects(TransformationProperties properties, TreeMap<Double,Double> shapingLocations) {
@@ -259,7 +269,7 @@ public class BigBangModel extends Model {
 		}
 		if (edit != null && edit.getShapingPaths().equals(properties.getTransformationPaths())) {
 			edit.addShapingLocations(shapingLocations);
-			this.updateComposition();
+			this.updateComposition(edit);
 		} else {	
 			this.addOperation(new ShapingOperation(this, properties, shapingLocations));
 		}
@@ -323,20 +333,30 @@ public class BigBangModel extends Model {
 		edit.execute();
 		this.postEdit(edit);
 		this.objects.removeOperation(operation);
-		this.updateComposition();
+		this.updateComposition(NO_OPERATIONS);
 		this.firePropertyChange(BigBangController.GRAPH, null, this.operationGraph);
 	}
 	
 	private void postEdit(AbstractUndoableEdit edit) {
 		this.undoManager.postEdit(edit);
-		this.updateComposition();
+		this.updateComposition(NO_OPERATIONS);
 		this.firePropertyChange(BigBangController.UNDO, null, this.undoManager);
 		this.firePropertyChange(BigBangController.GRAPH, null, this.operationGraph);
 		//this.firePropertyChange(BigBangController.SELECT_COMPOSITION_STATE, null, this.transformationGraph.getSelectedCompositionState());
 	}
 	
+	/**
+	 * To be called after the selected operation or the last added operation has been modified.
+	 */
 	public void operationModified() {
-		this.updateComposition();
+		List<AbstractOperation> modifiedOperations = new ArrayList<AbstractOperation>();
+		if (this.operationGraph.getSelectedOperation() != null) {
+			modifiedOperations.add(this.operationGraph.getSelectedOperation());
+		}
+		if (this.operationGraph.getLastAddedOperation() != null) {
+			modifiedOperations.add(this.operationGraph.getLastAddedOperation());
+		}
+		this.updateComposition(modifiedOperations);
 		this.firePropertyChange(BigBangController.GRAPH, null, this.operationGraph);
 	}
 	
@@ -346,7 +366,7 @@ public class BigBangModel extends Model {
 		    List<AbstractOperation> shortestPath = dijkstra.getPath(this.operationGraph.getFirstState(), this.operationGraph.getLastState());
 		    AbstractOperation operation = shortestPath.get(operationIndex);
 		    operation.modify(ratio);
-			this.updateComposition();
+			this.updateComposition(operation);
 			this.firePropertyChange(BigBangController.MODIFY_OPERATION, null, operation);
 		}
 	}
@@ -364,7 +384,7 @@ public class BigBangModel extends Model {
 		CompositionState state = this.operationGraph.getSource(lastAddedOperation);
 		//this.undoneOperations.add(this.transformationGraph.removeLastAddedOperation());
 		this.undoManager.undo();
-		this.updateComposition();
+		this.updateComposition(NO_OPERATIONS);
 		this.firePropertyChange(BigBangController.UNDO, null, this.undoManager);
 		this.firePropertyChange(BigBangController.GRAPH, null, this.operationGraph);
 	}
@@ -372,7 +392,7 @@ public class BigBangModel extends Model {
 	public void redo() {
 		//this.transformationGraph.addOrInsertOperation(this.undoneOperations.remove(this.undoneOperations.size()-1), false);
 		this.undoManager.redo();
-		this.updateComposition();
+		this.updateComposition(NO_OPERATIONS);
 		this.firePropertyChange(BigBangController.REDO, null, this.undoManager);
 		this.firePropertyChange(BigBangController.GRAPH, null, this.operationGraph);
 	}
@@ -401,19 +421,19 @@ public class BigBangModel extends Model {
 	
 	public void selectCompositionStateAt(Integer stateIndex) {
 		this.operationGraph.selectCompositionStateAt(stateIndex);
-		this.updateComposition();
+		this.updateComposition(NO_OPERATIONS);
 		this.firePropertyChange(BigBangController.SELECT_COMPOSITION_STATE, null, this.operationGraph.getSelectedCompositionState());
 	}
 	
 	public void selectCompositionState(CompositionState vertex) {
 		this.operationGraph.selectCompositionState(vertex);
-		this.updateComposition();
+		this.updateComposition(NO_OPERATIONS);
 		this.firePropertyChange(BigBangController.SELECT_COMPOSITION_STATE, null, vertex);
 	}
 	
 	public void deselectCompositionStates() {
 		this.operationGraph.deselectCompositionStates();
-		this.updateComposition();
+		this.updateComposition(NO_OPERATIONS);
 		this.firePropertyChange(BigBangController.DESELECT_COMPOSITION_STATES, null, null);
 	}
 	
@@ -465,7 +485,7 @@ public class BigBangModel extends Model {
 	public void splitOperation() {
 		this.operationGraph.splitSelectedAndParallelOperations(this.animator.getPositionInSeconds());
 		this.animator.setGraph(this.operationGraph);
-		this.updateComposition();
+		this.updateComposition(NO_OPERATIONS);
 		this.firePropertyChange(BigBangController.GRAPH, null, this.operationGraph);
 	}
 	
@@ -473,13 +493,44 @@ public class BigBangModel extends Model {
 		return this.operationGraph;
 	}
 	
-	public synchronized void updateComposition() {
+	/**
+	 * Executes all operations leading to the currently shown state from scratch.
+	 */
+	public void updateComposition() {
+		this.updateComposition((Collection<AbstractOperation>)null);
+	}
+	
+	private void updateComposition(AbstractOperation modifiedOperation) {
+		this.updateComposition(Collections.singleton(modifiedOperation));
+	}
+	
+	/**
+	 * Executes the operations leading to the currently shown state. Execution is resumed at the latest cached
+	 * state that precedes all of the given modified operations and all operations added, inserted or removed
+	 * since the last execution.
+	 * @param modifiedOperations the operations modified since the last execution, null if any operation may
+	 * have been modified
+	 */
+	public synchronized void updateComposition(Collection<AbstractOperation> modifiedOperations) {
+		CompositionChange change = new CompositionChange(this.objects);
 		if (this.operationGraph.getEdgeCount() > 0) {
 			List<AbstractOperation> operationsToBeExecuted = this.operationGraph.getCurrentlyExecutedOperationsInOrder();
-			this.denotators.reset();
+			int firstIndex = this.stateCache.invalidate(operationsToBeExecuted, modifiedOperations);
+			if (firstIndex > 0) {
+				//resume at cached state and update the paths at the operation following it, which may be new
+				PerformanceCheck.startTask("restore");
+				this.denotators.restoreComposition(this.stateCache.getComposition(firstIndex));
+				AbstractOperation nextOperation = null;
+				if (firstIndex < operationsToBeExecuted.size()) {
+					nextOperation = operationsToBeExecuted.get(firstIndex);
+				}
+				this.objects.updatePaths(operationsToBeExecuted.get(firstIndex-1), nextOperation, this.stateCache.getPathResults(firstIndex));
+			} else {
+				this.denotators.reset();
+			}
 			
 			OperationPathResults currentPathResults = null;
-			for (int i = 0; i < operationsToBeExecuted.size(); i++) {
+			for (int i = firstIndex; i < operationsToBeExecuted.size(); i++) {
 				AbstractOperation currentOperation = operationsToBeExecuted.get(i);
 				AbstractOperation nextOperation = null;
 				if (i < operationsToBeExecuted.size()-1) {
@@ -490,6 +541,11 @@ public class BigBangModel extends Model {
 				currentPathResults = currentOperation.execute();
 				PerformanceCheck.startTask("update paths");
 				this.objects.updatePaths(currentOperation, nextOperation, currentPathResults);
+				//states within wallpapers depend on the wallpaper in progress and cannot be restored
+				if (this.stateCache.isCheckpoint(i+1) && !this.denotators.isWallpaperInProgress()) {
+					PerformanceCheck.startTask("snapshot");
+					this.stateCache.put(i+1, this.denotators.getComposition(), currentPathResults);
+				}
 			}
 			//System.out.println("BO "+this.objects.getObjectsAt(null).size());
 			//System.out.println(operationsToBeExecuted + " " + this.objects.getObjects());
@@ -499,21 +555,21 @@ public class BigBangModel extends Model {
 			
 			//TODO reconsider how to select paths. will be taken from bbobjects or saved in visualobjects..
 			PerformanceCheck.startTask("fire");
-			this.fireCompositionChange();
 		} else {
+			this.stateCache.clear();
 			this.objects.clearObjects();
 			this.denotators.reset();
-			this.fireCompositionChange();
 		}
+		change.determineDifferences();
+		this.fireCompositionChange(change);
 	}
 	
 	private void fireObjectSelectionChange(Set<BigBangObject> newSelection) {
 		this.firePropertyChange(BigBangController.OBJECT_SELECTION, null, newSelection);
 	}
 	
-	private void fireCompositionChange() {
-		//TODO REPOLACE BY JUST SENDING ADDED/CHANGED OR REMOVED OBJECTS!!!!
-		this.firePropertyChange(BigBangController.COMPOSITION, null, this.objects);
+	private void fireCompositionChange(CompositionChange change) {
+		this.firePropertyChange(BigBangController.COMPOSITION, null, change);
 	}
 	
 	public BigBangModel clone() {
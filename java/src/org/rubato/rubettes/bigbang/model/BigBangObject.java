@@ -125,6 +125,13 @@ public class BigBangObject implements Comparable<BigBangObject> {
 		this.preliminaryValues = new ArrayList<Double>();
 	}
 	
+	/**
+	 * @return the values of this object at the final state
+	 */
+	public List<Double> getValues() {
+		return this.values;
+	}
+	
 	public void addValues(List<Double> values) {
 		this.preliminaryValues.addAll(values);
 	}
@@ -133,6 +140,10 @@ public class BigBangObject implements Comparable<BigBangObject> {
 		this.structuralIndices = indices;
 	}
 	
+	public List<Integer> getStructuralIndices() {
+		return this.structuralIndices;
+	}
+	
 	public void updatePathAndParent(AbstractOperation operation, DenotatorPath entirePath, BigBangObject parent) {
 		//remove from parent if there was one, then add new parent if not null
 		BigBangObject previousParent = this.getParentAt(operation);
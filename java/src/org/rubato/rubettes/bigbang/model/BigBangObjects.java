@@ -1,6 +1,7 @@
 package org.rubato.rubettes.bigbang.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -32,6 +33,8 @@ public class BigBangObjects {
 	private HashMap<AbstractOperation,Map<DenotatorPath,BigBangObject>> objectsMaps;
 	private BigBangLayers layers;
 	private List<Double> minValues, maxValues;
+	//index of the values of the objects at the final state, built when needed
+	private ObjectValueIndex valueIndex;
 	
 	public BigBangObjects(Form baseForm) {
 		this.baseForm = baseForm;
@@ -63,6 +66,7 @@ public class BigBangObjects {
 		this.objects = new HashMap<AbstractOperation,Set<BigBangObject>>();
 		this.objectsMaps = new HashMap<AbstractOperation,Map<DenotatorPath,BigBangObject>>();
 		this.resetMaxSatelliteLevels();
+		this.valueIndex = null;
 	}
 	
 	public Integer getMaxSatelliteLevel(int objectIndex) {
@@ -103,6 +107,7 @@ public class BigBangObjects {
 		for (BigBangObject currentObject : this.getAllObjects()) {
 			currentObject.updateValues();
 		}
+		this.valueIndex = null;
 	}
 	
 	public Form getBaseForm() {
@@ -158,6 +163,16 @@ public class BigBangObjects {
 		return null;
 	}
 	
+	/**
+	 * @return a map of the objects existing at the final state, with their paths as keys
+	 */
+	public synchronized Map<DenotatorPath,BigBangObject> getObjectMapAtFinalState() {
+		if (this.objectsMaps.containsKey(null)) {
+			return new TreeMap<DenotatorPath,BigBangObject>(this.objectsMaps.get(null));
+		}
+		return new TreeMap<DenotatorPath,BigBangObject>();
+	}
+	
 	//returns the object that has the given path at the given operation, null if there is none
 	private BigBangObject getObject(AbstractOperation operation, DenotatorPath path) {
 		if (path != null && this.objectsMaps.containsKey(operation)) {
@@ -179,6 +194,7 @@ public class BigBangObjects {
 			currentObject.removeOperation(operation);
 		}
 		this.objectsMaps.remove(operation);
+		this.valueIndex = null;
 	}
 	
 	/**
@@ -198,6 +214,7 @@ public class BigBangObjects {
 		}
 		
 		this.addObjects(previousOperation, operation, pathResults);
+		this.valueIndex = null;
 		//System.out.println("END " + this.getObjectsAt(operation).size());
 	}
 	
@@ -339,33 +356,30 @@ public class BigBangObjects {
 	 * examplePowersetPath, or the closest object as such if examplePowersetPath is null.
 	 */
 	public synchronized BigBangObject getClosestObject(int[] coordinateSystemValueIndices, double[] values, DenotatorPath examplePowersetPath) {
-		BigBangObject closestObject = null;
-		double shortestDistance = Double.MAX_VALUE;
-			
-		if (this.objectsMaps.containsKey(null)) {
-			for (BigBangObject currentObject : this.objectsMaps.get(null).values()) {
-				if (examplePowersetPath == null || (currentObject.getTopDenotatorPath().getEndForm().equals(examplePowersetPath.getTopPath().getEndForm())
-						&& currentObject.getTopDenotatorPath().size() == examplePowersetPath.getTopPath().size())) {
-					//calculate Euclidean distance
-					double currentDistance = 0;
-					for (int i = 0; i < values.length; i++) {
-						String valueName = this.coordinateSystemValueNames.get(coordinateSystemValueIndices[i]);
-						int nameIndex = this.getInstanceNumberOfCoordinateValueName(coordinateSystemValueIndices[i]);
-						
-						Double currentValue = currentObject.getNthValue(valueName, nameIndex);
-						if (currentValue != null) {
-							currentDistance += Math.pow(currentValue-values[i], 2);
-						}
-					}
-					currentDistance = Math.sqrt(currentDistance);
-					if (currentDistance < shortestDistance) {
-						shortestDistance = currentDistance;
-						closestObject = currentObject;
-					}
-				}
-			}
+		if (!this.objectsMaps.containsKey(null)) {
+			return null;
+		}
+		//only the given values are compared
+		int[] comparedValueIndices = Arrays.copyOf(coordinateSystemValueIndices, values.length);
+		if (this.valueIndex == null || !this.valueIndex.indexes(comparedValueIndices)) {
+			this.valueIndex = this.createValueIndex(comparedValueIndices);
+		}
+		if (examplePowersetPath != null) {
+			DenotatorPath exampleTopPath = examplePowersetPath.getTopPath();
+			return this.valueIndex.getClosestObject(values, exampleTopPath.getEndForm(), exampleTopPath.size());
+		}
+		return this.valueIndex.getClosestObject(values, null, 0);
+	}
+	
+	private ObjectValueIndex createValueIndex(int[] coordinateSystemValueIndices) {
+		List<String> valueNames = new ArrayList<String>();
+		List<Integer> nameIndices = new ArrayList<Integer>();
+		for (int i = 0; i < coordinateSystemValueIndices.length; i++) {
+			valueNames.add(this.coordinateSystemValueNames.get(coordinateSystemValueIndices[i]));
+			nameIndices.add(this.getInstanceNumberOfCoordinateValueName(coordinateSystemValueIndices[i]));
 		}
-		return closestObject;
+		List<BigBangObject> finalObjects = new ArrayList<BigBangObject>(this.objectsMaps.get(null).values());
+		return new ObjectValueIndex(finalObjects, coordinateSystemValueIndices, valueNames, nameIndices);
 	}
 	
 	public List<Form> getObjectTypes() {
@@ -0,0 +1,205 @@
+package org.rubato.rubettes.bigbang.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.rubato.rubettes.util.DenotatorPath;
+
+/**
+ * Describes how the final state of the BigBangObjects changed during an update of the composition, so that
+ * views and players can update their representations incrementally. Lists the objects that were added,
+ * removed, moved to another path and modified, i.e. whose values or structural indices changed. A complete
+ * change lists all objects of the final state as added and signifies that representations have to be rebuilt.
+ *
+ * All sets are ordered by the paths of the objects at the final state, except for the removed objects, which
+ * are ordered by their previous paths.
+ */
+public class CompositionChange {
+
+	private BigBangObjects objects;
+	private boolean isComplete;
+	private Map<BigBangObject,ObjectState> previousStates;
+	private Set<BigBangObject> addedObjects;
+	private Map<BigBangObject,DenotatorPath> removedObjects;
+	private Map<BigBangObject,DenotatorPath> movedObjects;
+	private Map<BigBangObject,List<Double>> modifiedObjects;
+
+	/**
+	 * Creates a change starting at the current final state of the given objects. Its contents are determined
+	 * by calling determineDifferences() once the objects have been updated.
+	 */
+	public CompositionChange(BigBangObjects objects) {
+		this.objects = objects;
+		this.isComplete = false;
+		this.previousStates = new LinkedHashMap<BigBangObject,ObjectState>();
+		for (Map.Entry<DenotatorPath,BigBangObject> currentEntry : objects.getObjectMapAtFinalState().entrySet()) {
+			this.previousStates.put(currentEntry.getValue(), new ObjectState(currentEntry.getKey(), currentEntry.getValue()));
+		}
+		this.initChanges();
+	}
+
+	private CompositionChange(BigBangObjects objects, boolean isComplete) {
+		this.objects = objects;
+		this.isComplete = isComplete;
+		this.initChanges();
+		this.addedObjects.addAll(objects.getObjectMapAtFinalState().values());
+	}
+
+	/**
+	 * @return a complete change containing all objects of the final state of the given objects
+	 */
+	public static CompositionChange createCompleteChange(BigBangObjects objects) {
+		return new CompositionChange(objects, true);
+	}
+
+	private void initChanges() {
+		this.addedObjects = new LinkedHashSet<BigBangObject>();
+		this.removedObjects = new LinkedHashMap<BigBangObject,DenotatorPath>();
+		this.movedObjects = new LinkedHashMap<BigBangObject,DenotatorPath>();
+		this.modifiedObjects = new LinkedHashMap<BigBangObject,List<Double>>();
+	}
+
+	/**
+	 * Compares the current final state of the objects with the one at the creation of this change.
+	 */
+	public void determineDifferences() {
+		if (this.previousStates == null) {
+			return;
+		}
+		for (Map.Entry<DenotatorPath,BigBangObject> currentEntry : this.objects.getObjectMapAtFinalState().entrySet()) {
+			BigBangObject currentObject = currentEntry.getValue();
+			ObjectState previousState = this.previousStates.remove(currentObject);
+			if (previousState == null) {
+				this.addedObjects.add(currentObject);
+			} else {
+				if (!currentEntry.getKey().equals(previousState.path)) {
+					this.movedObjects.put(currentObject, previousState.path);
+				}
+				if (!this.equal(currentObject.getValues(), previousState.values)
+						|| !this.equal(currentObject.getStructuralIndices(), previousState.structuralIndices)) {
+					this.modifiedObjects.put(currentObject, previousState.values);
+				}
+			}
+		}
+		for (Map.Entry<BigBangObject,ObjectState> currentEntry : this.previousStates.entrySet()) {
+			this.removedObjects.put(currentEntry.getKey(), currentEntry.getValue().path);
+		}
+		this.previousStates = null;
+	}
+
+	private boolean equal(List<?> list1, List<?> list2) {
+		if (list1 == null) {
+			return list2 == null;
+		}
+		return list1 == list2 || list1.equals(list2);
+	}
+
+	public BigBangObjects getObjects() {
+		return this.objects;
+	}
+
+	/**
+	 * @return true if all representations of the objects have to be rebuilt
+	 */
+	public boolean isComplete() {
+		return this.isComplete;
+	}
+
+	/**
+	 * @return true if nothing changed at the final state
+	 */
+	public boolean isEmpty() {
+		return !this.isComplete && this.addedObjects.isEmpty() && this.removedObjects.isEmpty()
+				&& this.movedObjects.isEmpty() && this.modifiedObjects.isEmpty();
+	}
+
+	public Set<BigBangObject> getAddedObjects() {
+		return Collections.unmodifiableSet(this.addedObjects);
+	}
+
+	public Set<BigBangObject> getRemovedObjects() {
+		return Collections.unmodifiableSet(this.removedObjects.keySet());
+	}
+
+	/**
+	 * @return the objects that still exist but have a different path than before
+	 */
+	public Set<BigBangObject> getMovedObjects() {
+		return Collections.unmodifiableSet(this.movedObjects.keySet());
+	}
+
+	/**
+	 * @return the objects that still exist but have different values or structural indices than before
+	 */
+	public Set<BigBangObject> getModifiedObjects() {
+		return Collections.unmodifiableSet(this.modifiedObjects.keySet());
+	}
+
+	/**
+	 * @return the path the given removed or moved object had before the change, null if it is neither
+	 */
+	public DenotatorPath getPreviousPath(BigBangObject object) {
+		if (this.removedObjects.containsKey(object)) {
+			return this.removedObjects.get(object);
+		}
+		return this.movedObjects.get(object);
+	}
+
+	/**
+	 * @return the values the given modified object had before the change, null if it was not modified
+	 */
+	public List<Double> getPreviousValues(BigBangObject object) {
+		return this.modifiedObjects.get(object);
+	}
+
+	/**
+	 * @return the differences between the current and the previous values of the given modified object.
+	 * contains null for values that are missing before or after the change. null if the object was not modified
+	 */
+	public List<Double> getValueDifferences(BigBangObject object) {
+		if (!this.modifiedObjects.containsKey(object)) {
+			return null;
+		}
+		List<Double> previousValues = this.modifiedObjects.get(object);
+		List<Double> currentValues = object.getValues();
+		List<Double> differences = new ArrayList<Double>();
+		for (int i = 0; i < Math.max(previousValues.size(), currentValues.size()); i++) {
+			if (i < previousValues.size() && i < currentValues.size()
+					&& previousValues.get(i) != null && currentValues.get(i) != null) {
+				differences.add(currentValues.get(i)-previousValues.get(i));
+			} else {
+				differences.add(null);
+			}
+		}
+		return differences;
+	}
+
+	public String toString() {
+		if (this.isComplete) {
+			return "complete " + this.addedObjects.size();
+		}
+		return "added " + this.addedObjects.size() + ", removed " + this.removedObjects.size()
+				+ ", moved " + this.movedObjects.size() + ", modified " + this.modifiedObjects.size();
+	}
+
+	//the lists are replaced when objects are updated, so keeping references suffices
+	private static class ObjectState {
+
+		private DenotatorPath path;
+		private List<Double> values;
+		private List<Integer> structuralIndices;
+
+		private ObjectState(DenotatorPath path, BigBangObject object) {
+			this.path = path;
+			this.values = object.getValues();
+			this.structuralIndices = object.getStructuralIndices();
+		}
+
+	}
+
+}
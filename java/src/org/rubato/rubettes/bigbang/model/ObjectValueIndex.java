@@ -0,0 +1,275 @@
+package org.rubato.rubettes.bigbang.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.rubato.math.yoneda.Form;
+
+/**
+ * A spatial index over the values of BigBangObjects at some coordinate system values, used to find the object
+ * closest to a given point. For each combination of object form and path size the objects are queried by, a
+ * balanced k-d tree is built the first time it is needed. Objects missing some of the values are not part of
+ * the trees and are compared one by one, as the missing values do not contribute to their distances.
+ *
+ * The results are the same as the ones of a linear scan over the objects in the given order, i.e. of objects
+ * at equal distances the first one is returned. The index has to be rebuilt whenever the values or paths of
+ * the objects change.
+ */
+public class ObjectValueIndex {
+
+	private List<BigBangObject> objects;
+	private int[] coordinateSystemValueIndices;
+	private List<String> valueNames;
+	private List<Integer> nameIndices;
+	private Map<FilterKey,Tree> trees;
+
+	/**
+	 * @param objects the objects in the order in which they are preferred at equal distances
+	 * @param coordinateSystemValueIndices the indices of the indexed values in the coordinate system
+	 * @param valueNames the names of the indexed values
+	 * @param nameIndices the instance numbers of the names of the indexed values
+	 */
+	public ObjectValueIndex(List<BigBangObject> objects, int[] coordinateSystemValueIndices, List<String> valueNames, List<Integer> nameIndices) {
+		this.objects = objects;
+		this.coordinateSystemValueIndices = coordinateSystemValueIndices.clone();
+		this.valueNames = valueNames;
+		this.nameIndices = nameIndices;
+		this.trees = new HashMap<FilterKey,Tree>();
+	}
+
+	/**
+	 * @return true if this index contains the values at the given coordinate system value indices
+	 */
+	public boolean indexes(int[] coordinateSystemValueIndices) {
+		return Arrays.equals(this.coordinateSystemValueIndices, coordinateSystemValueIndices);
+	}
+
+	/**
+	 * @return the object closest to the given values among the ones with the given end form and path size, or
+	 * among all objects if endForm is null. null if there is no such object
+	 */
+	public synchronized BigBangObject getClosestObject(double[] values, Form endForm, int pathSize) {
+		FilterKey key = new FilterKey(endForm, pathSize);
+		Tree tree = this.trees.get(key);
+		if (tree == null) {
+			tree = this.createTree(endForm, pathSize);
+			this.trees.put(key, tree);
+		}
+		return tree.getClosestObject(values);
+	}
+
+	private Tree createTree(Form endForm, int pathSize) {
+		List<BigBangObject> objects = new ArrayList<BigBangObject>();
+		List<Double[]> values = new ArrayList<Double[]>();
+		for (BigBangObject currentObject : this.objects) {
+			if (endForm == null || (currentObject.getTopDenotatorPath().getEndForm().equals(endForm)
+					&& currentObject.getTopDenotatorPath().size() == pathSize)) {
+				Double[] currentValues = new Double[this.valueNames.size()];
+				for (int i = 0; i < currentValues.length; i++) {
+					currentValues[i] = currentObject.getNthValue(this.valueNames.get(i), this.nameIndices.get(i));
+				}
+				objects.add(currentObject);
+				values.add(currentValues);
+			}
+		}
+		return new Tree(objects, values, this.valueNames.size());
+	}
+
+	private static class FilterKey {
+
+		private Form endForm;
+		private int pathSize;
+
+		private FilterKey(Form endForm, int pathSize) {
+			this.endForm = endForm;
+			this.pathSize = endForm != null ? pathSize : 0;
+		}
+
+		public boolean equals(Object object) {
+			if (!(object instanceof FilterKey)) {
+				return false;
+			}
+			FilterKey other = (FilterKey)object;
+			return (this.endForm == null ? other.endForm == null : this.endForm.equals(other.endForm))
+					&& this.pathSize == other.pathSize;
+		}
+
+		public int hashCode() {
+			return 37*(this.endForm != null ? this.endForm.hashCode() : 0) + this.pathSize;
+		}
+
+	}
+
+	/*
+	 * A k-d tree stored implicitly in arrays. The subtree of the range [from,to) has its root at the middle of
+	 * the range and is split at the dimension given by its depth.
+	 */
+	private static class Tree {
+
+		private int dimension;
+		private BigBangObject[] objects;
+		private double[][] points;
+		private int[] ranks;
+		//objects with missing or undefined values, in order
+		private List<BigBangObject> incompleteObjects;
+		private List<Double[]> incompleteValues;
+		private List<Integer> incompleteRanks;
+
+		//state of the current query
+		private double[] queryValues;
+		private int closestIndex;
+		private double shortestDistance;
+		private int closestRank;
+
+		private Tree(List<BigBangObject> objects, List<Double[]> values, int dimension) {
+			this.dimension = dimension;
+			this.incompleteObjects = new ArrayList<BigBangObject>();
+			this.incompleteValues = new ArrayList<Double[]>();
+			this.incompleteRanks = new ArrayList<Integer>();
+			List<Integer> completeIndices = new ArrayList<Integer>();
+			for (int i = 0; i < objects.size(); i++) {
+				if (dimension > 0 && this.isComplete(values.get(i))) {
+					completeIndices.add(i);
+				} else {
+					this.incompleteObjects.add(objects.get(i));
+					this.incompleteValues.add(values.get(i));
+					this.incompleteRanks.add(i);
+				}
+			}
+			int size = completeIndices.size();
+			this.objects = new BigBangObject[size];
+			this.points = new double[size][dimension];
+			this.ranks = new int[size];
+			for (int i = 0; i < size; i++) {
+				int currentIndex = completeIndices.get(i);
+				this.objects[i] = objects.get(currentIndex);
+				for (int j = 0; j < dimension; j++) {
+					this.points[i][j] = values.get(currentIndex)[j];
+				}
+				this.ranks[i] = currentIndex;
+			}
+			this.build(0, size, 0);
+		}
+
+		private boolean isComplete(Double[] values) {
+			for (Double currentValue : values) {
+				if (currentValue == null || currentValue.isNaN()) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private void build(int from, int to, int depth) {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				this.select(from, to-1, middle, depth % this.dimension);
+				this.build(from, middle, depth+1);
+				this.build(middle+1, to, depth+1);
+			}
+		}
+
+		//moves the element that belongs at index k in the order of the given axis there (quickselect)
+		private void select(int left, int right, int k, int axis) {
+			while (right > left) {
+				double pivot = this.points[(left + right) >>> 1][axis];
+				int i = left, j = right;
+				while (i <= j) {
+					while (this.points[i][axis] < pivot) i++;
+					while (this.points[j][axis] > pivot) j--;
+					if (i <= j) {
+						this.swap(i, j);
+						i++;
+						j--;
+					}
+				}
+				if (k <= j) {
+					right = j;
+				} else if (k >= i) {
+					left = i;
+				} else {
+					return;
+				}
+			}
+		}
+
+		private void swap(int i, int j) {
+			BigBangObject object = this.objects[i];
+			this.objects[i] = this.objects[j];
+			this.objects[j] = object;
+			double[] point = this.points[i];
+			this.points[i] = this.points[j];
+			this.points[j] = point;
+			int rank = this.ranks[i];
+			this.ranks[i] = this.ranks[j];
+			this.ranks[j] = rank;
+		}
+
+		private BigBangObject getClosestObject(double[] values) {
+			this.queryValues = values;
+			this.closestIndex = -1;
+			this.shortestDistance = Double.MAX_VALUE;
+			this.closestRank = Integer.MAX_VALUE;
+			this.search(0, this.objects.length, 0);
+			BigBangObject closestObject = this.closestIndex >= 0 ? this.objects[this.closestIndex] : null;
+			for (int i = 0; i < this.incompleteObjects.size(); i++) {
+				double currentDistance = 0;
+				Double[] currentValues = this.incompleteValues.get(i);
+				for (int j = 0; j < values.length; j++) {
+					if (currentValues[j] != null) {
+						currentDistance += Math.pow(currentValues[j]-values[j], 2);
+					}
+				}
+				currentDistance = Math.sqrt(currentDistance);
+				int currentRank = this.incompleteRanks.get(i);
+				if (this.isCloser(currentDistance, currentRank)) {
+					this.shortestDistance = currentDistance;
+					this.closestRank = currentRank;
+					closestObject = this.incompleteObjects.get(i);
+				}
+			}
+			return closestObject;
+		}
+
+		private void search(int from, int to, int depth) {
+			if (from >= to) {
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			double[] point = this.points[middle];
+			double currentDistance = 0;
+			for (int i = 0; i < this.dimension; i++) {
+				currentDistance += Math.pow(point[i]-this.queryValues[i], 2);
+			}
+			currentDistance = Math.sqrt(currentDistance);
+			if (this.isCloser(currentDistance, this.ranks[middle])) {
+				this.closestIndex = middle;
+				this.shortestDistance = currentDistance;
+				this.closestRank = this.ranks[middle];
+			}
+			int axis = depth % this.dimension;
+			double difference = this.queryValues[axis] - point[axis];
+			if (difference < 0) {
+				this.search(from, middle, depth+1);
+				if (Math.abs(difference) <= this.shortestDistance) {
+					this.search(middle+1, to, depth+1);
+				}
+			} else {
+				this.search(middle+1, to, depth+1);
+				if (Math.abs(difference) <= this.shortestDistance) {
+					this.search(from, middle, depth+1);
+				}
+			}
+		}
+
+		//objects at equal distances are preferred in the order they were given
+		private boolean isCloser(double distance, int rank) {
+			return distance < this.shortestDistance || (distance == this.shortestDistance && rank < this.closestRank);
+		}
+
+	}
+
+}
@@ -11,9 +11,11 @@ import java.util.TreeSet;
 
 import org.rubato.base.Repository;
 import org.rubato.base.RubatoException;
+import org.rubato.math.yoneda.ColimitDenotator;
 import org.rubato.math.yoneda.Denotator;
 import org.rubato.math.yoneda.FactorDenotator;
 import org.rubato.math.yoneda.Form;
+import org.rubato.math.yoneda.LimitDenotator;
 import org.rubato.math.yoneda.ListDenotator;
 import org.rubato.math.yoneda.PowerDenotator;
 import org.rubato.rubettes.bigbang.BigBangRubette;
@@ -75,6 +77,23 @@ public class BigBangDenotatorManager {
 		this.setComposition(this.objectGenerator.createEmptyScore());
 	}
 	
+	/**
+	 * Replaces the composition with the given one without tracking any paths and discards the current wallpaper.
+	 * Used to resume the execution of operations at a previously reached state.
+	 */
+	public void restoreComposition(Denotator composition) {
+		this.composition = composition;
+		this.currentWallpaper = null;
+		this.resetCurrentPaths();
+	}
+	
+	/**
+	 * @return true if a wallpaper has been started and not yet ended
+	 */
+	public boolean isWallpaperInProgress() {
+		return this.currentWallpaper != null;
+	}
+	
 	private void resetCurrentPaths() {
 		this.currentPathResults = new OperationPathResults();
 	}
@@ -156,7 +175,7 @@ public class BigBangDenotatorManager {
 			//add transformation
 			this.currentWallpaper.addTransformationToLastDimension(transformation);
 			//reset composition
-			this.composition = this.currentWallpaper.getCompositionBeforeWallpaper().copy();
+			this.composition = this.currentWallpaper.getCompositionBeforeWallpaper();
 			//returns pathresults of last transformation of wallpaper
 			PerformanceCheck.startTask("update wallpaper");
 			return this.currentWallpaper.update();
@@ -511,7 +530,12 @@ public class BigBangDenotatorManager {
 		int previousFactorCount = powerset.getFactorCount();
 		object = this.objectGenerator.convertDenotatorIfNecessary(object, ((Denotator)powerset).getForm().getForms().get(0));
 		try {
-			powerset.appendFactor(object);
+			if (powerset instanceof PowerDenotator) {
+				powerset = ((PowerDenotator)powerset).withFactor(object);
+			} else {
+				powerset = ((ListDenotator)powerset).withFactor(object);
+			}
+			this.replaceInComposition(powersetPath, (Denotator)powerset);
 		} catch (RubatoException e) { e.printStackTrace(); }
 		if (powerset.getFactorCount() > previousFactorCount) {
 			return object;
@@ -520,6 +544,36 @@ public class BigBangDenotatorManager {
 		return null;
 	}
 	
+	/*
+	 * replaces the denotator at the given path in the composition. the composition is never changed, instead
+	 * the denotators on the path are copied and all others shared, so that previous compositions remain valid
+	 * and need not be copied
+	 */
+	private void replaceInComposition(DenotatorPath path, Denotator newDenotator) throws RubatoException {
+		this.composition = this.replace(this.composition, path.toIntArray(), 0, newDenotator);
+	}
+	
+	private Denotator replace(Denotator denotator, int[] path, int curpos, Denotator newDenotator) throws RubatoException {
+		if (curpos == path.length) {
+			return newDenotator;
+		}
+		int index = path[curpos];
+		if (denotator instanceof PowerDenotator) {
+			PowerDenotator powerset = (PowerDenotator)denotator;
+			return powerset.withFactor(index, this.replace(powerset.getFactor(index), path, curpos+1, newDenotator));
+		} else if (denotator instanceof ListDenotator) {
+			ListDenotator list = (ListDenotator)denotator;
+			return list.withFactor(index, this.replace(list.getFactor(index), path, curpos+1, newDenotator));
+		} else if (denotator instanceof LimitDenotator) {
+			LimitDenotator limit = (LimitDenotator)denotator;
+			return limit.withFactor(index, this.replace(limit.getFactor(index), path, curpos+1, newDenotator));
+		} else if (denotator instanceof ColimitDenotator && ((ColimitDenotator)denotator).getIndex() == index) {
+			ColimitDenotator colimit = (ColimitDenotator)denotator;
+			return colimit.withFactor(index, this.replace(colimit.getFactor(), path, curpos+1, newDenotator));
+		}
+		throw new RubatoException("BigBangDenotatorManager.replace: Path %1 leads through %2", path, denotator);
+	}
+	
 	/*
 	 * finds the path along the given objects, which are all satellites of each other
 	 */
@@ -608,9 +662,13 @@ public class BigBangDenotatorManager {
 				FactorDenotator powersetOrList = (FactorDenotator)this.composition.get(powersetPath.toIntArray());
 				if (objectIndex < powersetOrList.getFactorCount()) {
 					if (powersetOrList instanceof PowerDenotator) {
-						return ((PowerDenotator)powersetOrList).removeFactor(objectIndex);
+						Denotator removedObject = powersetOrList.getFactor(objectIndex);
+						this.replaceInComposition(powersetPath, ((PowerDenotator)powersetOrList).withoutFactor(objectIndex));
+						return removedObject;
 					} else if (powersetOrList instanceof ListDenotator) {
-						return ((ListDenotator)powersetOrList).removeFactor(objectIndex);
+						Denotator removedObject = powersetOrList.getFactor(objectIndex);
+						this.replaceInComposition(powersetPath, ((ListDenotator)powersetOrList).withoutFactor(objectIndex));
+						return removedObject;
 					}
 				}
 			}
@@ -664,7 +722,7 @@ public class BigBangDenotatorManager {
 	}
 	
 	/**
-	 * does not clone current wallpaper or alteration 
+	 * does not clone current wallpaper or alteration. the composition is shared, since it is never changed
 	 */
 	public BigBangDenotatorManager clone() {
 		return new BigBangDenotatorManager(this.composition);
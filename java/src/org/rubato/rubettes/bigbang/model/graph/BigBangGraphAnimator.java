@@ -1,5 +1,6 @@
 package org.rubato.rubettes.bigbang.model.graph;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.rubato.rubettes.bigbang.controller.BigBangController;
@@ -63,7 +64,9 @@ public class BigBangGraphAnimator extends Thread {
 	}
 	
 	private void updateAnimationToPosition() {
+		List<AbstractOperation> modifiedEdits = new ArrayList<AbstractOperation>();
 		for (AbstractOperation currentEdit : this.animatedEdits) {
+			double previousRatio = currentEdit.getModificationRatio();
 			double startingTime = this.graph.getOperationStartingTime(currentEdit);
 			if (startingTime < this.currentPosition) {
 				//all edits after to 1
@@ -79,9 +82,13 @@ public class BigBangGraphAnimator extends Thread {
 			} else {
 				currentEdit.modify(0);
 			}
+			if (currentEdit.getModificationRatio() != previousRatio) {
+				modifiedEdits.add(currentEdit);
+			}
 		}
 		this.model.firePropertyChange(BigBangController.GRAPH_ANIMATION_POSITION, null, this.getPositionInPercent());
-		this.model.updateComposition();
+		//only the edits that changed need to be executed again
+		this.model.updateComposition(modifiedEdits);
 	}
 	
 	private void animate() throws InterruptedException {
@@ -0,0 +1,135 @@
+package org.rubato.rubettes.bigbang.model.graph;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.rubato.math.yoneda.Denotator;
+import org.rubato.rubettes.bigbang.model.OperationPathResults;
+import org.rubato.rubettes.bigbang.model.operations.AbstractOperation;
+
+/**
+ * Keeps snapshots of the composition and the path results at some of the states reached while executing the
+ * operations of a BigBangOperationGraph, so that execution can be resumed at the latest state that is not
+ * affected by a change instead of starting from scratch. A snapshot is identified by the number of operations
+ * executed before it was taken and is valid as long as these operations are the same and unmodified.
+ *
+ * Snapshots are taken every checkpointInterval operations and before the last operation, which is the one
+ * usually modified interactively. At most maxSnapshots are kept, the least recently used ones are evicted first.
+ */
+public class CompositionStateCache {
+
+	public static final int DEFAULT_CHECKPOINT_INTERVAL = 8;
+	public static final int DEFAULT_MAX_SNAPSHOTS = 16;
+
+	private int checkpointInterval;
+	private List<AbstractOperation> executedOperations;
+	private LinkedHashMap<Integer,Snapshot> snapshots;
+
+	public CompositionStateCache() {
+		this(DEFAULT_CHECKPOINT_INTERVAL, DEFAULT_MAX_SNAPSHOTS);
+	}
+
+	public CompositionStateCache(int checkpointInterval, final int maxSnapshots) {
+		this.checkpointInterval = checkpointInterval;
+		this.executedOperations = new ArrayList<AbstractOperation>();
+		this.snapshots = new LinkedHashMap<Integer,Snapshot>(maxSnapshots, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer,Snapshot> eldest) {
+				return this.size() > maxSnapshots;
+			}
+		};
+	}
+
+	/**
+	 * Discards all snapshots that are invalid for the execution of the given operations, which are either not
+	 * preceded by the operations executed before or by one of the given modified operations.
+	 * @param operations the operations to be executed, in order
+	 * @param modifiedOperations the operations modified since the last execution, null if all of them may have
+	 * been modified
+	 * @return the number of operations preceding the latest valid snapshot, 0 if there is none
+	 */
+	public int invalidate(List<AbstractOperation> operations, Collection<AbstractOperation> modifiedOperations) {
+		int validLength = 0;
+		if (modifiedOperations != null) {
+			int maxLength = Math.min(operations.size(), this.executedOperations.size());
+			while (validLength < maxLength && operations.get(validLength) == this.executedOperations.get(validLength)
+					&& !modifiedOperations.contains(operations.get(validLength))) {
+				validLength++;
+			}
+		}
+		int latestSnapshot = 0;
+		Iterator<Integer> lengths = this.snapshots.keySet().iterator();
+		while (lengths.hasNext()) {
+			int currentLength = lengths.next();
+			if (currentLength > validLength) {
+				lengths.remove();
+			} else {
+				latestSnapshot = Math.max(latestSnapshot, currentLength);
+			}
+		}
+		this.executedOperations = new ArrayList<AbstractOperation>(operations);
+		return latestSnapshot;
+	}
+
+	/**
+	 * @return the composition at the snapshot preceded by the given number of operations
+	 */
+	public Denotator getComposition(int numberOfOperations) {
+		return this.snapshots.get(numberOfOperations).composition;
+	}
+
+	/**
+	 * @return the path results of the last operation before the snapshot preceded by the given number of
+	 * operations
+	 */
+	public OperationPathResults getPathResults(int numberOfOperations) {
+		return this.snapshots.get(numberOfOperations).pathResults;
+	}
+
+	/**
+	 * @return true if a snapshot should be taken after the given number of operations
+	 */
+	public boolean isCheckpoint(int numberOfOperations) {
+		if (this.snapshots.containsKey(numberOfOperations)) {
+			return false;
+		}
+		return numberOfOperations % this.checkpointInterval == 0
+				|| numberOfOperations == this.executedOperations.size()-1;
+	}
+
+	/**
+	 * Keeps the given composition as the snapshot preceded by the given number of operations. The composition is
+	 * not copied, since the BigBangDenotatorManager never changes a composition but replaces it with one that
+	 * shares all unchanged parts.
+	 */
+	public void put(int numberOfOperations, Denotator composition, OperationPathResults pathResults) {
+		this.snapshots.put(numberOfOperations, new Snapshot(composition, pathResults));
+	}
+
+	public int size() {
+		return this.snapshots.size();
+	}
+
+	public void clear() {
+		this.snapshots.clear();
+		this.executedOperations.clear();
+	}
+
+	private static class Snapshot {
+
+		private Denotator composition;
+		private OperationPathResults pathResults;
+
+		private Snapshot(Denotator composition, OperationPathResults pathResults) {
+			this.composition = composition;
+			this.pathResults = pathResults;
+		}
+
+	}
+
+}
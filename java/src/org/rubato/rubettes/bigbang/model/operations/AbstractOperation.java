@@ -66,6 +66,10 @@ public abstract class AbstractOperation {
 		return objectPaths;
 	}
 	
+	public double getModificationRatio() {
+		return this.modificationRatio;
+	}
+	
 	public String getPresentationName() {
 		return  this.getSpecificPresentationName() + (this.isAnimatable ? " (" + Double.toString(this.duration) + ")" : "");
 	}
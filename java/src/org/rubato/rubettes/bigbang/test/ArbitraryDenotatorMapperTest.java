@@ -97,4 +97,29 @@ public class ArbitraryDenotatorMapperTest  extends TestCase {
 		this.objects.assertEqualPowerDenotators((PowerDenotator)expectedGeneralScore, (PowerDenotator)mappedGeneralScore);
 	}
 
+	public void testMappingOfElementPaths() throws RubatoException {
+		//create paths to map the first two rationals of each triple
+		TransformationPaths paths = this.objects.createStandardTransformationPaths(
+				this.objects.RATIONAL_TRIPLE_FORM, new int[][]{{0},{1}});
+		ArbitraryDenotatorMapper mapper = new ArbitraryDenotatorMapper(this.translation, paths);
+		
+		//all triples have the same shape and are mapped using the same plan
+		PowerDenotator triples = this.objects.createRationalTriples(new double[][]{{1,2,3},{0.5,4,-1},{2,2,2}});
+		Denotator mappedTriples = mapper.getMappedPowerDenotator(triples);
+		PowerDenotator expectedTriples = this.objects.createRationalTriples(new double[][]{{0,0,3},{-0.5,2,-1},{1,0,2}});
+		this.objects.assertEqualPowerDenotators(expectedTriples, (PowerDenotator)mappedTriples);
+	}
+	
+	public void testMappingWithNonAffineMorphism() throws RubatoException {
+		//create paths to map onset x pitch -> onset x pitch with a morphism that is not affine over R
+		TransformationPaths paths = this.objects.createStandardTransformationPaths(
+				this.objects.SOUND_NODE_FORM, new int[][]{{0,0},{0,1}});
+		ModuleMorphism identity = ModuleMorphism.getIdentityMorphism(this.translation.getDomain());
+		ArbitraryDenotatorMapper mapper = new ArbitraryDenotatorMapper(this.translation.sum(identity), paths);
+		
+		PowerDenotator mappedScore = mapper.getMappedPowerDenotator(this.objects.multiLevelSoundScore);
+		LimitDenotator expectedNode = this.objects.createMultilevelNode(new double[][]{{-1,118,120,1,0},{1,3,-4,0,0},{1,-3,5,0,1}});
+		this.objects.assertEqualNonPowerDenotators(expectedNode, mappedScore.getFactor(0));
+	}
+	
 }
@@ -286,6 +286,33 @@ public class BigBangDenotatorManagerTest extends TestCase {
 		this.objects.assertEqualNonPowerDenotators(expectedNote, this.denotatorManager.getComposition().get(new int[]{0,0,5,0,5,0}));
 	}
 	
+	public void testCompositionsAreNotChanged() throws RubatoException {
+		this.denotatorManager.setOrAddComposition(this.objects.flatSoundScore);
+		List<Denotator> compositions = new ArrayList<Denotator>();
+		List<Denotator> expectedCompositions = new ArrayList<Denotator>();
+		compositions.add(this.denotatorManager.getComposition());
+		expectedCompositions.add(this.denotatorManager.getComposition().copy());
+		//building a satellite only copies the denotators on the changed paths
+		Set<DenotatorPath> paths = new TreeSet<DenotatorPath>();
+		paths.add(new DenotatorPath(this.objects.SOUND_SCORE_FORM, new int[]{1}));
+		this.denotatorManager.buildSatelliteObjects(paths, new DenotatorPath(this.objects.SOUND_SCORE_FORM, new int[]{0}), 0);
+		TestCase.assertSame(compositions.get(0).get(new int[]{0,0}), this.denotatorManager.getComposition().get(new int[]{0,0}));
+		compositions.add(this.denotatorManager.getComposition());
+		expectedCompositions.add(this.denotatorManager.getComposition().copy());
+		//clones share the composition
+		BigBangDenotatorManager clone = this.denotatorManager.clone();
+		TestCase.assertSame(this.denotatorManager.getComposition(), clone.getComposition());
+		List<DenotatorPath> removedPaths = new ArrayList<DenotatorPath>();
+		removedPaths.add(new DenotatorPath(this.objects.SOUND_SCORE_FORM, new int[]{0,1,0}));
+		this.denotatorManager.removeObjects(removedPaths);
+		this.denotatorManager.addObjects(new DenotatorPath(this.objects.SOUND_SCORE_FORM, new int[]{}), this.generateNodeValueMapList(this.objects.NOTE2_ABSOLUTE_VALUES));
+		TestCase.assertEquals(2, ((PowerDenotator)this.denotatorManager.getComposition()).getFactorCount());
+		TestCase.assertSame(compositions.get(1), clone.getComposition());
+		for (int i = 0; i < compositions.size(); i++) {
+			TestCase.assertEquals(expectedCompositions.get(i), compositions.get(i));
+		}
+	}
+	
 	public void testBuildSatellites() throws RubatoException {
 		this.denotatorManager.setOrAddComposition(this.objects.flatSoundScore);
 		Set<DenotatorPath> paths = new TreeSet<DenotatorPath>();
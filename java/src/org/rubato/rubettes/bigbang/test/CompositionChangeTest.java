@@ -0,0 +1,124 @@
+package org.rubato.rubettes.bigbang.test;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import junit.framework.TestCase;
+
+import org.rubato.rubettes.bigbang.controller.BigBangController;
+import org.rubato.rubettes.bigbang.model.BigBangModel;
+import org.rubato.rubettes.bigbang.model.BigBangObject;
+import org.rubato.rubettes.bigbang.model.CompositionChange;
+import org.rubato.rubettes.bigbang.model.denotators.TransformationPaths;
+import org.rubato.rubettes.bigbang.model.denotators.TransformationProperties;
+import org.rubato.rubettes.bigbang.view.player.JSynObject;
+import org.rubato.rubettes.bigbang.view.player.JSynScore;
+import org.rubato.rubettes.bigbang.view.subview.DisplayObjects;
+
+public class CompositionChangeTest extends TestCase {
+
+	private BigBangModel model;
+	private TestObjects objects;
+	private TransformationPaths nodePaths;
+	private CompositionChange lastChange;
+	private DisplayObjects displayObjects;
+	private JSynScore score;
+
+	protected void setUp() {
+		this.objects = new TestObjects();
+		this.model = new BigBangModel();
+		this.nodePaths = this.objects.createStandardTransformationPaths(
+				this.objects.SOUND_NODE_FORM, new int[][]{{0,0},{0,1}});
+		this.model.addPropertyChangeListener(new PropertyChangeListener() {
+			public void propertyChange(PropertyChangeEvent event) {
+				if (event.getPropertyName().equals(BigBangController.COMPOSITION)) {
+					lastChange = (CompositionChange)event.getNewValue();
+				}
+			}
+		});
+		this.model.setOrAddComposition(this.objects.flatSoundScore);
+		this.displayObjects = new DisplayObjects(this.model.getObjects());
+		this.displayObjects.applyChange(CompositionChange.createCompleteChange(this.model.getObjects()));
+		this.score = new JSynScore(null, this.model.getObjects().getBaseForm(), true);
+		this.score.applyChange(CompositionChange.createCompleteChange(this.model.getObjects()));
+	}
+
+	public void testTranslation() {
+		List<BigBangObject> previousObjects = new ArrayList<BigBangObject>(this.model.getObjects().getObjectsAt(null));
+		//moves the first object between the other two and the second one to the end
+		this.translate(2, 0);
+		this.applyLastChange();
+		TestCase.assertTrue(this.lastChange.getAddedObjects().isEmpty());
+		TestCase.assertTrue(this.lastChange.getRemovedObjects().isEmpty());
+		//the sibling number of the third object changes
+		TestCase.assertEquals(new TreeSet<BigBangObject>(previousObjects), new TreeSet<BigBangObject>(this.lastChange.getModifiedObjects()));
+		TestCase.assertEquals(new TreeSet<BigBangObject>(previousObjects.subList(1, 3)), new TreeSet<BigBangObject>(this.lastChange.getMovedObjects()));
+		BigBangObject firstObject = previousObjects.get(0);
+		TestCase.assertEquals(2.0, this.lastChange.getValueDifferences(firstObject).get(0));
+		TestCase.assertEquals(0.0, this.lastChange.getValueDifferences(firstObject).get(1));
+		TestCase.assertEquals(0.0, this.lastChange.getPreviousValues(firstObject).get(0));
+		TestCase.assertEquals(0.0, this.lastChange.getValueDifferences(previousObjects.get(2)).get(0));
+		TestCase.assertEquals(previousObjects.get(2).getTopDenotatorPath(), this.lastChange.getPreviousPath(previousObjects.get(1)));
+		this.checkRepresentations();
+	}
+
+	public void testDeletionAndUndo() {
+		this.translate(1, 1);
+		this.applyLastChange();
+		this.model.deleteObjects(this.getBBObjectsFromModel(0, 2));
+		this.applyLastChange();
+		TestCase.assertEquals(2, this.lastChange.getRemovedObjects().size());
+		TestCase.assertTrue(this.lastChange.getAddedObjects().isEmpty());
+		TestCase.assertEquals(1, this.displayObjects.size());
+		this.checkRepresentations();
+		this.model.undo();
+		this.applyLastChange();
+		TestCase.assertEquals(2, this.lastChange.getAddedObjects().size());
+		TestCase.assertTrue(this.lastChange.getRemovedObjects().isEmpty());
+		TestCase.assertEquals(3, this.displayObjects.size());
+		this.checkRepresentations();
+	}
+
+	public void testUnchangedComposition() {
+		this.model.updateComposition();
+		TestCase.assertTrue(this.lastChange.isEmpty());
+		TestCase.assertFalse(this.score.applyChange(this.lastChange));
+		TestCase.assertTrue(this.displayObjects.applyChange(this.lastChange).isEmpty());
+	}
+
+	private void applyLastChange() {
+		this.displayObjects.applyChange(this.lastChange);
+		this.score.applyChange(this.lastChange);
+	}
+
+	//compares the incrementally updated representations with ones created from scratch
+	private void checkRepresentations() {
+		Set<BigBangObject> finalObjects = this.model.getObjects().getObjectsAt(null);
+		TestCase.assertEquals(finalObjects.size(), this.displayObjects.size());
+		List<BigBangObject> scoreObjects = new ArrayList<BigBangObject>();
+		for (JSynObject currentObject : this.score.getObjects()) {
+			scoreObjects.add(currentObject.getBigBangObject());
+		}
+		TestCase.assertEquals(new ArrayList<BigBangObject>(finalObjects), scoreObjects);
+	}
+
+	//translates the first two objects
+	private void translate(int onsetDiff, int pitchDiff) {
+		Set<BigBangObject> objects = this.getBBObjectsFromModel(0, 2);
+		TransformationProperties properties = new TransformationProperties(objects, null, Arrays.asList(this.nodePaths), false, true);
+		properties.setCenter(new double[]{0,0});
+		properties.setEndPoint(new double[]{onsetDiff, pitchDiff});
+		this.model.translateObjects(properties);
+	}
+
+	private TreeSet<BigBangObject> getBBObjectsFromModel(int fromIndex, int toIndex) {
+		List<BigBangObject> objectList = new ArrayList<BigBangObject>(this.model.getObjects().getAllObjects());
+		return new TreeSet<BigBangObject>(objectList.subList(fromIndex, toIndex));
+	}
+
+}
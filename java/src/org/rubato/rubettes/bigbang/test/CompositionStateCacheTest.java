@@ -0,0 +1,119 @@
+package org.rubato.rubettes.bigbang.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import junit.framework.TestCase;
+
+import org.rubato.math.yoneda.Denotator;
+import org.rubato.rubettes.bigbang.model.BigBangModel;
+import org.rubato.rubettes.bigbang.model.BigBangObject;
+import org.rubato.rubettes.bigbang.model.denotators.TransformationPaths;
+import org.rubato.rubettes.bigbang.model.denotators.TransformationProperties;
+import org.rubato.rubettes.bigbang.model.graph.CompositionStateCache;
+import org.rubato.rubettes.bigbang.model.operations.AbstractOperation;
+
+public class CompositionStateCacheTest extends TestCase {
+
+	private BigBangModel model;
+	private TestObjects objects;
+	private TransformationPaths nodePaths;
+
+	protected void setUp() {
+		this.objects = new TestObjects();
+		this.model = new BigBangModel();
+		this.nodePaths = this.objects.createStandardTransformationPaths(
+				this.objects.SOUND_NODE_FORM, new int[][]{{0,0},{0,1}});
+		this.model.setOrAddComposition(this.objects.flatSoundScore);
+	}
+
+	public void testModifyLastOperation() {
+		for (int i = 0; i < 20; i++) {
+			this.translate(1, 1, true);
+		}
+		this.checkResult(new double[][]{{20,80,120,1,0},{21,83,116,1,0},{2,60,121,1,1}});
+		//dragging only reexecutes the last translation
+		this.translate(2, -1, false);
+		this.translate(-1, 3, false);
+		this.checkResult(new double[][]{{18,82,120,1,0},{19,85,116,1,0},{2,60,121,1,1}});
+	}
+
+	public void testModifyEarlierOperation() {
+		for (int i = 0; i < 20; i++) {
+			this.translate(1, 1, true);
+		}
+		this.model.modifyOperation(3, 0.0);
+		this.checkResult(new double[][]{{19,79,120,1,0},{20,82,116,1,0},{2,60,121,1,1}});
+		this.model.modifyOperation(15, 2.0);
+		this.checkResult(new double[][]{{20,80,120,1,0},{21,83,116,1,0},{2,60,121,1,1}});
+	}
+
+	public void testInsertAndUndo() {
+		for (int i = 0; i < 12; i++) {
+			this.translate(1, 1, true);
+		}
+		this.model.setInsertionState(5);
+		this.translate(10, 0, true);
+		this.model.setInsertionState(null);
+		this.checkResult(new double[][]{{22,72,120,1,0},{23,75,116,1,0},{2,60,121,1,1}});
+		this.model.undo();
+		this.checkResult(new double[][]{{12,72,120,1,0},{13,75,116,1,0},{2,60,121,1,1}});
+		this.model.selectCompositionStateAt(4);
+		this.checkResult(new double[][]{{3,63,120,1,0},{4,66,116,1,0},{2,60,121,1,1}});
+		this.model.deselectCompositionStates();
+		this.model.redo();
+		this.checkResult(new double[][]{{22,72,120,1,0},{23,75,116,1,0},{2,60,121,1,1}});
+	}
+
+	public void testInvalidate() {
+		for (int i = 0; i < 4; i++) {
+			this.translate(1, 1, true);
+		}
+		List<AbstractOperation> operations = this.model.getTransformationGraph().getCurrentlyExecutedOperationsInOrder();
+		CompositionStateCache cache = new CompositionStateCache(2, 2);
+		TestCase.assertEquals(0, cache.invalidate(operations, new ArrayList<AbstractOperation>()));
+		for (int i = 1; i <= operations.size(); i++) {
+			if (cache.isCheckpoint(i)) {
+				cache.put(i, this.model.getComposition(), null);
+			}
+		}
+		//checkpoints every two operations and before the last one
+		TestCase.assertEquals(2, cache.size());
+		TestCase.assertEquals(4, cache.invalidate(operations, new ArrayList<AbstractOperation>()));
+		TestCase.assertEquals(this.model.getComposition(), cache.getComposition(4));
+		//compositions are never changed, so snapshots are not copied
+		TestCase.assertSame(this.model.getComposition(), cache.getComposition(4));
+		//least recently used snapshot evicted
+		cache.put(1, this.model.getComposition(), null);
+		TestCase.assertEquals(2, cache.size());
+		TestCase.assertEquals(1, cache.invalidate(operations, Arrays.asList(operations.get(3))));
+		TestCase.assertEquals(0, cache.invalidate(operations.subList(1, 2), new ArrayList<AbstractOperation>()));
+		TestCase.assertEquals(0, cache.size());
+	}
+
+	//compares the incrementally updated composition with one updated from scratch
+	private void checkResult(double[][] expectedValues) {
+		Denotator expectedResult = this.objects.generator.createFlatSoundScore(expectedValues);
+		TestCase.assertEquals(expectedResult, this.model.getComposition());
+		this.model.updateComposition();
+		TestCase.assertEquals(expectedResult, this.model.getComposition());
+	}
+
+	//translates the first two objects
+	private void translate(int onsetDiff, int pitchDiff, boolean startNewTransformation) {
+		Set<BigBangObject> objects = this.getBBObjectsFromModel(0, 2);
+		TransformationProperties properties = new TransformationProperties(objects, null, Arrays.asList(this.nodePaths), false, startNewTransformation);
+		properties.setCenter(new double[]{0,0});
+		properties.setEndPoint(new double[]{onsetDiff, pitchDiff});
+		this.model.translateObjects(properties);
+	}
+
+	private TreeSet<BigBangObject> getBBObjectsFromModel(int fromIndex, int toIndex) {
+		List<BigBangObject> objectList = new ArrayList<BigBangObject>(this.model.getObjects().getAllObjects());
+		return new TreeSet<BigBangObject>(objectList.subList(fromIndex, toIndex));
+	}
+
+}
@@ -0,0 +1,168 @@
+package org.rubato.rubettes.bigbang.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import junit.framework.TestCase;
+
+import org.rubato.rubettes.bigbang.model.BigBangModel;
+import org.rubato.rubettes.bigbang.model.BigBangObject;
+import org.rubato.rubettes.bigbang.model.BigBangObjects;
+import org.rubato.rubettes.bigbang.model.CompositionChange;
+import org.rubato.rubettes.bigbang.model.denotators.TransformationPaths;
+import org.rubato.rubettes.bigbang.model.denotators.TransformationProperties;
+import org.rubato.rubettes.bigbang.view.model.DisplayObject;
+import org.rubato.rubettes.bigbang.view.model.ViewParameters;
+import org.rubato.rubettes.bigbang.view.subview.DisplayContents;
+import org.rubato.rubettes.bigbang.view.subview.DisplayObjects;
+import org.rubato.rubettes.util.Point2D;
+import org.rubato.rubettes.util.Rectangle2D;
+
+public class ObjectIndexTest extends TestCase {
+
+	private BigBangModel model;
+	private TestObjects objects;
+	private Random random;
+	private DisplayContents display;
+
+	protected void setUp() {
+		this.objects = new TestObjects();
+		this.model = new BigBangModel();
+		this.random = new Random(7);
+		//many notes sharing onsets and pitches, so that there are objects at equal distances
+		double[][] values = new double[300][];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = new double[]{this.random.nextInt(30), 40+this.random.nextInt(40), 120, 1+this.random.nextInt(4), 0};
+		}
+		this.model.setOrAddComposition(this.objects.generator.createFlatSoundScore(values));
+		//onset and pitch on the axes, duration as width
+		this.display = new DisplayContents() {
+			public double translateValue(DisplayObject object, int viewParameterIndex) {
+				if (viewParameterIndex == ViewParameters.X) {
+					return 10*this.getValue(object, 0);
+				} else if (viewParameterIndex == ViewParameters.Y) {
+					return 10*this.getValue(object, 1);
+				} else if (viewParameterIndex == ViewParameters.WIDTH) {
+					return 10*this.getValue(object, 3);
+				}
+				return 8;
+			}
+			private double getValue(DisplayObject object, int coordinateSystemValueIndex) {
+				BigBangObjects bbObjects = model.getObjects();
+				String valueName = bbObjects.getCoordinateSystemValueNames().get(coordinateSystemValueIndex);
+				Double value = object.getNthValue(valueName, bbObjects.getInstanceNumberOfCoordinateValueName(coordinateSystemValueIndex));
+				return value != null ? value : 0;
+			}
+		};
+	}
+
+	public void testClosestObject() {
+		this.checkClosestObjects(new int[]{0,1});
+		this.checkClosestObjects(new int[]{1,3,0});
+		this.checkClosestObjects(new int[]{3});
+		//the index is rebuilt after the composition changed
+		this.translateObjects(3, -2);
+		this.checkClosestObjects(new int[]{0,1});
+	}
+
+	public void testObjectsAtLocationsAndInAreas() {
+		DisplayObjects displayObjects = new DisplayObjects(this.model.getObjects());
+		displayObjects.applyChange(CompositionChange.createCompleteChange(this.model.getObjects()));
+		displayObjects.setDisplay(this.display);
+		displayObjects.updateBounds(1, 1, 0, 0);
+		this.checkDisplayObjects(displayObjects);
+		//objects are reindexed when their bounds are updated after a change
+		CompositionChange change = this.translateObjects(5, 1);
+		Set<DisplayObject> changedObjects = displayObjects.applyChange(change);
+		displayObjects.setDisplay(this.display);
+		displayObjects.updateBounds(changedObjects, 1, 1, 0, 0);
+		this.checkDisplayObjects(displayObjects);
+	}
+
+	private void checkClosestObjects(int[] coordinateSystemValueIndices) {
+		BigBangObjects bbObjects = this.model.getObjects();
+		for (int i = 0; i < 200; i++) {
+			double[] values = new double[coordinateSystemValueIndices.length];
+			for (int j = 0; j < values.length; j++) {
+				values[j] = this.random.nextInt(90);
+			}
+			TestCase.assertSame(this.findClosestObject(coordinateSystemValueIndices, values),
+					bbObjects.getClosestObject(coordinateSystemValueIndices, values, null));
+		}
+	}
+
+	//finds the closest object with a linear scan over all objects
+	private BigBangObject findClosestObject(int[] coordinateSystemValueIndices, double[] values) {
+		BigBangObjects bbObjects = this.model.getObjects();
+		BigBangObject closestObject = null;
+		double shortestDistance = Double.MAX_VALUE;
+		for (BigBangObject currentObject : this.model.getObjects().getObjectsAt(null)) {
+			double currentDistance = 0;
+			for (int i = 0; i < values.length; i++) {
+				String valueName = bbObjects.getCoordinateSystemValueNames().get(coordinateSystemValueIndices[i]);
+				int nameIndex = bbObjects.getInstanceNumberOfCoordinateValueName(coordinateSystemValueIndices[i]);
+				currentDistance += Math.pow(currentObject.getNthValue(valueName, nameIndex)-values[i], 2);
+			}
+			currentDistance = Math.sqrt(currentDistance);
+			if (currentDistance < shortestDistance) {
+				shortestDistance = currentDistance;
+				closestObject = currentObject;
+			}
+		}
+		return closestObject;
+	}
+
+	private void checkDisplayObjects(DisplayObjects displayObjects) {
+		List<DisplayObject> expectedObjects = new ArrayList<DisplayObject>();
+		for (BigBangObject currentObject : this.model.getObjects().getObjectsAt(null)) {
+			DisplayObject currentDisplayObject = new DisplayObject(currentObject);
+			currentDisplayObject.setDisplay(this.display);
+			currentDisplayObject.updateBounds(1, 1, 0, 0);
+			expectedObjects.add(currentDisplayObject);
+		}
+		for (int i = 0; i < 200; i++) {
+			Point2D location = new Point2D(this.random.nextInt(400), 350+this.random.nextInt(500));
+			BigBangObject expectedObject = null;
+			for (DisplayObject currentObject : expectedObjects) {
+				if (currentObject.getRectangle().contains(location)) {
+					expectedObject = currentObject.getBigBangObject();
+					break;
+				}
+			}
+			DisplayObject objectAtLocation = displayObjects.getObjectAt(location);
+			TestCase.assertSame(expectedObject, objectAtLocation != null ? objectAtLocation.getBigBangObject() : null);
+		}
+		for (int i = 0; i < 50; i++) {
+			Rectangle2D area = new Rectangle2D(this.random.nextInt(400), 350+this.random.nextInt(500), this.random.nextInt(100), this.random.nextInt(100));
+			Set<BigBangObject> expectedSelection = new TreeSet<BigBangObject>();
+			for (DisplayObject currentObject : expectedObjects) {
+				if (currentObject.intersects(area)) {
+					expectedSelection.add(currentObject.getBigBangObject());
+				}
+			}
+			displayObjects.deselectAllObjects();
+			displayObjects.selectObjects(area);
+			TestCase.assertEquals(expectedSelection, displayObjects.getSelectedBigBangObjects());
+		}
+	}
+
+	//translates the first half of the objects
+	private CompositionChange translateObjects(int onsetDiff, int pitchDiff) {
+		List<BigBangObject> objectList = new ArrayList<BigBangObject>(this.model.getObjects().getAllObjects());
+		Set<BigBangObject> objects = new TreeSet<BigBangObject>(objectList.subList(0, objectList.size()/2));
+		TransformationPaths nodePaths = this.objects.createStandardTransformationPaths(
+				this.objects.SOUND_NODE_FORM, new int[][]{{0,0},{0,1}});
+		TransformationProperties properties = new TransformationProperties(objects, null, Arrays.asList(nodePaths), false, true);
+		properties.setCenter(new double[]{0,0});
+		properties.setEndPoint(new double[]{onsetDiff, pitchDiff});
+		CompositionChange change = new CompositionChange(this.model.getObjects());
+		this.model.translateObjects(properties);
+		change.determineDifferences();
+		return change;
+	}
+
+}
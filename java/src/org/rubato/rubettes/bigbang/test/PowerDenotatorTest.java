@@ -2,6 +2,7 @@ package org.rubato.rubettes.bigbang.test;
 
 import org.rubato.base.RubatoException;
 import org.rubato.math.yoneda.Denotator;
+import org.rubato.math.yoneda.LimitDenotator;
 import org.rubato.math.yoneda.PowerDenotator;
 import org.rubato.rubettes.util.MacroNoteGenerator;
 
@@ -28,6 +29,37 @@ public class PowerDenotatorTest extends TestCase {
 		this.checkIfDeepCopied(copy, this.macroScore, new int[]{0,1,0,1,0});
 	}
 	
+	public void testSetOperationsAndHashCodes() throws RubatoException {
+		PowerDenotator score1 = this.generator.createSimpleMelody(1, 60, 62, 64);
+		PowerDenotator score2 = this.generator.createSimpleMelody(1, 60, 62, 65);
+		PowerDenotator copy = score1.copy();
+		TestCase.assertEquals(score1.hashCode(), copy.hashCode());
+		TestCase.assertEquals(4, score1.union(score2).getFactorCount());
+		TestCase.assertEquals(2, score1.intersection(score2).getFactorCount());
+		TestCase.assertEquals(1, score1.difference(score2).getFactorCount());
+		TestCase.assertTrue(score1.contains(score2.getFactor(0)));
+		TestCase.assertTrue(score1.intersection(score2).subset(score1));
+		TestCase.assertFalse(score1.subset(score2));
+		copy.removeFactor(0);
+		TestCase.assertFalse(score1.equals(copy));
+		TestCase.assertFalse(score1.hashCode() == copy.hashCode());
+	}
+	
+	public void testHashCodesOfChangedFactors() throws RubatoException {
+		PowerDenotator score1 = this.generator.createSimpleMelody(1, 60, 62, 64);
+		PowerDenotator score2 = this.generator.createSimpleMelody(1, 60, 62, 65);
+		int hash = score1.hashCode();
+		//persistent operations do not change the cached hash code
+		score1.withoutFactor(0);
+		TestCase.assertEquals(hash, score1.hashCode());
+		//a destructive operation on a factor changes the hash code of its owner
+		LimitDenotator note1 = (LimitDenotator)score1.getFactor(2);
+		LimitDenotator note2 = (LimitDenotator)score2.getFactor(2);
+		note1.setFactor(1, note2.getFactor(1));
+		TestCase.assertEquals(score2.hashCode(), score1.hashCode());
+		TestCase.assertFalse(hash == score1.hashCode());
+	}
+	
 	private void checkIfDeepCopied(Denotator d1, Denotator d2, int[] path) throws RubatoException {
 		Denotator insideD1 = d1.get(path);
 		Denotator insideD2 = d2.get(path);
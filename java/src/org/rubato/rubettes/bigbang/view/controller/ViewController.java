@@ -57,6 +57,7 @@ public class ViewController extends Controller {
 	public static final String FORM = "Form";
 	public static final String FACTS_VIEW_CONTENTS = "FactsViewContents";
 	public static final String DISPLAY_OBJECTS = "DisplayObjects";
+	public static final String CHANGED_DISPLAY_OBJECTS = "ChangedDisplayObjects";
 	public static final String OBJECT_SELECTION = "toggleObjectSelection";
 	public static final String ANCHOR_OBJECT_SELECTION = "toggleAnchorObjectSelection";
 	public static final String SELECT_OBJECTS = "selectObjects";
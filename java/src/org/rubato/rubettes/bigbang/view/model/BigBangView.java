@@ -12,6 +12,7 @@ import org.rubato.math.matrix.RMatrix;
 import org.rubato.rubettes.bigbang.controller.BigBangController;
 import org.rubato.rubettes.bigbang.model.BigBangObject;
 import org.rubato.rubettes.bigbang.model.BigBangObjects;
+import org.rubato.rubettes.bigbang.model.CompositionChange;
 import org.rubato.rubettes.bigbang.model.Model;
 import org.rubato.rubettes.bigbang.model.denotators.TransformationPaths;
 import org.rubato.rubettes.bigbang.model.denotators.TransformationProperties;
@@ -69,6 +70,8 @@ public abstract class BigBangView extends Model implements View {
 	protected Map<String,Double> standardDenotatorValues;
 	protected boolean satellitesConnected;
 	protected DisplayObjects displayObjects;
+	//the minima and maxima with which the display objects were last laid out
+	protected List<Double> displayedMinValues, displayedMaxValues;
 	protected DisplayTool displayTool;
 	protected AbstractOperation selectedOperation;
 	
@@ -234,7 +237,7 @@ public abstract class BigBangView extends Model implements View {
 	public void modelPropertyChange(PropertyChangeEvent event) {
 		String propertyName = event.getPropertyName();
 		if (propertyName.equals(BigBangController.COMPOSITION)) {
-			this.initDisplayAndJSynObjects((BigBangObjects)event.getNewValue());
+			this.updateDisplayAndJSynObjects((CompositionChange)event.getNewValue());
 		} else if (propertyName.equals(BigBangController.OBJECT_SELECTION)) {
 			this.selectObjects((Set<BigBangObject>)event.getNewValue());
 		} else if (propertyName.equals(BigBangController.LAYERS)) {
@@ -255,7 +258,8 @@ public abstract class BigBangView extends Model implements View {
 		}
 	}
 	
-	protected void initDisplayAndJSynObjects(BigBangObjects newObjects) {
+	protected void updateDisplayAndJSynObjects(CompositionChange change) {
+		BigBangObjects newObjects = change.getObjects();
 		if (this.displayObjects == null || !this.displayObjects.getBaseForm().equals(newObjects.getBaseForm())) {
 			if (newObjects.baseFormAllowsForSatellites()) {
 				//do not select parameters for satellite and sibling number...
@@ -267,22 +271,33 @@ public abstract class BigBangView extends Model implements View {
 			//this.player.setScore(new JSynScore(new TreeSet<BigBangObject>(), newObjects.getBaseForm(), newObjects.arePlayedBackInTime()));
 			this.firePropertyChange(ViewController.FORM, null, this.displayObjects);
 			this.firePropertyChange(ViewController.ACTIVE_COLIMIT_COORDINATE, null, this.displayObjects.getActiveColimitCoordinates());
+			change = CompositionChange.createCompleteChange(newObjects);
 		}
-		this.addDisplayAndJSynObjects(newObjects);
+		this.applyChangeToDisplayAndJSynObjects(change);
 	}
 	
-	private void addDisplayAndJSynObjects(BigBangObjects newObjects) {
-		//System.out.println("DO " +newObjects.getAllObjects()+ " " +this.displayObjects.size());
-		//System.out.println("DO " + newObjects.size()  + " " +this.displayObjects.size());
-		Set<BigBangObject> lastObjects = newObjects.getObjectsAt(null);
-		this.displayObjects.addObjects(lastObjects);
-		//this.player.setScore(new JSynScore(lastObjects, newObjects.getBaseForm(), newObjects.arePlayedBackInTime()));
+	private void applyChangeToDisplayAndJSynObjects(CompositionChange change) {
+		BigBangObjects newObjects = change.getObjects();
+		Set<DisplayObject> changedObjects = this.displayObjects.applyChange(change);
+		//this.player.applyChange(change);
 		
-		//TODO UPDATE ALL THESE THINGS!!!
-		this.factsViewState.getViewParameters().setDenotatorMinAndMaxValues(newObjects.getMinValues(), newObjects.getMaxValues());
-		this.firePropertyChange(ViewController.DISPLAY_OBJECTS, null, this.displayObjects);
-		this.firePropertyChange(ViewController.STANDARD_DENOTATOR_VALUES, null, this.getStandardDenotatorValues());
-		this.firePropertyChange(ViewController.MAX_SATELLITE_LEVEL, null, this.displayObjects.getMaxSatelliteLevelOfActiveObject());
+		//the bounds of all objects depend on the minima and maxima
+		boolean limitsChanged = !newObjects.getMinValues().equals(this.displayedMinValues)
+				|| !newObjects.getMaxValues().equals(this.displayedMaxValues);
+		if (limitsChanged) {
+			this.displayedMinValues = newObjects.getMinValues();
+			this.displayedMaxValues = newObjects.getMaxValues();
+			this.factsViewState.getViewParameters().setDenotatorMinAndMaxValues(newObjects.getMinValues(), newObjects.getMaxValues());
+		}
+		if (change.isComplete() || limitsChanged) {
+			this.firePropertyChange(ViewController.DISPLAY_OBJECTS, null, this.displayObjects);
+		} else if (!changedObjects.isEmpty()) {
+			this.firePropertyChange(ViewController.CHANGED_DISPLAY_OBJECTS, null, changedObjects);
+		}
+		if (!change.isEmpty()) {
+			this.firePropertyChange(ViewController.STANDARD_DENOTATOR_VALUES, null, this.getStandardDenotatorValues());
+			this.firePropertyChange(ViewController.MAX_SATELLITE_LEVEL, null, this.displayObjects.getMaxSatelliteLevelOfActiveObject());
+		}
 		
 		//not every sounding object makes sense to be played alone (e.g. modulator, or overtone)
 		//this.playObject((Denotator)event.getNewValue());
@@ -11,6 +11,7 @@ import javax.sound.midi.MidiSystem;
 import javax.sound.midi.MidiUnavailableException;
 import javax.sound.midi.MidiDevice.Info;
 
+import org.rubato.rubettes.bigbang.model.CompositionChange;
 import org.rubato.rubettes.bigbang.view.io.BigBangMidiReceiver;
 
 import com.jsyn.JSyn;
@@ -31,7 +32,7 @@ public class BigBangPlayer {
 	public static final int BASE_A4 = 440; // A4 tuning in Hz
 	public static final int SAMPLE_RATE = 48000;
 	public static final double DEFAULT_ADVANCE = 0.05; //seconds
-	public final int MAX_NUMBER_OF_THREADS = 200;
+	public final int MAX_NUMBER_OF_VOICES = 200;
 	
 	public static final String[] WAVEFORMS = {"Sine", "Square", "Sawtooth", "Triangle"};
 	private static Map<String,MidiDevice> midiOutDevices;
@@ -112,13 +113,27 @@ public class BigBangPlayer {
 	
 	public void setScore(JSynScore score) {
 		this.score = score;
-		System.out.println(score);
+		this.updateLoop();
+		this.updatePerformances();
+	}
+	
+	/**
+	 * Applies the given change to the current score and reschedules it if it is affected
+	 */
+	public void applyChange(CompositionChange change) {
+		if (this.score != null && this.score.applyChange(change)) {
+			this.updateLoop();
+			this.updatePerformances();
+		}
+	}
+	
+	private void updateLoop() {
 		//standard loop is entire score
-		if (score.getObjects().size() > 0) {
-			this.loopOnset = score.getObjects().iterator().next().getOnset();
+		List<JSynObject> objects = this.score.getObjects();
+		if (objects.size() > 0) {
+			this.loopOnset = objects.get(0).getOnset();
 			this.loopDuration = this.getLastOffset()-this.loopOnset;
 		}
-		this.updatePerformances();
 	}
 	
 	/**
@@ -149,7 +164,7 @@ public class BigBangPlayer {
 		this.tempo = bpm;
 		for (JSynPerformance performance : this.currentPerformances.values()) {
 			performance.updateStartOrChangeTimes();
-			performance.interrupt();
+			performance.reschedule();
 		}
 		//this.bbPlayer.interrupt();
 	}
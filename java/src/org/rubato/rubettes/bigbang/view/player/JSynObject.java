@@ -40,6 +40,21 @@ public class JSynObject implements Comparable<JSynObject> {
 		return this.parent;
 	}
 	
+	/**
+	 * Makes this object a satellite of the given parent, or a top level object if parent is null.
+	 */
+	public void setParent(JSynObject parent) {
+		if (this.parent != parent) {
+			if (this.parent != null) {
+				this.parent.satellites.remove(this);
+			}
+			this.parent = parent;
+			if (parent != null) {
+				parent.addSatellite(this);
+			}
+		}
+	}
+	
 	public BigBangObject getBigBangObject() {
 		return this.bbObject;
 	}
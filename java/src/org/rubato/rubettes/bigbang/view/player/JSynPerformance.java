@@ -1,27 +1,44 @@
 package org.rubato.rubettes.bigbang.view.player;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.sound.midi.MidiDevice;
 
 import org.rubato.rubettes.bigbang.model.BigBangObject;
 import org.rubato.rubettes.bigbang.view.io.BigBangMidiTransmitter;
 
+/**
+ * A performance of a score, played by a single scheduler thread. The thread keeps the voices of the score
+ * in a queue ordered by the onset of their next object and plays all objects starting within the look-ahead
+ * of BigBangPlayer.DEFAULT_ADVANCE, which are then scheduled precisely by the synth. Whenever the score,
+ * pitch or velocity change, new voices are generated by the calling thread and handed to the scheduler,
+ * which takes them over the next time it wakes up, at the latest after SCHEDULING_PERIOD.
+ */
 public class JSynPerformance extends Thread {
 	
+	private static final double SCHEDULING_PERIOD = BigBangPlayer.DEFAULT_ADVANCE/2; //seconds
+	
 	private BigBangPlayer player;
-	private JSynScore score;
-	private JSynThreadGroup threads;
+	private volatile JSynScore score;
+	//the voices replacing the scheduled ones the next time the scheduler wakes up
+	private AtomicReference<List<JSynVoice>> nextVoices;
+	//only used by the scheduler: the latest voices, which are restarted when rescheduling, and all voices
+	//with objects left to be played
+	private List<JSynVoice> currentVoices;
+	private PriorityQueue<JSynVoice> scheduledVoices;
 	private List<JSynModule> modules;
 	private double synthTimeAtStartOrChange;
 	private double symbolicTimeAtStartOrChange;
-	private boolean isPlaying;
-	private Integer pitch, velocity;
+	private volatile boolean isPlaying, isRunning, isRescheduled;
+	private volatile Integer pitch, velocity;
 	BigBangMidiTransmitter midiTransmitter;
 	
 	public JSynPerformance(BigBangPlayer player, JSynScore score) {
@@ -31,7 +48,13 @@ public class JSynPerformance extends Thread {
 	public JSynPerformance(BigBangPlayer player, MidiDevice outputDevice, JSynScore score, Integer pitch, Integer velocity) {
 		this.player = player;
 		this.score = score;
-		this.threads = new JSynThreadGroup(false);
+		this.nextVoices = new AtomicReference<List<JSynVoice>>();
+		this.currentVoices = new ArrayList<JSynVoice>();
+		this.scheduledVoices = new PriorityQueue<JSynVoice>(11, new Comparator<JSynVoice>() {
+			public int compare(JSynVoice v1, JSynVoice v2) {
+				return Double.compare(v1.getNextSynthOnset(), v2.getNextSynthOnset());
+			}
+		});
 		this.modules = new ArrayList<JSynModule>();
 		this.symbolicTimeAtStartOrChange = 0;
 		this.isPlaying = false;
@@ -48,7 +71,7 @@ public class JSynPerformance extends Thread {
 	
 	public void setPitch(int pitch) {
 		this.pitch = pitch;
-		this.replaceThreads();
+		this.replaceVoices();
 	}
 	
 	public int getPitch() {
@@ -57,7 +80,7 @@ public class JSynPerformance extends Thread {
 	
 	public void setVelocity(int velocity) {
 		this.velocity = velocity;
-		this.replaceThreads();
+		this.replaceVoices();
 	}
 	
 	public void setRateModifier(double rateModifier) {
@@ -66,22 +89,24 @@ public class JSynPerformance extends Thread {
 	
 	public void replaceScore(JSynScore score) {
 		this.score = score;
-		this.replaceThreads();
+		this.replaceVoices();
 		if (this.midiTransmitter != null) {
 			this.midiTransmitter.removeOldRepeaters(score);
 		}
 	}
 	
-	private void replaceThreads() {
-		JSynThreadGroup newThreads = this.generateThreads(false);
-		this.allocateModules(newThreads);
-		this.threads.stop();
-		this.threads = newThreads;
-		this.threads.start();
+	private void replaceVoices() {
+		if (this.isRunning) {
+			this.nextVoices.set(this.generateVoices(false));
+		}
 	}
 	
-	public void interrupt() {
-		this.threads.interrupt();
+	/**
+	 * Makes the scheduler adjust the currently playing objects and reschedule all others the next time it
+	 * wakes up, e.g. after a tempo change.
+	 */
+	public void reschedule() {
+		this.isRescheduled = true;
 	}
 	
 	public void setPlaybackPosition(double playbackPosition) {
@@ -131,15 +156,19 @@ public class JSynPerformance extends Thread {
 	 * Clean up synthesis by overriding stop() method.
 	 */
 	public void stopPlaying(boolean justMute) {
-		this.interrupt();
+		this.reschedule();
 		this.isPlaying = false;
-		for (JSynModule currentModule : this.modules) {
-			currentModule.mute();
-		}
 		if (!justMute) {
-			this.threads.stop(); // tell run() to exit peacefully
+			this.isRunning = false; // tell run() to exit peacefully
+		}
+		synchronized (this) {
 			for (JSynModule currentModule : this.modules) {
-				currentModule.finalize();
+				currentModule.mute();
+			}
+			if (!justMute) {
+				for (JSynModule currentModule : this.modules) {
+					currentModule.finalize();
+				}
 			}
 		}
 		if (this.midiTransmitter != null) {
@@ -153,48 +182,48 @@ public class JSynPerformance extends Thread {
 	
 	public void run() {
 		if (this.score != null) {
-			if (!this.isPlaying) {
-				this.player.startSynth();
-			} else {
-				this.threads.stop();
-			}
-			
+			this.player.startSynth();
 			this.isPlaying = true;
+			this.isRunning = true;
 			this.synthTimeAtStartOrChange = this.player.getCurrentSynthTime();
+			this.scheduleVoices(this.generateVoices(false), true);
 			
-			this.threads = this.generateThreads(false);
-			this.allocateModules(this.threads);
-			this.threads.start();
+			boolean isLooping = this.player.isLooping();
+			double timeOfNextLoop = this.player.getCurrentSynthTime();
+			if (isLooping) {
+				timeOfNextLoop += this.player.convertToSynthDuration(this.player.getLoopDuration());
+			}
 			
-			if (this.player.isLooping()) {
-				double timeOfNextLoop = this.player.getCurrentSynthTime();
+			while (this.isRunning) {
+				List<JSynVoice> newVoices = this.nextVoices.getAndSet(null);
+				if (newVoices != null) {
+					this.scheduleVoices(newVoices, true);
+				} else if (this.isRescheduled) {
+					this.scheduleVoices(this.currentVoices, false);
+				}
 				
-				while (this.player.isLooping() && this.isPlaying) {
-					double currentLoopDuration = this.player.convertToSynthDuration(this.player.getLoopDuration());
-					timeOfNextLoop += currentLoopDuration;
-					
-					while (timeOfNextLoop - BigBangPlayer.DEFAULT_ADVANCE > this.player.getCurrentSynthTime()) {
-						try {
-							long sleepTime = (long)Math.ceil((timeOfNextLoop - BigBangPlayer.DEFAULT_ADVANCE - this.player.getCurrentSynthTime())*1000);
-							Thread.sleep(sleepTime);
-						} catch (InterruptedException e) {
-							/*if (this.player.isLooping() && this.isPlaying) {
-								timeOfNextLoop -= currentLoopDuration;
-								currentLoopDuration = this.player.convertToSynthDuration(this.player.getLoopDuration());
-								timeOfNextLoop += currentLoopDuration;
-								//go back to sleep
-							} else {*/
-								this.threads.stop();
-								return;
-							//}
-						}
-					}
-					
+				double currentTime = this.player.getCurrentSynthTime();
+				isLooping &= this.player.isLooping();
+				if (isLooping && timeOfNextLoop - BigBangPlayer.DEFAULT_ADVANCE <= currentTime) {
 					//System.out.println("loop "+ this.score + " "  + this.player.getCurrentSynthTime());
-					//this.threads.stop();
-					this.threads = this.generateThreads(true);
-					this.allocateModules(this.threads);
-					this.threads.start();
+					this.addVoices(this.generateVoices(true));
+					timeOfNextLoop += this.player.convertToSynthDuration(this.player.getLoopDuration());
+				}
+				
+				this.playScheduledVoices(currentTime + BigBangPlayer.DEFAULT_ADVANCE);
+				
+				//sleep until the next object enters the look-ahead, but check for changes regularly
+				double wakeUpTime = currentTime + SCHEDULING_PERIOD;
+				if (!this.scheduledVoices.isEmpty()) {
+					wakeUpTime = Math.min(this.scheduledVoices.peek().getNextSynthOnset() - BigBangPlayer.DEFAULT_ADVANCE, wakeUpTime);
+				}
+				if (isLooping) {
+					wakeUpTime = Math.min(timeOfNextLoop - BigBangPlayer.DEFAULT_ADVANCE, wakeUpTime);
+				}
+				try {
+					this.player.getSynth().sleepUntil(wakeUpTime);
+				} catch (InterruptedException e) {
+					return;
 				}
 			}
 			//System.out.println("done "+ this.score + " "  + this.getCurrentSynthTime());
@@ -202,11 +231,56 @@ public class JSynPerformance extends Thread {
 	}
 	
 	/*
-	 * generates threads based on copies of this score, adjusted to the given starting time and pitch
+	 * replaces the scheduled voices by the given ones. if they are new, modules are allocated for them
+	 * first, otherwise they are just restarted at the current time
 	 */
-	private JSynThreadGroup generateThreads(boolean playInNextLoop) {
-		Set<JSynObject> objects = this.score.getObjects();
-		JSynThreadGroup threads = new JSynThreadGroup(playInNextLoop);
+	private void scheduleVoices(List<JSynVoice> voices, boolean areNew) {
+		this.isRescheduled = false;
+		this.scheduledVoices.clear();
+		this.currentVoices = new ArrayList<JSynVoice>();
+		if (areNew) {
+			this.addVoices(voices);
+		} else {
+			for (JSynVoice currentVoice : voices) {
+				this.currentVoices.add(currentVoice);
+				if (currentVoice.start()) {
+					this.scheduledVoices.add(currentVoice);
+				}
+			}
+		}
+	}
+	
+	/*
+	 * adds the given new voices to the scheduled ones, which keep playing their remaining objects
+	 */
+	private void addVoices(List<JSynVoice> voices) {
+		this.allocateModules(voices);
+		this.currentVoices = voices;
+		for (JSynVoice currentVoice : voices) {
+			if (currentVoice.start()) {
+				this.scheduledVoices.add(currentVoice);
+			}
+		}
+	}
+	
+	/*
+	 * plays the next objects of all voices that start before the given synth time
+	 */
+	private void playScheduledVoices(double synthTime) {
+		while (!this.scheduledVoices.isEmpty() && this.scheduledVoices.peek().getNextSynthOnset() <= synthTime && this.isRunning) {
+			JSynVoice nextVoice = this.scheduledVoices.poll();
+			if (nextVoice.playNextObject()) {
+				this.scheduledVoices.add(nextVoice);
+			}
+		}
+	}
+	
+	/*
+	 * generates voices based on copies of this score, adjusted to the given starting time and pitch
+	 */
+	private List<JSynVoice> generateVoices(boolean playInNextLoop) {
+		List<JSynObject> objects = this.score.getObjects();
+		List<JSynVoice> voices = new ArrayList<JSynVoice>();
 		if (objects.size() > 0) {
 			for (JSynObject currentObject : objects) {
 				JSynObject clone = currentObject.clone();
@@ -216,84 +290,80 @@ public class JSynPerformance extends Thread {
 				if (this.velocity != null) {
 					clone.setLoudnessRatio(((double)this.velocity)/127);
 				}
-				this.addNoteToConvenientThread(clone, threads);
+				this.addNoteToConvenientVoice(clone, voices, playInNextLoop);
 			}
 		}
-		this.removeExcessiveThreads(threads);
-		return threads;
+		this.removeExcessiveVoices(voices);
+		return voices;
 	}
 	
-	private void addNoteToConvenientThread(JSynObject note, JSynThreadGroup threads) {
+	private void addNoteToConvenientVoice(JSynObject note, List<JSynVoice> voices, boolean playInNextLoop) {
 		double onset = note.getOnset();
 		double offset = note.getOffset();
 		double voice = note.getVoice();
-		boolean convenientThreadFound = false;
-		for (JSynThread currentThread : threads) {
-			if (currentThread.getVoice() == voice) {
-				if (!currentThread.playsAt(onset, offset)) {
-					currentThread.addObject(note);
-					convenientThreadFound = true;
+		for (JSynVoice currentVoice : voices) {
+			if (currentVoice.getVoice() == voice) {
+				if (!currentVoice.playsAt(onset, offset)) {
+					currentVoice.addObject(note);
 					return;
 				}
 			}
 		}
-		if (!convenientThreadFound) {
-			threads.add(new JSynThread(this, note));
-		}
+		voices.add(new JSynVoice(this, note, playInNextLoop));
 	}
 	
-	private void removeExcessiveThreads(JSynThreadGroup threads) {
-		while (threads.size() > this.player.MAX_NUMBER_OF_THREADS) {
-			threads.remove((int)Math.round(Math.random()*(threads.size()-1)));
+	private void removeExcessiveVoices(List<JSynVoice> voices) {
+		while (voices.size() > this.player.MAX_NUMBER_OF_VOICES) {
+			voices.remove((int)Math.round(Math.random()*(voices.size()-1)));
 		}
 	}
 	
 	//reallocate sound modules in order to get as few glitches as possible
-	private synchronized void allocateModules(JSynThreadGroup threads) {
+	private synchronized void allocateModules(List<JSynVoice> voices) {
 		
-		//associate currently playing threads with modules playing same BigBangObjects, or create new ones
+		//associate currently playing voices with modules playing same BigBangObjects, or create new ones
 		Set<JSynModule> remainingModules = new HashSet<JSynModule>(this.modules);
 		Map<BigBangObject,JSynModule> objectsAndModulesMap = this.getCurrentObjectsAndModules();
 		double currentTime = this.player.getSynth().getCurrentTime();
-		List<JSynThread> notPlayingThreads = new ArrayList<JSynThread>();
+		List<JSynVoice> notPlayingVoices = new ArrayList<JSynVoice>();
 		
-		for (JSynThread currentThread : threads) {
-			JSynObject objectAtCurrentTime = currentThread.getObjectAt(currentTime);
+		for (JSynVoice currentVoice : voices) {
+			JSynObject objectAtCurrentTime = currentVoice.getObjectAt(currentTime);
 			
 			//System.out.println(remainingModules);
 			if (objectAtCurrentTime != null) {
 				JSynModule objectModule = objectsAndModulesMap.get(objectAtCurrentTime.getBigBangObject());
 				
 				if (objectModule != null) {
-					currentThread.setModule(objectModule);
+					currentVoice.setModule(objectModule);
 					remainingModules.remove(objectModule);
 					//System.out.println(currentFrequency + " " + closestModule.getCarrierFrequency());
 				} else {
 					JSynModule newModule = new JSynModule(this);
 					this.modules.add(newModule);
-					currentThread.setModule(newModule);
+					currentVoice.setModule(newModule);
 					//System.out.println(currentFrequency + " new module");
 				}
 			} else {
-				notPlayingThreads.add(currentThread);
+				notPlayingVoices.add(currentVoice);
 			}
 		}
 		
 		//remove unused modules from this.modules
 		for (JSynModule currentRemainingModule : remainingModules) {
-			if (notPlayingThreads.size() > 0) {
-				notPlayingThreads.remove(0).setModule(currentRemainingModule);
+			if (notPlayingVoices.size() > 0) {
+				notPlayingVoices.remove(0).setModule(currentRemainingModule);
 			} else {
 				this.modules.remove(currentRemainingModule);
 				currentRemainingModule.finalize();
 			}
 		}
 		
-		//make more modules for threads that are not playing 
-		for (JSynThread currentThread : notPlayingThreads) {
+		//make more modules for voices that are not playing 
+		for (JSynVoice currentVoice : notPlayingVoices) {
 			JSynModule newModule = new JSynModule(this);
 			this.modules.add(newModule);
-			currentThread.setModule(newModule);
+			currentVoice.setModule(newModule);
 		}
 	}
 	
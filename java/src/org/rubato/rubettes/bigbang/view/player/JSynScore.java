@@ -1,24 +1,32 @@
 package org.rubato.rubettes.bigbang.view.player;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.TreeSet;
 
 import org.rubato.math.yoneda.Form;
 import org.rubato.rubettes.bigbang.model.BigBangObject;
+import org.rubato.rubettes.bigbang.model.CompositionChange;
 import org.rubato.rubettes.util.CoolFormRegistrant;
+import org.rubato.rubettes.util.DenotatorPath;
 
 public class JSynScore {
-	
+
 	private boolean isPlayedInTime;
-	private TreeSet<JSynObject> objects;
+	//top level objects sorted by the paths under which they were added, which are kept in objectPaths
+	private TreeMap<DenotatorPath,JSynObject> objects;
+	private Map<BigBangObject,DenotatorPath> objectPaths;
 	private Map<BigBangObject,JSynObject> objectMap;
 	private int satelliteType;
-	
+
 	public JSynScore(Set<BigBangObject> objects, Form baseForm, boolean isPlayedInTime) {
 		this.isPlayedInTime = isPlayedInTime;
-		this.objects = new TreeSet<JSynObject>();
+		this.objects = new TreeMap<DenotatorPath,JSynObject>();
+		this.objectPaths = new HashMap<BigBangObject,DenotatorPath>();
 		this.objectMap = new HashMap<BigBangObject,JSynObject>();
 		if (baseForm.equals(CoolFormRegistrant.FM_SET_FORM)) {
 			this.satelliteType = JSynObject.FREQUENCY_MODULATION;
@@ -27,48 +35,109 @@ public class JSynScore {
 			this.addObjects(objects);
 		}
 	}
-	
+
 	/**
 	 * Creates a score with just one object with the given pitch and velocity
 	 */
 	public JSynScore(int channel, int pitch, int velocity) {
 		this.isPlayedInTime = true;
-		this.objects = new TreeSet<JSynObject>();
-		this.objects.add(new JSynMonitorObject(channel, pitch, velocity));
+		this.objects = new TreeMap<DenotatorPath,JSynObject>();
+		this.objectPaths = new HashMap<BigBangObject,DenotatorPath>();
+		this.objectMap = new HashMap<BigBangObject,JSynObject>();
+		//the object is not part of a composition, any path will do
+		this.objects.put(new DenotatorPath(CoolFormRegistrant.NOTE_FORM), new JSynMonitorObject(channel, pitch, velocity));
 	}
-	
-	public void addObjects(Set<BigBangObject> newObjects) {
+
+	/**
+	 * Adds the given objects, or moves them to their current path and parent if they are contained already.
+	 * Parents have to be added before their satellites.
+	 */
+	public synchronized void addObjects(Set<BigBangObject> newObjects) {
 		for (BigBangObject currentBBObject : newObjects) {
-			if (!this.objectMap.containsKey(currentBBObject)
-					&& currentBBObject.getTopDenotatorPath() != null) {
-				JSynObject parent = this.objectMap.get(currentBBObject.getParent());
-				JSynObject newJSynObject = new JSynObject(parent, currentBBObject, this.satelliteType);
-				//only add top level objects to score. others work as satellites
-				if (parent == null) {
-					this.objects.add(newJSynObject);
-				}
-				this.objectMap.put(currentBBObject, newJSynObject);
+			if (currentBBObject.getTopDenotatorPath() != null) {
+				this.addObject(currentBBObject);
+			}
+		}
+	}
+
+	private void addObject(BigBangObject bbObject) {
+		JSynObject parent = this.objectMap.get(bbObject.getParent());
+		JSynObject jSynObject = this.objectMap.get(bbObject);
+		if (jSynObject == null) {
+			jSynObject = new JSynObject(parent, bbObject, this.satelliteType);
+			this.objectMap.put(bbObject, jSynObject);
+		} else {
+			this.removeFromTopLevel(bbObject);
+			jSynObject.setParent(parent);
+		}
+		//only add top level objects to score. others work as satellites
+		if (parent == null) {
+			DenotatorPath path = bbObject.getTopDenotatorPath();
+			this.objects.put(path, jSynObject);
+			this.objectPaths.put(bbObject, path);
+		}
+	}
+
+	public synchronized void removeObjects(Set<BigBangObject> removedObjects) {
+		for (BigBangObject currentBBObject : removedObjects) {
+			JSynObject removedObject = this.objectMap.get(currentBBObject);
+			if (removedObject != null) {
+				this.removeFromTopLevel(currentBBObject);
+				removedObject.setParent(null);
+				this.objectMap.remove(currentBBObject);
 			}
 		}
 	}
-	
+
+	private void removeFromTopLevel(BigBangObject bbObject) {
+		DenotatorPath previousPath = this.objectPaths.remove(bbObject);
+		if (previousPath != null && this.objects.get(previousPath) == this.objectMap.get(bbObject)) {
+			this.objects.remove(previousPath);
+		}
+	}
+
+	/**
+	 * Applies the given change to this score. The values of modified objects need no update, since they are
+	 * read from the BigBangObjects when played.
+	 * @return true if the score has to be rescheduled
+	 */
+	public synchronized boolean applyChange(CompositionChange change) {
+		if (change.isComplete()) {
+			this.objects.clear();
+			this.objectPaths.clear();
+			this.objectMap.clear();
+			this.addObjects(change.getAddedObjects());
+			return true;
+		}
+		this.removeObjects(change.getRemovedObjects());
+		//remove moved objects from the top level first, since their new paths may be previous paths of others
+		for (BigBangObject currentBBObject : change.getMovedObjects()) {
+			this.removeFromTopLevel(currentBBObject);
+		}
+		//sort by current path so that parents precede their satellites
+		Set<BigBangObject> addedObjects = new TreeSet<BigBangObject>(change.getAddedObjects());
+		addedObjects.addAll(change.getMovedObjects());
+		this.addObjects(addedObjects);
+		return !change.isEmpty();
+	}
+
 	/**
-	 * @return a sorted set containing the objects of this score.
+	 * @return a list containing the top level objects of this score, sorted by their paths
 	 */
-	public TreeSet<JSynObject> getObjects() {
-		return this.objects;
+	public synchronized List<JSynObject> getObjects() {
+		return new ArrayList<JSynObject>(this.objects.values());
 	}
-	
+
 	public boolean isPlayedInTime() {
 		return this.isPlayedInTime;
 	}
-	
-	public boolean contains(BigBangObject bbObject) {
+
+	public synchronized boolean contains(BigBangObject bbObject) {
 		return this.objectMap.containsKey(bbObject);
 	}
-	
-	public String toString() {
-		return this.objects.toString();
+
+	public synchronized String toString() {
+		return this.objects.values().toString();
 	}
 
 }
@@ -0,0 +1,106 @@
+package org.rubato.rubettes.bigbang.view.player;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A sequence of non-overlapping objects of one voice that are played one after another on the same module.
+ * The voices of a performance are played by its scheduler thread, which keeps them ordered by the synth
+ * onset of their next object.
+ */
+class JSynVoice {
+
+	private JSynPerformance performance;
+	private JSynModule module;
+
+	private List<JSynObject> objects;
+	private int nextObjectIndex;
+	private double nextSynthOnset;
+	private int voice;
+	private boolean playInNextLoop;
+
+	public JSynVoice(JSynPerformance performance, JSynObject object, boolean playInNextLoop) {
+		this.performance = performance;
+		this.objects = new ArrayList<JSynObject>();
+		this.voice = object.getVoice();
+		this.playInNextLoop = playInNextLoop;
+		this.addObject(object);
+	}
+
+	public void addObject(JSynObject object) {
+		this.objects.add(object);
+	}
+
+	public JSynObject getObjectAt(double time) {
+		for (JSynObject currentObject : this.objects) {
+			if (currentObject.getOnset() <= time && currentObject.getOnset()+currentObject.getDuration() >= time) {
+				return currentObject;
+			}
+		}
+		return null;
+	}
+
+	public void setModule(JSynModule module) {
+		this.module = module;
+	}
+
+	public JSynModule getModule() {
+		return this.module;
+	}
+
+	public int getVoice() {
+		return this.voice;
+	}
+
+	public boolean playsAt(double symbolicStart, double symbolicEnd) {
+		for (JSynObject currentNote : this.objects) {
+			//due to ordering every following note is later
+			if (currentNote.playsAt(symbolicStart, symbolicEnd)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Adjusts the currently playing object and moves to the first one that has not started yet. Called
+	 * when the voice is scheduled and whenever its performance changes tempo.
+	 * @return true if there is an object left to be played
+	 */
+	public boolean start() {
+		this.nextObjectIndex = 0;
+		double currentSymbolicTime = this.performance.getCurrentSymbolicTime();
+		while (this.nextObjectIndex < this.objects.size() && !this.playInNextLoop
+				&& this.objects.get(this.nextObjectIndex).getOnset() < currentSymbolicTime) {
+			this.module.playOrAdjustObject(this.objects.get(this.nextObjectIndex), false);
+			this.nextObjectIndex++;
+		}
+		if (this.nextObjectIndex == 0) {
+			this.module.mute();
+		}
+		return this.updateNextSynthOnset();
+	}
+
+	/**
+	 * Plays the next object, which is expected to start within the look-ahead of the scheduler.
+	 * @return true if there is an object left to be played
+	 */
+	public boolean playNextObject() {
+		this.module.playOrAdjustObject(this.objects.get(this.nextObjectIndex), this.playInNextLoop);
+		this.nextObjectIndex++;
+		return this.updateNextSynthOnset();
+	}
+
+	public double getNextSynthOnset() {
+		return this.nextSynthOnset;
+	}
+
+	private boolean updateNextSynthOnset() {
+		if (this.nextObjectIndex < this.objects.size()) {
+			this.nextSynthOnset = this.performance.getSynthOnset(this.objects.get(this.nextObjectIndex).getOnset(), this.playInNextLoop);
+			return true;
+		}
+		return false;
+	}
+
+}
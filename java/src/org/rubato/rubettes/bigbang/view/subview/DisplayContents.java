@@ -1,11 +1,14 @@
 package org.rubato.rubettes.bigbang.view.subview;
 
+import java.util.Set;
+
 import org.rubato.rubettes.bigbang.view.model.DisplayObject;
 import org.rubato.rubettes.bigbang.view.model.ViewParameter;
 import org.rubato.rubettes.bigbang.view.model.ViewParameters;
 import org.rubato.rubettes.bigbang.view.model.tools.DisplayTool;
 import org.rubato.rubettes.bigbang.view.player.BigBangPlayer;
 import org.rubato.rubettes.util.Point;
+import org.rubato.rubettes.util.Rectangle2D;
 
 public class DisplayContents {
 	
@@ -93,6 +96,35 @@ public class DisplayContents {
 		}
 	}
 	
+	/**
+	 * Updates the bounds of the given objects, which were changed, added or removed.
+	 * @return the area covered by the objects before and after the update, null if it is empty
+	 */
+	public Rectangle2D updateObjects(Set<DisplayObject> changedObjects) {
+		Rectangle2D changedArea = null;
+		if (this.position == null) {
+			return changedArea;
+		}
+		for (DisplayObject currentObject : changedObjects) {
+			changedArea = this.union(changedArea, currentObject.getRectangle());
+			currentObject.setDisplay(this);
+		}
+		this.displayObjects.updateBounds(changedObjects, this.xZoomFactor, this.yZoomFactor, this.position.getX(), this.position.getY());
+		for (DisplayObject currentObject : changedObjects) {
+			changedArea = this.union(changedArea, currentObject.getRectangle());
+		}
+		return changedArea;
+	}
+	
+	private Rectangle2D union(Rectangle2D area, Rectangle2D rectangle) {
+		if (area == null) {
+			return rectangle;
+		} else if (rectangle == null) {
+			return area;
+		}
+		return area.union(rectangle);
+	}
+	
 	public void setCurrentSize(int currentWidth, int currentHeight) {
 		this.currentWidth = currentWidth;
 		this.currentHeight = currentHeight;
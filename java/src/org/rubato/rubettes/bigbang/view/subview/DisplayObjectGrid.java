@@ -0,0 +1,175 @@
+package org.rubato.rubettes.bigbang.view.subview;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.rubato.rubettes.bigbang.view.model.DisplayObject;
+import org.rubato.rubettes.util.Point2D;
+import org.rubato.rubettes.util.Rectangle2D;
+
+/**
+ * A uniform grid over the rectangles of DisplayObjects on the screen, used to find the objects at a location or
+ * within an area without checking all of them. Every object is kept in all cells its rectangle overlaps. The
+ * cell size is adapted to the average size of the objects when the grid is created. Objects that would cover
+ * too many cells are kept separately and are always returned as candidates.
+ *
+ * The grid has to be updated whenever the rectangle of an object changes.
+ */
+public class DisplayObjectGrid {
+
+	private static final double MIN_CELL_SIZE = 4;
+	private static final int MAX_CELLS_PER_OBJECT = 64;
+
+	private double cellSize;
+	private Map<Long,List<DisplayObject>> cells;
+	//the cells each object was added to, {minColumn, minRow, maxColumn, maxRow}, null for large objects
+	private Map<DisplayObject,int[]> objectCells;
+	private Set<DisplayObject> largeObjects;
+
+	public DisplayObjectGrid(Collection<DisplayObject> objects) {
+		this.cellSize = this.calculateCellSize(objects);
+		this.cells = new HashMap<Long,List<DisplayObject>>();
+		this.objectCells = new HashMap<DisplayObject,int[]>();
+		this.largeObjects = new HashSet<DisplayObject>();
+		for (DisplayObject currentObject : objects) {
+			this.add(currentObject);
+		}
+	}
+
+	private double calculateCellSize(Collection<DisplayObject> objects) {
+		double sizeSum = 0;
+		int count = 0;
+		for (DisplayObject currentObject : objects) {
+			Rectangle2D rectangle = currentObject.getRectangle();
+			if (rectangle != null && this.isFinite(rectangle)) {
+				sizeSum += Math.max(rectangle.getWidth(), rectangle.getHeight());
+				count++;
+			}
+		}
+		if (count == 0) {
+			return DisplayObjectGrid.MIN_CELL_SIZE;
+		}
+		return Math.max(DisplayObjectGrid.MIN_CELL_SIZE, sizeSum/count);
+	}
+
+	/**
+	 * Adds the given object at its current rectangle, or moves it there if it is contained already.
+	 */
+	public void update(DisplayObject object) {
+		this.remove(object);
+		this.add(object);
+	}
+
+	private void add(DisplayObject object) {
+		Rectangle2D rectangle = object.getRectangle();
+		if (rectangle == null) {
+			return;
+		}
+		int[] range = this.getCellRange(rectangle);
+		if (range == null || (long)(range[2]-range[0]+1)*(range[3]-range[1]+1) > DisplayObjectGrid.MAX_CELLS_PER_OBJECT) {
+			this.largeObjects.add(object);
+			this.objectCells.put(object, null);
+			return;
+		}
+		for (int i = range[0]; i <= range[2]; i++) {
+			for (int j = range[1]; j <= range[3]; j++) {
+				Long key = this.getKey(i, j);
+				List<DisplayObject> cell = this.cells.get(key);
+				if (cell == null) {
+					cell = new ArrayList<DisplayObject>(2);
+					this.cells.put(key, cell);
+				}
+				cell.add(object);
+			}
+		}
+		this.objectCells.put(object, range);
+	}
+
+	public void remove(DisplayObject object) {
+		if (!this.objectCells.containsKey(object)) {
+			return;
+		}
+		int[] range = this.objectCells.remove(object);
+		if (range == null) {
+			this.largeObjects.remove(object);
+			return;
+		}
+		for (int i = range[0]; i <= range[2]; i++) {
+			for (int j = range[1]; j <= range[3]; j++) {
+				Long key = this.getKey(i, j);
+				List<DisplayObject> cell = this.cells.get(key);
+				cell.remove(object);
+				if (cell.isEmpty()) {
+					this.cells.remove(key);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the objects whose rectangles possibly contain the given location
+	 */
+	public Set<DisplayObject> getCandidatesAt(Point2D location) {
+		return this.getCandidatesIn(new Rectangle2D(location.getX(), location.getY(), 0, 0));
+	}
+
+	/**
+	 * @return the objects whose rectangles possibly intersect the given area
+	 */
+	public Set<DisplayObject> getCandidatesIn(Rectangle2D area) {
+		int[] range = this.getCellRange(area);
+		if (range == null || (long)(range[2]-range[0]+1)*(range[3]-range[1]+1) > this.objectCells.size()) {
+			return new LinkedHashSet<DisplayObject>(this.objectCells.keySet());
+		}
+		Set<DisplayObject> candidates = new LinkedHashSet<DisplayObject>(this.largeObjects);
+		for (int i = range[0]; i <= range[2]; i++) {
+			for (int j = range[1]; j <= range[3]; j++) {
+				List<DisplayObject> cell = this.cells.get(this.getKey(i, j));
+				if (cell != null) {
+					candidates.addAll(cell);
+				}
+			}
+		}
+		return candidates;
+	}
+
+	//returns null if the rectangle cannot be located in the grid
+	private int[] getCellRange(Rectangle2D rectangle) {
+		if (!this.isFinite(rectangle)) {
+			return null;
+		}
+		double minColumn = Math.floor(rectangle.getX()/this.cellSize);
+		double minRow = Math.floor(rectangle.getY()/this.cellSize);
+		double maxColumn = Math.floor((rectangle.getX()+rectangle.getWidth())/this.cellSize);
+		double maxRow = Math.floor((rectangle.getY()+rectangle.getHeight())/this.cellSize);
+		if (Math.min(minColumn, minRow) < Integer.MIN_VALUE || Math.max(maxColumn, maxRow) > Integer.MAX_VALUE) {
+			return null;
+		}
+		return new int[]{(int)minColumn, (int)minRow, (int)maxColumn, (int)maxRow};
+	}
+
+	private boolean isFinite(Rectangle2D rectangle) {
+		double[] values = {rectangle.getX(), rectangle.getY(), rectangle.getWidth(), rectangle.getHeight()};
+		for (double currentValue : values) {
+			if (Double.isNaN(currentValue) || Double.isInfinite(currentValue)) {
+				return false;
+			}
+		}
+		return rectangle.getWidth() >= 0 && rectangle.getHeight() >= 0;
+	}
+
+	private Long getKey(int column, int row) {
+		return ((long)column << 32) | (row & 0xffffffffL);
+	}
+
+	public int size() {
+		return this.objectCells.size();
+	}
+
+}
@@ -1,8 +1,11 @@
 package org.rubato.rubettes.bigbang.view.subview;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.ConcurrentModificationException;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -14,6 +17,7 @@ import org.rubato.math.yoneda.Form;
 import org.rubato.math.yoneda.SimpleForm;
 import org.rubato.rubettes.bigbang.model.BigBangObject;
 import org.rubato.rubettes.bigbang.model.BigBangObjects;
+import org.rubato.rubettes.bigbang.model.CompositionChange;
 import org.rubato.rubettes.bigbang.view.model.DisplayObject;
 import org.rubato.rubettes.bigbang.view.model.ViewParameters;
 import org.rubato.rubettes.util.CoolFormRegistrant;
@@ -27,12 +31,18 @@ public class DisplayObjects {
 	
 	private BigBangObjects bbObjects;
 	private Map<BigBangObject,DisplayObject> objectMap;
-	//objects contains only objects currently present. has to be taken as a reference for selectedObjects 
-	private TreeSet<DisplayObject> objects;
+	//objects contains only objects currently present. has to be taken as a reference for selectedObjects.
+	//they are sorted by the paths under which they were added, which are kept in objectPaths
+	private TreeMap<DenotatorPath,DisplayObject> objects;
+	private Map<BigBangObject,DenotatorPath> objectPaths;
 	//selectedObjects also contains objects currently not present that were selected, e.g. during animation 
 	private Set<DisplayObject> selectedObjects;
 	//selectedAnchor might also not be present currently
 	private DisplayObject selectedAnchor;
+	//index of the rectangles of the present objects, built when needed
+	private DisplayObjectGrid grid;
+	//objects marked as selected during the last temporary selection
+	private Set<DisplayObject> tempSelectedObjects;
 	
 	//active object is the one selected for being drawn etc
 	private int indexOfActiveObjectType;
@@ -56,38 +66,124 @@ public class DisplayObjects {
 	
 	private void initObjects() {
 		this.objectMap = new HashMap<BigBangObject,DisplayObject>();
-		this.objects = new TreeSet<DisplayObject>();
+		this.objects = new TreeMap<DenotatorPath,DisplayObject>();
+		this.objectPaths = new HashMap<BigBangObject,DenotatorPath>();
 		this.selectedObjects = new TreeSet<DisplayObject>();
+		this.tempSelectedObjects = new HashSet<DisplayObject>();
 	}
 	
-	public synchronized void addObjects(Set<BigBangObject> newObjects) {
-		//reset object since they might temporarily not exist (e.g. during animation)
-		this.objects = new TreeSet<DisplayObject>();
+	/**
+	 * Replaces the present objects by the given ones.
+	 */
+	public synchronized void setObjects(Set<BigBangObject> newObjects) {
+		this.objects = new TreeMap<DenotatorPath,DisplayObject>();
+		this.objectPaths = new HashMap<BigBangObject,DenotatorPath>();
+		this.grid = null;
 		if (newObjects != null) {
-			for (BigBangObject currentObject : newObjects) {
-				if (!this.objectMap.containsKey(currentObject)) {
-					//create and add new objects
-					DisplayObject newObject = new DisplayObject(currentObject);
-					this.objects.add(newObject);
-					this.objectMap.put(currentObject, newObject);
-				} else {
-					//add objects that existed before
-					if (currentObject.getTopDenotatorPath() != null) {
-						this.objects.add(this.objectMap.get(currentObject));
-					}
+			this.addObjects(newObjects);
+		}
+	}
+	
+	/**
+	 * Adds the given objects to the present ones, or moves them to their current path if they are present already.
+	 */
+	public synchronized void addObjects(Set<BigBangObject> newObjects) {
+		for (BigBangObject currentObject : newObjects) {
+			this.addObject(currentObject);
+		}
+		this.updateActiveSatelliteLevel();
+	}
+	
+	private void addObject(BigBangObject object) {
+		DisplayObject displayObject = this.objectMap.get(object);
+		if (displayObject == null) {
+			displayObject = new DisplayObject(object);
+			this.objectMap.put(object, displayObject);
+		} else {
+			this.removeObject(object);
+		}
+		DenotatorPath path = object.getTopDenotatorPath();
+		if (path != null) {
+			DisplayObject replacedObject = this.objects.put(path, displayObject);
+			this.objectPaths.put(object, path);
+			if (this.grid != null) {
+				if (replacedObject != null) {
+					this.grid.remove(replacedObject);
 				}
+				this.grid.update(displayObject);
 			}
 		}
-		this.updateActiveSatelliteLevel();
 	}
 	
-	public void removeObjects(Set<BigBangObject> removedObjects) {
+	/**
+	 * Removes the given objects from the present ones. Their display objects are kept, so that they remain
+	 * selected if they reappear (e.g. during animation).
+	 */
+	public synchronized void removeObjects(Set<BigBangObject> removedObjects) {
 		for (BigBangObject currentObject : removedObjects) {
-			this.objects.remove(currentObject);
-			this.objectMap.remove(currentObject);
+			this.removeObject(currentObject);
+		}
+	}
+	
+	private void removeObject(BigBangObject object) {
+		DenotatorPath previousPath = this.objectPaths.remove(object);
+		if (previousPath != null && this.objects.get(previousPath) == this.objectMap.get(object)) {
+			this.objects.remove(previousPath);
+			if (this.grid != null) {
+				this.grid.remove(this.objectMap.get(object));
+			}
 		}
 	}
 	
+	/**
+	 * Applies the given change to the present objects.
+	 * @return the objects whose bounds have to be updated, including the removed ones
+	 */
+	public synchronized Set<DisplayObject> applyChange(CompositionChange change) {
+		Set<DisplayObject> changedObjects = new LinkedHashSet<DisplayObject>();
+		if (change.isComplete()) {
+			this.setObjects(change.getAddedObjects());
+			changedObjects.addAll(this.objects.values());
+			return changedObjects;
+		}
+		for (BigBangObject currentObject : change.getRemovedObjects()) {
+			if (this.objectMap.containsKey(currentObject)) {
+				changedObjects.add(this.objectMap.get(currentObject));
+			}
+		}
+		this.removeObjects(change.getRemovedObjects());
+		//remove all moved objects first, since their new paths may be previous paths of others
+		this.removeObjects(change.getMovedObjects());
+		Set<BigBangObject> addedObjects = new LinkedHashSet<BigBangObject>(change.getAddedObjects());
+		addedObjects.addAll(change.getMovedObjects());
+		this.addObjects(addedObjects);
+		//satellites without own values inherit the ones of their anchors
+		Set<BigBangObject> updatedObjects = new LinkedHashSet<BigBangObject>(change.getAddedObjects());
+		for (BigBangObject currentObject : change.getModifiedObjects()) {
+			updatedObjects.add(currentObject);
+			updatedObjects.addAll(currentObject.getChildren());
+		}
+		for (BigBangObject currentObject : updatedObjects) {
+			if (this.objectPaths.containsKey(currentObject)) {
+				changedObjects.add(this.objectMap.get(currentObject));
+			}
+		}
+		return changedObjects;
+	}
+	
+	private boolean isPresent(DisplayObject object) {
+		return object != null && this.objectPaths.containsKey(object.getBigBangObject());
+	}
+	
+	//returns the path under which the given object is present, null if it is not
+	private DenotatorPath getPresentPath(DisplayObject object) {
+		DenotatorPath path = this.objectPaths.get(object.getBigBangObject());
+		if (path != null && this.objects.get(path) == object) {
+			return path;
+		}
+		return null;
+	}
+	
 	public List<Double> getMinValues() {
 		return this.bbObjects.getMinValues();
 	}
@@ -247,7 +343,7 @@ public class DisplayObjects {
 	//------------------------
 	
 	public void setDisplay(DisplayContents display) {
-		for (DisplayObject currentObject : this.objects) {
+		for (DisplayObject currentObject : this.objects.values()) {
 			currentObject.setDisplay(display);
 		}
 	}
@@ -259,25 +355,52 @@ public class DisplayObjects {
 		}
 	}
 	
-	public void tempSelectObjects(Rectangle2D area) {
-		for (DisplayObject currentObject: this.objects) {
+	public synchronized void tempSelectObjects(Rectangle2D area) {
+		Set<DisplayObject> objectsInArea = new HashSet<DisplayObject>(this.getObjectsIn(area));
+		for (DisplayObject currentObject : this.tempSelectedObjects) {
+			if (!objectsInArea.contains(currentObject) && !this.selectedObjects.contains(currentObject)) {
+				currentObject.setSelected(false);
+			}
+		}
+		this.tempSelectedObjects = new HashSet<DisplayObject>();
+		for (DisplayObject currentObject : objectsInArea) {
 			if (!this.selectedObjects.contains(currentObject)) {
-				currentObject.setSelected(currentObject.intersects(area));
+				currentObject.setSelected(true);
+				this.tempSelectedObjects.add(currentObject);
 			}
 		}
 	}
 	
-	public int selectObjects(Rectangle2D area) {
-		for (DisplayObject currentObject: this.objects) {
-			if (currentObject.intersects(area)) {
-				this.selectObject(currentObject);
-			}
+	public synchronized int selectObjects(Rectangle2D area) {
+		for (DisplayObject currentObject : this.getObjectsIn(area)) {
+			this.selectObject(currentObject);
 		}
 		return this.selectedObjects.size();
 	}
 	
+	/**
+	 * @return the present objects intersecting the given area, sorted by their paths
+	 */
+	private List<DisplayObject> getObjectsIn(Rectangle2D area) {
+		TreeMap<DenotatorPath,DisplayObject> objectsInArea = new TreeMap<DenotatorPath,DisplayObject>();
+		for (DisplayObject currentObject : this.getGrid().getCandidatesIn(area)) {
+			DenotatorPath currentPath = this.getPresentPath(currentObject);
+			if (currentPath != null && currentObject.intersects(area)) {
+				objectsInArea.put(currentPath, currentObject);
+			}
+		}
+		return new ArrayList<DisplayObject>(objectsInArea.values());
+	}
+	
+	private DisplayObjectGrid getGrid() {
+		if (this.grid == null) {
+			this.grid = new DisplayObjectGrid(this.objects.values());
+		}
+		return this.grid;
+	}
+	
 	public void setObjectsOnLayerSelected(int layerIndex, boolean selected) {
-		for (DisplayObject currentObject: this.objects) {
+		for (DisplayObject currentObject: this.objects.values()) {
 			if (currentObject.isOnLayer(layerIndex)) {
 				this.setObjectSelected(currentObject, selected);
 			}
@@ -336,20 +459,19 @@ public class DisplayObjects {
 		}
 	}
 	
-	public int selectTopOrDeselectAllObjects(Point2D location) {
+	public synchronized int selectTopOrDeselectAllObjects(Point2D location) {
 		//notes are saved from bottom to top... just takes one note
-		for (DisplayObject currentObject: this.objects) {
-			if (currentObject.getRectangle().contains(location)) {
-				this.toggleSelected(currentObject);
-				return this.selectedObjects.size();
-			}
+		DisplayObject objectAtLocation = this.getObjectAt(location);
+		if (objectAtLocation != null) {
+			this.toggleSelected(objectAtLocation);
+			return this.selectedObjects.size();
 		}
 		this.deselectAllObjects();
 		return this.selectedObjects.size();
 	}
 	
 	public void updateObjectSelections() {
-		for (DisplayObject currentObject: this.objects) {
+		for (DisplayObject currentObject: this.objects.values()) {
 			if (!currentObject.isActive() && this.selectedObjects.contains(currentObject)) {
 				this.selectedObjects.remove(currentObject);
 			}
@@ -363,8 +485,22 @@ public class DisplayObjects {
 		this.selectedObjects = new TreeSet<DisplayObject>();
 	}
 	
-	public DisplayObject getObjectAt(Point2D location) {
-		return this.getObjectAt(location, this.objects);
+	/**
+	 * @return the present object with the lowest path at the given location, null if there is none
+	 */
+	public synchronized DisplayObject getObjectAt(Point2D location) {
+		DisplayObject objectAtLocation = null;
+		DenotatorPath lowestPath = null;
+		for (DisplayObject currentObject : this.getGrid().getCandidatesAt(location)) {
+			DenotatorPath currentPath = this.getPresentPath(currentObject);
+			if (currentPath != null && currentObject.getRectangle().contains(location)) {
+				if (lowestPath == null || currentPath.compareTo(lowestPath) < 0) {
+					objectAtLocation = currentObject;
+					lowestPath = currentPath;
+				}
+			}
+		}
+		return objectAtLocation;
 	}
 	
 	public boolean hasSelectedObjectAt(Point2D location) {
@@ -372,7 +508,7 @@ public class DisplayObjects {
 		return this.getObjectAt(location, this.selectedObjects) != null;
 	}
 	
-	private DisplayObject getObjectAt(Point2D location, Set<DisplayObject> objects) {
+	private DisplayObject getObjectAt(Point2D location, Collection<DisplayObject> objects) {
 		for (DisplayObject currentObject : objects) {
 			if (currentObject.getRectangle().contains(location)) {
 				return currentObject;
@@ -400,7 +536,7 @@ public class DisplayObjects {
 	}
 	
 	public Point2D getSelectedAnchorCenter() {
-		if (this.selectedAnchor != null && this.objects.contains(this.selectedAnchor)) {
+		if (this.isPresent(this.selectedAnchor)) {
 			return this.selectedAnchor.getLocation();
 		}
 		return null;
@@ -419,7 +555,7 @@ public class DisplayObjects {
 	}
 	
 	public BigBangObject getSelectedBigBangAnchor() {
-		if (this.selectedAnchor != null && this.objects.contains(this.selectedAnchor)) {
+		if (this.isPresent(this.selectedAnchor)) {
 			return this.selectedAnchor.getBigBangObject();
 		}
 		return null;
@@ -453,7 +589,7 @@ public class DisplayObjects {
 	}*/
 	
 	/*private void makeAllModulatorsVisible() {
-		for (DisplayObject currentObject: this.objects) {
+		for (DisplayObject currentObject: this.objects.values()) {
 			currentObject.setVisibility(LayerState.active);
 		}
 	}
@@ -471,7 +607,7 @@ public class DisplayObjects {
 	}
 	
 	private void updateVisibility(LayerStates states) {
-		for (DisplayObject currentObject: this.objects) {
+		for (DisplayObject currentObject: this.objects.values()) {
 			LayerState currentState = states.get(currentObject.getLayer());
 			currentObject.setVisibility(currentState);
 			if (!currentState.equals(LayerState.active)) {
@@ -482,15 +618,29 @@ public class DisplayObjects {
 		//deselect or select notes!!!
 	}*/
 	
-	public void updateBounds(double xZoomFactor, double yZoomFactor, int xPosition, int yPosition) {
-		for (DisplayObject currentObject : this.objects) {
+	public synchronized void updateBounds(double xZoomFactor, double yZoomFactor, int xPosition, int yPosition) {
+		for (DisplayObject currentObject : this.objects.values()) {
 			currentObject.updateBounds(xZoomFactor, yZoomFactor, xPosition, yPosition);
 		}
+		this.grid = null;
+	}
+	
+	/**
+	 * Updates the bounds of the given objects only, e.g. after they were changed, and keeps the index of the
+	 * present ones up to date.
+	 */
+	public synchronized void updateBounds(Collection<DisplayObject> changedObjects, double xZoomFactor, double yZoomFactor, int xPosition, int yPosition) {
+		for (DisplayObject currentObject : changedObjects) {
+			currentObject.updateBounds(xZoomFactor, yZoomFactor, xPosition, yPosition);
+			if (this.grid != null && this.getPresentPath(currentObject) != null) {
+				this.grid.update(currentObject);
+			}
+		}
 	}
 	
 	public void paint(AbstractPainter painter) {
 		try {
-			this.paintConnectors(painter, this.objects);
+			this.paintConnectors(painter, this.objects.values());
 			//paint active notes on top of inactive ones
 			this.paintInactiveObjects(painter);
 			this.paintActiveObjects(painter);
@@ -508,7 +658,7 @@ public class DisplayObjects {
 		}
 	}
 	
-	private void paintConnectors(AbstractPainter painter, Set<DisplayObject> notes) {
+	private void paintConnectors(AbstractPainter painter, Collection<DisplayObject> notes) {
 		for (DisplayObject currentObject : notes) {
 			if (currentObject.isVisible()) {
 				DisplayObject currentParent = this.getParent(currentObject);
@@ -520,7 +670,7 @@ public class DisplayObjects {
 	}
 	
 	private void paintInactiveObjects(AbstractPainter painter) throws ConcurrentModificationException {
-		for (DisplayObject currentObject : this.objects) {
+		for (DisplayObject currentObject : this.objects.values()) {
 			if (!currentObject.isActive()) {
 				currentObject.paint(painter);
 			}
@@ -528,7 +678,7 @@ public class DisplayObjects {
 	}
 	
 	private void paintActiveObjects(AbstractPainter painter) throws ConcurrentModificationException {
-		for (DisplayObject currentObject : this.objects) {
+		for (DisplayObject currentObject : this.objects.values()) {
 			if (currentObject.isActive()) {
 				currentObject.paint(painter);
 			}
@@ -537,7 +687,7 @@ public class DisplayObjects {
 	
 	private synchronized void paintSelectedObjects(AbstractPainter painter) {
 		//avoid concurrent modification exception..
-		for (DisplayObject currentObject : new TreeSet<DisplayObject>(this.objects)) {
+		for (DisplayObject currentObject : new ArrayList<DisplayObject>(this.objects.values())) {
 			if (this.selectedObjects.contains(currentObject)) {
 				currentObject.paint(painter);
 			}
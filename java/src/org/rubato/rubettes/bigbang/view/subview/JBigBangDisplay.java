@@ -5,6 +5,7 @@ import java.awt.Graphics;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.beans.PropertyChangeEvent;
+import java.util.Set;
 
 import javax.swing.JPanel;
 import javax.swing.Timer;
@@ -13,12 +14,14 @@ import org.rubato.rubettes.bigbang.controller.BigBangController;
 import org.rubato.rubettes.bigbang.view.View;
 import org.rubato.rubettes.bigbang.view.controller.ViewController;
 import org.rubato.rubettes.bigbang.view.controller.mode.DisplayModeAdapter;
+import org.rubato.rubettes.bigbang.view.model.DisplayObject;
 import org.rubato.rubettes.bigbang.view.model.ViewParameters;
 import org.rubato.rubettes.bigbang.view.model.ZoomChange;
 import org.rubato.rubettes.bigbang.view.model.tools.DisplayTool;
 import org.rubato.rubettes.bigbang.view.player.BigBangPlayer;
 import org.rubato.rubettes.util.PerformanceCheck;
 import org.rubato.rubettes.util.Point;
+import org.rubato.rubettes.util.Rectangle2D;
 
 public class JBigBangDisplay extends JPanel implements View {
 	
@@ -101,6 +104,17 @@ public class JBigBangDisplay extends JPanel implements View {
 			//PerformanceCheck.print();
 			//System.out.println("\n\n");
 			PerformanceCheck.reset();
+		} else if (propertyName.equals(ViewController.CHANGED_DISPLAY_OBJECTS)) {
+			@SuppressWarnings("unchecked")
+			Set<DisplayObject> changedObjects = (Set<DisplayObject>)event.getNewValue();
+			Rectangle2D changedArea = this.contents.updateObjects(changedObjects);
+			if (this.contents.satellitesConnected()) {
+				//connectors may reach far beyond the changed objects
+				this.repaint();
+			} else if (changedArea != null) {
+				this.repaint((int)Math.floor(changedArea.getX())-1, (int)Math.floor(changedArea.getY())-1,
+						(int)Math.ceil(changedArea.getWidth())+3, (int)Math.ceil(changedArea.getHeight())+3);
+			}
 		} else if (propertyName.equals(ViewController.CENTER_VIEW)) {
 			this.contents.centerView();
 			this.repaint();
@@ -1,11 +1,13 @@
 package org.rubato.rubettes.bigbang.view.subview.multitouch;
 
 import java.beans.PropertyChangeEvent;
+import java.util.Set;
 
 import org.mt4j.MTApplication;
 import org.rubato.rubettes.bigbang.view.View;
 import org.rubato.rubettes.bigbang.view.controller.ViewController;
 import org.rubato.rubettes.bigbang.view.controller.mode.multitouch.MTDisplayModeAdapter;
+import org.rubato.rubettes.bigbang.view.model.DisplayObject;
 import org.rubato.rubettes.bigbang.view.model.ViewParameters;
 import org.rubato.rubettes.bigbang.view.model.ZoomChange;
 import org.rubato.rubettes.bigbang.view.model.tools.DisplayTool;
@@ -84,6 +86,11 @@ public class MTBigBangApp extends MTApplication implements View {
 		} else if (propertyName.equals(ViewController.DISPLAY_OBJECTS)) {
 			this.contents.setObjects((DisplayObjects)event.getNewValue());
 			this.repaint(false);
+		} else if (propertyName.equals(ViewController.CHANGED_DISPLAY_OBJECTS)) {
+			@SuppressWarnings("unchecked")
+			Set<DisplayObject> changedObjects = (Set<DisplayObject>)event.getNewValue();
+			this.contents.updateObjects(changedObjects);
+			this.repaint(false);
 		} else if (propertyName.equals(ViewController.DISPLAY_TOOL)) {
 			this.contents.setTool((DisplayTool)event.getNewValue());
 			this.repaint(event.getNewValue() == null);
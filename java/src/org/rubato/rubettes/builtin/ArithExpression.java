@@ -0,0 +1,424 @@
+package org.rubato.rubettes.builtin;
+
+import static java.lang.Math.pow;
+
+import java.util.Arrays;
+
+/**
+ * An arithmetic expression compiled from the code of an {@link ArithVM}
+ * into a tree of operations. In contrast to the virtual machine, no
+ * instructions are decoded during evaluation and no state is shared
+ * between evaluations, so that an expression may be used by several
+ * threads at once.
+ * Besides evaluating the expression for a single set of parameters,
+ * it can be evaluated for many sets at once, given as columns, one for
+ * each parameter. Each operation then runs as a tight loop over a block
+ * of rows, which is much faster than evaluating the rows one by one.
+ * Use {@link ArithVM#compile()} to create an expression.
+ */
+public final class ArithExpression {
+
+    ArithExpression(Node root, int nrArgs) {
+        this.root = root;
+        this.nrArgs = nrArgs;
+        this.registerCount = root.getHeight();
+    }
+
+
+    /**
+     * Returns the number of parameters the expression needs.
+     */
+    public int getNrArgs() {
+        return nrArgs;
+    }
+
+
+    /**
+     * Evaluates the expression for the specified parameters.
+     * Boolean results are returned as 1 (true) and 0 (false).
+     *
+     * @throws IllegalArgumentException if there are not enough parameters
+     */
+    public double eval(double ... parameters) {
+        if (parameters.length < nrArgs) {
+            throw new IllegalArgumentException("Not enough parameters");
+        }
+        return root.eval(parameters);
+    }
+
+
+    /**
+     * Evaluates the expression for all rows of the specified columns,
+     * where <code>columns[i][j]</code> is the value of parameter
+     * <code>i</code> in row <code>j</code>. All columns must have the
+     * same length.
+     *
+     * @return an array containing the result for each row
+     * @throws IllegalArgumentException if there are not enough columns
+     */
+    public double[] eval(double[][] columns) {
+        double[] result = new double[columns.length > 0 ? columns[0].length : 1];
+        eval(columns, result);
+        return result;
+    }
+
+
+    /**
+     * Evaluates the expression for the rows of the specified columns,
+     * where <code>columns[i][j]</code> is the value of parameter
+     * <code>i</code> in row <code>j</code>, and stores the result
+     * of row <code>j</code> in <code>result[j]</code>. The number of
+     * rows is given by the length of <code>result</code>.
+     *
+     * @throws IllegalArgumentException if there are not enough columns
+     *         or a column is shorter than <code>result</code>
+     */
+    public void eval(double[][] columns, double[] result) {
+        if (columns.length < nrArgs) {
+            throw new IllegalArgumentException("Not enough parameters");
+        }
+        int rows = result.length;
+        for (int i = 0; i < nrArgs; i++) {
+            if (columns[i].length < rows) {
+                throw new IllegalArgumentException("Column "+i+" has less than "+rows+" rows");
+            }
+        }
+        double[][] registers = new double[registerCount][Math.min(rows, BLOCK_SIZE)];
+        for (int offset = 0; offset < rows; offset += BLOCK_SIZE) {
+            int len = Math.min(BLOCK_SIZE, rows-offset);
+            root.eval(columns, offset, len, registers, 0);
+            System.arraycopy(registers[0], 0, result, offset, len);
+        }
+    }
+
+
+    /**
+     * A node in the operation tree. In block evaluation, the result
+     * of a node with register <code>r</code> is stored in
+     * <code>registers[r]</code>, the registers above <code>r</code>
+     * are available for intermediate results.
+     */
+    static abstract class Node {
+
+        abstract double eval(double[] p);
+
+        abstract void eval(double[][] columns, int offset, int len, double[][] registers, int r);
+
+        /**
+         * Returns the number of registers needed for block evaluation.
+         */
+        abstract int getHeight();
+    }
+
+
+    static final class Constant extends Node {
+
+        Constant(double value) {
+            this.value = value;
+        }
+
+        double eval(double[] p) {
+            return value;
+        }
+
+        void eval(double[][] columns, int offset, int len, double[][] registers, int r) {
+            Arrays.fill(registers[r], 0, len, value);
+        }
+
+        int getHeight() {
+            return 1;
+        }
+
+        private final double value;
+    }
+
+
+    static final class Parameter extends Node {
+
+        Parameter(int index) {
+            this.index = index;
+        }
+
+        double eval(double[] p) {
+            return p[index];
+        }
+
+        void eval(double[][] columns, int offset, int len, double[][] registers, int r) {
+            System.arraycopy(columns[index], offset, registers[r], 0, len);
+        }
+
+        int getHeight() {
+            return 1;
+        }
+
+        private final int index;
+    }
+
+
+    /**
+     * Unary operations, <code>op</code> is one of the opcodes
+     * {@link ArithVM#UMINUS} and {@link ArithVM#NOT}.
+     */
+    static final class Unary extends Node {
+
+        Unary(int op, Node arg) {
+            this.op = op;
+            this.arg = arg;
+        }
+
+        double eval(double[] p) {
+            double a = arg.eval(p);
+            return (op == ArithVM.UMINUS)?-a:1-a;
+        }
+
+        void eval(double[][] columns, int offset, int len, double[][] registers, int r) {
+            arg.eval(columns, offset, len, registers, r);
+            double[] a = registers[r];
+            if (op == ArithVM.UMINUS) {
+                for (int i = 0; i < len; i++) {
+                    a[i] = -a[i];
+                }
+            }
+            else {
+                for (int i = 0; i < len; i++) {
+                    a[i] = 1-a[i];
+                }
+            }
+        }
+
+        int getHeight() {
+            return arg.getHeight();
+        }
+
+        private final int  op;
+        private final Node arg;
+    }
+
+
+    /**
+     * Binary operations, <code>op</code> is one of the opcodes
+     * of the binary arithmetic, comparison and logical operations
+     * of {@link ArithVM}.
+     */
+    static final class Binary extends Node {
+
+        Binary(int op, Node left, Node right) {
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        double eval(double[] p) {
+            double a = left.eval(p);
+            double b = right.eval(p);
+            switch (op) {
+            case ArithVM.PLUS:   return a+b;
+            case ArithVM.MINUS:  return a-b;
+            case ArithVM.TIMES:  return a*b;
+            case ArithVM.DIV:    return a/b;
+            case ArithVM.EXP:    return pow(a, b);
+            case ArithVM.GE:     return (a >= b)?1:0;
+            case ArithVM.GT:     return (a > b)?1:0;
+            case ArithVM.LE:     return (a <= b)?1:0;
+            case ArithVM.LT:     return (a < b)?1:0;
+            case ArithVM.EQUALS: return (a == b)?1:0;
+            case ArithVM.NEQ:    return (a != b)?1:0;
+            case ArithVM.AND:    return a*b;
+            default:             return (a == 0)?b:1;
+            }
+        }
+
+        void eval(double[][] columns, int offset, int len, double[][] registers, int r) {
+            left.eval(columns, offset, len, registers, r);
+            right.eval(columns, offset, len, registers, r+1);
+            double[] a = registers[r];
+            double[] b = registers[r+1];
+            switch (op) {
+            case ArithVM.PLUS:
+                for (int i = 0; i < len; i++) {
+                    a[i] += b[i];
+                }
+                break;
+            case ArithVM.MINUS:
+                for (int i = 0; i < len; i++) {
+                    a[i] -= b[i];
+                }
+                break;
+            case ArithVM.TIMES:
+            case ArithVM.AND:
+                for (int i = 0; i < len; i++) {
+                    a[i] *= b[i];
+                }
+                break;
+            case ArithVM.DIV:
+                for (int i = 0; i < len; i++) {
+                    a[i] /= b[i];
+                }
+                break;
+            case ArithVM.EXP:
+                for (int i = 0; i < len; i++) {
+                    a[i] = pow(a[i], b[i]);
+                }
+                break;
+            case ArithVM.GE:
+                for (int i = 0; i < len; i++) {
+                    a[i] = (a[i] >= b[i])?1:0;
+                }
+                break;
+            case ArithVM.GT:
+                for (int i = 0; i < len; i++) {
+                    a[i] = (a[i] > b[i])?1:0;
+                }
+                break;
+            case ArithVM.LE:
+                for (int i = 0; i < len; i++) {
+                    a[i] = (a[i] <= b[i])?1:0;
+                }
+                break;
+            case ArithVM.LT:
+                for (int i = 0; i < len; i++) {
+                    a[i] = (a[i] < b[i])?1:0;
+                }
+                break;
+            case ArithVM.EQUALS:
+                for (int i = 0; i < len; i++) {
+                    a[i] = (a[i] == b[i])?1:0;
+                }
+                break;
+            case ArithVM.NEQ:
+                for (int i = 0; i < len; i++) {
+                    a[i] = (a[i] != b[i])?1:0;
+                }
+                break;
+            default:
+                for (int i = 0; i < len; i++) {
+                    a[i] = (a[i] == 0)?b[i]:1;
+                }
+                break;
+            }
+        }
+
+        int getHeight() {
+            return Math.max(left.getHeight(), right.getHeight()+1);
+        }
+
+        private final int  op;
+        private final Node left;
+        private final Node right;
+    }
+
+
+    /**
+     * Calls of the built-in functions of {@link ArithVM}.
+     */
+    static final class FunctionCall extends Node {
+
+        FunctionCall(ArithVM.FunInfo fi, Node[] args) {
+            this.fi = fi;
+            this.args = args;
+        }
+
+        double eval(double[] p) {
+            switch (args.length) {
+            case 0:  return fi.eval();
+            case 1:  return fi.eval(args[0].eval(p));
+            case 2:  return fi.eval(args[0].eval(p), args[1].eval(p));
+            default: return fi.eval(args[0].eval(p), args[1].eval(p), args[2].eval(p));
+            }
+        }
+
+        void eval(double[][] columns, int offset, int len, double[][] registers, int r) {
+            for (int i = 0; i < args.length; i++) {
+                args[i].eval(columns, offset, len, registers, r+i);
+            }
+            double[] a = registers[r];
+            switch (args.length) {
+            case 0:
+                Arrays.fill(a, 0, len, fi.eval());
+                break;
+            case 1:
+                for (int i = 0; i < len; i++) {
+                    a[i] = fi.eval(a[i]);
+                }
+                break;
+            case 2: {
+                double[] b = registers[r+1];
+                for (int i = 0; i < len; i++) {
+                    a[i] = fi.eval(a[i], b[i]);
+                }
+                break;
+            }
+            default: {
+                double[] b = registers[r+1];
+                double[] c = registers[r+2];
+                for (int i = 0; i < len; i++) {
+                    a[i] = fi.eval(a[i], b[i], c[i]);
+                }
+                break;
+            }
+            }
+        }
+
+        int getHeight() {
+            int height = 1;
+            for (int i = 0; i < args.length; i++) {
+                height = Math.max(height, args[i].getHeight()+i);
+            }
+            return height;
+        }
+
+        private final ArithVM.FunInfo fi;
+        private final Node[]          args;
+    }
+
+
+    /**
+     * The <code>if ... then ... else ...</code> expression. In block
+     * evaluation, both branches are evaluated for all rows, which is
+     * possible since expressions have no side effects.
+     */
+    static final class Conditional extends Node {
+
+        Conditional(Node condition, Node thenNode, Node elseNode) {
+            this.condition = condition;
+            this.thenNode = thenNode;
+            this.elseNode = elseNode;
+        }
+
+        double eval(double[] p) {
+            return (condition.eval(p) != 0)?thenNode.eval(p):elseNode.eval(p);
+        }
+
+        void eval(double[][] columns, int offset, int len, double[][] registers, int r) {
+            condition.eval(columns, offset, len, registers, r);
+            thenNode.eval(columns, offset, len, registers, r+1);
+            elseNode.eval(columns, offset, len, registers, r+2);
+            double[] a = registers[r];
+            double[] b = registers[r+1];
+            double[] c = registers[r+2];
+            for (int i = 0; i < len; i++) {
+                a[i] = (a[i] != 0)?b[i]:c[i];
+            }
+        }
+
+        int getHeight() {
+            return Math.max(condition.getHeight(),
+                            Math.max(thenNode.getHeight()+1, elseNode.getHeight()+2));
+        }
+
+        private final Node condition;
+        private final Node thenNode;
+        private final Node elseNode;
+    }
+
+
+    /**
+     * The number of rows evaluated at once, chosen so that the
+     * registers of moderately complex expressions fit into the cache.
+     */
+    private static final int BLOCK_SIZE = 512;
+
+    private final Node root;
+    private final int  nrArgs;
+    private final int  registerCount;
+}
@@ -0,0 +1,87 @@
+package org.rubato.rubettes.builtin;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class ArithExpressionTest extends TestCase {
+
+    private static final String[] REAL_EXPRESSIONS = {
+        "#0+#1",
+        "-#0*2-#1/3",
+        "sin(#0)*#1+sqrt(#0*#0+#1*#1)/(1+abs(#1))",
+        "max(#0,#1)^2-min(#0,pow(2,#1))",
+        "if #0 < #1 & !(#0 = 0) then #0*#1 else if #1 >= 0.5 | #0 != #1 then exp(#0) else 3",
+        "4.5"
+    };
+
+    private static final String[] BOOLEAN_EXPRESSIONS = {
+        "#0 < #1",
+        "#0 != #1 & #1 > 0.5",
+        "!(#0 <= 0.2) | F",
+        "T & #0*#1 >= 0.25"
+    };
+
+    private Random random = new Random(17);
+
+    public void testRealExpressions() {
+        for (String expression : REAL_EXPRESSIONS) {
+            assertSameResults(expression, true);
+        }
+    }
+
+    public void testBooleanExpressions() {
+        for (String expression : BOOLEAN_EXPRESSIONS) {
+            assertSameResults(expression, false);
+        }
+    }
+
+    public void testNotEnoughParameters() {
+        ArithExpression expression = compile("#0+#1", true);
+        TestCase.assertEquals(2, expression.getNrArgs());
+        try {
+            expression.eval(1.0);
+            TestCase.fail("IllegalArgumentException expected");
+        }
+        catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            expression.eval(new double[][] { { 1.0 } });
+            TestCase.fail("IllegalArgumentException expected");
+        }
+        catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private void assertSameResults(String expression, boolean isResultReal) {
+        ArithCompiler compiler = new ArithCompiler(expression, isResultReal);
+        TestCase.assertTrue(expression, compiler.parse(2));
+        ArithVM vm = compiler.getVM();
+        ArithExpression compiled = vm.compile();
+        // more rows than fit into one block
+        int rows = 1500;
+        double[][] columns = new double[2][rows];
+        for (int i = 0; i < rows; i++) {
+            // some equal and zero values for the comparisons
+            columns[0][i] = (i%7 == 0) ? 0 : random.nextDouble();
+            columns[1][i] = (i%5 == 0) ? columns[0][i] : random.nextDouble();
+        }
+        double[] batch = compiled.eval(columns);
+        TestCase.assertEquals(rows, batch.length);
+        for (int i = 0; i < rows; i++) {
+            vm.eval(columns[0][i], columns[1][i]);
+            TestCase.assertFalse(vm.hasError());
+            double expected = vm.getRealResult();
+            TestCase.assertEquals(expression, expected, compiled.eval(columns[0][i], columns[1][i]));
+            TestCase.assertEquals(expression, expected, batch[i]);
+        }
+    }
+
+    private ArithExpression compile(String expression, boolean isResultReal) {
+        ArithCompiler compiler = new ArithCompiler(expression, isResultReal);
+        TestCase.assertTrue(expression, compiler.parse(2));
+        return compiler.getVM().compile();
+    }
+}
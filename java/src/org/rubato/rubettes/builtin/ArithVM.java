@@ -152,7 +152,7 @@ public class ArithVM {
                 break;
             }
             case NEQ: {
-                stack[sp-2] = (stack[sp-2] == stack[sp-1])?1:0;
+                stack[sp-2] = (stack[sp-2] != stack[sp-1])?1:0;
                 sp--;
                 break;
             }
@@ -251,6 +251,109 @@ public class ArithVM {
     }
     
     
+    /**
+     * Compiles the code of this virtual machine into an expression tree,
+     * which evaluates faster than the virtual machine and also supports
+     * evaluating many parameter sets at once.
+     * 
+     * @throws IllegalStateException if no code has been compiled yet
+     */
+    public ArithExpression compile() {
+        if (code == null) {
+            throw new IllegalStateException("No code compiled");
+        }
+        return new ArithExpression(decode(0, code.length), getNrArgs());
+    }
+    
+    
+    /**
+     * Decodes the instructions from <code>start</code> (inclusive)
+     * to <code>end</code> (exclusive) into an expression tree.
+     */
+    private ArithExpression.Node decode(int start, int end) {
+        ArrayList<ArithExpression.Node> nodes = new ArrayList<ArithExpression.Node>();
+        int i = start;
+        while (i < end) {
+            int c = code[i] & 255;
+            int d = code[i] >> 8;
+            switch (c) {
+            case IMMEDIATE: {
+                nodes.add(new ArithExpression.Constant(data[d]));
+                break;
+            }
+            case PARAM: {
+                nodes.add(new ArithExpression.Parameter(d));
+                break;
+            }
+            case TRUE: {
+                nodes.add(new ArithExpression.Constant(1));
+                break;
+            }
+            case FALSE: {
+                nodes.add(new ArithExpression.Constant(0));
+                break;
+            }
+            case UMINUS:
+            case NOT: {
+                nodes.add(new ArithExpression.Unary(c, pop(nodes)));
+                break;
+            }
+            case TIMES: case DIV: case PLUS: case MINUS: case EXP:
+            case AND: case OR: case LE: case LT: case GE: case GT:
+            case EQUALS: case NEQ: {
+                ArithExpression.Node right = pop(nodes);
+                ArithExpression.Node left = pop(nodes);
+                nodes.add(new ArithExpression.Binary(c, left, right));
+                break;
+            }
+            case FUNCALL: {
+                FunInfo fi = functions.get(d);
+                ArithExpression.Node[] args = new ArithExpression.Node[fi.nrArgs];
+                for (int j = fi.nrArgs-1; j >= 0; j--) {
+                    args[j] = pop(nodes);
+                }
+                nodes.add(new ArithExpression.FunctionCall(fi, args));
+                break;
+            }
+            case BIF: {
+                // the then part ends with a jump over the else part
+                // to the end of the conditional
+                ArithExpression.Node condition = pop(nodes);
+                int jmp = code[d-1];
+                if ((jmp & 255) != JMP) {
+                    throw new IllegalStateException("Error in VM.");
+                }
+                ArithExpression.Node thenNode = decode(i+1, d-1);
+                ArithExpression.Node elseNode = decode(d, jmp >> 8);
+                nodes.add(new ArithExpression.Conditional(condition, thenNode, elseNode));
+                i = (jmp >> 8)-1;
+                break;
+            }
+            case NOP: {
+                // do nothing
+                break;
+            }
+            default: {
+                throw new IllegalStateException("Error in VM.");
+            }
+            }
+            i++;
+        }
+        if (nodes.size() != 1) {
+            throw new IllegalStateException("Error in VM.");
+        }
+        return nodes.get(0);
+    }
+    
+    
+    private static ArithExpression.Node pop(ArrayList<ArithExpression.Node> nodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalStateException("Error in VM.");
+        }
+        return nodes.remove(nodes.size()-1);
+    }
+    
+    
     public void compileOp(int op) {
         tmpCode.add(op);
     }
@@ -445,7 +548,7 @@ public class ArithVM {
         functionsMap.put(fi.id, fi);
     }
     
-    private static class FunInfo implements Comparable<FunInfo> {
+    static class FunInfo implements Comparable<FunInfo> {
         
         public FunInfo(String id, int nrArgs) {
             this.id = id;
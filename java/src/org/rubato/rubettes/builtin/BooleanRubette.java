@@ -96,6 +96,16 @@ public final class BooleanRubette extends AbstractRubette {
         return RubatoConstants.CORE_GROUP;
     }
 
+
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+
+    public boolean canReuseOutputs() {
+        return true;
+    }
+
     
     public String getName() {
         return "Boolean"; //$NON-NLS-1$
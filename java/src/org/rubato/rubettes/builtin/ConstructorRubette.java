@@ -191,6 +191,16 @@ public class ConstructorRubette extends AbstractRubette {
         return RubatoConstants.CORE_GROUP;
     }
 
+
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+
+    public boolean canReuseOutputs() {
+        return true;
+    }
+
     
     public String getName() {
         return "Constructor"; //$NON-NLS-1$
@@ -212,6 +212,16 @@ public class ListRubette extends AbstractRubette {
         return RubatoConstants.CORE_GROUP;
     }
 
+
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+
+    public boolean canReuseOutputs() {
+        return true;
+    }
+
     
     public String getName() {
         return "List"; //$NON-NLS-1$
@@ -116,6 +116,24 @@ public class MacroRubette extends AbstractRubette {
     }
 
     
+    
+    /**
+     * A macro rubette is thread-safe iff all the rubettes in its network are.
+     */
+    public boolean isThreadSafe() {
+        if (networkModel != null) {
+            for (RubetteModel model : networkModel.getRubettes()) {
+                Rubette rubette = model.getRubette();
+                if (!(rubette instanceof AbstractRubette && ((AbstractRubette)rubette).isThreadSafe())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    
     public String getName() {
         return name;
     }
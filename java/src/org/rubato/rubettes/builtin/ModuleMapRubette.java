@@ -90,6 +90,16 @@ public class ModuleMapRubette
         return RubatoConstants.CORE_GROUP;
     }
 
+
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+
+    public boolean canReuseOutputs() {
+        return true;
+    }
+
     
     public String getName() {
         return "ModuleMap"; //$NON-NLS-1$
@@ -55,7 +55,7 @@ public class RealArithRubette extends AbstractRubette {
 
     
     public void run(RunInfo runInfo) {
-        if (vm == null) {
+        if (expression == null) {
             addError(Messages.getString("RealArithRubette.novalidexpression")); //$NON-NLS-1$
             return;
         }
@@ -89,16 +89,16 @@ public class RealArithRubette extends AbstractRubette {
             }
         }
         if (!hasErrors()) {
-            vm.eval(values);
-            if (vm.hasError()) {
-                addError(vm.getError());
+            if (values.length < expression.getNrArgs()) {
+                addError(Messages.getString("RealArithRubette.notenoughparams")); //$NON-NLS-1$
                 return;
             }
+            double result = expression.eval(values);
             if (isResultReal) {
-                setOutput(0, makeDenotator(resForm, vm.getRealResult()));
+                setOutput(0, makeDenotator(resForm, result));
             }
             else {
-                setOutput(0, vm.getBooleanResult()?trueDeno:falseDeno);                
+                setOutput(0, (result == 1.0)?trueDeno:falseDeno);                
             }
         }
     }
@@ -109,6 +109,16 @@ public class RealArithRubette extends AbstractRubette {
     }
 
 
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+
+    public boolean canReuseOutputs() {
+        return true;
+    }
+
+
     public Rubette duplicate() {
         RealArithRubette rubette = new RealArithRubette();
         rubette.setInCount(getInCount());
@@ -271,10 +281,10 @@ public class RealArithRubette extends AbstractRubette {
         if (compiler == null) {
             compiler = new ArithCompiler();
         }
-        vm = null;
+        expression = null;
         compiler.setExpression(expr, isResultReal);
         if (compiler.parse(nrArgs)) {
-            vm = compiler.getVM();
+            expression = compiler.getVM().compile();
             return true;
         }
         return false;
@@ -288,7 +298,7 @@ public class RealArithRubette extends AbstractRubette {
     private double[]          values = null;
     private JConnectorSliders inSlider = null;
     private ArithCompiler     compiler = null;
-    private ArithVM           vm = null;
+    private ArithExpression   expression = null;
     protected boolean         isResultReal = true;      
     
     private static final SimpleForm realForm; 
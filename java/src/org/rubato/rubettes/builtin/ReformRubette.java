@@ -77,6 +77,16 @@ public class ReformRubette extends AbstractRubette {
     public String getGroup() {
         return RubatoConstants.CORE_GROUP;
     }
+
+
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+
+    public boolean canReuseOutputs() {
+        return true;
+    }
     
 
     public String getName() {
@@ -26,6 +26,7 @@ import static org.rubato.scheme.SExpr.cdr;
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Font;
+import java.util.Arrays;
 import java.util.List;
 
 import javax.swing.*;
@@ -76,6 +77,19 @@ public class SchemeRubette extends AbstractRubette {
         return "Scheme"; //$NON-NLS-1$
     }
 
+
+    public boolean canReuseOutputs() {
+        return true;
+    }
+
+
+    /**
+     * The outputs also depend on the global Scheme code of the repository.
+     */
+    public Object getReuseKey() {
+        return Arrays.asList(schemeCode, rep.getSchemeCode());
+    }
+
     
     public Rubette duplicate() {
         SchemeRubette rubette = new SchemeRubette();
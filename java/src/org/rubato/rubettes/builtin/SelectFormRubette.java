@@ -56,7 +56,7 @@ public class SelectFormRubette extends AbstractRubette {
         }
         else if (outputForm != null) {
             try {
-                List<Denotator> denoList = Select.select(baseForm, input);
+                List<Denotator> denoList = Select.parallelSelect(baseForm, input, Runtime.getRuntime().availableProcessors());
                 output = DenoFactory.makeDenotator(outputForm, denoList);                
             }
             catch (RubatoException e) {
@@ -293,6 +293,16 @@ public class SetRubette extends AbstractRubette {
         return RubatoConstants.CORE_GROUP;
     }
 
+
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+
+    public boolean canReuseOutputs() {
+        return true;
+    }
+
     
     public String getName() {
         return "Set"; //$NON-NLS-1$
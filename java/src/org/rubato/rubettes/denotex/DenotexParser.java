@@ -1288,31 +1288,32 @@ final public List simpleCrs(int type) throws ParseException {
                    Rational q;
       q = qLiteral();
         try {
-            int n = q.getNumerator();
-            int d = q.getDenominator();
+            // only integers need to fit into an int, the numerator
+            // of other rationals may be arbitrarily large
+            double x = q.doubleValue();
             if (m instanceof ZRing) {
-                if (d != 1) {if (true) throw parseError("");}
-                elements.add(new ZElement(n));
+                if (!q.isIntegral()) {if (true) throw parseError("");}
+                elements.add(new ZElement(q.getNumerator()));
             }
             else if (m instanceof ZnRing) {
-                if (d != 1) {if (true) throw parseError("");}
-                elements.add(new ZnElement(n, ((ZnRing)m).getModulus()));
+                if (!q.isIntegral()) {if (true) throw parseError("");}
+                elements.add(new ZnElement(q.getNumerator(), ((ZnRing)m).getModulus()));
             }
             else if (m instanceof QRing)
                 elements.add(new QElement(q));
             else if (m instanceof RRing)
-                elements.add(new RElement((double)n / (double)d));
+                elements.add(new RElement(x));
 
             // we also allow to convert numbers into strings without quotes
             else if (m instanceof ZStringRing)
-                elements.add(new ZStringElement("" + (double)n / (double)d));
+                elements.add(new ZStringElement("" + x));
             else if (m instanceof ZnStringRing)
-                elements.add(new ZnStringElement("" + (double)n / (double)d,
+                elements.add(new ZnStringElement("" + x,
                                             ((ZnStringRing)m).getModulus()));
             else if (m instanceof QStringRing)
-                elements.add(new QStringElement("" + (double)n / (double)d));
+                elements.add(new QStringElement("" + x));
             else if (m instanceof RStringRing)
-                elements.add(new RStringElement("" + (double)n / (double)d));
+                elements.add(new RStringElement("" + x));
 
             // error
             else {if (true) throw parseError("");}
@@ -24,6 +24,7 @@ import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import javax.imageio.ImageIO;
@@ -115,6 +116,17 @@ public class ImageFileInRubette extends SimpleAbstractRubette {
     	}
     }
     
+    public boolean canReuseOutputs() {
+        return true;
+    }
+    
+    public Object getReuseKey() {
+        if (this.imageFile == null) {
+            return null;
+        }
+        return Arrays.asList(this.imageFile.getAbsolutePath(), this.imageFile.lastModified());
+    }
+    
     private BufferedImage readImageFile() {
     	try {
     	    return ImageIO.read(this.imageFile);
@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -302,9 +303,9 @@ public class MorphingRubette extends SimpleAbstractRubette {
 	private Map<Denotator, Denotator> getNeighborMap(PowerDenotator denotator, PowerDenotator neighbors) {
 		Map<Denotator, Denotator> neighborMap = new HashMap<Denotator, Denotator>();
 		NearestNeighborFinder neighborFinder = new NearestNeighborFinder(neighbors, this.elementPaths);
+		List<Denotator> nearestNeighbors = neighborFinder.findNearestNeighbors(denotator.getFactors());
 		for (int i = 0; i < denotator.getFactorCount(); i++) {
-			Denotator currentFactor = denotator.getFactor(i);
-			neighborMap.put(currentFactor, neighborFinder.findNearestNeighbor(currentFactor));
+			neighborMap.put(denotator.getFactor(i), nearestNeighbors.get(i));
 		}
 		return neighborMap;
 	}
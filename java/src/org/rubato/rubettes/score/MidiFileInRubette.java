@@ -23,6 +23,7 @@ import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.*;
+import java.util.Arrays;
 
 import javax.sound.midi.InvalidMidiDataException;
 import javax.swing.*;
@@ -99,6 +100,19 @@ public class MidiFileInRubette extends AbstractRubette {
         return "MidiFileIn";
     }
 
+
+    public boolean canReuseOutputs() {
+        return true;
+    }
+
+
+    public Object getReuseKey() {
+        if (midiFile == null) {
+            return null;
+        }
+        return Arrays.asList(midiFile.getAbsolutePath(), midiFile.lastModified());
+    }
+
     
     public Rubette duplicate() {
         MidiFileInRubette newRubette = new MidiFileInRubette();
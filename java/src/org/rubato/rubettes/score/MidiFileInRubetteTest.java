@@ -0,0 +1,36 @@
+package org.rubato.rubettes.score;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.rubato.composer.rubette.RubetteModel;
+
+import junit.framework.TestCase;
+
+public class MidiFileInRubetteTest extends TestCase {
+
+    public void testReuseOutputs() throws IOException {
+        File file = File.createTempFile("score", ".mid");
+        try {
+            file.setLastModified(1000000000000L);
+            MidiFileInRubette rubette = new MidiFileInRubette();
+            rubette.setMidiFile(file.getAbsolutePath());
+            RubetteModel model = new RubetteModel(rubette, "MidiFileIn");
+            TestCase.assertFalse(model.isUpToDate());
+            model.validate();
+            TestCase.assertTrue(model.isUpToDate());
+
+            //the file is read again after it has been modified
+            file.setLastModified(1000000060000L);
+            TestCase.assertFalse(model.isUpToDate());
+            model.validate();
+            TestCase.assertTrue(model.isUpToDate());
+            model.invalidate();
+            TestCase.assertFalse(model.isUpToDate());
+        }
+        finally {
+            file.delete();
+        }
+    }
+
+}
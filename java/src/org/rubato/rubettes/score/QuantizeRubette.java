@@ -52,7 +52,7 @@ public class QuantizeRubette extends SimpleAbstractRubette {
     }
 
     public void run(RunInfo runInfo) {
-    	Denotator input = this.getInput(0).copy();
+    	Denotator input = this.getInput(0);
     	if (input == null) {
             this.addError("Input denotator is null.");
     	} else if (input.hasForm(new SoundNoteGenerator().getScoreForm())) {
@@ -72,6 +72,10 @@ public class QuantizeRubette extends SimpleAbstractRubette {
     public String getName() {
         return "Quantize";
     }
+    
+    public boolean canReuseOutputs() {
+        return true;
+    }
 	
     public String getShortDescription() {
         return "Quantizes a score denotator";
@@ -1,8 +1,11 @@
 package org.rubato.rubettes.util;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.rubato.base.RubatoException;
 import org.rubato.math.arith.Rational;
@@ -15,10 +18,14 @@ import org.rubato.math.module.ModuleElement;
 import org.rubato.math.module.ProductElement;
 import org.rubato.math.module.ProductRing;
 import org.rubato.math.module.QFreeModule;
+import org.rubato.math.module.QRing;
+import org.rubato.math.module.RElement;
 import org.rubato.math.module.RFreeModule;
+import org.rubato.math.module.RRing;
 import org.rubato.math.module.Ring;
 import org.rubato.math.module.RingElement;
 import org.rubato.math.module.ZElement;
+import org.rubato.math.module.ZRing;
 import org.rubato.math.module.morphism.CanonicalMorphism;
 import org.rubato.math.module.morphism.CompositionException;
 import org.rubato.math.module.morphism.ConstantMorphism;
@@ -27,10 +34,12 @@ import org.rubato.math.module.morphism.GenericAffineMorphism;
 import org.rubato.math.module.morphism.ModuleMorphism;
 import org.rubato.math.module.morphism.ProjectionMorphism;
 import org.rubato.math.module.morphism.QFreeAffineMorphism;
+import org.rubato.math.module.morphism.RAffineMorphism;
 import org.rubato.math.module.morphism.RFreeAffineMorphism;
 import org.rubato.math.module.morphism.SumMorphism;
 import org.rubato.math.module.morphism.ZFreeAffineMorphism;
 import org.rubato.math.yoneda.Denotator;
+import org.rubato.math.yoneda.Form;
 import org.rubato.math.yoneda.NameDenotator;
 import org.rubato.math.yoneda.PowerDenotator;
 import org.rubato.math.yoneda.SimpleDenotator;
@@ -49,9 +58,12 @@ public class ArbitraryDenotatorMapper {
 	private Module domain;
 	private int domainDim, codomainDim;
 	private List<ModuleMorphism> injectionMorphisms;
+	//mapping plans for the shapes of the denotators mapped so far, null for shapes that cannot be planned
+	private Map<DenotatorShape,MappingPlan> mappingPlans;
 	
 	public ArbitraryDenotatorMapper(ModuleMorphism morphism, TransformationPaths paths) {
 		this.transformationPaths = paths;
+		this.mappingPlans = new HashMap<DenotatorShape,MappingPlan>();
 		this.init(morphism);
 	}
 	
@@ -92,10 +104,132 @@ public class ArbitraryDenotatorMapper {
 	}
 	
 	public Denotator getMappedDenotator(Denotator denotator) throws RubatoException {
+		//null-addressed denotators are mapped value by value using the plan for their shape
+		if (denotator.getAddress().isNullModule()) {
+			MappingPlan plan = this.getMappingPlan(denotator);
+			if (plan != null) {
+				return plan.map(denotator);
+			}
+		}
 		ModuleMorphism morphism = this.morphism.compose(this.makeInitialInjectionSum(denotator));
 		return this.makeFinalProjections(denotator, morphism);
 	}
 	
+	/*
+	 * returns the mapping plan for denotators of the same form and with the same paths present as the
+	 * given one, i.e. the same colimit configuration. the plan is created the first time it is needed
+	 */
+	private synchronized MappingPlan getMappingPlan(Denotator denotator) throws RubatoException {
+		DenotatorPath[] domainPaths = new DenotatorPath[this.domainDim];
+		for (int j = 0; j < this.domainDim; j++) {
+			domainPaths[j] = this.transformationPaths.getDomainPath(j, denotator);
+		}
+		DenotatorPath[] codomainPaths = new DenotatorPath[this.codomainDim];
+		for (int i = 0; i < this.codomainDim; i++) {
+			codomainPaths[i] = this.transformationPaths.getCodomainPath(i, denotator);
+		}
+		DenotatorShape shape = new DenotatorShape(denotator.getForm(), domainPaths, codomainPaths);
+		if (!this.mappingPlans.containsKey(shape)) {
+			this.mappingPlans.put(shape, this.createMappingPlan(denotator, domainPaths, codomainPaths));
+		}
+		return this.mappingPlans.get(shape);
+	}
+	
+	/*
+	 * builds the same morphisms as makeInitialInjectionSum and makeFinalProjections, but acting on the
+	 * values of the simple denotators rather than on their constant morphisms. returns null if the
+	 * denotator has no simple denotator in the domain
+	 */
+	private MappingPlan createMappingPlan(Denotator denotator, DenotatorPath[] domainPaths, DenotatorPath[] codomainPaths) throws RubatoException {
+		MappingPlan plan = new MappingPlan(domainPaths, codomainPaths);
+		boolean hasDomain = false;
+		for (int j = 0; j < this.domainDim; j++) {
+			DenotatorPath currentPath = domainPaths[j];
+			if (currentPath != null) {
+				ModuleMorphism currentMorphism = null;
+				if (currentPath.isElementPath()) {
+					SimpleDenotator simple = this.getSimpleDenotator(denotator, currentPath.getDenotatorSubpath().toIntArray());
+					currentMorphism = this.makeElementProjection(simple, currentPath.getElementSubpath());
+				} else {
+					SimpleDenotator currentSimple = this.getSimpleDenotator(denotator, currentPath.toIntArray());
+					if (currentSimple != null) {
+						currentMorphism = ModuleMorphism.getIdentityMorphism(currentSimple.getElement().getModule());
+					}
+				}
+				if (currentMorphism != null) {
+					currentMorphism = this.getCastedMorphism(currentMorphism, this.domain.getComponentModule(j));
+					plan.domainMorphisms[j] = this.injectionMorphisms.get(j).compose(currentMorphism);
+					hasDomain = true;
+				}
+			}
+		}
+		if (!hasDomain) {
+			return null;
+		}
+		
+		for (int i = 0; i < this.codomainDim; i++) {
+			DenotatorPath currentCodomainPath = codomainPaths[i];
+			if (currentCodomainPath != null) {
+				ModuleMorphism projection = ModuleMorphism.getIdentityMorphism(this.morphism.getCodomain());
+				if (this.codomainDim > 1) {
+					projection = this.makeProjection(projection, this.codomainDim, i);
+				}
+				SimpleDenotator oldSimple;
+				Module newCodomain = null;
+				if (currentCodomainPath.isElementPath()) {
+					oldSimple = this.getSimpleDenotator(denotator, currentCodomainPath.getDenotatorSubpath().toIntArray());
+					newCodomain = this.getElement(oldSimple, currentCodomainPath.getElementSubpath()).getModule();
+				} else {
+					oldSimple = this.getSimpleDenotator(denotator, currentCodomainPath.toIntArray());
+					if (oldSimple != null) {
+						newCodomain = oldSimple.getModuleMorphism().getCodomain();
+					}
+				}
+				if (newCodomain != null) {
+					plan.codomainMorphisms[i] = this.getCastedMorphism(projection, newCodomain);
+					if (currentCodomainPath.isElementPath()) {
+						int dimension = oldSimple.getElement().getModule().getDimension();
+						if (oldSimple.getElement().getModule() instanceof ProductRing) {
+							dimension = ((ProductRing)oldSimple.getElement().getModule()).getFactorCount();
+						}
+						plan.elementMorphisms[i] = new ModuleMorphism[dimension];
+						for (int j = 0; j < dimension; j++) {
+							if (j == currentCodomainPath.getLastIndex()) {
+								plan.elementMorphisms[i][j] = this.makeFinalInjection(oldSimple, currentCodomainPath);
+							} else {
+								DenotatorPath replacedPath = currentCodomainPath.replaceLast(j);
+								ModuleMorphism currentAddend = this.makeElementProjection(oldSimple, replacedPath.getElementSubpath());
+								plan.elementMorphisms[i][j] = this.makeFinalInjection(oldSimple, replacedPath).compose(currentAddend);
+							}
+						}
+					}
+				}
+			}
+		}
+		
+		plan.initAffineMapping(denotator);
+		return plan;
+	}
+	
+	/*
+	 * returns the projection of the element of the given simple denotator on the component at the given
+	 * element path, i.e. makeInitialProjection acting on the element rather than on the simple's morphism
+	 */
+	private ModuleMorphism makeElementProjection(SimpleDenotator simple, DenotatorPath elementPath) throws RubatoException {
+		ModuleElement currentElement = simple.getElement();
+		ModuleMorphism currentMorphism = ModuleMorphism.getIdentityMorphism(currentElement.getModule());
+		for (int currentIndex : elementPath.toIntArray()) {
+			if (currentElement instanceof ProductElement) {
+				currentMorphism = this.makeProjection(currentMorphism, ((ProductElement)currentElement).getFactorCount(), currentIndex);
+				currentElement = ((ProductElement)currentElement).getFactor(currentIndex);
+			} else {
+				currentMorphism = this.makeProjection(currentMorphism, currentElement.getModule().getDimension(), currentIndex);
+				currentElement = currentElement.getComponent(currentIndex);
+			}
+		}
+		return currentMorphism;
+	}
+	
 	/*
 	 * adapt the morphism of every simple denotator in morphismPaths to the main morphism
 	 * by composing it with an injection
@@ -350,4 +484,189 @@ public class ArbitraryDenotatorMapper {
 		return morphism;
 	}
 
+	
+	private static class DenotatorShape {
+		
+		private Form form;
+		private List<DenotatorPath> paths;
+		
+		private DenotatorShape(Form form, DenotatorPath[] domainPaths, DenotatorPath[] codomainPaths) {
+			this.form = form;
+			this.paths = new ArrayList<DenotatorPath>(Arrays.asList(domainPaths));
+			this.paths.addAll(Arrays.asList(codomainPaths));
+		}
+		
+		public boolean equals(Object object) {
+			if (!(object instanceof DenotatorShape)) {
+				return false;
+			}
+			DenotatorShape other = (DenotatorShape)object;
+			return this.form.equals(other.form) && this.paths.equals(other.paths);
+		}
+		
+		public int hashCode() {
+			int hashCode = this.form.hashCode();
+			for (DenotatorPath currentPath : this.paths) {
+				hashCode = 37*hashCode + (currentPath != null ? Arrays.hashCode(currentPath.toIntArray()) : 0);
+			}
+			return hashCode;
+		}
+		
+	}
+	
+	/*
+	 * The morphisms needed to map all denotators of one shape, acting on the elements of their simple
+	 * denotators. If the morphism is affine over R and only acts on simple denotators over R, Q or Z, the
+	 * values are mapped directly as doubles.
+	 */
+	private class MappingPlan {
+		
+		private DenotatorPath[] domainPaths, codomainPaths;
+		//simple's element -> domain of the morphism
+		private ModuleMorphism[] domainMorphisms;
+		//codomain of the morphism -> module at the codomain path
+		private ModuleMorphism[] codomainMorphisms;
+		//for element paths, the morphisms whose sum yields the new element of the simple
+		private ModuleMorphism[][] elementMorphisms;
+		//rings of the codomain simples if the values are mapped directly, null otherwise
+		private Ring[] codomainRings;
+		
+		private MappingPlan(DenotatorPath[] domainPaths, DenotatorPath[] codomainPaths) {
+			this.domainPaths = domainPaths;
+			this.codomainPaths = codomainPaths;
+			this.domainMorphisms = new ModuleMorphism[domainPaths.length];
+			this.codomainMorphisms = new ModuleMorphism[codomainPaths.length];
+			this.elementMorphisms = new ModuleMorphism[codomainPaths.length][];
+		}
+		
+		private void initAffineMapping(Denotator denotator) throws RubatoException {
+			if (!(morphism instanceof RFreeAffineMorphism || morphism instanceof RAffineMorphism)) {
+				return;
+			}
+			for (DenotatorPath currentPath : this.domainPaths) {
+				if (!this.isRealValued(denotator, currentPath)) {
+					return;
+				}
+			}
+			Ring[] rings = new Ring[this.codomainPaths.length];
+			for (int i = 0; i < rings.length; i++) {
+				if (!this.isRealValued(denotator, this.codomainPaths[i])) {
+					return;
+				}
+				rings[i] = getSimpleDenotator(denotator, this.codomainPaths[i].toIntArray()).getElement().getModule().getRing();
+			}
+			this.codomainRings = rings;
+		}
+		
+		private boolean isRealValued(Denotator denotator, DenotatorPath path) throws RubatoException {
+			if (path == null || path.isElementPath()) {
+				return false;
+			}
+			SimpleDenotator simple = getSimpleDenotator(denotator, path.toIntArray());
+			if (simple == null) {
+				return false;
+			}
+			Module module = simple.getElement().getModule();
+			return module == RRing.ring || module == QRing.ring || module == ZRing.ring;
+		}
+		
+		private Denotator map(Denotator denotator) throws RubatoException {
+			if (this.codomainRings != null) {
+				return this.mapValues(denotator);
+			}
+			ModuleElement domainElement = null;
+			for (int j = 0; j < this.domainPaths.length; j++) {
+				if (this.domainMorphisms[j] != null) {
+					DenotatorPath currentPath = this.domainPaths[j];
+					ModuleElement currentElement;
+					if (currentPath.isElementPath()) {
+						currentElement = getSimpleDenotator(denotator, currentPath.getDenotatorSubpath().toIntArray()).getElement();
+					} else {
+						currentElement = getSimpleDenotator(denotator, currentPath.toIntArray()).getElement();
+					}
+					currentElement = this.domainMorphisms[j].map(currentElement);
+					if (domainElement == null) {
+						domainElement = currentElement;
+					} else {
+						domainElement = domainElement.sum(currentElement);
+					}
+				}
+			}
+			ModuleElement codomainElement = morphism.map(domainElement);
+			
+			Denotator mappedDenotator = denotator;
+			for (int i = 0; i < this.codomainPaths.length; i++) {
+				if (this.codomainMorphisms[i] != null) {
+					DenotatorPath currentCodomainPath = this.codomainPaths[i];
+					ModuleElement value = this.codomainMorphisms[i].map(codomainElement);
+					SimpleDenotator oldSimple;
+					if (currentCodomainPath.isElementPath()) {
+						oldSimple = getSimpleDenotator(mappedDenotator, currentCodomainPath.getDenotatorSubpath().toIntArray());
+						ModuleElement oldElement = oldSimple.getElement();
+						ModuleMorphism[] currentMorphisms = this.elementMorphisms[i];
+						ModuleElement sum = null;
+						for (int j = 0; j < currentMorphisms.length; j++) {
+							ModuleElement currentAddend;
+							if (j == currentCodomainPath.getLastIndex()) {
+								currentAddend = currentMorphisms[j].map(value);
+							} else {
+								currentAddend = currentMorphisms[j].map(oldElement);
+							}
+							sum = sum != null ? sum.sum(currentAddend) : currentAddend;
+						}
+						value = sum;
+					} else {
+						oldSimple = getSimpleDenotator(mappedDenotator, currentCodomainPath.toIntArray());
+					}
+					mappedDenotator = this.replace(mappedDenotator, currentCodomainPath, (SimpleForm)oldSimple.getForm(), value);
+				}
+			}
+			return mappedDenotator;
+		}
+		
+		/*
+		 * the casts, injections and projections of the general plan leave the values unchanged, so the
+		 * morphism can be evaluated on the values directly
+		 */
+		private Denotator mapValues(Denotator denotator) throws RubatoException {
+			double[] values = new double[this.domainPaths.length];
+			for (int j = 0; j < values.length; j++) {
+				ModuleElement element = getSimpleDenotator(denotator, this.domainPaths[j].toIntArray()).getElement();
+				values[j] = ((RElement)RRing.ring.cast(element)).getValue();
+			}
+			double[] mappedValues;
+			if (morphism instanceof RAffineMorphism) {
+				mappedValues = new double[]{((RAffineMorphism)morphism).mapValue(values[0])};
+			} else {
+				mappedValues = ((RFreeAffineMorphism)morphism).mapValue(values);
+			}
+			Denotator mappedDenotator = denotator;
+			for (int i = 0; i < this.codomainPaths.length; i++) {
+				ModuleElement value = new RElement(mappedValues[i]);
+				if (this.codomainRings[i] != RRing.ring) {
+					value = this.codomainRings[i].cast(value);
+				}
+				SimpleDenotator oldSimple = getSimpleDenotator(mappedDenotator, this.codomainPaths[i].toIntArray());
+				mappedDenotator = this.replace(mappedDenotator, this.codomainPaths[i], (SimpleForm)oldSimple.getForm(), value);
+			}
+			return mappedDenotator;
+		}
+		
+		private Denotator replace(Denotator denotator, DenotatorPath path, SimpleForm form, ModuleElement value) throws RubatoException {
+			try {
+				Denotator simple = new SimpleDenotator(NameDenotator.make(""), form, value);
+				if (path.size() == 0) {
+					return simple;
+				} else if (path.isElementPath()) {
+					return denotator.replace(path.getDenotatorSubpath().toIntArray(), simple);
+				}
+				return denotator.replace(path.toIntArray(), simple);
+			} catch (DomainException e) {
+				e.printStackTrace();
+				return denotator;
+			}
+		}
+		
+	}
+
 }
@@ -34,9 +34,17 @@ public class ContrapuntalVoice {
 		return this.firstOnset;
 	}
 	
+	public double getLastOnset() {
+		return this.lastOnset;
+	}
+
 	public double getLastPitch() {
 		return this.lastPitch;
 	}
+
+	public double getLastDuration() {
+		return this.lastDuration;
+	}
 	
 	public List<LimitDenotator> getNotes() {
 		return this.notes;
@@ -0,0 +1,301 @@
+package org.rubato.rubettes.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.rubato.base.Repository;
+import org.rubato.math.arith.Rational;
+import org.rubato.math.matrix.RMatrix;
+import org.rubato.math.module.Module;
+import org.rubato.math.module.ModuleElement;
+import org.rubato.math.module.QElement;
+import org.rubato.math.module.RElement;
+import org.rubato.math.module.ZElement;
+import org.rubato.math.module.ZProperFreeModule;
+import org.rubato.math.module.morphism.ModuleMorphism;
+import org.rubato.math.module.morphism.RAffineMorphism;
+import org.rubato.math.module.morphism.RFreeAffineMorphism;
+import org.rubato.math.yoneda.Denotator;
+import org.rubato.math.yoneda.LimitDenotator;
+import org.rubato.math.yoneda.LimitForm;
+import org.rubato.math.yoneda.NameDenotator;
+import org.rubato.math.yoneda.PowerDenotator;
+import org.rubato.math.yoneda.PowerForm;
+import org.rubato.math.yoneda.SimpleDenotator;
+import org.rubato.math.yoneda.SimpleForm;
+
+/**
+ * A columnar representation of a denotator of form Score. The values of
+ * each of the five coordinates of the notes (Onset, Pitch, Loudness, Duration
+ * and Voice) are stored in a primitive array, so that transformations of a
+ * score run over doubles instead of creating new denotators for every note.
+ * When created from a denotator, the columns are only extracted on first
+ * access, and {@link #toDenotator()} reuses all notes that were not changed.
+ */
+public class FlatScore {
+
+	public static final int ONSET = 0;
+	public static final int PITCH = 1;
+	public static final int LOUDNESS = 2;
+	public static final int DURATION = 3;
+	public static final int VOICE = 4;
+	public static final int COORDINATE_COUNT = 5;
+
+	private static final PowerForm SCORE_FORM = (PowerForm)Repository.systemRepository().getForm("Score");
+	private static final LimitForm NOTE_FORM = (LimitForm)Repository.systemRepository().getForm("Note");
+	private static final NameDenotator EMPTY_NAME = NameDenotator.make("");
+
+	private PowerDenotator source;
+	private Denotator[] sourceNotes;
+	private double[][] sourceColumns;
+	private double[][] columns;
+	private int size;
+
+	/**
+	 * Creates a flat view of the specified score. The score itself is never modified.
+	 *
+	 * @throws IllegalArgumentException if the score cannot be flattened, see {@link #isFlattenable(Denotator)}
+	 */
+	public FlatScore(PowerDenotator score) {
+		if (!FlatScore.isFlattenable(score)) {
+			throw new IllegalArgumentException("FlatScore: expected null-addressed denotator of form Score");
+		}
+		this.source = score;
+		this.size = score.getFactorCount();
+	}
+
+	/**
+	 * Creates a flat score from the specified columns, one array per coordinate,
+	 * in the order Onset, Pitch, Loudness, Duration, Voice. The arrays are used
+	 * directly and not copied.
+	 */
+	public FlatScore(double[][] columns) {
+		if (columns.length != COORDINATE_COUNT) {
+			throw new IllegalArgumentException("FlatScore: expected "+COORDINATE_COUNT+" columns, but got "+columns.length);
+		}
+		this.size = columns[0].length;
+		for (double[] column : columns) {
+			if (column.length != this.size) {
+				throw new IllegalArgumentException("FlatScore: columns must have equal length");
+			}
+		}
+		this.columns = columns;
+	}
+
+	/**
+	 * Returns true if the specified denotator is a null-addressed denotator of form Score
+	 * and can thus be represented by a flat score.
+	 */
+	public static boolean isFlattenable(Denotator denotator) {
+		return denotator != null && denotator.hasForm(SCORE_FORM) && denotator.nullAddressed();
+	}
+
+	/**
+	 * Returns the number of notes.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns the value of the specified coordinate of the note at the specified index.
+	 */
+	public double getValue(int noteIndex, int coordinate) {
+		return this.getColumns()[coordinate][noteIndex];
+	}
+
+	/**
+	 * Sets the value of the specified coordinate of the note at the specified index.
+	 */
+	public void setValue(int noteIndex, int coordinate, double value) {
+		this.getColumns()[coordinate][noteIndex] = value;
+	}
+
+	/**
+	 * Returns the values of the specified coordinate of all notes. The returned
+	 * array is the one backing this flat score, so that changes to it will be
+	 * reflected by {@link #toDenotator()}.
+	 */
+	public double[] getColumn(int coordinate) {
+		return this.getColumns()[coordinate];
+	}
+
+	/**
+	 * Maps the specified coordinates of all notes by x -> matrix*x+shift. The matrix has
+	 * to be square with as many rows as there are coordinates.
+	 */
+	public void transform(double[][] matrix, double[] shift, int[] coordinates) {
+		int dim = coordinates.length;
+		if (matrix.length != dim || shift.length != dim) {
+			throw new IllegalArgumentException("FlatScore.transform: expected dimension "+dim);
+		}
+		double[][] columns = this.getColumns();
+		double[][] selected = new double[dim][];
+		for (int i = 0; i < dim; i++) {
+			selected[i] = columns[coordinates[i]];
+		}
+		double[] x = new double[dim];
+		for (int n = 0; n < this.size; n++) {
+			for (int i = 0; i < dim; i++) {
+				x[i] = selected[i][n];
+			}
+			for (int i = 0; i < dim; i++) {
+				double[] row = matrix[i];
+				double value = shift[i];
+				for (int j = 0; j < dim; j++) {
+					value += row[j]*x[j];
+				}
+				selected[i][n] = value;
+			}
+		}
+	}
+
+	/**
+	 * Maps the specified coordinates of all notes by the specified morphism, if it is
+	 * a real affine morphism of the right dimension.
+	 *
+	 * @return true if the morphism could be applied, false otherwise, in which case
+	 * the flat score is left unchanged
+	 */
+	public boolean transform(ModuleMorphism morphism, int[] coordinates) {
+		if (morphism instanceof RAffineMorphism && coordinates.length == 1) {
+			RAffineMorphism affine = (RAffineMorphism)morphism;
+			this.transform(new double[][]{{affine.getA()}}, new double[]{affine.getB()}, coordinates);
+			return true;
+		}
+		if (morphism instanceof RFreeAffineMorphism) {
+			RFreeAffineMorphism affine = (RFreeAffineMorphism)morphism;
+			RMatrix matrix = affine.getMatrix();
+			int dim = coordinates.length;
+			if (matrix.getRowCount() == dim && matrix.getColumnCount() == dim) {
+				double[][] values = new double[dim][dim];
+				for (int i = 0; i < dim; i++) {
+					for (int j = 0; j < dim; j++) {
+						values[i][j] = matrix.get(i, j);
+					}
+				}
+				this.transform(values, affine.getVector(), coordinates);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns a denotator of form Score with the current values. If this flat score was
+	 * created from a denotator and nothing has changed, that denotator is returned. Otherwise,
+	 * only the notes with changed values are rebuilt, keeping their unchanged coordinates.
+	 * Changed pitches are converted to rationals, loudnesses and voices are rounded to integers.
+	 */
+	public PowerDenotator toDenotator() {
+		if (this.source != null && !this.isModified()) {
+			return this.source;
+		}
+		List<Denotator> notes = new ArrayList<Denotator>(this.size);
+		Module address = this.getAddress();
+		for (int n = 0; n < this.size; n++) {
+			if (this.sourceNotes != null && !this.isModified(n)) {
+				notes.add(this.sourceNotes[n]);
+			} else {
+				notes.add(this.makeNote(n, address));
+			}
+		}
+		NameDenotator name = this.source != null ? this.source.getName() : EMPTY_NAME;
+		return PowerDenotator._make_unsafe(name, address, SCORE_FORM, notes);
+	}
+
+	private double[][] getColumns() {
+		if (this.columns == null) {
+			this.extractColumns();
+		}
+		return this.columns;
+	}
+
+	private void extractColumns() {
+		this.sourceNotes = new Denotator[this.size];
+		double[][] columns = new double[COORDINATE_COUNT][this.size];
+		int n = 0;
+		for (Denotator note : this.source) {
+			this.sourceNotes[n] = note;
+			LimitDenotator limit = (LimitDenotator)note;
+			columns[ONSET][n] = ((SimpleDenotator)limit.getFactor(ONSET)).getReal();
+			columns[PITCH][n] = ((SimpleDenotator)limit.getFactor(PITCH)).getRational().doubleValue();
+			columns[LOUDNESS][n] = ((SimpleDenotator)limit.getFactor(LOUDNESS)).getInteger();
+			columns[DURATION][n] = ((SimpleDenotator)limit.getFactor(DURATION)).getReal();
+			columns[VOICE][n] = ((SimpleDenotator)limit.getFactor(VOICE)).getInteger();
+			n++;
+		}
+		this.sourceColumns = new double[COORDINATE_COUNT][];
+		for (int i = 0; i < COORDINATE_COUNT; i++) {
+			this.sourceColumns[i] = columns[i].clone();
+		}
+		this.columns = columns;
+	}
+
+	private boolean isModified() {
+		if (this.columns == null) {
+			return false;
+		}
+		for (int n = 0; n < this.size; n++) {
+			if (this.isModified(n)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean isModified(int noteIndex) {
+		for (int i = 0; i < COORDINATE_COUNT; i++) {
+			if (Double.compare(this.columns[i][noteIndex], this.sourceColumns[i][noteIndex]) != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the address of the resulting denotators, which is the same as the one
+	 * the constructors of LimitDenotator and PowerDenotator infer for notes.
+	 */
+	private Module getAddress() {
+		if (this.source != null) {
+			return this.source.getAddress();
+		}
+		return ZProperFreeModule.nullModule;
+	}
+
+	/*
+	 * The elements are known to fit the forms of the coordinates, so the notes are built
+	 * without the checks done by the public constructors, which dominate the cost otherwise.
+	 * Unchanged coordinates of a source note are reused, so that exact rational pitches
+	 * are not replaced by their double approximation.
+	 */
+	private LimitDenotator makeNote(int noteIndex, Module address) {
+		List<Denotator> coordinates = new ArrayList<Denotator>(COORDINATE_COUNT);
+		for (int i = 0; i < COORDINATE_COUNT; i++) {
+			if (this.sourceNotes != null && Double.compare(this.columns[i][noteIndex], this.sourceColumns[i][noteIndex]) == 0) {
+				coordinates.add(((LimitDenotator)this.sourceNotes[noteIndex]).getFactor(i));
+			} else {
+				coordinates.add(this.makeCoordinate(i, address, this.makeElement(i, this.columns[i][noteIndex])));
+			}
+		}
+		return LimitDenotator._make_unsafe(EMPTY_NAME, address, NOTE_FORM, coordinates);
+	}
+
+	private ModuleElement makeElement(int coordinate, double value) {
+		switch (coordinate) {
+			case PITCH:
+				return new QElement(new Rational(value));
+			case LOUDNESS:
+			case VOICE:
+				return new ZElement((int)Math.round(value));
+			default:
+				return new RElement(value);
+		}
+	}
+
+	private SimpleDenotator makeCoordinate(int coordinate, Module address, ModuleElement element) {
+		return SimpleDenotator._make_unsafe(EMPTY_NAME, (SimpleForm)NOTE_FORM.getForm(coordinate), address, element);
+	}
+
+}
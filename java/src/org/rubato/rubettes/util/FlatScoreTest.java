@@ -0,0 +1,115 @@
+package org.rubato.rubettes.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.rubato.base.RubatoException;
+import org.rubato.composer.RunInfo;
+import org.rubato.composer.rubette.RubetteModel;
+import org.rubato.math.arith.Rational;
+import org.rubato.math.matrix.RMatrix;
+import org.rubato.math.module.QElement;
+import org.rubato.math.module.ZRing;
+import org.rubato.math.module.morphism.RFreeAffineMorphism;
+import org.rubato.math.yoneda.Denotator;
+import org.rubato.math.yoneda.LimitDenotator;
+import org.rubato.math.yoneda.PowerDenotator;
+import org.rubato.math.yoneda.SimpleDenotator;
+import org.rubato.math.yoneda.SimpleForm;
+
+import junit.framework.TestCase;
+
+public class FlatScoreTest extends TestCase {
+
+	private PowerDenotator score;
+
+	public void setUp() throws RubatoException {
+		double[][] columns = new double[][]{{0,1,2},{60,63,67},{120,110,100},{1,1,2},{0,0,1}};
+		this.score = new FlatScore(columns).toDenotator();
+	}
+
+	public void testRoundTrip() throws RubatoException {
+		TestCase.assertTrue(FlatScore.isFlattenable(this.score));
+		TestCase.assertEquals(3, this.score.getFactorCount());
+		FlatScore flatScore = new FlatScore(this.score);
+		TestCase.assertEquals(63.0, flatScore.getValue(1, FlatScore.PITCH));
+		TestCase.assertEquals(100.0, flatScore.getValue(2, FlatScore.LOUDNESS));
+		TestCase.assertSame(this.score, flatScore.toDenotator());
+	}
+
+	public void testTransform() throws RubatoException {
+		FlatScore flatScore = new FlatScore(this.score);
+		//translate the first note only, so that the others are reused
+		flatScore.setValue(0, FlatScore.ONSET, 0.5);
+		PowerDenotator result = flatScore.toDenotator();
+		TestCase.assertSame(this.score.getFactor(2), result.getFactor(2));
+		TestCase.assertEquals(0.5, this.getValue(result, 0, FlatScore.ONSET));
+		TestCase.assertEquals(0.0, this.getValue(this.score, 0, FlatScore.ONSET));
+
+		//onset x pitch -> onset+pitch x -pitch+1
+		RMatrix matrix = new RMatrix(new double[][]{{1,1},{0,-1}});
+		RFreeAffineMorphism morphism = (RFreeAffineMorphism)RFreeAffineMorphism.make(matrix, new double[]{0,1});
+		flatScore = new FlatScore(this.score);
+		TestCase.assertTrue(flatScore.transform(morphism, new int[]{FlatScore.ONSET, FlatScore.PITCH}));
+		result = flatScore.toDenotator();
+		TestCase.assertEquals(60.0, this.getValue(result, 0, FlatScore.ONSET));
+		TestCase.assertEquals(-59.0, this.getValue(result, 0, FlatScore.PITCH));
+		TestCase.assertEquals(69.0, this.getValue(result, 2, FlatScore.ONSET));
+		TestCase.assertEquals(2.0, this.getValue(result, 2, FlatScore.DURATION));
+		TestCase.assertFalse(flatScore.transform(morphism, new int[]{FlatScore.ONSET}));
+	}
+
+	public void testQuantizer() throws RubatoException {
+		FlatScore flatScore = new FlatScore(this.score);
+		flatScore.transform(new double[][]{{1}}, new double[]{0.1}, new int[]{FlatScore.ONSET});
+		PowerDenotator shifted = flatScore.toDenotator();
+		PowerDenotator quantized = new Quantizer(0.5, 1).getQuantizedScore(shifted, new RunInfo() {
+			public boolean stopped() { return false; }
+			public void addMessage(RubetteModel rubette, String msg) { }
+		});
+		TestCase.assertEquals(this.score, quantized);
+		TestCase.assertEquals(0.1, this.getValue(shifted, 0, FlatScore.ONSET), 1e-10);
+	}
+
+	public void testQuantizerWithAddressedScore() throws RubatoException {
+		//scores that cannot be flattened are quantized note by note
+		PowerDenotator addressed = (PowerDenotator)this.score.changeAddress(ZRing.ring);
+		TestCase.assertFalse(FlatScore.isFlattenable(addressed));
+		PowerDenotator quantized = new Quantizer(2, 1).getQuantizedScore(addressed, new RunInfo() {
+			public boolean stopped() { return false; }
+			public void addMessage(RubetteModel rubette, String msg) { }
+		});
+		TestCase.assertNotSame(addressed, quantized);
+		TestCase.assertFalse(quantized.nullAddressed());
+		TestCase.assertEquals(3, quantized.getFactorCount());
+	}
+
+	public void testExactPitch() throws RubatoException {
+		//unchanged pitches keep their exact rational value
+		LimitDenotator note = (LimitDenotator)this.score.getFactor(0);
+		List<Denotator> coordinates = new ArrayList<Denotator>(note.getFactors());
+		SimpleForm pitchForm = (SimpleForm)coordinates.get(FlatScore.PITCH).getForm();
+		coordinates.set(FlatScore.PITCH, new SimpleDenotator(null, pitchForm, new QElement(new Rational(61, 3))));
+		note = new LimitDenotator(null, note.getLimitForm(), coordinates);
+		PowerDenotator exactScore = new PowerDenotator(null, this.score.getPowerForm(), Collections.<Denotator>singletonList(note));
+		FlatScore flatScore = new FlatScore(exactScore);
+		flatScore.setValue(0, FlatScore.ONSET, 0.5);
+		PowerDenotator result = flatScore.toDenotator();
+		SimpleDenotator pitch = (SimpleDenotator)((LimitDenotator)result.getFactor(0)).getFactor(FlatScore.PITCH);
+		TestCase.assertEquals(new Rational(61, 3), pitch.getRational());
+		TestCase.assertEquals(0.5, this.getValue(result, 0, FlatScore.ONSET));
+	}
+
+	private double getValue(PowerDenotator score, int noteIndex, int coordinate) {
+		LimitDenotator note = (LimitDenotator)score.getFactor(noteIndex);
+		SimpleDenotator value = (SimpleDenotator)note.getFactor(coordinate);
+		if (coordinate == FlatScore.PITCH) {
+			return value.getRational().doubleValue();
+		} else if (coordinate == FlatScore.LOUDNESS || coordinate == FlatScore.VOICE) {
+			return value.getInteger();
+		}
+		return value.getReal();
+	}
+
+}
@@ -8,17 +8,43 @@ import org.rubato.math.yoneda.LimitDenotator;
 import org.rubato.math.yoneda.PowerDenotator;
 
 public class Quantizer {
-	
+
 	private double timeUnit, pitchUnit;
 	private SoundNoteGenerator noteGenerator;
-	
+
 	public Quantizer(double timeUnit, double pitchUnit) {
 		this.timeUnit = timeUnit;
 		this.pitchUnit = pitchUnit;
 		this.noteGenerator = new SoundNoteGenerator();
 	}
-	
+
+	/**
+	 * Returns a copy of the specified score with onsets and durations rounded to the time
+	 * unit and pitches rounded to the pitch unit. The specified score is not modified.
+	 */
 	public PowerDenotator getQuantizedScore(PowerDenotator score, RunInfo runInfo) {
+		if (!FlatScore.isFlattenable(score)) {
+			return this.getQuantizedNotes(score.copy(), runInfo);
+		}
+		FlatScore flatScore = new FlatScore(score);
+		double[] onsets = flatScore.getColumn(FlatScore.ONSET);
+		double[] durations = flatScore.getColumn(FlatScore.DURATION);
+		double[] pitches = flatScore.getColumn(FlatScore.PITCH);
+		for (int i = 0; i < flatScore.size(); i++) {
+			onsets[i] = this.roundToUnit(onsets[i], this.timeUnit);
+			durations[i] = this.roundToUnit(durations[i], this.timeUnit);
+			pitches[i] = this.roundToUnit(pitches[i], this.pitchUnit);
+			if (runInfo.stopped()) {
+				break;
+			}
+		}
+		return flatScore.toDenotator();
+	}
+
+	/*
+	 * quantizes the notes of the specified score in place, for scores that cannot be flattened
+	 */
+	private PowerDenotator getQuantizedNotes(PowerDenotator score, RunInfo runInfo) {
 		Iterator<Denotator> notes = score.iterator();
 		while (notes.hasNext()) {
 			LimitDenotator currentNote = (LimitDenotator) notes.next();
@@ -31,11 +57,14 @@ public class Quantizer {
 		}
 		return score;
 	}
-	
+
 	private void replaceElementRoundedToUnit(LimitDenotator noteDenotator, int[] elementPath, double unit) {
-    	double elementValue = this.noteGenerator.getDoubleValue(noteDenotator, elementPath);
-    	elementValue = Math.round(elementValue/unit)*unit;
-    	this.noteGenerator.modifyNoteDenotator(noteDenotator, elementPath, elementValue);
-    }
+		double elementValue = this.noteGenerator.getDoubleValue(noteDenotator, elementPath);
+		this.noteGenerator.modifyNoteDenotator(noteDenotator, elementPath, this.roundToUnit(elementValue, unit));
+	}
+
+	private double roundToUnit(double value, double unit) {
+		return Math.round(value/unit)*unit;
+	}
 
 }
@@ -1,35 +1,46 @@
-package org.rubato.rubettes.util;
-
-public class Rectangle2D {
-	
-	private double x, y, width, height;
-	
-	public Rectangle2D(double x, double y, double width, double height) {
-		this.x = x;
-		this.y = y;
-		this.width = width;
-		this.height = height;
-	}
-	
-	public double getX() {
-		return this.x;
-	}
-	
-	public double getY() {
-		return this.y;
-	}
-	
-	public double getWidth() {
-		return this.width;
-	}
-	
-	public double getHeight() {
-		return this.height;
-	}
-	
-	public boolean contains(Point2D point) {
-		return this.x < point.getX() && point.getX() < this.x + this.width
-				&& this.y < point.getY() && point.getY() < this.y + this.height;
-	}
-	
+package org.rubato.rubettes.util;
+
+public class Rectangle2D {
+	
+	private double x, y, width, height;
+	
+	public Rectangle2D(double x, double y, double width, double height) {
+		this.x = x;
+		this.y = y;
+		this.width = width;
+		this.height = height;
+	}
+	
+	public double getX() {
+		return this.x;
+	}
+	
+	public double getY() {
+		return this.y;
+	}
+	
+	public double getWidth() {
+		return this.width;
+	}
+	
+	public double getHeight() {
+		return this.height;
+	}
+	
+	public boolean contains(Point2D point) {
+		return this.x < point.getX() && point.getX() < this.x + this.width
+				&& this.y < point.getY() && point.getY() < this.y + this.height;
+	}
+	
+	/**
+	 * @return the smallest rectangle containing this and the given rectangle
+	 */
+	public Rectangle2D union(Rectangle2D rectangle) {
+		double minX = Math.min(Math.min(this.x, this.x+this.width), Math.min(rectangle.x, rectangle.x+rectangle.width));
+		double minY = Math.min(Math.min(this.y, this.y+this.height), Math.min(rectangle.y, rectangle.y+rectangle.height));
+		double maxX = Math.max(Math.max(this.x, this.x+this.width), Math.max(rectangle.x, rectangle.x+rectangle.width));
+		double maxY = Math.max(Math.max(this.y, this.y+this.height), Math.max(rectangle.y, rectangle.y+rectangle.height));
+		return new Rectangle2D(minX, minY, maxX-minX, maxY-minY);
+	}
+	
 }
\ No newline at end of file
@@ -2,60 +2,204 @@ package org.rubato.rubettes.util;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Iterator;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.TreeMap;
+import java.util.TreeSet;
 
 import org.rubato.math.yoneda.Denotator;
 import org.rubato.math.yoneda.LimitDenotator;
 import org.rubato.math.yoneda.PowerDenotator;
 
+/**
+ * Splits a score into contrapuntal voices. Each note is added to the voice with room for it whose last
+ * pitch is closest to the note's pitch, the earliest created voice among equally close ones, or to a new
+ * voice if no voice has room for it.
+ */
 public class VoiceSplitter {
-	
+
 	List<ContrapuntalVoice> contrapuntalVoices;
+	private Map<ContrapuntalVoice,Integer> voiceIndices;
 	private double firstOnset;
 	private SoundNoteGenerator noteGenerator;
-	
+
 	public VoiceSplitter(PowerDenotator score) {
 		this.noteGenerator = new SoundNoteGenerator();
 		this.splitContrapuntalVoices(score);
 	}
-	
+
 	private void splitContrapuntalVoices(PowerDenotator score) {
-    	Iterator<Denotator> notes = score.iterator();
-    	this.contrapuntalVoices = new ArrayList<ContrapuntalVoice>();
-    	
-    	while (notes.hasNext()) {
-    		LimitDenotator currentNote = (LimitDenotator) notes.next();
-			double currentOnset = this.noteGenerator.getDoubleValue(currentNote, new int[]{0,0});
-			double currentPitch = this.noteGenerator.getDoubleValue(currentNote, new int[]{1,0});
-			double currentDuration = this.noteGenerator.getDoubleValue(currentNote, new int[]{3,0});
-			this.firstOnset = Math.min(currentOnset, this.firstOnset);
-			TreeMap<Double,ContrapuntalVoice> candidates = new TreeMap<Double,ContrapuntalVoice>();
-			for (ContrapuntalVoice currentVoice : contrapuntalVoices) {
-				if (currentVoice.hasRoomFor(currentOnset, currentDuration)) {
-					double pitchDistance = Math.abs(currentVoice.getLastPitch()-currentPitch);
-					if (!candidates.keySet().contains(pitchDistance)) {
-						candidates.put(pitchDistance, currentVoice);
+		List<Denotator> notes = new ArrayList<Denotator>(score.getFactorCount());
+		for (Denotator currentNote : score) {
+			notes.add(currentNote);
+		}
+		double[] onsets = new double[notes.size()];
+		double[] pitches = new double[notes.size()];
+		double[] durations = new double[notes.size()];
+		boolean sortedByOnset = true;
+		for (int i = 0; i < notes.size(); i++) {
+			Denotator currentNote = notes.get(i);
+			onsets[i] = this.noteGenerator.getDoubleValue(currentNote, new int[]{0,0});
+			pitches[i] = this.noteGenerator.getDoubleValue(currentNote, new int[]{1,0});
+			durations[i] = this.noteGenerator.getDoubleValue(currentNote, new int[]{3,0});
+			this.firstOnset = Math.min(onsets[i], this.firstOnset);
+			sortedByOnset &= i == 0 || onsets[i] >= onsets[i-1];
+		}
+		this.contrapuntalVoices = new ArrayList<ContrapuntalVoice>();
+		this.voiceIndices = new HashMap<ContrapuntalVoice,Integer>();
+		if (sortedByOnset) {
+			this.sweepContrapuntalVoices(notes, onsets, pitches, durations);
+		} else {
+			this.scanContrapuntalVoices(notes, onsets, pitches, durations);
+		}
+		Collections.reverse(this.contrapuntalVoices);
+	}
+
+	/*
+	 * sweeps over notes sorted by onset. voices whose last note has ended are kept in an index by last pitch,
+	 * the others in a queue by end time and, if their last note is at the current onset, in indices by last
+	 * duration, since a note with the same onset and duration may be added to them as well
+	 */
+	private void sweepContrapuntalVoices(List<Denotator> notes, double[] onsets, double[] pitches, double[] durations) {
+		PitchIndex freeVoices = new PitchIndex();
+		Map<Double,PitchIndex> currentVoices = new HashMap<Double,PitchIndex>();
+		PriorityQueue<ContrapuntalVoice> busyVoices = new PriorityQueue<ContrapuntalVoice>(11, new Comparator<ContrapuntalVoice>() {
+			public int compare(ContrapuntalVoice v1, ContrapuntalVoice v2) {
+				return Double.compare(v1.getLastOnset()+v1.getLastDuration(), v2.getLastOnset()+v2.getLastDuration());
+			}
+		});
+		for (int i = 0; i < notes.size(); i++) {
+			double currentOnset = onsets[i];
+			if (i > 0 && currentOnset != onsets[i-1]) {
+				currentVoices.clear();
+			}
+			while (!busyVoices.isEmpty() && currentOnset >= busyVoices.peek().getLastOnset()+busyVoices.peek().getLastDuration()) {
+				ContrapuntalVoice endedVoice = busyVoices.poll();
+				PitchIndex endedVoiceIndex = currentVoices.get(endedVoice.getLastDuration());
+				if (endedVoiceIndex != null && endedVoice.getLastOnset() == currentOnset) {
+					endedVoiceIndex.remove(endedVoice);
+				}
+				freeVoices.add(endedVoice);
+			}
+			ContrapuntalVoice freeCandidate = freeVoices.getClosestVoice(pitches[i]);
+			PitchIndex currentVoiceIndex = currentVoices.get(durations[i]);
+			ContrapuntalVoice currentCandidate = currentVoiceIndex != null ? currentVoiceIndex.getClosestVoice(pitches[i]) : null;
+			LimitDenotator currentNote = (LimitDenotator)notes.get(i);
+			if (currentCandidate != null && (freeCandidate == null || freeVoices.compare(currentCandidate, freeCandidate, pitches[i]) < 0)) {
+				currentVoiceIndex.remove(currentCandidate);
+				currentCandidate.addNote(currentNote, currentOnset, pitches[i], durations[i]);
+				currentVoiceIndex.add(currentCandidate);
+			} else {
+				ContrapuntalVoice voice;
+				if (freeCandidate != null) {
+					freeVoices.remove(freeCandidate);
+					voice = freeCandidate;
+					voice.addNote(currentNote, currentOnset, pitches[i], durations[i]);
+				} else {
+					voice = new ContrapuntalVoice(currentNote, currentOnset, pitches[i], durations[i]);
+					this.voiceIndices.put(voice, this.contrapuntalVoices.size());
+					this.contrapuntalVoices.add(voice);
+				}
+				busyVoices.add(voice);
+				if (currentVoiceIndex == null) {
+					currentVoiceIndex = new PitchIndex();
+					currentVoices.put(durations[i], currentVoiceIndex);
+				}
+				currentVoiceIndex.add(voice);
+			}
+		}
+	}
+
+	//compares the note with all voices, for scores that are not sorted by onset
+	private void scanContrapuntalVoices(List<Denotator> notes, double[] onsets, double[] pitches, double[] durations) {
+		for (int i = 0; i < notes.size(); i++) {
+			ContrapuntalVoice closestVoice = null;
+			double smallestPitchDistance = Double.MAX_VALUE;
+			for (ContrapuntalVoice currentVoice : this.contrapuntalVoices) {
+				if (currentVoice.hasRoomFor(onsets[i], durations[i])) {
+					double pitchDistance = Math.abs(currentVoice.getLastPitch()-pitches[i]);
+					if (closestVoice == null || pitchDistance < smallestPitchDistance) {
+						closestVoice = currentVoice;
+						smallestPitchDistance = pitchDistance;
 					}
 				}
 			}
-			if (candidates.size() > 0) {
-				double smallestPitchDistance = new ArrayList<Double>(candidates.keySet()).get(0);
-				candidates.get(smallestPitchDistance).addNote(currentNote, currentOnset, currentPitch, currentDuration);
+			LimitDenotator currentNote = (LimitDenotator)notes.get(i);
+			if (closestVoice != null) {
+				closestVoice.addNote(currentNote, onsets[i], pitches[i], durations[i]);
 			} else {
-				contrapuntalVoices.add(new ContrapuntalVoice(currentNote, currentOnset, currentPitch, currentDuration));
+				this.contrapuntalVoices.add(new ContrapuntalVoice(currentNote, onsets[i], pitches[i], durations[i]));
 			}
 		}
-    	Collections.reverse(this.contrapuntalVoices);
-    }
-	
+	}
+
 	public List<ContrapuntalVoice> getVoices() {
 		return this.contrapuntalVoices;
 	}
-	
+
 	public double getFirstOnset() {
 		return this.firstOnset;
 	}
 
+	/*
+	 * voices by last pitch and, for equal pitches, by the order they were created in. voices have to be
+	 * removed before their last pitch changes
+	 */
+	private class PitchIndex {
+
+		private TreeMap<Double,TreeSet<ContrapuntalVoice>> voices = new TreeMap<Double,TreeSet<ContrapuntalVoice>>();
+		private Comparator<ContrapuntalVoice> creationOrder = new Comparator<ContrapuntalVoice>() {
+			public int compare(ContrapuntalVoice v1, ContrapuntalVoice v2) {
+				return voiceIndices.get(v1)-voiceIndices.get(v2);
+			}
+		};
+
+		public void add(ContrapuntalVoice voice) {
+			TreeSet<ContrapuntalVoice> voicesWithPitch = this.voices.get(voice.getLastPitch());
+			if (voicesWithPitch == null) {
+				voicesWithPitch = new TreeSet<ContrapuntalVoice>(this.creationOrder);
+				this.voices.put(voice.getLastPitch(), voicesWithPitch);
+			}
+			voicesWithPitch.add(voice);
+		}
+
+		public void remove(ContrapuntalVoice voice) {
+			TreeSet<ContrapuntalVoice> voicesWithPitch = this.voices.get(voice.getLastPitch());
+			voicesWithPitch.remove(voice);
+			if (voicesWithPitch.isEmpty()) {
+				this.voices.remove(voice.getLastPitch());
+			}
+		}
+
+		/*
+		 * returns the earliest created of the voices with the closest last pitch, which is the closest lower
+		 * or higher pitch
+		 */
+		public ContrapuntalVoice getClosestVoice(double pitch) {
+			Map.Entry<Double,TreeSet<ContrapuntalVoice>> lower = this.voices.floorEntry(pitch);
+			Map.Entry<Double,TreeSet<ContrapuntalVoice>> higher = this.voices.higherEntry(pitch);
+			if (lower == null) {
+				return higher != null ? higher.getValue().first() : null;
+			} else if (higher == null) {
+				return lower.getValue().first();
+			}
+			ContrapuntalVoice lowerVoice = lower.getValue().first();
+			ContrapuntalVoice higherVoice = higher.getValue().first();
+			return this.compare(lowerVoice, higherVoice, pitch) <= 0 ? lowerVoice : higherVoice;
+		}
+
+		//compares the voices by the distance of their last pitch to the given pitch and then by creation
+		public int compare(ContrapuntalVoice v1, ContrapuntalVoice v2, double pitch) {
+			int distanceComparison = Double.compare(Math.abs(v1.getLastPitch()-pitch), Math.abs(v2.getLastPitch()-pitch));
+			if (distanceComparison != 0) {
+				return distanceComparison;
+			}
+			return this.creationOrder.compare(v1, v2);
+		}
+
+	}
+
 }
@@ -0,0 +1,92 @@
+package org.rubato.rubettes.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.rubato.math.yoneda.Denotator;
+import org.rubato.math.yoneda.LimitDenotator;
+import org.rubato.math.yoneda.PowerDenotator;
+
+import junit.framework.TestCase;
+
+public class VoiceSplitterTest extends TestCase {
+
+	public void testSplitContrapuntalVoices() {
+		//onset, pitch, loudness, duration, voice
+		double[][] columns = new double[][]{{0,0,0,1,2},{60,64,67,62,70},{120,120,120,120,120},{1,1,2,1,1},{0,0,0,0,0}};
+		VoiceSplitter splitter = new VoiceSplitter(new FlatScore(columns).toDenotator());
+		List<ContrapuntalVoice> voices = splitter.getVoices();
+		TestCase.assertEquals(2, voices.size());
+		this.assertPitches(voices.get(0), 67, 70);
+		//notes with the same onset and duration are added to the same voice
+		this.assertPitches(voices.get(1), 60, 64, 62);
+		TestCase.assertEquals(0.0, splitter.getFirstOnset());
+	}
+
+	public void testSameVoicesAsScan() {
+		Random random = new Random(11);
+		for (int i = 0; i < 20; i++) {
+			int noteCount = 50+random.nextInt(400);
+			double[][] columns = new double[FlatScore.COORDINATE_COUNT][noteCount];
+			for (int j = 0; j < noteCount; j++) {
+				columns[FlatScore.ONSET][j] = random.nextInt(noteCount/4)*0.5;
+				columns[FlatScore.PITCH][j] = 40+random.nextInt(30);
+				columns[FlatScore.LOUDNESS][j] = 120;
+				//including some chords with equal durations and notes without duration
+				columns[FlatScore.DURATION][j] = random.nextInt(5)*0.5;
+			}
+			PowerDenotator score = new FlatScore(columns).toDenotator();
+			List<List<Denotator>> expectedVoices = this.scanContrapuntalVoices(score);
+			List<ContrapuntalVoice> voices = new VoiceSplitter(score).getVoices();
+			TestCase.assertEquals(expectedVoices.size(), voices.size());
+			for (int j = 0; j < voices.size(); j++) {
+				List<LimitDenotator> notes = voices.get(j).getNotes();
+				TestCase.assertEquals(expectedVoices.get(j).size(), notes.size());
+				for (int k = 0; k < notes.size(); k++) {
+					TestCase.assertSame(expectedVoices.get(j).get(k), notes.get(k));
+				}
+			}
+		}
+	}
+
+	private void assertPitches(ContrapuntalVoice voice, double... pitches) {
+		SoundNoteGenerator generator = new SoundNoteGenerator();
+		TestCase.assertEquals(pitches.length, voice.getNotes().size());
+		for (int i = 0; i < pitches.length; i++) {
+			TestCase.assertEquals(pitches[i], generator.getDoubleValue(voice.getNotes().get(i), new int[]{1,0}));
+		}
+	}
+
+	//assigns every note to the closest voice with room for it by comparing it with all voices
+	private List<List<Denotator>> scanContrapuntalVoices(PowerDenotator score) {
+		SoundNoteGenerator generator = new SoundNoteGenerator();
+		List<List<Denotator>> voices = new ArrayList<List<Denotator>>();
+		List<double[]> voiceEnds = new ArrayList<double[]>();
+		for (Denotator currentNote : score.getFactors()) {
+			double onset = generator.getDoubleValue(currentNote, new int[]{0,0});
+			double pitch = generator.getDoubleValue(currentNote, new int[]{1,0});
+			double duration = generator.getDoubleValue(currentNote, new int[]{3,0});
+			int closestVoice = -1;
+			for (int i = 0; i < voices.size(); i++) {
+				double[] lastNote = voiceEnds.get(i);
+				if (onset >= lastNote[0]+lastNote[2] || (onset == lastNote[0] && duration == lastNote[2])) {
+					if (closestVoice < 0 || Math.abs(lastNote[1]-pitch) < Math.abs(voiceEnds.get(closestVoice)[1]-pitch)) {
+						closestVoice = i;
+					}
+				}
+			}
+			if (closestVoice < 0) {
+				closestVoice = voices.size();
+				voices.add(new ArrayList<Denotator>());
+				voiceEnds.add(null);
+			}
+			voices.get(closestVoice).add(currentNote);
+			voiceEnds.set(closestVoice, new double[]{onset, pitch, duration});
+		}
+		Collections.reverse(voices);
+		return voices;
+	}
+
+}
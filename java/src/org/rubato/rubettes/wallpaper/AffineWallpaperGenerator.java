@@ -0,0 +1,296 @@
+package org.rubato.rubettes.wallpaper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.rubato.base.RubatoException;
+import org.rubato.math.matrix.RMatrix;
+import org.rubato.math.module.Module;
+import org.rubato.math.module.QRing;
+import org.rubato.math.module.RElement;
+import org.rubato.math.module.RRing;
+import org.rubato.math.module.Ring;
+import org.rubato.math.module.ZRing;
+import org.rubato.math.module.morphism.ModuleMorphism;
+import org.rubato.math.module.morphism.RAffineMorphism;
+import org.rubato.math.module.morphism.RFreeAffineMorphism;
+import org.rubato.math.yoneda.Denotator;
+import org.rubato.math.yoneda.NameDenotator;
+import org.rubato.math.yoneda.PowerDenotator;
+import org.rubato.math.yoneda.SimpleDenotator;
+import org.rubato.math.yoneda.SimpleForm;
+
+/**
+ * Creates wallpapers whose morphisms are all affine morphisms over R. Instead of mapping the whole input
+ * denotator once per grid step and uniting the results, the grid is walked on the values of each element
+ * of the input, kept in a primitive array, and the output is built with a single sort at the end. Elements
+ * may be processed in parallel.
+ *
+ * The results are the same as the ones of getUnitedMappedDenotators() in WallpaperRubette, i.e. values of
+ * simple denotators over Q or Z are cast after every step, as the ArbitraryDenotatorMapper does.
+ */
+public class AffineWallpaperGenerator {
+
+	//minimum number of output elements per thread
+	private static final int MIN_ELEMENTS_PER_THREAD = 4096;
+	//threads for mapping the elements, created when first needed
+	private static ExecutorService executor = null;
+
+	//all paths the morphisms act on, without duplicates
+	private List<int[]> paths;
+	//for every morphism, the indices of its domain and codomain paths in paths
+	private int[][] domainIndices;
+	private int[][] codomainIndices;
+	private double[][][] matrices;
+	private double[][] vectors;
+	//for every morphism, the number of steps the first mapping is at and the number of mappings
+	private int[] firstSteps;
+	private int[] stepCounts;
+
+	/**
+	 * Returns a generator for the given morphisms of the given table, or null if not all of them are affine
+	 * morphisms over R.
+	 */
+	public static AffineWallpaperGenerator make(List<ModuleMorphism> morphisms, JWallpaperDimensionsTable table) {
+		for (ModuleMorphism currentMorphism : morphisms) {
+			if (!(currentMorphism instanceof RFreeAffineMorphism || currentMorphism instanceof RAffineMorphism)) {
+				return null;
+			}
+			List<List<Integer>> currentCoordinates = table.getCoordinates(currentMorphism);
+			if (currentCoordinates == null || currentCoordinates.size() != currentMorphism.getDomain().getDimension()
+					+ currentMorphism.getCodomain().getDimension()) {
+				return null;
+			}
+			for (List<Integer> currentPath : currentCoordinates) {
+				if (currentPath.isEmpty()) {
+					return null;
+				}
+			}
+		}
+		return new AffineWallpaperGenerator(morphisms, table);
+	}
+
+	private AffineWallpaperGenerator(List<ModuleMorphism> morphisms, JWallpaperDimensionsTable table) {
+		int morphismCount = morphisms.size();
+		this.paths = new ArrayList<int[]>();
+		this.domainIndices = new int[morphismCount][];
+		this.codomainIndices = new int[morphismCount][];
+		this.matrices = new double[morphismCount][][];
+		this.vectors = new double[morphismCount][];
+		this.firstSteps = new int[morphismCount];
+		this.stepCounts = new int[morphismCount];
+		for (int i = 0; i < morphismCount; i++) {
+			ModuleMorphism currentMorphism = morphisms.get(i);
+			int domainDim = currentMorphism.getDomain().getDimension();
+			int codomainDim = currentMorphism.getCodomain().getDimension();
+			List<List<Integer>> currentCoordinates = table.getCoordinates(currentMorphism);
+			this.domainIndices[i] = new int[domainDim];
+			for (int j = 0; j < domainDim; j++) {
+				this.domainIndices[i][j] = this.getPathIndex(currentCoordinates.get(j));
+			}
+			this.codomainIndices[i] = new int[codomainDim];
+			for (int j = 0; j < codomainDim; j++) {
+				this.codomainIndices[i][j] = this.getPathIndex(currentCoordinates.get(domainDim+j));
+			}
+			if (currentMorphism instanceof RAffineMorphism) {
+				this.matrices[i] = new double[][]{{((RAffineMorphism)currentMorphism).getA()}};
+				this.vectors[i] = new double[]{((RAffineMorphism)currentMorphism).getB()};
+			} else {
+				RMatrix matrix = ((RFreeAffineMorphism)currentMorphism).getMatrix();
+				this.matrices[i] = new double[codomainDim][domainDim];
+				for (int j = 0; j < codomainDim; j++) {
+					for (int k = 0; k < domainDim; k++) {
+						this.matrices[i][j][k] = matrix.get(j, k);
+					}
+				}
+				this.vectors[i] = ((RFreeAffineMorphism)currentMorphism).getVector().clone();
+			}
+			//negative ranges are mapped forwards as well, as in WallpaperRubette
+			int rangeFrom = table.getRangeFrom(currentMorphism);
+			int rangeTo = table.getRangeTo(currentMorphism);
+			this.firstSteps[i] = Math.abs(rangeFrom);
+			this.stepCounts[i] = Math.abs(rangeTo-rangeFrom)+1;
+		}
+	}
+
+	private int getPathIndex(List<Integer> path) {
+		int[] arrayPath = new int[path.size()];
+		for (int i = 0; i < arrayPath.length; i++) {
+			arrayPath[i] = path.get(i);
+		}
+		for (int i = 0; i < this.paths.size(); i++) {
+			if (Arrays.equals(this.paths.get(i), arrayPath)) {
+				return i;
+			}
+		}
+		this.paths.add(arrayPath);
+		return this.paths.size()-1;
+	}
+
+	/**
+	 * Returns the wallpaper of the given input, or null if the morphisms cannot be applied to the values of
+	 * all of its elements directly. This is the case if the input is not null-addressed or if any of the
+	 * paths does not lead to a simple denotator over R, Q or Z.
+	 *
+	 * @param threadCount the maximum number of threads to be used
+	 */
+	public PowerDenotator getWallpaper(PowerDenotator input, int threadCount) throws RubatoException {
+		if (!input.getAddress().isNullModule()) {
+			return null;
+		}
+		final List<Denotator> elements = input.getFactors();
+		for (Denotator currentElement : elements) {
+			if (!this.isApplicable(currentElement)) {
+				return null;
+			}
+		}
+
+		int cellCount = 1;
+		for (int currentCount : this.stepCounts) {
+			cellCount *= currentCount;
+		}
+		threadCount = (int)Math.min(threadCount, (long)elements.size()*cellCount/MIN_ELEMENTS_PER_THREAD);
+		List<Denotator> mappedElements = new ArrayList<Denotator>();
+		if (threadCount <= 1) {
+			this.mapElements(elements, 0, elements.size(), mappedElements);
+		} else {
+			ExecutorService executor = AffineWallpaperGenerator.getExecutor();
+			try {
+				List<Future<List<Denotator>>> results = new ArrayList<Future<List<Denotator>>>();
+				int chunkSize = (elements.size()+threadCount-1)/threadCount;
+				for (int i = 0; i < elements.size(); i += chunkSize) {
+					final int from = i;
+					final int to = Math.min(elements.size(), i+chunkSize);
+					results.add(executor.submit(new Callable<List<Denotator>>() {
+						public List<Denotator> call() throws RubatoException {
+							List<Denotator> mappedChunk = new ArrayList<Denotator>();
+							mapElements(elements, from, to, mappedChunk);
+							return mappedChunk;
+						}
+					}));
+				}
+				for (Future<List<Denotator>> currentResult : results) {
+					mappedElements.addAll(currentResult.get());
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RubatoException("AffineWallpaperGenerator.getWallpaper: Interrupted");
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RubatoException) {
+					throw (RubatoException)e.getCause();
+				}
+				throw new RuntimeException(e.getCause());
+			}
+		}
+		//the list is sorted and freed of duplicates only once
+		return new PowerDenotator(null, input.getAddress(), input.getPowerForm(), mappedElements);
+	}
+
+	private static synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					//idle threads must not keep the application alive
+					Thread thread = new Thread(r, "AffineWallpaperGenerator");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return executor;
+	}
+
+	private boolean isApplicable(Denotator element) throws RubatoException {
+		for (int[] currentPath : this.paths) {
+			Denotator currentSimple = element.get(currentPath);
+			if (!(currentSimple instanceof SimpleDenotator) || !currentSimple.getAddress().isNullModule()) {
+				return false;
+			}
+			Module currentModule = ((SimpleDenotator)currentSimple).getElement().getModule();
+			if (currentModule != RRing.ring && currentModule != QRing.ring && currentModule != ZRing.ring) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void mapElements(List<Denotator> elements, int from, int to, List<Denotator> mappedElements) throws RubatoException {
+		int pathCount = this.paths.size();
+		for (int i = from; i < to; i++) {
+			Denotator currentElement = elements.get(i);
+			SimpleDenotator[] simples = new SimpleDenotator[pathCount];
+			double[] values = new double[pathCount];
+			for (int j = 0; j < pathCount; j++) {
+				simples[j] = (SimpleDenotator)currentElement.get(this.paths.get(j));
+				values[j] = ((RElement)RRing.ring.cast(simples[j].getElement())).getValue();
+			}
+			this.walkGrid(currentElement, simples, this.matrices.length-1, values, new boolean[pathCount], mappedElements);
+		}
+	}
+
+	/*
+	 * maps the given values with the morphism at the given index for all of its steps and continues with the
+	 * previous morphism for each of them, since the first morphism in the table is dominant
+	 */
+	private void walkGrid(Denotator element, SimpleDenotator[] simples, int morphismIndex, double[] values, boolean[] mapped, List<Denotator> mappedElements) throws RubatoException {
+		if (morphismIndex < 0) {
+			mappedElements.add(this.createMappedElement(element, simples, values, mapped));
+			return;
+		}
+		values = values.clone();
+		mapped = mapped.clone();
+		double[] mappedValues = new double[this.codomainIndices[morphismIndex].length];
+		for (int i = 0; i < this.firstSteps[morphismIndex]; i++) {
+			this.map(morphismIndex, simples, values, mapped, mappedValues);
+		}
+		this.walkGrid(element, simples, morphismIndex-1, values, mapped, mappedElements);
+		for (int i = 1; i < this.stepCounts[morphismIndex]; i++) {
+			this.map(morphismIndex, simples, values, mapped, mappedValues);
+			this.walkGrid(element, simples, morphismIndex-1, values, mapped, mappedElements);
+		}
+	}
+
+	private void map(int morphismIndex, SimpleDenotator[] simples, double[] values, boolean[] mapped, double[] mappedValues) {
+		int[] domain = this.domainIndices[morphismIndex];
+		int[] codomain = this.codomainIndices[morphismIndex];
+		double[][] matrix = this.matrices[morphismIndex];
+		double[] vector = this.vectors[morphismIndex];
+		for (int i = 0; i < codomain.length; i++) {
+			double currentValue = 0;
+			for (int j = 0; j < domain.length; j++) {
+				currentValue += matrix[i][j]*values[domain[j]];
+			}
+			mappedValues[i] = currentValue+vector[i];
+		}
+		for (int i = 0; i < codomain.length; i++) {
+			int currentIndex = codomain[i];
+			Ring currentRing = simples[currentIndex].getElement().getModule().getRing();
+			if (currentRing == RRing.ring) {
+				values[currentIndex] = mappedValues[i];
+			} else {
+				//the mapper casts the values to the ring of the simple denotator after every step
+				values[currentIndex] = ((RElement)RRing.ring.cast(currentRing.cast(new RElement(mappedValues[i])))).getValue();
+			}
+			mapped[currentIndex] = true;
+		}
+	}
+
+	private Denotator createMappedElement(Denotator element, SimpleDenotator[] simples, double[] values, boolean[] mapped) throws RubatoException {
+		for (int i = 0; i < values.length; i++) {
+			if (mapped[i]) {
+				Ring currentRing = simples[i].getElement().getModule().getRing();
+				SimpleDenotator currentSimple = new SimpleDenotator(NameDenotator.make(""), (SimpleForm)simples[i].getForm(), currentRing.cast(new RElement(values[i])));
+				element = element.replace(this.paths.get(i), currentSimple);
+			}
+		}
+		return element;
+	}
+
+}
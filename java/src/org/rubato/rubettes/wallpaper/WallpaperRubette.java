@@ -89,8 +89,7 @@ public class WallpaperRubette extends AbstractRubette implements ActionListener
             this.addError("Input denotator not set.");
         } else {
         	try {
-        		List<ModuleMorphism> morphisms = new ArrayList<ModuleMorphism>(this.morphismsTable.getMorphisms());
-        		PowerDenotator output = this.getUnitedMappedDenotators(input, morphisms);
+        		PowerDenotator output = this.getWallpaper(input, this.morphismsTable.getMorphisms());
         		this.setOutput(0, output);
         	} catch (RubatoException e) { 
         		e.printStackTrace();
@@ -104,7 +103,31 @@ public class WallpaperRubette extends AbstractRubette implements ActionListener
      * only. 
      */
 	protected PowerDenotator getUnitedMappedDenotators(PowerDenotator input) throws RubatoException {
-		return this.getUnitedMappedDenotators(input, this.morphismsTable.getMorphisms());
+		return this.getUnitedMappedDenotators(input, new ArrayList<ModuleMorphism>(this.morphismsTable.getMorphisms()));
+	}
+	
+	/*
+	 * returns the wallpaper denotator. if all morphisms are affine over R, the values of the input's
+	 * elements are mapped directly, otherwise the whole input is mapped and united for every step.
+	 */
+	private PowerDenotator getWallpaper(PowerDenotator input, List<ModuleMorphism> morphisms) throws RubatoException {
+		if (morphisms.size() > 0) {
+			AffineWallpaperGenerator generator = AffineWallpaperGenerator.make(morphisms, this.morphismsTable);
+			if (generator != null) {
+				PowerDenotator output = generator.getWallpaper(input, Runtime.getRuntime().availableProcessors());
+				if (output != null) {
+					return output;
+				}
+			}
+		}
+		return this.getUnitedMappedDenotators(input, new ArrayList<ModuleMorphism>(morphisms));
+	}
+	
+	/*
+	 * calls getWallpaper with all current morphisms in the table. Used for testing only.
+	 */
+	protected PowerDenotator getWallpaper(PowerDenotator input) throws RubatoException {
+		return this.getWallpaper(input, this.morphismsTable.getMorphisms());
 	}
 	
 	/*
@@ -205,6 +228,13 @@ public class WallpaperRubette extends AbstractRubette implements ActionListener
         return "Wallpaper";
     }
 
+    /**
+     * Returns true, since the output only depends on the input and the morphisms
+     */
+    public boolean canReuseOutputs() {
+        return true;
+    }
+
     /**
      * Returns the fact that this rubette has properties
      */
@@ -51,6 +51,7 @@ import org.rubato.xml.XMLWriter;
 import org.rubato.xml.XMLReader;
 
 import org.rubato.rubettes.alteration.AlterationRubetteTest;
+import org.rubato.rubettes.util.MacroNoteGenerator;
 import org.rubato.rubettes.util.SimpleFormFinderTest;
 import org.rubato.rubettes.score.ScaleRubetteTest;
 
@@ -217,6 +218,40 @@ public class WallpaperRubetteTest extends TestCase {
 		d = new SimpleDenotator(this.emptyName, this.realForm, m);
 	}
 	
+	public void testGetWallpaperWithAffineMorphisms() throws RubatoException {
+		double[] pitches = new double[400];
+		for (int i = 0; i < pitches.length; i++) {
+			pitches[i] = 40 + (i*7)%45 + (i%3)*0.25;
+		}
+		this.denotator = new MacroNoteGenerator().createSimpleMelody(0.75, pitches);
+		this.rubette.addMorphism(RFreeAffineMorphism.make(new RMatrix(new double[][]{{1,0.5},{0,1.1}}), new double[]{1.5,-0.3}),
+				-1, 2, this.createSimplePaths(0, 1, 0, 1));
+		this.rubette.addMorphism(new RAffineMorphism(0.9, 2), 2, 0, this.createSimplePaths(2, 2));
+		this.rubette.addMorphism(RFreeAffineMorphism.make(new RMatrix(new double[][]{{0.1,1}}), new double[]{0.25}),
+				0, 1, this.createSimplePaths(0, 3, 3));
+		//the values mapped directly are the same as the ones of the denotators mapped step by step
+		PowerDenotator expected = this.rubette.getUnitedMappedDenotators(this.denotator);
+		PowerDenotator wallpaper = this.rubette.getWallpaper(this.denotator);
+		TestCase.assertEquals(expected.getFactorCount(), wallpaper.getFactorCount());
+		for (int i = 0; i < expected.getFactorCount(); i++) {
+			for (int j = 0; j < 5; j++) {
+				int[] elementPath = new int[]{j,0};
+				TestCase.assertEquals(expected.getFactor(i).getElement(elementPath), wallpaper.getFactor(i).getElement(elementPath));
+			}
+		}
+		//elements mapped in parallel result in the same wallpaper
+		AffineWallpaperGenerator generator = AffineWallpaperGenerator.make(this.rubette.getMorphismsTable().getMorphisms(), this.rubette.getMorphismsTable());
+		PowerDenotator parallelWallpaper = generator.getWallpaper(this.denotator, 2);
+		TestCase.assertEquals(wallpaper.getFactorCount(), parallelWallpaper.getFactorCount());
+		for (int i = 0; i < wallpaper.getFactorCount(); i++) {
+			TestCase.assertEquals(wallpaper.getFactor(i).getElement(new int[]{1,0}), parallelWallpaper.getFactor(i).getElement(new int[]{1,0}));
+		}
+		//other morphisms are still applied step by step
+		this.rubette.addMorphism(new ZAffineMorphism(2, 1), 0, 2, this.createSimplePaths(2, 2));
+		TestCase.assertNull(AffineWallpaperGenerator.make(this.rubette.getMorphismsTable().getMorphisms(), this.rubette.getMorphismsTable()));
+		TestCase.assertEquals(3*wallpaper.getFactorCount(), this.rubette.getWallpaper(this.denotator).getFactorCount());
+	}
+	
 	private void assertDenotatorFactor(int factorIndex, int onsetValue, int pitchValue) throws RubatoException {
 		Denotator factor = this.denotator.getFactor(factorIndex);
 		TestCase.assertTrue(((RElement)factor.getElement(new int[]{0,0})).getValue() == onsetValue);
@@ -21,6 +21,8 @@ package org.rubato.scheme;
 
 import static org.rubato.scheme.SExpr.*;
 
+import java.math.BigInteger;
+
 import org.rubato.math.arith.Complex;
 import org.rubato.math.arith.NumberTheory;
 import org.rubato.math.arith.Rational;
@@ -859,7 +861,7 @@ abstract class ArithPrimitives {
         public SExpr call(SExpr args, Evaluator eval) {
             if (args.getLength() == 1) {
                 if (car(args).isRational()) {
-                    return new SInteger(((SRational)car(args)).getRational().getNumerator());
+                    return SRational.make(new Rational(((SRational)car(args)).getRational().getBigNumerator(), BigInteger.ONE));
                 }
                 else if (car(args).isInteger()) {
                     return car(args);
@@ -881,7 +883,7 @@ abstract class ArithPrimitives {
         public SExpr call(SExpr args, Evaluator eval) {
             if (args.getLength() == 1) {
                 if (car(args).isRational()) {
-                    return new SInteger(((SRational)car(args)).getRational().getDenominator());
+                    return SRational.make(new Rational(((SRational)car(args)).getRational().getBigDenominator(), BigInteger.ONE));
                 }
                 else if (car(args).isInteger()) {
                     return new SInteger(1);
@@ -32,7 +32,7 @@ public final class SRational extends SNumber {
      * Creates a Scheme value from the rational number <code>q</code>.
      */
     public static SNumber make(Rational q) {
-        if (q.isIntegral()) {
+        if (q.isIntegral() && q.fitsInt()) {
             return new SInteger(q.getNumerator());
         }
         else {
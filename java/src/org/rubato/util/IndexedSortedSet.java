@@ -0,0 +1,491 @@
+package org.rubato.util;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * A sorted set without duplicates that also supports access by position.
+ * The elements are kept in a balanced (AVL) tree where each node
+ * stores the size of its subtree, so that insertion, removal,
+ * access by index and lookup of the index of an element
+ * all take logarithmic time.
+ * Elements are compared using their natural order. When an element
+ * is added that compares equal to an element already in the set,
+ * the element already in the set is kept.
+ * Nodes are never changed once they are in a tree. Modifications
+ * copy the nodes on the path to the changed position, so that a copy
+ * of the set shares all nodes with the original and takes constant time.
+ */
+public final class IndexedSortedSet<E extends Comparable<? super E>>
+    implements Iterable<E>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Node<E> root;
+    private transient int modCount;
+
+
+    /**
+     * Creates an empty set.
+     */
+    public IndexedSortedSet() {
+        this.root = null;
+    }
+
+
+    /**
+     * Creates a set containing the elements of <code>elements</code>.
+     * The elements are sorted once and the tree is built bottom-up
+     * in linear time from the sorted sequence.
+     */
+    public IndexedSortedSet(Collection<? extends E> elements) {
+        Object[] sorted = elements.toArray();
+        if (!isStrictlySorted(sorted)) {
+            // merge sort is stable, so that among equal elements
+            // the first one is kept when removing duplicates
+            Arrays.sort(sorted);
+            sorted = removeDuplicates(sorted);
+        }
+        this.root = IndexedSortedSet.<E>build(sorted, 0, sorted.length);
+    }
+
+
+    /**
+     * Returns a copy of this set. The copy shares its structure with
+     * this set, but modifications of either one do not affect the other.
+     */
+    public IndexedSortedSet<E> copy() {
+        IndexedSortedSet<E> copy = new IndexedSortedSet<E>();
+        copy.root = this.root;
+        return copy;
+    }
+
+
+    /**
+     * Returns the number of elements.
+     */
+    public int size() {
+        return size(this.root);
+    }
+
+
+    /**
+     * Returns true iff the set contains no elements.
+     */
+    public boolean isEmpty() {
+        return this.root == null;
+    }
+
+
+    /**
+     * Returns the element at position <code>index</code>.
+     *
+     * @throws IndexOutOfBoundsException if <code>index</code> is out of range
+     */
+    public E get(int index) {
+        checkIndex(index);
+        Node<E> node = this.root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            }
+            else if (index > leftSize) {
+                index -= leftSize+1;
+                node = node.right;
+            }
+            else {
+                return node.value;
+            }
+        }
+    }
+
+
+    /**
+     * Returns the position of <code>element</code> in the set,
+     * or -1 if the set does not contain it.
+     */
+    public int indexOf(E element) {
+        Node<E> node = this.root;
+        int index = 0;
+        while (node != null) {
+            int c = element.compareTo(node.value);
+            if (c < 0) {
+                node = node.left;
+            }
+            else if (c > 0) {
+                index += size(node.left)+1;
+                node = node.right;
+            }
+            else {
+                return index+size(node.left);
+            }
+        }
+        return -1;
+    }
+
+
+    /**
+     * Returns true iff the set contains <code>element</code>.
+     */
+    public boolean contains(E element) {
+        return this.find(element) != null;
+    }
+
+
+    /**
+     * Returns the element of the set that is equal to <code>element</code>,
+     * or null if there is none.
+     */
+    public E find(E element) {
+        Node<E> node = this.root;
+        while (node != null) {
+            int c = element.compareTo(node.value);
+            if (c < 0) {
+                node = node.left;
+            }
+            else if (c > 0) {
+                node = node.right;
+            }
+            else {
+                return node.value;
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * Adds <code>element</code> to the set.
+     *
+     * @return false iff the set already contained an equal element
+     */
+    public boolean add(E element) {
+        int oldSize = this.size();
+        this.root = insert(this.root, element);
+        if (this.size() != oldSize) {
+            this.modCount++;
+            return true;
+        }
+        return false;
+    }
+
+
+    /**
+     * Removes the element equal to <code>element</code> from the set.
+     *
+     * @return true iff the set contained such an element
+     */
+    public boolean remove(E element) {
+        int oldSize = this.size();
+        this.root = delete(this.root, element);
+        if (this.size() != oldSize) {
+            this.modCount++;
+            return true;
+        }
+        return false;
+    }
+
+
+    /**
+     * Removes the element at position <code>index</code>.
+     *
+     * @return the removed element
+     * @throws IndexOutOfBoundsException if <code>index</code> is out of range
+     */
+    public E removeAt(int index) {
+        E removed = this.get(index);
+        this.root = deleteAt(this.root, index);
+        this.modCount++;
+        return removed;
+    }
+
+
+    /**
+     * Removes all elements.
+     */
+    public void clear() {
+        this.root = null;
+        this.modCount++;
+    }
+
+
+    /**
+     * Returns a new list containing all elements in order.
+     */
+    public ArrayList<E> toList() {
+        ArrayList<E> list = new ArrayList<E>(this.size());
+        for (E element : this) {
+            list.add(element);
+        }
+        return list;
+    }
+
+
+    /**
+     * Returns an iterator over the elements in ascending order.
+     * The iterator does not support removal.
+     */
+    public Iterator<E> iterator() {
+        return new InOrderIterator();
+    }
+
+
+    public String toString() {
+        return this.toList().toString();
+    }
+
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= this.size()) {
+            throw new IndexOutOfBoundsException(index+" not in [0,"+this.size()+")");
+        }
+    }
+
+
+    private static boolean isStrictlySorted(Object[] elements) {
+        for (int i = 1; i < elements.length; i++) {
+            if (compare(elements[i-1], elements[i]) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private static Object[] removeDuplicates(Object[] sorted) {
+        if (sorted.length == 0) {
+            return sorted;
+        }
+        int count = 1;
+        for (int i = 1; i < sorted.length; i++) {
+            if (compare(sorted[count-1], sorted[i]) != 0) {
+                sorted[count++] = sorted[i];
+            }
+        }
+        return count == sorted.length ? sorted : Arrays.copyOf(sorted, count);
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private static int compare(Object a, Object b) {
+        return ((Comparable<Object>)a).compareTo(b);
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private static <E> Node<E> build(Object[] sorted, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int middle = (from+to) >>> 1;
+        Node<E> node = new Node<E>((E)sorted[middle]);
+        node.left = IndexedSortedSet.<E>build(sorted, from, middle);
+        node.right = IndexedSortedSet.<E>build(sorted, middle+1, to);
+        update(node);
+        return node;
+    }
+
+
+    private static <E extends Comparable<? super E>> Node<E> insert(Node<E> node, E element) {
+        if (node == null) {
+            return new Node<E>(element);
+        }
+        int c = element.compareTo(node.value);
+        if (c < 0) {
+            Node<E> left = insert(node.left, element);
+            return left == node.left ? node : balance(node.withLeft(left));
+        }
+        else if (c > 0) {
+            Node<E> right = insert(node.right, element);
+            return right == node.right ? node : balance(node.withRight(right));
+        }
+        return node;
+    }
+
+
+    private static <E extends Comparable<? super E>> Node<E> delete(Node<E> node, E element) {
+        if (node == null) {
+            return null;
+        }
+        int c = element.compareTo(node.value);
+        if (c < 0) {
+            Node<E> left = delete(node.left, element);
+            return left == node.left ? node : balance(node.withLeft(left));
+        }
+        else if (c > 0) {
+            Node<E> right = delete(node.right, element);
+            return right == node.right ? node : balance(node.withRight(right));
+        }
+        return unlink(node);
+    }
+
+
+    private static <E> Node<E> deleteAt(Node<E> node, int index) {
+        int leftSize = size(node.left);
+        if (index < leftSize) {
+            return balance(node.withLeft(deleteAt(node.left, index)));
+        }
+        else if (index > leftSize) {
+            return balance(node.withRight(deleteAt(node.right, index-leftSize-1)));
+        }
+        return unlink(node);
+    }
+
+
+    /**
+     * Returns the subtree that replaces <code>node</code> when it is removed.
+     */
+    private static <E> Node<E> unlink(Node<E> node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        else if (node.right == null) {
+            return node.left;
+        }
+        Node<E> successor = node.right;
+        while (successor.left != null) {
+            successor = successor.left;
+        }
+        Node<E> replacement = new Node<E>(successor.value);
+        replacement.left = node.left;
+        replacement.right = deleteAt(node.right, 0);
+        return balance(replacement);
+    }
+
+
+    /**
+     * Rebalances a new node whose subtrees are balanced.
+     * Only <code>node</code> and new nodes are changed.
+     */
+    private static <E> Node<E> balance(Node<E> node) {
+        update(node);
+        int factor = height(node.left)-height(node.right);
+        if (factor > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left.copy());
+            }
+            return rotateRight(node);
+        }
+        else if (factor < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right.copy());
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+
+    private static <E> Node<E> rotateRight(Node<E> node) {
+        Node<E> left = node.left.copy();
+        node.left = left.right;
+        left.right = node;
+        update(node);
+        update(left);
+        return left;
+    }
+
+
+    private static <E> Node<E> rotateLeft(Node<E> node) {
+        Node<E> right = node.right.copy();
+        node.right = right.left;
+        right.left = node;
+        update(node);
+        update(right);
+        return right;
+    }
+
+
+    private static <E> void update(Node<E> node) {
+        node.size = size(node.left)+size(node.right)+1;
+        node.height = Math.max(height(node.left), height(node.right))+1;
+    }
+
+
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+
+    private static int height(Node<?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+
+    private static final class Node<E> implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        E       value;
+        Node<E> left;
+        Node<E> right;
+        int     size;
+        int     height;
+
+        Node(E value) {
+            this.value = value;
+            this.size = 1;
+            this.height = 1;
+        }
+
+        Node<E> copy() {
+            Node<E> copy = new Node<E>(this.value);
+            copy.left = this.left;
+            copy.right = this.right;
+            copy.size = this.size;
+            copy.height = this.height;
+            return copy;
+        }
+
+        Node<E> withLeft(Node<E> left) {
+            Node<E> copy = this.copy();
+            copy.left = left;
+            return copy;
+        }
+
+        Node<E> withRight(Node<E> right) {
+            Node<E> copy = this.copy();
+            copy.right = right;
+            return copy;
+        }
+    }
+
+
+    private final class InOrderIterator implements Iterator<E> {
+
+        private final ArrayList<Node<E>> stack = new ArrayList<Node<E>>();
+        private final int expectedModCount = modCount;
+
+        InOrderIterator() {
+            this.pushLeft(root);
+        }
+
+        public boolean hasNext() {
+            return !this.stack.isEmpty();
+        }
+
+        public E next() {
+            if (modCount != this.expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (this.stack.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            Node<E> node = this.stack.remove(this.stack.size()-1);
+            this.pushLeft(node.right);
+            return node.value;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        private void pushLeft(Node<E> node) {
+            while (node != null) {
+                this.stack.add(node);
+                node = node.left;
+            }
+        }
+    }
+}
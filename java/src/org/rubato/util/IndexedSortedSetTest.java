@@ -0,0 +1,96 @@
+package org.rubato.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import junit.framework.TestCase;
+
+public class IndexedSortedSetTest extends TestCase {
+
+	private IndexedSortedSet<Integer> set;
+
+	protected void setUp() {
+		this.set = new IndexedSortedSet<Integer>(Arrays.asList(5, 1, 9, 3, 5, 7));
+	}
+
+	public void testBulkLoad() {
+		TestCase.assertEquals(5, this.set.size());
+		TestCase.assertEquals(Arrays.asList(1, 3, 5, 7, 9), this.set.toList());
+	}
+
+	public void testAddAndIndexOf() {
+		TestCase.assertTrue(this.set.add(4));
+		TestCase.assertFalse(this.set.add(4));
+		TestCase.assertEquals(2, this.set.indexOf(4));
+		TestCase.assertEquals(4, this.set.get(2).intValue());
+		TestCase.assertEquals(-1, this.set.indexOf(6));
+	}
+
+	public void testRemove() {
+		TestCase.assertEquals(5, this.set.removeAt(2).intValue());
+		TestCase.assertTrue(this.set.remove(1));
+		TestCase.assertFalse(this.set.remove(1));
+		TestCase.assertEquals(Arrays.asList(3, 7, 9), this.set.toList());
+		try {
+			this.set.removeAt(3);
+			TestCase.fail();
+		} catch (IndexOutOfBoundsException e) { }
+	}
+
+	public void testCopy() {
+		IndexedSortedSet<Integer> copy = this.set.copy();
+		TestCase.assertTrue(copy.add(4));
+		TestCase.assertEquals(9, copy.removeAt(5).intValue());
+		TestCase.assertTrue(this.set.remove(1));
+		TestCase.assertEquals(Arrays.asList(3, 5, 7, 9), this.set.toList());
+		TestCase.assertEquals(Arrays.asList(1, 3, 4, 5, 7), copy.toList());
+		//many modifications of copies leave all earlier versions unchanged
+		Random random = new Random(5);
+		List<IndexedSortedSet<Integer>> versions = new ArrayList<IndexedSortedSet<Integer>>();
+		List<List<Integer>> expectedVersions = new ArrayList<List<Integer>>();
+		IndexedSortedSet<Integer> current = new IndexedSortedSet<Integer>();
+		for (int i = 0; i < 2000; i++) {
+			current = current.copy();
+			if (random.nextInt(3) == 0 && !current.isEmpty()) {
+				current.removeAt(random.nextInt(current.size()));
+			} else {
+				current.add(random.nextInt(500));
+			}
+			if (i % 100 == 0) {
+				versions.add(current);
+				expectedVersions.add(current.toList());
+			}
+		}
+		for (int i = 0; i < versions.size(); i++) {
+			TestCase.assertEquals(expectedVersions.get(i), versions.get(i).toList());
+		}
+	}
+
+	public void testAgainstTreeSet() {
+		Random random = new Random(17);
+		IndexedSortedSet<Integer> indexed = new IndexedSortedSet<Integer>();
+		TreeSet<Integer> reference = new TreeSet<Integer>();
+		for (int i = 0; i < 5000; i++) {
+			int value = random.nextInt(1000);
+			if (random.nextInt(3) == 0 && !reference.isEmpty()) {
+				int index = random.nextInt(reference.size());
+				Integer expected = new ArrayList<Integer>(reference).get(index);
+				TestCase.assertEquals(expected, indexed.removeAt(index));
+				reference.remove(expected);
+			} else {
+				TestCase.assertEquals(reference.add(value), indexed.add(value));
+			}
+		}
+		TestCase.assertEquals(new ArrayList<Integer>(reference), indexed.toList());
+		int index = 0;
+		for (Integer value : reference) {
+			TestCase.assertEquals(index, indexed.indexOf(value));
+			TestCase.assertEquals(value, indexed.get(index));
+			index++;
+		}
+	}
+
+}
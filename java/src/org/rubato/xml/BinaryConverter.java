@@ -0,0 +1,285 @@
+package org.rubato.xml;
+
+import static org.rubato.xml.XMLConstants.ROOT_ELEMENT;
+
+import java.io.*;
+import java.util.zip.GZIPInputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Converts Rubato files between the XML-based format and the
+ * binary format (see {@link BinaryWriter}). The conversion is
+ * purely syntactic, i.e., the files are not interpreted and
+ * no plugins are needed. Whitespace between elements is not
+ * preserved.
+ */
+public final class BinaryConverter {
+
+    private BinaryConverter() { /* not allowed */ }
+
+
+    /**
+     * Converts the XML file <code>xmlFile</code>, which may be
+     * compressed with GZIP, to the binary file <code>binaryFile</code>.
+     *
+     * @throws IOException if a file cannot be read or written,
+     *         or <code>xmlFile</code> is not a valid Rubato file
+     */
+    public static void toBinary(File xmlFile, File binaryFile)
+            throws IOException {
+        Reader reader = openXML(xmlFile);
+        BinaryWriter writer = null;
+        try {
+            XMLStreamReader in = factory.createXMLStreamReader(reader);
+            int depth = 0;
+            // whitespace is written only if the current element turns
+            // out to have no child elements, otherwise it is indentation
+            String whitespace = null;
+            // true iff the current element has child elements
+            boolean children = false;
+            while (in.hasNext()) {
+                int event = in.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    if (depth == 0) {
+                        if (!in.getLocalName().equals(ROOT_ELEMENT)) {
+                            throw new IOException("Document root element is not "+ROOT_ELEMENT); //$NON-NLS-1$
+                        }
+                        writer = new BinaryWriter(binaryFile);
+                        writer.open();
+                    }
+                    else {
+                        Object[] attrs = new Object[in.getAttributeCount()*2];
+                        for (int i = 0; i < in.getAttributeCount(); i++) {
+                            attrs[2*i] = in.getAttributeLocalName(i);
+                            attrs[2*i+1] = in.getAttributeValue(i);
+                        }
+                        writer.startElement(in.getLocalName(), attrs);
+                    }
+                    whitespace = null;
+                    children = false;
+                    depth++;
+                }
+                else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                    if (depth == 0) {
+                        writer.close();
+                        break;
+                    }
+                    if (whitespace != null) {
+                        writer.writeText(whitespace);
+                        whitespace = null;
+                    }
+                    writer.endElement();
+                    children = true;
+                }
+                else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+                    if (depth > 1) {
+                        if (!in.isWhiteSpace()) {
+                            writer.writeText(in.getText());
+                        }
+                        else if (!children) {
+                            whitespace = in.getText();
+                        }
+                    }
+                }
+            }
+            in.close();
+            if (writer == null || depth != 0) {
+                throw new IOException("Incomplete Rubato file "+xmlFile); //$NON-NLS-1$
+            }
+            if (writer.checkError()) {
+                throw new IOException("Could not write "+binaryFile); //$NON-NLS-1$
+            }
+        }
+        catch (XMLStreamException e) {
+            throw new IOException(e.getMessage());
+        }
+        finally {
+            reader.close();
+        }
+    }
+
+
+    /**
+     * Converts the binary file <code>binaryFile</code> to the
+     * (uncompressed) XML file <code>xmlFile</code>.
+     *
+     * @throws IOException if a file cannot be read or written,
+     *         or <code>binaryFile</code> is not a valid binary Rubato file
+     */
+    public static void toXML(File binaryFile, File xmlFile)
+            throws IOException {
+        PrintStream out = null;
+        try {
+            BinarySource in = new BinarySource(BinarySource.map(binaryFile));
+            out = new PrintStream(new BufferedOutputStream(new FileOutputStream(xmlFile)), false, "UTF-8"); //$NON-NLS-1$
+            out.print("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"); //$NON-NLS-1$
+            int depth = 0;
+            // true iff the start tag of the current element is not yet closed
+            boolean open = false;
+            // true iff the current element has child elements
+            boolean children = false;
+            while (in.hasNext()) {
+                int event = in.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    if (open) {
+                        out.print('>');
+                    }
+                    printIndent(out, depth);
+                    out.print('<');
+                    out.print(in.getLocalName());
+                    for (int i = 0; i < in.getAttributeCount(); i++) {
+                        out.print(' ');
+                        out.print(in.getAttributeLocalName(i));
+                        out.print("=\""); //$NON-NLS-1$
+                        out.print(escape(in.getAttributeValue(i), true));
+                        out.print('"');
+                    }
+                    open = true;
+                    children = false;
+                    depth++;
+                }
+                else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                    if (open) {
+                        out.print("/>"); //$NON-NLS-1$
+                    }
+                    else {
+                        if (children) {
+                            printIndent(out, depth);
+                        }
+                        out.print("</"+in.getLocalName()+">"); //$NON-NLS-1$ //$NON-NLS-2$
+                    }
+                    open = false;
+                    children = true;
+                }
+                else if (event == XMLStreamConstants.CHARACTERS) {
+                    if (open) {
+                        out.print('>');
+                        open = false;
+                    }
+                    out.print(escape(in.getText(), false));
+                }
+            }
+            out.println();
+            if (depth != 0) {
+                throw new IOException("Incomplete binary Rubato file "+binaryFile); //$NON-NLS-1$
+            }
+            if (out.checkError()) {
+                throw new IOException("Could not write "+xmlFile); //$NON-NLS-1$
+            }
+        }
+        catch (XMLStreamException e) {
+            throw new IOException(e.getMessage());
+        }
+        finally {
+            if (out != null) {
+                out.close();
+            }
+        }
+    }
+
+
+    /**
+     * Converts the file given as the first argument to the file
+     * given as the second argument. If the first file is in the
+     * binary format, it is converted to XML, otherwise it is
+     * converted from XML to the binary format.
+     */
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: BinaryConverter <input file> <output file>"); //$NON-NLS-1$
+            System.exit(1);
+        }
+        File input = new File(args[0]);
+        File output = new File(args[1]);
+        try {
+            if (BinaryFormat.isBinary(input)) {
+                toXML(input, output);
+            }
+            else {
+                toBinary(input, output);
+            }
+        }
+        catch (IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+
+    private static Reader openXML(File file)
+            throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(file));
+        in.mark(2);
+        int magic = in.read() | (in.read() << 8);
+        in.reset();
+        if (magic == GZIPInputStream.GZIP_MAGIC) {
+            in = new GZIPInputStream(in);
+        }
+        return new InputStreamReader(in, "UTF-8"); //$NON-NLS-1$
+    }
+
+
+    private static void printIndent(PrintStream out, int depth) {
+        out.println();
+        for (int i = 0; i < depth*2; i++) {
+            out.print(' ');
+        }
+    }
+
+
+    private static String escape(String s, boolean attribute) {
+        StringBuilder buf = null;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            String entity = null;
+            if (c == '&') {
+                entity = "&amp;"; //$NON-NLS-1$
+            }
+            else if (c == '<') {
+                entity = "&lt;"; //$NON-NLS-1$
+            }
+            else if (c == '>') {
+                entity = "&gt;"; //$NON-NLS-1$
+            }
+            else if (attribute && c == '"') {
+                entity = "&quot;"; //$NON-NLS-1$
+            }
+            else if (attribute && c == '\n') {
+                // would be normalized to a space when read back
+                entity = "&#10;"; //$NON-NLS-1$
+            }
+            else if (attribute && c == '\r') {
+                entity = "&#13;"; //$NON-NLS-1$
+            }
+            else if (attribute && c == '\t') {
+                entity = "&#9;"; //$NON-NLS-1$
+            }
+            if (entity != null && buf == null) {
+                buf = new StringBuilder(s.length()+16);
+                buf.append(s, 0, i);
+            }
+            if (buf != null) {
+                if (entity != null) {
+                    buf.append(entity);
+                }
+                else {
+                    buf.append(c);
+                }
+            }
+        }
+        return buf == null ? s : buf.toString();
+    }
+
+
+    private static final XMLInputFactory factory = XMLInputFactory.newInstance();
+
+    static {
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+    }
+}
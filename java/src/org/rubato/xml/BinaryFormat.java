@@ -0,0 +1,117 @@
+package org.rubato.xml;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Constants and helpers for the binary Rubato file format.
+ * A binary file has the same element structure as the
+ * XML-based format and starts with the {@link #MAGIC} number
+ * followed by the format {@link #VERSION}. Then follows a
+ * sequence of records, each starting with a tag byte:
+ * <ul>
+ * <li>{@link #START}: element name, number of attributes, and for each
+ *     attribute its name and its value</li>
+ * <li>{@link #TEXT}: a string</li>
+ * <li>{@link #END}: closes the last started element</li>
+ * </ul>
+ * Element names, attribute names and string valued attributes,
+ * such as form, module and denotator names, are interned: a reference
+ * is an unsigned variable-length integer, where 0 introduces a new
+ * constant which is appended to the constant table, and n > 0 refers
+ * to the constant at index n-1. Attribute values representing
+ * integers, rationals and reals, as in module elements, are written
+ * as raw numbers instead.
+ */
+final class BinaryFormat {
+
+    private BinaryFormat() { /* not allowed */ }
+
+
+    /**
+     * Returns true iff the specified file starts with the magic
+     * number of the binary format.
+     */
+    static boolean isBinary(File file) {
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new FileInputStream(file));
+            return in.readInt() == MAGIC;
+        }
+        catch (IOException e) {
+            return false;
+        }
+        finally {
+            if (in != null) {
+                try { in.close(); } catch (IOException e) { /* ignore */ }
+            }
+        }
+    }
+
+
+    /**
+     * Returns the value type that represents the specified attribute
+     * value exactly, i.e., converting the number read back to a string
+     * results in <code>value</code> again.
+     */
+    static int getValueType(String value) {
+        int len = value.length();
+        if (len == 0 || len > 24) {
+            return STRING_VALUE;
+        }
+        char c = value.charAt(0);
+        if (c != '-' && (c < '0' || c > '9')) {
+            return STRING_VALUE;
+        }
+        int slash = value.indexOf('/');
+        if (slash >= 0) {
+            if (isInteger(value.substring(0, slash)) && isInteger(value.substring(slash+1))
+                && value.charAt(slash+1) != '-' && value.charAt(slash+1) != '0') {
+                return RATIONAL_VALUE;
+            }
+            return STRING_VALUE;
+        }
+        if (isInteger(value)) {
+            return INT_VALUE;
+        }
+        try {
+            if (Double.toString(Double.parseDouble(value)).equals(value)) {
+                return REAL_VALUE;
+            }
+        }
+        catch (NumberFormatException e) {
+            // not a number
+        }
+        return STRING_VALUE;
+    }
+
+
+    private static boolean isInteger(String s) {
+        try {
+            return Integer.toString(Integer.parseInt(s)).equals(s);
+        }
+        catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+
+    /**
+     * Magic number "RBB" followed by a zero byte.
+     */
+    static final int MAGIC   = 0x52424200;
+    static final int VERSION = 1;
+
+    // record tags
+    static final byte START = 1;
+    static final byte END   = 2;
+    static final byte TEXT  = 3;
+
+    // attribute value types
+    static final byte STRING_VALUE   = 0;
+    static final byte INT_VALUE      = 1;
+    static final byte RATIONAL_VALUE = 2;
+    static final byte REAL_VALUE     = 3;
+}
@@ -0,0 +1,246 @@
+package org.rubato.xml;
+
+import static org.rubato.xml.BinaryFormat.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Delivers the contents of a file in the binary format
+ * (see {@link BinaryFormat}) as a sequence of events.
+ * Files are mapped into memory, so that they are not
+ * copied before parsing.
+ */
+final class BinarySource extends StreamingParser.Source {
+
+    /**
+     * Creates a source reading from the specified buffer, which
+     * must be positioned at the start of the binary data.
+     */
+    BinarySource(ByteBuffer buffer)
+            throws XMLStreamException {
+        this.buffer = buffer;
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new XMLStreamException("Data is not in the binary Rubato format"); //$NON-NLS-1$
+            }
+            version = buffer.getShort();
+        }
+        catch (BufferUnderflowException e) {
+            throw new XMLStreamException("Data is not in the binary Rubato format"); //$NON-NLS-1$
+        }
+        if (version > VERSION) {
+            throw new XMLStreamException("Unsupported version "+version+" of the binary Rubato format"); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+    }
+
+
+    /**
+     * Maps the specified file into memory.
+     */
+    static ByteBuffer map(File file)
+            throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        finally {
+            in.close();
+        }
+    }
+
+
+    /**
+     * Returns the version of the format the data has been written with.
+     */
+    int getVersion() {
+        return version;
+    }
+
+
+    boolean hasNext() {
+        return buffer.hasRemaining() && depth >= 0;
+    }
+
+
+    int next()
+            throws XMLStreamException {
+        try {
+            if (depth < 0 || !buffer.hasRemaining()) {
+                return XMLStreamConstants.END_DOCUMENT;
+            }
+            byte tag = buffer.get();
+            switch (tag) {
+            case START:
+                readStartElement();
+                elementStack.add(name);
+                depth++;
+                return XMLStreamConstants.START_ELEMENT;
+            case END:
+                name = elementStack.remove(elementStack.size()-1);
+                depth--;
+                if (depth == 0) {
+                    // end of the root element
+                    depth = -1;
+                }
+                return XMLStreamConstants.END_ELEMENT;
+            case TEXT:
+                text = readString();
+                return XMLStreamConstants.CHARACTERS;
+            default:
+                throw new XMLStreamException("Unknown record tag "+tag+" in binary Rubato data"); //$NON-NLS-1$ //$NON-NLS-2$
+            }
+        }
+        catch (IndexOutOfBoundsException e) {
+            throw new XMLStreamException("Unbalanced elements in binary Rubato data"); //$NON-NLS-1$
+        }
+        catch (BufferUnderflowException e) {
+            throw new XMLStreamException("Unexpected end of binary Rubato data"); //$NON-NLS-1$
+        }
+    }
+
+
+    String getLocalName() {
+        return name;
+    }
+
+
+    int getAttributeCount() {
+        return attributeCount;
+    }
+
+
+    String getAttributeLocalName(int i) {
+        return attributeNames[i];
+    }
+
+
+    String getAttributeValue(int i) {
+        return attributeValues[i];
+    }
+
+
+    String getText() {
+        return text;
+    }
+
+
+    void close() {
+        /* nothing to do, the mapping is released by the garbage collector */
+    }
+
+
+    private void readStartElement()
+            throws XMLStreamException {
+        name = readConstant();
+        attributeCount = readVarInt();
+        if (attributeNames.length < attributeCount) {
+            attributeNames = new String[attributeCount];
+            attributeValues = new String[attributeCount];
+        }
+        for (int i = 0; i < attributeCount; i++) {
+            attributeNames[i] = readConstant();
+            attributeValues[i] = readValue();
+        }
+    }
+
+
+    private String readValue()
+            throws XMLStreamException {
+        byte type = buffer.get();
+        switch (type) {
+        case STRING_VALUE:
+            return readConstant();
+        case INT_VALUE:
+            return Integer.toString(readSignedVarInt());
+        case RATIONAL_VALUE: {
+            int num = readSignedVarInt();
+            int denom = readVarInt();
+            return num+"/"+denom; //$NON-NLS-1$
+        }
+        case REAL_VALUE:
+            return Double.toString(buffer.getDouble());
+        default:
+            throw new XMLStreamException("Unknown value type "+type+" in binary Rubato data"); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+    }
+
+
+    private String readConstant()
+            throws XMLStreamException {
+        int index = readVarInt();
+        if (index == 0) {
+            String s = readString();
+            constants.add(s);
+            return s;
+        }
+        if (index > constants.size()) {
+            throw new XMLStreamException("Undefined constant "+index+" in binary Rubato data"); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        return constants.get(index-1);
+    }
+
+
+    private String readString() {
+        int len = readVarInt();
+        if (buffer.hasArray()) {
+            int pos = buffer.position();
+            buffer.position(pos+len);
+            return decode(buffer.array(), buffer.arrayOffset()+pos, len);
+        }
+        byte[] bytes = new byte[len];
+        buffer.get(bytes);
+        return decode(bytes, 0, len);
+    }
+
+
+    private static String decode(byte[] bytes, int offset, int len) {
+        try {
+            return new String(bytes, offset, len, "UTF-8"); //$NON-NLS-1$
+        }
+        catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    private int readSignedVarInt() {
+        int i = readVarInt();
+        return (i >>> 1) ^ -(i & 1);
+    }
+
+
+    private int readVarInt() {
+        int i = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            i |= (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return i;
+    }
+
+
+    private ByteBuffer        buffer;
+    private int               version;
+    private int               depth = 0;
+    private String            name;
+    private String            text;
+    private int               attributeCount = 0;
+    private String[]          attributeNames = new String[4];
+    private String[]          attributeValues = new String[4];
+    private ArrayList<String> constants = new ArrayList<String>();
+    private ArrayList<String> elementStack = new ArrayList<String>();
+}
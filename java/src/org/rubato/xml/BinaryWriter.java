@@ -0,0 +1,283 @@
+package org.rubato.xml;
+
+import static org.rubato.xml.BinaryFormat.*;
+import static org.rubato.xml.XMLConstants.ROOT_ELEMENT;
+import static org.rubato.xml.XMLConstants.TYPE_ATTR;
+
+import java.io.*;
+import java.util.HashMap;
+
+/**
+ * A writer for the binary Rubato file format, see {@link BinaryFormat}.
+ * Since it replaces the output methods of {@link XMLWriter}, everything
+ * that can be written as XML using the <code>toXML</code> methods can
+ * be written in the binary format, too. Binary files are read
+ * using {@link XMLReader} as usual.
+ */
+public class BinaryWriter extends XMLWriter {
+
+    /**
+     * Creates a writer to the specified file.
+     *
+     * @throws IOException iff the file cannot be opened
+     *         for writing
+     */
+    public BinaryWriter(File file)
+            throws IOException {
+        super(file, null);
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+    }
+
+
+    /**
+     * Creates a writer to the specified output stream.
+     */
+    public BinaryWriter(OutputStream out) {
+        super(null, null);
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+    }
+
+
+    /**
+     * Starts the binary file. This must be called before anything
+     * else is done.
+     */
+    public void open() {
+        try {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+        }
+        catch (IOException e) {
+            error = e;
+        }
+        startElement(ROOT_ELEMENT);
+    }
+
+
+    /**
+     * Ends the binary file. This must be called at the end.
+     */
+    public void close() {
+        endElement();
+        try {
+            out.close();
+        }
+        catch (IOException e) {
+            error = e;
+        }
+    }
+
+
+    /**
+     * Returns true iff an error occurred while writing.
+     */
+    public boolean checkError() {
+        return error != null;
+    }
+
+
+    public void openBlock(String element) {
+        startElement(element);
+    }
+
+
+    public void openBlock(String element, Object ... attrs) {
+        startElement(element, attrs);
+    }
+
+
+    public void openBlockWithType(String element, String type, Object ... attrs) {
+        startElementWithType(element, type, attrs);
+    }
+
+
+    public void openInline(String element) {
+        startElement(element);
+    }
+
+
+    public void openInline(String element, Object ... attrs) {
+        startElement(element, attrs);
+    }
+
+
+    public void closeBlock() {
+        endElement();
+    }
+
+
+    public void closeInline() {
+        endElement();
+    }
+
+
+    public void empty(String element) {
+        startElement(element);
+        endElement();
+    }
+
+
+    public void empty(String element, Object ... attrs) {
+        startElement(element, attrs);
+        endElement();
+    }
+
+
+    public void emptyWithType(String element, String type, Object ... attrs) {
+        startElementWithType(element, type, attrs);
+        endElement();
+    }
+
+
+    /**
+     * Adds the specified text. There is no need for conversion
+     * of special characters in the binary format.
+     */
+    public void writeTextNode(String text) {
+        writeText(text);
+    }
+
+
+    /**
+     * Adds the specified text.
+     */
+    public void text(String string) {
+        writeText(string);
+    }
+
+
+    /**
+     * Starts an element with the given tag name and the specified
+     * attributes which are given as alternating name/value pairs.
+     */
+    void startElement(String element, Object ... attrs) {
+        try {
+            out.writeByte(START);
+            writeConstant(element);
+            writeVarInt(attrs.length/2);
+            for (int i = 0; i+1 < attrs.length; i += 2) {
+                writeConstant(attrs[i].toString());
+                writeValue(attrs[i+1]);
+            }
+        }
+        catch (IOException e) {
+            error = e;
+        }
+    }
+
+
+    private void startElementWithType(String element, String type, Object ... attrs) {
+        Object[] typedAttrs = new Object[attrs.length+2];
+        typedAttrs[0] = TYPE_ATTR;
+        typedAttrs[1] = type;
+        System.arraycopy(attrs, 0, typedAttrs, 2, attrs.length);
+        startElement(element, typedAttrs);
+    }
+
+
+    /**
+     * Ends the last started element.
+     */
+    void endElement() {
+        try {
+            out.writeByte(END);
+        }
+        catch (IOException e) {
+            error = e;
+        }
+    }
+
+
+    /**
+     * Adds the specified text to the current element.
+     */
+    void writeText(String text) {
+        try {
+            out.writeByte(TEXT);
+            writeString(text);
+        }
+        catch (IOException e) {
+            error = e;
+        }
+    }
+
+
+    private void writeValue(Object value)
+            throws IOException {
+        if (value instanceof Integer) {
+            out.writeByte(INT_VALUE);
+            writeSignedVarInt((Integer)value);
+        }
+        else if (value instanceof Double) {
+            out.writeByte(REAL_VALUE);
+            out.writeDouble((Double)value);
+        }
+        else {
+            String s = value.toString();
+            switch (getValueType(s)) {
+            case INT_VALUE:
+                out.writeByte(INT_VALUE);
+                writeSignedVarInt(Integer.parseInt(s));
+                break;
+            case RATIONAL_VALUE: {
+                int slash = s.indexOf('/');
+                out.writeByte(RATIONAL_VALUE);
+                writeSignedVarInt(Integer.parseInt(s.substring(0, slash)));
+                writeVarInt(Integer.parseInt(s.substring(slash+1)));
+                break;
+            }
+            case REAL_VALUE:
+                out.writeByte(REAL_VALUE);
+                out.writeDouble(Double.parseDouble(s));
+                break;
+            default:
+                out.writeByte(STRING_VALUE);
+                writeConstant(s);
+                break;
+            }
+        }
+    }
+
+
+    private void writeConstant(String s)
+            throws IOException {
+        Integer index = constants.get(s);
+        if (index == null) {
+            constants.put(s, constants.size());
+            writeVarInt(0);
+            writeString(s);
+        }
+        else {
+            writeVarInt(index+1);
+        }
+    }
+
+
+    private void writeString(String s)
+            throws IOException {
+        byte[] bytes = s.getBytes("UTF-8"); //$NON-NLS-1$
+        writeVarInt(bytes.length);
+        out.write(bytes);
+    }
+
+
+    private void writeSignedVarInt(int i)
+            throws IOException {
+        writeVarInt((i << 1) ^ (i >> 31));
+    }
+
+
+    private void writeVarInt(int i)
+            throws IOException {
+        while ((i & ~0x7f) != 0) {
+            out.writeByte((i & 0x7f) | 0x80);
+            i >>>= 7;
+        }
+        out.writeByte(i);
+    }
+
+
+    private DataOutputStream         out;
+    private HashMap<String,Integer>  constants = new HashMap<String,Integer>();
+    private IOException              error = null;
+}
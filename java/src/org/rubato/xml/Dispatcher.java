@@ -21,8 +21,10 @@ package org.rubato.xml;
 
 import static org.rubato.xml.XMLConstants.TYPE_ATTR;
 
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.HashMap;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.rubato.math.module.*;
 import org.rubato.math.module.morphism.*;
@@ -31,6 +33,16 @@ import org.rubato.math.yoneda.ModuleMorphismMap;
 import org.rubato.math.yoneda.MorphismMap;
 import org.w3c.dom.Element;
 
+/**
+ * Creates modules, module elements, module morphisms and morphism maps
+ * from their XML representation. The objects are built by factories,
+ * i.e., prototypes implementing {@link XMLInputOutput}, registered
+ * by the value of the type attribute. The builtin factories are
+ * registered once at startup, plugins add their factories
+ * on initialization (see {@link org.rubato.composer.plugin.XMLTypePlugin}).
+ * Types and classes that have not been registered are looked up
+ * using reflection, but only once.
+ */
 public class Dispatcher {
 
     public static Dispatcher getDispatcher() {
@@ -39,118 +51,78 @@ public class Dispatcher {
 
     
     public Module resolveModule(XMLReader reader, Element moduleElement) {
-        Module module = null;
-        String moduleName = moduleElement.getAttribute(TYPE_ATTR);
-        XMLInputOutput<Module> dispatch = modules.get(moduleName);
-
-        if (dispatch != null) {
-            module = dispatch.fromXML(reader, moduleElement);
-        }
-
-        if (module == null) {
-            try {
-                Class<?> c = Class.forName("org.rubato.math.module."+moduleName); //$NON-NLS-1$
-                Method m = c.getMethod("fromXML", new Class[] { XMLReader.class, Element.class }); //$NON-NLS-1$
-                module = (Module)m.invoke(c, new Object[] { reader, moduleElement });
-            }
-            catch (Exception e) {
-                reader.setError("Cannot build module from %%1.", moduleName);
-            }
-        }
-
-        return module;
+        return modules.resolve(reader, moduleElement);
     }
 
     
     public ModuleMorphism resolveModuleMorphism(XMLReader reader, Element morphismElement) {
-        ModuleMorphism morphism = null;
-        String morphismName = morphismElement.getAttribute(TYPE_ATTR);
-        XMLInputOutput<ModuleMorphism> dispatch = moduleMorphisms.get(morphismName);
-        
-        if (dispatch != null) {
-            morphism = dispatch.fromXML(reader, morphismElement);
-        }
-        
-        if (morphism == null) {
-            try {
-                Class<?> c = Class.forName("org.rubato.math.module."+morphismName); //$NON-NLS-1$
-                Method m = c.getMethod("fromXML", new Class[] { XMLReader.class, Element.class }); //$NON-NLS-1$
-                morphism = (ModuleMorphism)m.invoke(c, new Object[] { reader, morphismElement });
-            }
-            catch (Exception e) {
-                reader.setError("Cannot build module morphism from %%1.", morphismName);
-            }
-        }
-
-        return morphism;
+        return moduleMorphisms.resolve(reader, morphismElement);
     }
 
     
     public ModuleElement resolveElement(XMLReader reader, Element element) {
-        ModuleElement moduleElement = null;
-        String elementName = element.getAttribute(TYPE_ATTR);
-        XMLInputOutput<ModuleElement> dispatch = elements.get(elementName);
-
-        if (dispatch != null) {
-            moduleElement = dispatch.fromXML(reader, element);
-        }
-
-        if (moduleElement == null) {
-            try {
-                Class<?> c = Class.forName("org.rubato.math.module."+elementName); //$NON-NLS-1$
-                Method m = c.getMethod("fromXML", new Class[] { XMLReader.class, Element.class }); //$NON-NLS-1$
-                moduleElement = (ModuleElement)m.invoke(c, new Object[] { reader, element });
-            }
-            catch (Exception e) {
-                reader.setError("Cannot build module from %%1.", elementName);
-            }
-        }
-
-        return moduleElement;
+        return elements.resolve(reader, element);
     }
 
     
     public MorphismMap resolveMorphismMap(XMLReader reader, Element morphismMapElement) {
-        MorphismMap morphismMap = null;
-        String morphismMapName = morphismMapElement.getAttribute(TYPE_ATTR);
-        XMLInputOutput<MorphismMap> dispatch = morphismMaps.get(morphismMapName);
-
-        if (dispatch != null) {
-            morphismMap = dispatch.fromXML(reader, morphismMapElement);
-        }
-
-        if (morphismMap == null) {
-            try {
-                Class<?> c = Class.forName(morphismMapName);
-                Method m = c.getMethod("fromXML", new Class[] { XMLReader.class, Element.class }); //$NON-NLS-1$
-                morphismMap = (MorphismMap)m.invoke(c, new Object[] { reader, morphismMapElement });
-            }
-            catch (Exception e) {
-                reader.setError("Cannot build morphism map from %%1.", morphismMapName);
-            }
-        }
-
-        return morphismMap;
+        return morphismMaps.resolve(reader, morphismMapElement);
+    }
+    
+    
+    /**
+     * Creates a module using the static method <code>fromXML</code>
+     * of the class <code>className</code>.
+     */
+    public Module resolveModuleClass(XMLReader reader, Element moduleElement, String className) {
+        return modules.resolveClass(reader, moduleElement, className);
+    }
+    
+    
+    /**
+     * Creates a module morphism using the static method <code>fromXML</code>
+     * of the class <code>className</code>.
+     */
+    public ModuleMorphism resolveModuleMorphismClass(XMLReader reader, Element morphismElement, String className) {
+        return moduleMorphisms.resolveClass(reader, morphismElement, className);
+    }
+    
+    
+    /**
+     * Creates a module element using the static method <code>fromXML</code>
+     * of the class <code>className</code>.
+     */
+    public ModuleElement resolveElementClass(XMLReader reader, Element element, String className) {
+        return elements.resolveClass(reader, element, className);
+    }
+    
+    
+    /**
+     * Creates a morphism map using the static method <code>fromXML</code>
+     * of the class <code>className</code>.
+     */
+    public MorphismMap resolveMorphismMapClass(XMLReader reader, Element morphismMapElement, String className) {
+        return morphismMaps.resolveClass(reader, morphismMapElement, className);
     }
 
     
     public void addModule(XMLInputOutput<Module> dispatch) {
-        modules.put(dispatch.getElementTypeName(), dispatch);
+        modules.add(dispatch);
     }
     
     
     public void addModuleMorphism(XMLInputOutput<ModuleMorphism> dispatch) {
-        moduleMorphisms.put(dispatch.getElementTypeName(), dispatch);
+        moduleMorphisms.add(dispatch);
     }
     
     
     public void addMorphismMap(XMLInputOutput<MorphismMap> dispatch) {
-        morphismMaps.put(dispatch.getElementTypeName(), dispatch);
+        morphismMaps.add(dispatch);
     }
     
     
     public void addModuleElement(XMLInputOutput<ModuleElement> dispatch) {
-        elements.put(dispatch.getElementTypeName(), dispatch);
+        elements.add(dispatch);
     }    
     
 
@@ -188,6 +160,7 @@ public class Dispatcher {
         addModule(ModularPolynomialProperFreeModule.getXMLInputOutput());
         
         addModule(ProductRing.getXMLInputOutput());
+        addModule(ProductProperFreeModule.getXMLInputOuput());
         
         addModule(RestrictedModule.getXMLInputOutput());
         
@@ -219,6 +192,10 @@ public class Dispatcher {
         addModuleElement(ModularPolynomialElement.getXMLInputOutput());
         addModuleElement(ModularPolynomialProperFreeElement.getXMLInputOutput());
 
+        addModuleElement(ProductElement.getXMLInputOutput());
+        addModuleElement(ProductProperFreeElement.getXMLInputOutput());
+        addModuleElement(DirectSumElement.getXMLInputOutput());
+
         addModuleElement(RestrictedElement.getXMLInputOutput());
         
         // module morphisms
@@ -266,10 +243,178 @@ public class Dispatcher {
     }
 
     
-    private HashMap<String,XMLInputOutput<Module>> modules = new HashMap<String,XMLInputOutput<Module>>();
-    private HashMap<String,XMLInputOutput<ModuleMorphism>> moduleMorphisms = new HashMap<String,XMLInputOutput<ModuleMorphism>>();
-    private HashMap<String,XMLInputOutput<ModuleElement>> elements = new HashMap<String,XMLInputOutput<ModuleElement>>();
-    private HashMap<String,XMLInputOutput<MorphismMap>> morphismMaps = new HashMap<String,XMLInputOutput<MorphismMap>>();
+    /**
+     * The factories for one kind of objects.
+     */
+    private static final class Registry<T> {
+        
+        /**
+         * @param kind the name of the kind of objects used in error messages
+         * @param packageName the package of the classes of unregistered types
+         */
+        public Registry(Class<T> cls, String kind, String className, String packageName) {
+            this.cls = cls;
+            this.kind = kind;
+            this.className = className;
+            this.packageName = packageName;
+        }
+        
+        public void add(XMLInputOutput<T> prototype) {
+            byType.put(prototype.getElementTypeName(), new PrototypeFactory<T>(prototype));
+        }
+        
+        public T resolve(XMLReader reader, Element element) {
+            String type = element.getAttribute(TYPE_ATTR);
+            Factory<T> factory = byType.get(type);
+            if (factory == null) {
+                factory = findFactory(type);
+            }
+            T result = null;
+            if (factory != UNKNOWN) {
+                result = factory.fromXML(reader, element);
+            }
+            if (result == null) {
+                reader.setError("Cannot build "+kind+" from %%1.", type); //$NON-NLS-1$ //$NON-NLS-2$
+            }
+            return result;
+        }
+        
+        public T resolveClass(XMLReader reader, Element element, String name) {
+            Factory<T> factory = byClass.get(name);
+            if (factory == null) {
+                try {
+                    factory = new StaticFactory<T>(Class.forName(name), cls);
+                }
+                catch (ClassNotFoundException e) {
+                    reader.setError(className+" class %%1 not found", name); //$NON-NLS-1$
+                    return null;
+                }
+                catch (NoSuchMethodException e) {
+                    reader.setError("Cannot build "+kind+" from class %%1", name); //$NON-NLS-1$
+                    return null;
+                }
+                byClass.put(name, factory);
+            }
+            return factory.fromXML(reader, element);
+        }
+        
+        /**
+         * Looks up the class for the specified type name and registers
+         * its factory, which is either given by the static method
+         * <code>getXMLInputOutput</code> or by the static method
+         * <code>fromXML</code>.
+         */
+        @SuppressWarnings("unchecked")
+        private synchronized Factory<T> findFactory(String type) {
+            Factory<T> factory = byType.get(type);
+            if (factory != null) {
+                return factory;
+            }
+            factory = (Factory<T>)UNKNOWN;
+            try {
+                Class<?> c = Class.forName(packageName+type);
+                for (String methodName : new String[] { "getXMLInputOutput", "getXMLInputOuput" }) { //$NON-NLS-1$ //$NON-NLS-2$
+                    try {
+                        Method m = c.getMethod(methodName);
+                        if (Modifier.isStatic(m.getModifiers()) && XMLInputOutput.class.isAssignableFrom(m.getReturnType())) {
+                            factory = new PrototypeFactory<T>((XMLInputOutput<T>)m.invoke(null));
+                            break;
+                        }
+                    }
+                    catch (NoSuchMethodException e) {
+                        // try next
+                    }
+                }
+                if (factory == UNKNOWN) {
+                    factory = new StaticFactory<T>(c, cls);
+                }
+            }
+            catch (Exception e) {
+                // no such class or method: remember that the type is unknown
+            }
+            byType.put(type, factory);
+            return factory;
+        }
+        
+        private Class<T> cls;
+        private String   kind;
+        private String   className;
+        private String   packageName;
+        private ConcurrentHashMap<String,Factory<T>> byType = new ConcurrentHashMap<String,Factory<T>>();
+        private ConcurrentHashMap<String,Factory<T>> byClass = new ConcurrentHashMap<String,Factory<T>>();
+    }
+    
+    
+    /**
+     * Builds objects from their XML representation.
+     */
+    private interface Factory<T> {
+        
+        public T fromXML(XMLReader reader, Element element);
+    }
+    
+    
+    /**
+     * A factory calling the method <code>fromXML</code> of a prototype.
+     */
+    private static final class PrototypeFactory<T> implements Factory<T> {
+        
+        public PrototypeFactory(XMLInputOutput<T> prototype) {
+            this.prototype = prototype;
+        }
+        
+        public T fromXML(XMLReader reader, Element element) {
+            return prototype.fromXML(reader, element);
+        }
+        
+        private XMLInputOutput<T> prototype;
+    }
+    
+    
+    /**
+     * A factory calling the static method <code>fromXML</code> of a class.
+     */
+    private static final class StaticFactory<T> implements Factory<T> {
+        
+        public StaticFactory(Class<?> c, Class<T> cls)
+                throws NoSuchMethodException {
+            this.method = c.getMethod("fromXML", XMLReader.class, Element.class); //$NON-NLS-1$
+            if (!Modifier.isStatic(method.getModifiers())) {
+                throw new NoSuchMethodException();
+            }
+            this.cls = cls;
+        }
+        
+        public T fromXML(XMLReader reader, Element element) {
+            try {
+                return cls.cast(method.invoke(null, new Object[] { reader, element }));
+            }
+            catch (InvocationTargetException e) {
+                reader.setError(e.getCause() instanceof Exception ? (Exception)e.getCause() : e);
+            }
+            catch (Exception e) {
+                reader.setError(e);
+            }
+            return null;
+        }
+        
+        private Method   method;
+        private Class<T> cls;
+    }
+    
+    
+    private static final Factory<Object> UNKNOWN = new Factory<Object>() {
+        public Object fromXML(XMLReader reader, Element element) { return null; }
+    };
+    
+    private Registry<Module> modules =
+        new Registry<Module>(Module.class, "module", "Module", "org.rubato.math.module."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+    private Registry<ModuleMorphism> moduleMorphisms =
+        new Registry<ModuleMorphism>(ModuleMorphism.class, "module morphism", "ModuleMorphism", "org.rubato.math.module.morphism."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+    private Registry<ModuleElement> elements =
+        new Registry<ModuleElement>(ModuleElement.class, "module element", "ModuleElement", "org.rubato.math.module."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+    private Registry<MorphismMap> morphismMaps =
+        new Registry<MorphismMap>(MorphismMap.class, "morphism map", "MorphismMap", ""); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
     
     private final static Dispatcher dispatcher = new Dispatcher();    
 }
@@ -0,0 +1,586 @@
+package org.rubato.xml;
+
+import static org.rubato.xml.XMLConstants.*;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.rubato.math.yoneda.*;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Parses the XML-based Rubato file format using StAX, or the
+ * binary format (see {@link BinaryFormat}), without building
+ * a DOM tree for the whole document.
+ * Each toplevel element is read into a small DOM tree of its own
+ * and dispatched to the usual <code>fromXML</code> methods as soon
+ * as it closes. Toplevel power and list denotators, which
+ * may have a huge number of factors, are streamed one factor
+ * at a time.
+ * Denotators containing references to denotators or forms defined
+ * later in the document are kept aside and built as soon as all the
+ * referenced denotators and forms are known, so that the elements
+ * following that definition can already refer to them.
+ */
+final class StreamingParser {
+
+    StreamingParser(XMLReader reader, DocumentBuilder builder) {
+        this.reader = reader;
+        this.builder = builder;
+    }
+
+
+    /**
+     * Parses the XML document read from <code>r</code>.
+     */
+    void parse(Reader r)
+            throws XMLStreamException {
+        parse(new StaxSource(factory.createXMLStreamReader(r)));
+    }
+
+
+    /**
+     * Parses the document delivered by <code>in</code>.
+     */
+    void parse(Source in)
+            throws XMLStreamException {
+        try {
+            if (!nextStartElement(in)) {
+                reader.setError("Document root element is not %%1", ROOT_ELEMENT);
+                return;
+            }
+            if (!in.getLocalName().equals(ROOT_ELEMENT)) {
+                reader.setError("Document root element is not %%1", ROOT_ELEMENT);
+                return;
+            }
+            while (nextStartElement(in)) {
+                parseRoot(in);
+            }
+        }
+        finally {
+            in.close();
+        }
+    }
+
+
+    /**
+     * Reports the denotators that are still kept aside because of
+     * forward references at the end of the document.
+     * @return false iff some references could not be resolved
+     */
+    boolean resolvePending() {
+        boolean success = true;
+        for (List<Pending> list : waitingForDenotators.values()) {
+            success &= reportUnresolved(list);
+        }
+        for (List<Pending> list : waitingForForms.values()) {
+            success &= reportUnresolved(list);
+        }
+        waitingForDenotators.clear();
+        waitingForForms.clear();
+        return success;
+    }
+
+
+    private boolean reportUnresolved(List<Pending> list) {
+        for (Pending p : list) {
+            reader.setError("Could not resolve references in denotator %%1", p.getName());
+        }
+        return list.isEmpty();
+    }
+
+
+    /**
+     * Parses the toplevel element starting at the current position.
+     */
+    private void parseRoot(Source in)
+            throws XMLStreamException {
+        if (isCollection(in)) {
+            parseCollection(in);
+        }
+        else {
+            Element element = readElement(in, builder.newDocument());
+            if (element.getNodeName().equals(DENOTATOR)) {
+                Element reference = findForwardReference(element);
+                if (reference != null) {
+                    postpone(new PendingElement(element), reference);
+                }
+                else {
+                    reader.parseRoot(element);
+                    denotatorDefined(element.getAttribute(NAME_ATTR));
+                }
+            }
+            else {
+                reader.parseRoot(element);
+                if (element.getNodeName().equals(FORM)) {
+                    formsDefined();
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Keeps <code>p</code> aside until the denotator or form
+     * referred to by <code>reference</code> is defined.
+     */
+    private void postpone(Pending p, Element reference) {
+        HashMap<String,List<Pending>> waiting;
+        String name;
+        if (reference.hasAttribute(REF_ATTR)) {
+            waiting = waitingForDenotators;
+            name = reference.getAttribute(REF_ATTR);
+        }
+        else {
+            waiting = waitingForForms;
+            name = reference.getAttribute(FORM_ATTR);
+        }
+        List<Pending> list = waiting.get(name);
+        if (list == null) {
+            list = new LinkedList<Pending>();
+            waiting.put(name, list);
+        }
+        list.add(p);
+    }
+
+
+    /**
+     * Builds the postponed denotators waiting for the toplevel
+     * denotator <code>name</code>, if it has been defined.
+     */
+    private void denotatorDefined(String name) {
+        if (!waitingForDenotators.isEmpty() && reader.getDenotator(name) != null) {
+            resume(waitingForDenotators.remove(name));
+        }
+    }
+
+
+    /**
+     * Builds the postponed denotators waiting for forms that have been defined,
+     * including the forms defined inside a toplevel form.
+     */
+    private void formsDefined() {
+        for (String name : new ArrayList<String>(waitingForForms.keySet())) {
+            if (reader.getForm(name) != null) {
+                resume(waitingForForms.remove(name));
+            }
+        }
+    }
+
+
+    /**
+     * Builds each of the specified postponed denotators, if all its references
+     * are known now, or keeps it aside for the next missing reference.
+     */
+    private void resume(List<Pending> list) {
+        if (list == null) {
+            return;
+        }
+        for (Pending p : list) {
+            Element reference = p.getForwardReference();
+            if (reference != null) {
+                postpone(p, reference);
+            }
+            else {
+                p.build();
+                denotatorDefined(p.getName());
+            }
+        }
+    }
+
+
+    /**
+     * Parses a power or list denotator, one factor at a time.
+     */
+    private void parseCollection(Source in)
+            throws XMLStreamException {
+        Document document = builder.newDocument();
+        Element shell = createElement(in, document);
+        PendingCollection collection = new PendingCollection(shell);
+        boolean failed = false;
+        while (nextStartElement(in)) {
+            Element child = readElement(in, document);
+            if (failed || !child.getNodeName().equals(DENOTATOR)) {
+                continue;
+            }
+            if (findForwardReference(child) != null) {
+                collection.postpone(child);
+            }
+            else {
+                Denotator factor = reader.parseDenotator(child);
+                if (factor == null) {
+                    failed = true;
+                }
+                else {
+                    collection.factors.add(factor);
+                }
+            }
+        }
+        if (failed) {
+            return;
+        }
+        Element reference = collection.getForwardReference();
+        if (reference != null) {
+            postpone(collection, reference);
+        }
+        else {
+            collection.build();
+            denotatorDefined(collection.getName());
+        }
+    }
+
+
+    /**
+     * Returns true iff the current element is a toplevel
+     * power or list denotator (and not a reference).
+     */
+    private static boolean isCollection(Source in) {
+        if (!in.getLocalName().equals(DENOTATOR)) {
+            return false;
+        }
+        if (in.getAttributeValue(REF_ATTR) != null) {
+            return false;
+        }
+        String type = in.getAttributeValue(TYPE_ATTR);
+        return POWER_TYPE.equals(type) || LIST_TYPE.equals(type);
+    }
+
+
+    /**
+     * Returns the first denotator element in <code>element</code>
+     * that refers to a denotator or has a form that is not yet known,
+     * or null if there is none.
+     */
+    private Element findForwardReference(Element element) {
+        if (element.getNodeName().equals(DENOTATOR)) {
+            if (element.hasAttribute(REF_ATTR)) {
+                return reader.getDenotator(element.getAttribute(REF_ATTR)) == null ? element : null;
+            }
+            if (element.hasAttribute(FORM_ATTR) && reader.getForm(element.getAttribute(FORM_ATTR)) == null) {
+                return element;
+            }
+        }
+        NodeList childNodes = element.getChildNodes();
+        for (int i = 0; i < childNodes.getLength(); i++) {
+            Node child = childNodes.item(i);
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                Element reference = findForwardReference((Element)child);
+                if (reference != null) {
+                    return reference;
+                }
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * Moves to the next start element below the current element.
+     * @return false if the current element ends before
+     */
+    private static boolean nextStartElement(Source in)
+            throws XMLStreamException {
+        while (in.hasNext()) {
+            int event = in.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                return true;
+            }
+            else if (event == XMLStreamConstants.END_ELEMENT) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * Reads the element starting at the current position,
+     * including its contents, into a DOM tree.
+     * On return, the current position is the end of the element.
+     */
+    private static Element readElement(Source in, Document document)
+            throws XMLStreamException {
+        Element element = createElement(in, document);
+        Element current = element;
+        int depth = 1;
+        while (depth > 0) {
+            int event = in.next();
+            switch (event) {
+            case XMLStreamConstants.START_ELEMENT: {
+                Element child = createElement(in, document);
+                current.appendChild(child);
+                current = child;
+                depth++;
+                break;
+            }
+            case XMLStreamConstants.END_ELEMENT: {
+                Node parent = current.getParentNode();
+                if (parent instanceof Element) {
+                    current = (Element)parent;
+                }
+                depth--;
+                break;
+            }
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.SPACE:
+                current.appendChild(document.createTextNode(in.getText()));
+                break;
+            case XMLStreamConstants.CDATA:
+                current.appendChild(document.createCDATASection(in.getText()));
+                break;
+            default:
+                break;
+            }
+        }
+        return element;
+    }
+
+
+    /**
+     * Creates a DOM element with the name and the attributes
+     * of the current start element.
+     */
+    private static Element createElement(Source in, Document document) {
+        Element element = document.createElement(in.getLocalName());
+        for (int i = 0; i < in.getAttributeCount(); i++) {
+            element.setAttribute(in.getAttributeLocalName(i), in.getAttributeValue(i));
+        }
+        return element;
+    }
+
+
+    /**
+     * Builds a power or list denotator from the attributes of <code>shell</code>
+     * and the specified factors.
+     * @return the denotator or null if building failed
+     */
+    private Denotator makeCollection(Element shell, List<Denotator> factors) {
+        String type = shell.getAttribute(TYPE_ATTR);
+        if (!shell.hasAttribute(FORM_ATTR)) {
+            reader.setError("Type %%1 of element <%2> is missing attribute %%3.", type, DENOTATOR, FORM_ATTR);
+            return null;
+        }
+        if (!reader.resolvePendingFormReferences()) {
+            // error has already been set
+            return null;
+        }
+        String formName = shell.getAttribute(FORM_ATTR);
+        Form form = reader.getForm(formName);
+        if (form == null) {
+            reader.setError("Form with name %%1 does not exist.", formName);
+            return null;
+        }
+        NameDenotator name = null;
+        if (shell.hasAttribute(NAME_ATTR)) {
+            name = NameDenotator.make(shell.getAttribute(NAME_ATTR));
+        }
+        try {
+            if (type.equals(POWER_TYPE) && form instanceof PowerForm) {
+                return new PowerDenotator(name, (PowerForm)form, factors);
+            }
+            else if (type.equals(LIST_TYPE) && form instanceof ListForm) {
+                return new ListDenotator(name, (ListForm)form, factors);
+            }
+            reader.setError("Form with name %%1 is not a form of type %%2.", formName, type);
+            return null;
+        }
+        catch (Exception e) {
+            reader.setError(e.getMessage());
+            return null;
+        }
+    }
+
+
+    /**
+     * A toplevel definition that has been postponed because of forward references.
+     */
+    private interface Pending {
+        /**
+         * Returns the first element referring to a denotator or form
+         * that is not yet known, or null if there is none.
+         */
+        public Element getForwardReference();
+        public void build();
+        public String getName();
+    }
+
+
+    private final class PendingElement implements Pending {
+
+        public PendingElement(Element element) {
+            this.element = element;
+        }
+
+        public Element getForwardReference() {
+            return findForwardReference(element);
+        }
+
+        public void build() {
+            reader.parseRoot(element);
+        }
+
+        public String getName() {
+            return element.getAttribute(NAME_ATTR);
+        }
+
+        private Element element;
+    }
+
+
+    private final class PendingCollection implements Pending {
+
+        public PendingCollection(Element shell) {
+            this.shell = shell;
+        }
+
+        public void postpone(Element element) {
+            postponedIndexes.add(factors.size());
+            postponedElements.add(element);
+            factors.add(null);
+        }
+
+        public Element getForwardReference() {
+            Element reference = findForwardReference(shell);
+            for (int i = 0; reference == null && i < postponedElements.size(); i++) {
+                reference = findForwardReference(postponedElements.get(i));
+            }
+            return reference;
+        }
+
+        public void build() {
+            for (int i = 0; i < postponedElements.size(); i++) {
+                Denotator factor = reader.parseDenotator(postponedElements.get(i));
+                if (factor == null) {
+                    return;
+                }
+                factors.set(postponedIndexes.get(i), factor);
+            }
+            reader.defineDenotator(makeCollection(shell, factors));
+        }
+
+        public String getName() {
+            return shell.getAttribute(NAME_ATTR);
+        }
+
+        private Element            shell;
+        private ArrayList<Denotator> factors = new ArrayList<Denotator>();
+        private ArrayList<Integer> postponedIndexes = new ArrayList<Integer>();
+        private ArrayList<Element> postponedElements = new ArrayList<Element>();
+    }
+
+
+    /**
+     * The events of a document in the XML-based format or
+     * in the binary format. The events are those of {@link XMLStreamConstants},
+     * where only START_ELEMENT, END_ELEMENT, CHARACTERS and CDATA
+     * are considered.
+     */
+    abstract static class Source {
+
+        abstract boolean hasNext() throws XMLStreamException;
+
+        /**
+         * Moves to the next event and returns its type.
+         */
+        abstract int next() throws XMLStreamException;
+
+        abstract String getLocalName();
+
+        abstract int getAttributeCount();
+
+        abstract String getAttributeLocalName(int i);
+
+        abstract String getAttributeValue(int i);
+
+        abstract String getText();
+
+        abstract void close() throws XMLStreamException;
+
+        /**
+         * Returns the value of the attribute <code>name</code>
+         * of the current start element, or null, if there is none.
+         */
+        String getAttributeValue(String name) {
+            for (int i = 0; i < getAttributeCount(); i++) {
+                if (getAttributeLocalName(i).equals(name)) {
+                    return getAttributeValue(i);
+                }
+            }
+            return null;
+        }
+    }
+
+
+    private static final class StaxSource extends Source {
+
+        public StaxSource(XMLStreamReader in) {
+            this.in = in;
+        }
+
+        boolean hasNext() throws XMLStreamException {
+            return in.hasNext();
+        }
+
+        int next() throws XMLStreamException {
+            return in.next();
+        }
+
+        String getLocalName() {
+            return in.getLocalName();
+        }
+
+        int getAttributeCount() {
+            return in.getAttributeCount();
+        }
+
+        String getAttributeLocalName(int i) {
+            return in.getAttributeLocalName(i);
+        }
+
+        String getAttributeValue(int i) {
+            return in.getAttributeValue(i);
+        }
+
+        String getAttributeValue(String name) {
+            return in.getAttributeValue(null, name);
+        }
+
+        String getText() {
+            return in.getText();
+        }
+
+        void close() throws XMLStreamException {
+            in.close();
+        }
+
+        private XMLStreamReader in;
+    }
+
+
+    private static final String POWER_TYPE = "power"; //$NON-NLS-1$
+    private static final String LIST_TYPE  = "list"; //$NON-NLS-1$
+
+    private static final XMLInputFactory factory = XMLInputFactory.newInstance();
+
+    static {
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+    }
+
+    private XMLReader          reader;
+    private DocumentBuilder    builder;
+    // postponed denotators by the name of the next missing denotator or form
+    private HashMap<String,List<Pending>> waitingForDenotators = new HashMap<String,List<Pending>>();
+    private HashMap<String,List<Pending>> waitingForForms = new HashMap<String,List<Pending>>();
+}
@@ -23,7 +23,6 @@ import static org.rubato.util.TextUtils.replaceStrings;
 import static org.rubato.xml.XMLConstants.*;
 
 import java.io.*;
-import java.lang.reflect.Method;
 import java.util.*;
 import java.util.zip.GZIPInputStream;
 
@@ -53,18 +52,34 @@ public final class XMLReader implements RubatoDictionary {
 
     /**
      * Creates an XMLReader from the given <code>file</code>.
+     * The file may be compressed with GZIP or be in the
+     * binary format written by {@link BinaryWriter}.
      */
     public XMLReader(File file)
             throws IOException {
-        this(new FileReader(file));
+        this(openReader(file));
         this.file = file;
+        binary = (reader == null);
+    }
+    
+    
+    /**
+     * Returns a reader for the XML <code>file</code>, which may be
+     * compressed, or null if the file is in the binary format.
+     */
+    private static Reader openReader(File file)
+            throws IOException {
+        if (BinaryFormat.isBinary(file)) {
+            return null;
+        }
         try {
             // try to find out if the file is compressed
             InputStream in = new GZIPInputStream(new FileInputStream(file));
-            reader = new InputStreamReader(in, "UTF-8");
+            return new InputStreamReader(in, "UTF-8");
         } catch (IOException e) {
             // not compressed
         }
+        return new FileReader(file);
     }
     
     
@@ -100,8 +115,14 @@ public final class XMLReader implements RubatoDictionary {
     private void parse(Reader r) {
         reset();
         try {
-            Document document = builder.parse(new InputSource(r));
-            parseStart(document.getDocumentElement());
+            if (streaming) {
+                streamingParser = new StreamingParser(this, builder);
+                streamingParser.parse(r);
+            }
+            else {
+                Document document = builder.parse(new InputSource(r));
+                parseStart(document.getDocumentElement());
+            }
             resolveReferences();
         }
         catch (SAXException e) {
@@ -110,14 +131,58 @@ public final class XMLReader implements RubatoDictionary {
         catch (Exception e) {
             setError(e);
         }
+        finally {
+            streamingParser = null;
+        }
     }
     
     
     /**
-     * Parses an XML file.
+     * Sets whether the XML file is parsed by streaming (the default)
+     * or by building the DOM tree of the whole document first.
+     * When streaming, only the tree of one toplevel element at a time
+     * is kept in memory, and the factors of toplevel power and list
+     * denotators are parsed one at a time. Also, denotators may
+     * refer to denotators defined later in the document.
+     * In both cases, the <code>fromXML</code> methods are called with DOM
+     * elements as usual.
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+    
+    
+    /**
+     * Parses an XML file, or a file in the binary format,
+     * if the reader has been created from such a file.
      */
     public void parse() {
-        parse(reader);
+        if (binary) {
+            parseBinary(file);
+        }
+        else {
+            parse(reader);
+        }
+    }
+    
+    
+    /**
+     * Parses a file in the binary format, see {@link BinaryWriter}.
+     * The file is mapped into memory and always streamed.
+     */
+    private void parseBinary(File f) {
+        reset();
+        try {
+            streamingParser = new StreamingParser(this, builder);
+            streamingParser.parse(new BinarySource(BinarySource.map(f)));
+            resolveReferences();
+        }
+        catch (Exception e) {
+            setError(e);
+        }
+        finally {
+            streamingParser = null;
+        }
     }
     
     
@@ -225,7 +290,7 @@ public final class XMLReader implements RubatoDictionary {
      * Parse a toplevel <code>node</node>, i.e., an element
      * directly below the root element.
      */
-    private void parseRoot(Node node) {
+    void parseRoot(Node node) {
         if (node.getNodeType() == Node.ELEMENT_NODE) {
             String name = node.getNodeName();
             if (name.equals(DEFINE_MODULE)) {
@@ -305,24 +370,10 @@ public final class XMLReader implements RubatoDictionary {
             return dispatcher.resolveModule(this, moduleNode);
         }
 
-        // case 3: a class is given, use reflection
+        // case 3: a class is given, use its static method fromXML
         if (moduleNode.hasAttribute(CLASS_ATTR)) {
             String moduleClass = moduleNode.getAttribute(CLASS_ATTR);
-            try {
-                Class<?> cls = Class.forName(moduleClass);
-                Method method = cls.getMethod("fromXML", new Class[] { XMLReader.class, Element.class }); //$NON-NLS-1$
-                return (Module)method.invoke(cls, new Object[] { this, moduleNode });
-            }
-            catch (ClassNotFoundException e) {
-                setError("Module class %%1 not found", moduleClass);                        
-            }
-            catch (NoSuchMethodException e) {
-                setError("Cannot build module from class %%1", moduleClass);
-            }
-            catch (Exception e) {
-                setError(e);
-            }
-            return null;
+            return dispatcher.resolveModuleClass(this, moduleNode, moduleClass);
         }
         
         // not enough information: parsing fails
@@ -378,24 +429,10 @@ public final class XMLReader implements RubatoDictionary {
             return dispatcher.resolveElement(this, elementNode);
         }
 
-        // case 3: a class is given, use reflection
+        // case 3: a class is given, use its static method fromXML
         if (elementNode.hasAttribute(CLASS_ATTR)) {
             String elementClass = elementNode.getAttribute(CLASS_ATTR);
-            try {
-                Class<?> cls = Class.forName(elementClass);
-                Method method = cls.getMethod("fromXML", new Class[] { XMLReader.class, Element.class });
-                return (ModuleElement)method.invoke(cls, new Object[] { this, elementNode });
-            }
-            catch (ClassNotFoundException e) {
-                setError("ModuleElement class %%1 not found", elementClass);                        
-            }
-            catch (NoSuchMethodException e) {
-                setError("Cannot build module element from class %%1", elementClass);
-            }
-            catch (Exception e) {
-                setError(e);
-            }
-            return null;
+            return dispatcher.resolveElementClass(this, elementNode, elementClass);
         }
         
         // not enough information: parsing fails
@@ -450,24 +487,10 @@ public final class XMLReader implements RubatoDictionary {
             return dispatcher.resolveModuleMorphism(this, morphismNode);
         }
 
-        // case 3: a class is given, use reflection
+        // case 3: a class is given, use its static method fromXML
         if (morphismNode.hasAttribute(CLASS_ATTR)) {
             String morphismClass = morphismNode.getAttribute(CLASS_ATTR);
-            try {
-                Class<?> c = Class.forName(morphismClass);
-                Method m = c.getMethod("fromXML", new Class[] { XMLReader.class, Element.class }); //$NON-NLS-1$
-                return (ModuleMorphism)m.invoke(c, new Object[] { this, morphismNode });
-            }
-            catch (ClassNotFoundException e) {
-                setError("ModuleMorphism class %%1 not found", morphismClass);                        
-            }
-            catch (NoSuchMethodException e) {
-                setError("Cannot build module morphism from class %%1", morphismClass);
-            }
-            catch (Exception e) {
-                setError(e);
-            }
-            return null;
+            return dispatcher.resolveModuleMorphismClass(this, morphismNode, morphismClass);
         }
         
         // not enough information: parsing fails
@@ -487,24 +510,10 @@ public final class XMLReader implements RubatoDictionary {
             return dispatcher.resolveMorphismMap(this, morphismMapNode);
         }
 
-        // case 2: a class is given, use reflection
+        // case 2: a class is given, use its static method fromXML
         if (morphismMapNode.hasAttribute(CLASS_ATTR)) {
             String morphismMapClass = morphismMapNode.getAttribute(CLASS_ATTR);
-            try {
-                Class<?> cls = Class.forName(morphismMapClass);
-                Method method = cls.getMethod("fromXML", new Class[] { XMLReader.class, Element.class });
-                return (MorphismMap)method.invoke(cls, new Object[] { this, morphismMapNode });
-            }
-            catch (ClassNotFoundException e) {
-                setError("MorphismMap class %%1 not found", morphismMapClass);                        
-            }
-            catch (NoSuchMethodException e) {
-                setError("Cannot build morphism map from class %%1", morphismMapClass);
-            }
-            catch (Exception e) {
-                setError(e);
-            }
-            return null;
+            return dispatcher.resolveMorphismMapClass(this, morphismMapNode, morphismMapClass);
         }
         
         // not enough information: parsing fails
@@ -525,7 +534,15 @@ public final class XMLReader implements RubatoDictionary {
      * into the <i>denotators</i> hashtable,
      */
     private void parseDenotatorDefinition(Element denotatorNode) {
-        Denotator denotator = parseDenotator(denotatorNode);
+        defineDenotator(parseDenotator(denotatorNode));
+    }
+    
+    
+    /**
+     * Puts the specified toplevel denotator into the <i>denotators</i>
+     * hashtable, if it has a name.
+     */
+    void defineDenotator(Denotator denotator) {
         if (denotator != null && !(denotator instanceof DenotatorReference)) {
             String name = denotator.getNameString();
             if (name.length() != 0) {
@@ -542,11 +559,9 @@ public final class XMLReader implements RubatoDictionary {
     public Denotator parseDenotator(Element denotatorNode) {
         // make sure that all form references are resolved
         // before parsing any denotator
-        if (!formsToBeResolved.isEmpty()) {
-            if (!resolveFormReferences()) {
-                // error has already been set
-                return null;
-            }
+        if (!resolvePendingFormReferences()) {
+            // error has already been set
+            return null;
         }
         // case 1: a reference is given, try to resolve it
         if (denotatorNode.hasAttribute(REF_ATTR)) {
@@ -1137,8 +1152,21 @@ public final class XMLReader implements RubatoDictionary {
     
     private boolean resolveReferences() {
         return resolveFormReferences() &&
+               (streamingParser == null || streamingParser.resolvePending()) &&
                resolveDenoReferences();
     }
+    
+    
+    /**
+     * Resolves the form references collected so far, if any.
+     * @return false iff some references could not be resolved
+     */
+    boolean resolvePendingFormReferences() {
+        if (!formsToBeResolved.isEmpty()) {
+            return resolveFormReferences();
+        }
+        return true;
+    }
 
     
     private boolean resolveFormReferences() {
@@ -1200,4 +1228,8 @@ public final class XMLReader implements RubatoDictionary {
 
     private Reader reader = null;
     private File   file   = null;
+    
+    private boolean         streaming = true;
+    private boolean         binary = false;
+    private StreamingParser streamingParser = null;
 }
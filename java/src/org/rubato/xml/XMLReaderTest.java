@@ -0,0 +1,186 @@
+package org.rubato.xml;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.rubato.base.Repository;
+import org.rubato.base.RubatoException;
+import org.rubato.math.arith.ZString;
+import org.rubato.math.module.DomainException;
+import org.rubato.math.module.ZElement;
+import org.rubato.math.module.ZRing;
+import org.rubato.math.module.ZStringElement;
+import org.rubato.math.yoneda.Denotator;
+import org.rubato.math.yoneda.Form;
+import org.rubato.math.yoneda.NameDenotator;
+import org.rubato.math.yoneda.PowerDenotator;
+import org.rubato.math.yoneda.PowerForm;
+import org.rubato.math.yoneda.SimpleDenotator;
+import org.rubato.math.yoneda.SimpleForm;
+import org.rubato.rubettes.util.FlatScore;
+
+import junit.framework.TestCase;
+
+public class XMLReaderTest extends TestCase {
+
+    private PowerDenotator score;
+    private List<Denotator> notes;
+
+    public void setUp() throws RubatoException {
+        double[][] columns = new double[][]{{0,1,2,3},{60,62,64,65},{100,90,80,70},{1,1,1,2},{0,0,1,1}};
+        PowerDenotator unnamedScore = new FlatScore(columns).toDenotator();
+        this.notes = new ArrayList<Denotator>();
+        for (int i = 0; i < unnamedScore.getFactorCount(); i++) {
+            this.notes.add(unnamedScore.getFactor(i).namedCopy(NameDenotator.make("note"+i)));
+        }
+        PowerForm scoreForm = (PowerForm)Repository.systemRepository().getForm("Score");
+        this.score = new PowerDenotator(NameDenotator.make("score"), scoreForm, this.notes);
+    }
+
+    public void testStreamingAndDocumentParsing() {
+        //notes defined before the score refers to them
+        StringBuilder xml = new StringBuilder();
+        xml.append(this.toXML(this.notes));
+        xml.append(this.toXML(this.score));
+        String document = this.wrap(xml.toString());
+        for (boolean streaming : new boolean[]{true, false}) {
+            XMLReader reader = new XMLReader(new StringReader(document));
+            reader.setStreaming(streaming);
+            reader.parse();
+            TestCase.assertFalse(reader.hasError());
+            TestCase.assertEquals(this.score, reader.getDenotator("score"));
+            TestCase.assertEquals(this.notes.get(2), reader.getDenotator("note2"));
+        }
+    }
+
+    public void testForwardReferences() {
+        //the score refers to notes defined later
+        StringBuilder xml = new StringBuilder();
+        xml.append(this.toXML(this.score));
+        xml.append(this.toXML(this.notes));
+        XMLReader reader = new XMLReader(new StringReader(this.wrap(xml.toString())));
+        reader.parse();
+        TestCase.assertFalse(reader.hasError());
+        TestCase.assertEquals(this.score, reader.getDenotator("score"));
+
+        //a reference that is never defined
+        xml = new StringBuilder();
+        xml.append(this.toXML(this.score));
+        xml.append(this.toXML(this.notes.subList(0, 3)));
+        reader = new XMLReader(new StringReader(this.wrap(xml.toString())));
+        reader.parse();
+        TestCase.assertTrue(reader.hasError());
+        TestCase.assertNull(reader.getDenotator("score"));
+    }
+
+    public void testForwardFormReferences() throws RubatoException {
+        //a denotator of a form defined later is referred to by a denotator after that form
+        SimpleForm form = new SimpleForm(NameDenotator.make("XMLReaderTestSimple"), ZRing.ring);
+        PowerForm powerForm = new PowerForm(NameDenotator.make("XMLReaderTestPower"), form);
+        Denotator element = new SimpleDenotator(NameDenotator.make("element"), form, new ZElement(3));
+        Denotator set = new PowerDenotator(NameDenotator.make("set"), powerForm, Collections.singletonList(element));
+        StringBuilder xml = new StringBuilder();
+        xml.append(this.toXML(element));
+        xml.append(this.toXML(form));
+        xml.append(this.toXML(powerForm));
+        xml.append(this.toXML(set));
+        XMLReader reader = new XMLReader(new StringReader(this.wrap(xml.toString())));
+        reader.parse();
+        TestCase.assertFalse(reader.getErrors().toString(), reader.hasError());
+        TestCase.assertEquals(element, reader.getDenotator("element"));
+        TestCase.assertEquals(set, reader.getDenotator("set"));
+    }
+
+    public void testBinaryFormat() throws IOException {
+        File binaryFile = File.createTempFile("score", ".rbb");
+        File xmlFile = File.createTempFile("score", ".rbo");
+        File convertedFile = File.createTempFile("score", ".rbb");
+        try {
+            BinaryWriter writer = new BinaryWriter(binaryFile);
+            writer.open();
+            writer.writeDenotator(this.score);
+            writer.close();
+            TestCase.assertFalse(writer.checkError());
+            TestCase.assertEquals(this.score, this.read(binaryFile).getDenotator("score"));
+
+            //binary -> XML -> binary
+            BinaryConverter.toXML(binaryFile, xmlFile);
+            TestCase.assertEquals(this.score, this.read(xmlFile).getDenotator("score"));
+            BinaryConverter.toBinary(xmlFile, convertedFile);
+            TestCase.assertEquals(binaryFile.length(), convertedFile.length());
+            XMLReader reader = this.read(convertedFile);
+            TestCase.assertEquals(this.score, reader.getDenotator("score"));
+            TestCase.assertEquals(this.notes.get(1), reader.getDenotator("note1"));
+        }
+        finally {
+            binaryFile.delete();
+            xmlFile.delete();
+            convertedFile.delete();
+        }
+    }
+
+    public void testBinaryFormatKeepsWhitespace() throws IOException, DomainException {
+        //whitespace in a text value and in a name written as an attribute
+        SimpleForm stringForm = (SimpleForm)Repository.systemRepository().getForm("String");
+        String name = "tab\tnew\nline";
+        Denotator blank = new SimpleDenotator(NameDenotator.make(name), stringForm, new ZStringElement(new ZString(" \t ", 1)));
+        File binaryFile = File.createTempFile("blank", ".rbb");
+        File xmlFile = File.createTempFile("blank", ".rbo");
+        File convertedFile = File.createTempFile("blank", ".rbb");
+        try {
+            BinaryWriter writer = new BinaryWriter(binaryFile);
+            writer.open();
+            writer.writeDenotator(blank);
+            writer.close();
+            BinaryConverter.toXML(binaryFile, xmlFile);
+            TestCase.assertEquals(blank, this.read(xmlFile).getDenotator(name));
+            BinaryConverter.toBinary(xmlFile, convertedFile);
+            TestCase.assertEquals(blank, this.read(convertedFile).getDenotator(name));
+        }
+        finally {
+            binaryFile.delete();
+            xmlFile.delete();
+            convertedFile.delete();
+        }
+    }
+
+    private XMLReader read(File file) throws IOException {
+        XMLReader reader = new XMLReader(file);
+        reader.parse();
+        TestCase.assertFalse(reader.getErrors().toString(), reader.hasError());
+        return reader;
+    }
+
+    private String toXML(List<Denotator> denotators) {
+        StringBuilder xml = new StringBuilder();
+        for (Denotator denotator : denotators) {
+            xml.append(this.toXML(denotator));
+        }
+        return xml.toString();
+    }
+
+    private String toXML(Form form) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XMLWriter writer = new XMLWriter(new PrintStream(out));
+        form.toXML(writer);
+        return out.toString();
+    }
+
+    private String toXML(Denotator denotator) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XMLWriter writer = new XMLWriter(new PrintStream(out));
+        denotator.toXML(writer);
+        return out.toString();
+    }
+
+    private String wrap(String xml) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<Rubato>\n" + xml + "</Rubato>\n";
+    }
+
+}
@@ -108,6 +108,18 @@ public class XMLWriter {
     public XMLWriter(PrintStream out) {
         this(out, 0);
     }
+
+    
+    /**
+     * Creates a writer to the specified PrintStream, where
+     * <code>file</code> is the file written to, if any.
+     * This is used by subclasses that replace the output
+     * methods to produce a different format.
+     */
+    XMLWriter(File file, PrintStream out) {
+        this(out, 0);
+        this.file = file;
+    }
     
     
     /**